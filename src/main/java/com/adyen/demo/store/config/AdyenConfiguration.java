@@ -0,0 +1,87 @@
+package com.adyen.demo.store.config;
+
+import com.adyen.Client;
+import com.adyen.demo.store.service.AdyenStubServer;
+import com.adyen.demo.store.service.PooledAdyenHttpClient;
+import com.adyen.enums.Environment;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration of the Adyen API client and of the executor its calls run on.
+ */
+@Configuration
+public class AdyenConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(AdyenConfiguration.class);
+
+    private final ApplicationProperties applicationProperties;
+
+    private final ApplicationProperties.Adyen properties;
+
+    public AdyenConfiguration(ApplicationProperties applicationProperties) {
+        this.applicationProperties = applicationProperties;
+        this.properties = applicationProperties.getAdyen();
+    }
+
+    @Bean
+    public Client adyenClient(
+        @Value("${ADYEN_API_KEY}") String apiKey,
+        MeterRegistry meterRegistry,
+        ObjectProvider<AdyenStubServer> adyenStubServer
+    ) {
+        Client client = new Client(apiKey, Environment.TEST);
+        AdyenStubServer stub = adyenStubServer.getIfAvailable();
+        if (stub != null) {
+            log.warn("Adyen calls are answered by the stub at {}", stub.getUrl());
+            client.getConfig().setCheckoutEndpoint(stub.getUrl() + "/checkout");
+            client.getConfig().setEndpoint(stub.getUrl());
+        }
+        if (properties.getCheckoutEndpoint() != null) {
+            client.getConfig().setCheckoutEndpoint(properties.getCheckoutEndpoint());
+        }
+        if (properties.getEndpoint() != null) {
+            client.getConfig().setEndpoint(properties.getEndpoint());
+        }
+        client.setTimeouts((int) properties.getConnectTimeoutMs(), (int) properties.getCallTimeoutMs());
+        client.setHttpClient(
+            new PooledAdyenHttpClient(
+                properties.getMaxConnections(),
+                properties.getConnectTimeoutMs(),
+                properties.getCallTimeoutMs(),
+                meterRegistry
+            )
+        );
+        return client;
+    }
+
+    /**
+     * Bounded executor for the blocking calls to Adyen, kept apart from the web server threads and from the
+     * {@code taskExecutor}. Calls submitted when all threads are busy and the queue is full are rejected, rather than
+     * run on the calling thread.
+     */
+    @Bean(name = "adyenExecutor")
+    public Executor adyenExecutor() {
+        log.debug("Creating Adyen I/O Executor");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getExecutorPoolSize());
+        executor.setMaxPoolSize(properties.getExecutorPoolSize());
+        executor.setQueueCapacity(properties.getExecutorQueueCapacity());
+        executor.setThreadNamePrefix("adyen-");
+        return executor;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "application.adyen-stub", name = "enabled", havingValue = "true")
+    public AdyenStubServer adyenStubServer(@Value("${ADYEN_HMAC_KEY}") String hmacKey) {
+        return new AdyenStubServer(applicationProperties.getAdyenStub(), hmacKey);
+    }
+}
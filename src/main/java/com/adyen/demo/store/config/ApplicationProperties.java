@@ -1,5 +1,7 @@
 package com.adyen.demo.store.config;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -9,4 +11,687 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final ImageStore imageStore = new ImageStore();
+
+    private final Catalog catalog = new Catalog();
+
+    private final Search search = new Search();
+
+    private final Cart cart = new Cart();
+
+    private final Idempotency idempotency = new Idempotency();
+
+    private final PaymentMethodsCache paymentMethodsCache = new PaymentMethodsCache();
+
+    private final Adyen adyen = new Adyen();
+
+    private final AdyenStub adyenStub = new AdyenStub();
+
+    public ImageStore getImageStore() {
+        return imageStore;
+    }
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Cart getCart() {
+        return cart;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public PaymentMethodsCache getPaymentMethodsCache() {
+        return paymentMethodsCache;
+    }
+
+    public Adyen getAdyen() {
+        return adyen;
+    }
+
+    public AdyenStub getAdyenStub() {
+        return adyenStub;
+    }
+
+    public static class ImageStore {
+
+        private String directory = "./build/image-store";
+
+        private long maxAgeSeconds = 31536000L;
+
+        private String derivativeDirectory = "./build/image-cache";
+
+        private long derivativeMaxBytes = 256L * 1024 * 1024;
+
+        private long derivativeMaxPixels = 40_000_000L;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getMaxAgeSeconds() {
+            return maxAgeSeconds;
+        }
+
+        public void setMaxAgeSeconds(long maxAgeSeconds) {
+            this.maxAgeSeconds = maxAgeSeconds;
+        }
+
+        public String getDerivativeDirectory() {
+            return derivativeDirectory;
+        }
+
+        public void setDerivativeDirectory(String derivativeDirectory) {
+            this.derivativeDirectory = derivativeDirectory;
+        }
+
+        public long getDerivativeMaxBytes() {
+            return derivativeMaxBytes;
+        }
+
+        public void setDerivativeMaxBytes(long derivativeMaxBytes) {
+            this.derivativeMaxBytes = derivativeMaxBytes;
+        }
+
+        public long getDerivativeMaxPixels() {
+            return derivativeMaxPixels;
+        }
+
+        public void setDerivativeMaxPixels(long derivativeMaxPixels) {
+            this.derivativeMaxPixels = derivativeMaxPixels;
+        }
+    }
+
+    public static class Catalog {
+
+        private boolean snapshotEnabled = true;
+
+        private boolean facetIndexEnabled = true;
+
+        private int importChunkSize = 1000;
+
+        public boolean isSnapshotEnabled() {
+            return snapshotEnabled;
+        }
+
+        public void setSnapshotEnabled(boolean snapshotEnabled) {
+            this.snapshotEnabled = snapshotEnabled;
+        }
+
+        public boolean isFacetIndexEnabled() {
+            return facetIndexEnabled;
+        }
+
+        public void setFacetIndexEnabled(boolean facetIndexEnabled) {
+            this.facetIndexEnabled = facetIndexEnabled;
+        }
+
+        public int getImportChunkSize() {
+            return importChunkSize;
+        }
+
+        public void setImportChunkSize(int importChunkSize) {
+            this.importChunkSize = importChunkSize;
+        }
+    }
+
+    public static class Search {
+
+        private boolean indexEnabled = true;
+
+        private int rebuildBatchSize = 1000;
+
+        private boolean suggesterEnabled = true;
+
+        private int maxSuggestions = 10;
+
+        private long popularityRefreshMs = 600000L;
+
+        public boolean isIndexEnabled() {
+            return indexEnabled;
+        }
+
+        public void setIndexEnabled(boolean indexEnabled) {
+            this.indexEnabled = indexEnabled;
+        }
+
+        public int getRebuildBatchSize() {
+            return rebuildBatchSize;
+        }
+
+        public void setRebuildBatchSize(int rebuildBatchSize) {
+            this.rebuildBatchSize = rebuildBatchSize;
+        }
+
+        public boolean isSuggesterEnabled() {
+            return suggesterEnabled;
+        }
+
+        public void setSuggesterEnabled(boolean suggesterEnabled) {
+            this.suggesterEnabled = suggesterEnabled;
+        }
+
+        public int getMaxSuggestions() {
+            return maxSuggestions;
+        }
+
+        public void setMaxSuggestions(int maxSuggestions) {
+            this.maxSuggestions = maxSuggestions;
+        }
+
+        public long getPopularityRefreshMs() {
+            return popularityRefreshMs;
+        }
+
+        public void setPopularityRefreshMs(long popularityRefreshMs) {
+            this.popularityRefreshMs = popularityRefreshMs;
+        }
+    }
+
+    public static class Cart {
+
+        private boolean writeBehindEnabled = false;
+
+        private long flushIntervalMs = 1000L;
+
+        private int flushBatchSize = 200;
+
+        private long idleTimeoutMs = 1800000L;
+
+        private long abandonedTimeoutMs = 604800000L;
+
+        private int reaperChunkSize = 500;
+
+        private long repriceIntervalMs = 1000L;
+
+        private int repriceBatchSize = 200;
+
+        private long guestTokenValiditySeconds = 2592000L;
+
+        private int guestMaxLines = 50;
+
+        private int maxLineQuantity = 999;
+
+        public boolean isWriteBehindEnabled() {
+            return writeBehindEnabled;
+        }
+
+        public void setWriteBehindEnabled(boolean writeBehindEnabled) {
+            this.writeBehindEnabled = writeBehindEnabled;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getFlushBatchSize() {
+            return flushBatchSize;
+        }
+
+        public void setFlushBatchSize(int flushBatchSize) {
+            this.flushBatchSize = flushBatchSize;
+        }
+
+        public long getIdleTimeoutMs() {
+            return idleTimeoutMs;
+        }
+
+        public void setIdleTimeoutMs(long idleTimeoutMs) {
+            this.idleTimeoutMs = idleTimeoutMs;
+        }
+
+        public long getAbandonedTimeoutMs() {
+            return abandonedTimeoutMs;
+        }
+
+        public void setAbandonedTimeoutMs(long abandonedTimeoutMs) {
+            this.abandonedTimeoutMs = abandonedTimeoutMs;
+        }
+
+        public int getReaperChunkSize() {
+            return reaperChunkSize;
+        }
+
+        public void setReaperChunkSize(int reaperChunkSize) {
+            this.reaperChunkSize = reaperChunkSize;
+        }
+
+        public long getRepriceIntervalMs() {
+            return repriceIntervalMs;
+        }
+
+        public void setRepriceIntervalMs(long repriceIntervalMs) {
+            this.repriceIntervalMs = repriceIntervalMs;
+        }
+
+        public int getRepriceBatchSize() {
+            return repriceBatchSize;
+        }
+
+        public void setRepriceBatchSize(int repriceBatchSize) {
+            this.repriceBatchSize = repriceBatchSize;
+        }
+
+        public long getGuestTokenValiditySeconds() {
+            return guestTokenValiditySeconds;
+        }
+
+        public void setGuestTokenValiditySeconds(long guestTokenValiditySeconds) {
+            this.guestTokenValiditySeconds = guestTokenValiditySeconds;
+        }
+
+        public int getGuestMaxLines() {
+            return guestMaxLines;
+        }
+
+        public void setGuestMaxLines(int guestMaxLines) {
+            this.guestMaxLines = guestMaxLines;
+        }
+
+        public int getMaxLineQuantity() {
+            return maxLineQuantity;
+        }
+
+        public void setMaxLineQuantity(int maxLineQuantity) {
+            this.maxLineQuantity = maxLineQuantity;
+        }
+    }
+
+    public static class Idempotency {
+
+        private boolean enabled = true;
+
+        private long ttlMs = 86400000L;
+
+        private int maxEntries = 10000;
+
+        private long waitTimeoutMs = 30000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTtlMs() {
+            return ttlMs;
+        }
+
+        public void setTtlMs(long ttlMs) {
+            this.ttlMs = ttlMs;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getWaitTimeoutMs() {
+            return waitTimeoutMs;
+        }
+
+        public void setWaitTimeoutMs(long waitTimeoutMs) {
+            this.waitTimeoutMs = waitTimeoutMs;
+        }
+    }
+
+    public static class PaymentMethodsCache {
+
+        private boolean enabled = true;
+
+        private long ttlMs = 300000L;
+
+        private long staleMs = 3600000L;
+
+        private int maxEntries = 1000;
+
+        private long amountBucketSize = 5000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTtlMs() {
+            return ttlMs;
+        }
+
+        public void setTtlMs(long ttlMs) {
+            this.ttlMs = ttlMs;
+        }
+
+        public long getStaleMs() {
+            return staleMs;
+        }
+
+        public void setStaleMs(long staleMs) {
+            this.staleMs = staleMs;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getAmountBucketSize() {
+            return amountBucketSize;
+        }
+
+        public void setAmountBucketSize(long amountBucketSize) {
+            this.amountBucketSize = amountBucketSize;
+        }
+    }
+
+    public static class Adyen {
+
+        private int executorPoolSize = 20;
+
+        private int executorQueueCapacity = 100;
+
+        private long connectTimeoutMs = 5000L;
+
+        private long callTimeoutMs = 30000L;
+
+        private int maxConnections = 20;
+
+        private String checkoutEndpoint;
+
+        private String endpoint;
+
+        private int bulkheadMaxCalls = 10;
+
+        private int circuitBreakerWindowSize = 50;
+
+        private int circuitBreakerMinimumCalls = 10;
+
+        private int circuitBreakerFailureRateThreshold = 50;
+
+        private long circuitBreakerOpenMs = 30000L;
+
+        private int circuitBreakerHalfOpenCalls = 5;
+
+        private int retryMaxAttempts = 3;
+
+        private long retryBackoffMs = 200L;
+
+        private long retryMaxBackoffMs = 2000L;
+
+        public int getExecutorPoolSize() {
+            return executorPoolSize;
+        }
+
+        public void setExecutorPoolSize(int executorPoolSize) {
+            this.executorPoolSize = executorPoolSize;
+        }
+
+        public int getExecutorQueueCapacity() {
+            return executorQueueCapacity;
+        }
+
+        public void setExecutorQueueCapacity(int executorQueueCapacity) {
+            this.executorQueueCapacity = executorQueueCapacity;
+        }
+
+        public long getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(long connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public long getCallTimeoutMs() {
+            return callTimeoutMs;
+        }
+
+        public void setCallTimeoutMs(long callTimeoutMs) {
+            this.callTimeoutMs = callTimeoutMs;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public String getCheckoutEndpoint() {
+            return checkoutEndpoint;
+        }
+
+        public void setCheckoutEndpoint(String checkoutEndpoint) {
+            this.checkoutEndpoint = checkoutEndpoint;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public int getBulkheadMaxCalls() {
+            return bulkheadMaxCalls;
+        }
+
+        public void setBulkheadMaxCalls(int bulkheadMaxCalls) {
+            this.bulkheadMaxCalls = bulkheadMaxCalls;
+        }
+
+        public int getCircuitBreakerWindowSize() {
+            return circuitBreakerWindowSize;
+        }
+
+        public void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+            this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+        }
+
+        public int getCircuitBreakerMinimumCalls() {
+            return circuitBreakerMinimumCalls;
+        }
+
+        public void setCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+            this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+        }
+
+        public int getCircuitBreakerFailureRateThreshold() {
+            return circuitBreakerFailureRateThreshold;
+        }
+
+        public void setCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+            this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+        }
+
+        public long getCircuitBreakerOpenMs() {
+            return circuitBreakerOpenMs;
+        }
+
+        public void setCircuitBreakerOpenMs(long circuitBreakerOpenMs) {
+            this.circuitBreakerOpenMs = circuitBreakerOpenMs;
+        }
+
+        public int getCircuitBreakerHalfOpenCalls() {
+            return circuitBreakerHalfOpenCalls;
+        }
+
+        public void setCircuitBreakerHalfOpenCalls(int circuitBreakerHalfOpenCalls) {
+            this.circuitBreakerHalfOpenCalls = circuitBreakerHalfOpenCalls;
+        }
+
+        public int getRetryMaxAttempts() {
+            return retryMaxAttempts;
+        }
+
+        public void setRetryMaxAttempts(int retryMaxAttempts) {
+            this.retryMaxAttempts = retryMaxAttempts;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+
+        public long getRetryMaxBackoffMs() {
+            return retryMaxBackoffMs;
+        }
+
+        public void setRetryMaxBackoffMs(long retryMaxBackoffMs) {
+            this.retryMaxBackoffMs = retryMaxBackoffMs;
+        }
+    }
+
+    public static class AdyenStub {
+
+        private boolean enabled = false;
+
+        private int port = 8089;
+
+        private long latencyMedianMs = 150L;
+
+        private long latencyP99Ms = 1500L;
+
+        private double errorRate = 0d;
+
+        private Map<String, Integer> resultCodes = new LinkedHashMap<>();
+
+        private boolean webhooksEnabled = true;
+
+        private String webhookUrl = "http://localhost:8080/api/webhook/notification";
+
+        private String webhookUsername = "webhook";
+
+        private String webhookPassword = "admin";
+
+        private long webhookDelayMs = 1000L;
+
+        private int webhookMaxPending = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public long getLatencyMedianMs() {
+            return latencyMedianMs;
+        }
+
+        public void setLatencyMedianMs(long latencyMedianMs) {
+            this.latencyMedianMs = latencyMedianMs;
+        }
+
+        public long getLatencyP99Ms() {
+            return latencyP99Ms;
+        }
+
+        public void setLatencyP99Ms(long latencyP99Ms) {
+            this.latencyP99Ms = latencyP99Ms;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public void setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+        }
+
+        public Map<String, Integer> getResultCodes() {
+            return resultCodes;
+        }
+
+        public void setResultCodes(Map<String, Integer> resultCodes) {
+            this.resultCodes = resultCodes;
+        }
+
+        public boolean isWebhooksEnabled() {
+            return webhooksEnabled;
+        }
+
+        public void setWebhooksEnabled(boolean webhooksEnabled) {
+            this.webhooksEnabled = webhooksEnabled;
+        }
+
+        public String getWebhookUrl() {
+            return webhookUrl;
+        }
+
+        public void setWebhookUrl(String webhookUrl) {
+            this.webhookUrl = webhookUrl;
+        }
+
+        public String getWebhookUsername() {
+            return webhookUsername;
+        }
+
+        public void setWebhookUsername(String webhookUsername) {
+            this.webhookUsername = webhookUsername;
+        }
+
+        public String getWebhookPassword() {
+            return webhookPassword;
+        }
+
+        public void setWebhookPassword(String webhookPassword) {
+            this.webhookPassword = webhookPassword;
+        }
+
+        public long getWebhookDelayMs() {
+            return webhookDelayMs;
+        }
+
+        public void setWebhookDelayMs(long webhookDelayMs) {
+            this.webhookDelayMs = webhookDelayMs;
+        }
+
+        public int getWebhookMaxPending() {
+            return webhookMaxPending;
+        }
+
+        public void setWebhookMaxPending(int webhookMaxPending) {
+            this.webhookMaxPending = webhookMaxPending;
+        }
+    }
+}
@@ -90,6 +90,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             .antMatchers("/api/product-categories").hasAuthority(AuthoritiesConstants.ADMIN)
             .antMatchers("/api/product-orders").hasAuthority(AuthoritiesConstants.ADMIN)
             .antMatchers("/api/checkout/redirect").permitAll()
+            .antMatchers("/api/guest-cart").permitAll()
+            .antMatchers(HttpMethod.GET, "/api/products/*/image").permitAll()
             .antMatchers("/api/admin/**").hasAuthority(AuthoritiesConstants.ADMIN)
             .antMatchers("/api/**").authenticated()
             .antMatchers("/management/health").permitAll()
@@ -0,0 +1,91 @@
+package com.adyen.demo.store.config.liquibase;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import com.adyen.demo.store.service.ImageStore;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Liquibase change moving the legacy {@code product.image} blobs into the {@link ImageStore}
+ * and recording their hash in {@code product.image_hash}.
+ */
+public class ProductImageStoreMigration implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 100;
+
+    private String directory;
+
+    private int migrated;
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        ImageStore imageStore = new ImageStore(Paths.get(directory));
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try (
+            PreparedStatement select = connection.prepareStatement(
+                "select id, image from product where image is not null and id > ? order by id"
+            );
+            PreparedStatement update = connection.prepareStatement("update product set image_hash = ? where id = ?")
+        ) {
+            // read the blobs a page at a time, so only one page of them is held in memory
+            select.setMaxRows(BATCH_SIZE);
+            select.setFetchSize(BATCH_SIZE);
+            long lastId = Long.MIN_VALUE;
+            int read;
+            do {
+                read = 0;
+                select.setLong(1, lastId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        update.setString(1, imageStore.store(rs.getBytes(2)));
+                        update.setLong(2, lastId);
+                        update.addBatch();
+                        read++;
+                    }
+                }
+                if (read > 0) {
+                    update.executeBatch();
+                    migrated += read;
+                }
+            } while (read == BATCH_SIZE);
+        } catch (SQLException | IOException e) {
+            throw new CustomChangeException("Could not move product images to " + directory, e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return migrated + " product images moved to " + directory;
+    }
+
+    @Override
+    public void setUp() {
+        // nothing to set up
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+        // no resources needed
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("directory", directory);
+        return errors;
+    }
+}
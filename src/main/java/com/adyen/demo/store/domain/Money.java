@@ -0,0 +1,158 @@
+package com.adyen.demo.store.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.validation.constraints.AssertFalse;
+
+/**
+ * An amount of money, as a whole number of minor units of its currency, cents for euros, like the Adyen API expects.
+ * <p>
+ * Money is immutable, and adding or multiplying amounts is exact long arithmetic. It is stored in two columns, the
+ * amount and the ISO 4217 currency code, which entities name with {@link javax.persistence.AttributeOverride}s. In
+ * JSON it is a decimal number in the major unit, in the {@link #DEFAULT_CURRENCY}, which the shop is priced in.
+ */
+@Embeddable
+public class Money implements Serializable, Comparable<Money> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The currency the shop is priced in.
+     */
+    public static final String DEFAULT_CURRENCY = "EUR";
+
+    @Column(name = "amount", nullable = false)
+    private long amount;
+
+    @Column(name = "currency", length = 3, nullable = false)
+    private String currency;
+
+    protected Money() {
+        // for JPA
+    }
+
+    private Money(long amount, String currency) {
+        this.amount = amount;
+        this.currency = currency;
+    }
+
+    /**
+     * @param amount   the amount in minor units of the currency.
+     * @param currency the ISO 4217 currency code.
+     * @return the money.
+     * @throws IllegalArgumentException if the currency code is unknown.
+     */
+    public static Money of(long amount, String currency) {
+        return new Money(amount, Currency.getInstance(currency).getCurrencyCode());
+    }
+
+    /**
+     * @param amount   the amount in the major unit of the currency, euros for euros.
+     * @param currency the ISO 4217 currency code.
+     * @return the money.
+     * @throws IllegalArgumentException if the currency code is unknown.
+     * @throws ArithmeticException      if the amount is more precise than the minor unit of the currency.
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        Currency unit = Currency.getInstance(currency);
+        return new Money(
+            amount.setScale(unit.getDefaultFractionDigits(), RoundingMode.UNNECESSARY).unscaledValue().longValueExact(),
+            unit.getCurrencyCode()
+        );
+    }
+
+    /**
+     * @param amount the amount in euros, the {@link #DEFAULT_CURRENCY}.
+     * @return the money.
+     * @throws ArithmeticException if the amount is more precise than a cent.
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    public static Money zero(String currency) {
+        return of(0L, currency);
+    }
+
+    /**
+     * @return the amount in minor units of the currency.
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.addExact(amount, other.amount), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.subtractExact(amount, other.amount), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(amount, quantity), currency);
+    }
+
+    @JsonIgnore
+    @AssertFalse(message = "must not be negative")
+    public boolean isNegative() {
+        return amount < 0;
+    }
+
+    /**
+     * @return the amount in the major unit of the currency, euros for euros.
+     */
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(amount, Currency.getInstance(currency).getDefaultFractionDigits());
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(amount, other.amount);
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money money = (Money) o;
+        return amount == money.amount && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(amount, currency);
+    }
+
+    @Override
+    public String toString() {
+        return currency + " " + toBigDecimal().toPlainString();
+    }
+}
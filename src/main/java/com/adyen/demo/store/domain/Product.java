@@ -1,11 +1,13 @@
 package com.adyen.demo.store.domain;
 
 import com.adyen.demo.store.domain.enumeration.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModel;
 import java.io.Serializable;
-import java.math.BigDecimal;
 import javax.persistence.*;
+import javax.validation.Valid;
 import javax.validation.constraints.*;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
@@ -33,19 +35,33 @@ public class Product implements Serializable {
     private String description;
 
     @NotNull
-    @DecimalMin(value = "0")
-    @Column(name = "price", precision = 21, scale = 2, nullable = false)
-    private BigDecimal price;
+    @Valid
+    @Embedded
+    @AttributeOverrides(
+        {
+            @AttributeOverride(name = "amount", column = @Column(name = "price_amount", nullable = false)),
+            @AttributeOverride(name = "currency", column = @Column(name = "price_currency", length = 3, nullable = false)),
+        }
+    )
+    private Money price;
 
     @NotNull
     @Enumerated(EnumType.STRING)
     @Column(name = "item_size", nullable = false)
     private Size itemSize;
 
-    @Lob
-    @Column(name = "image")
+    /**
+     * Uploaded image content, only present on write requests. It is moved to the
+     * {@link com.adyen.demo.store.service.ImageStore} on save and never read back from the database.
+     */
+    @Transient
+    @JsonProperty("image")
     private byte[] image;
 
+    @Column(name = "image_hash", length = 64)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String imageHash;
+
     @Column(name = "image_content_type")
     private String imageContentType;
 
@@ -54,6 +70,13 @@ public class Product implements Serializable {
     @JsonIgnoreProperties(value = { "products" }, allowSetters = true)
     private ProductCategory productCategory;
 
+    /**
+     * Incremented on every change of the price, so the orders priced before the change can be found.
+     */
+    @JsonIgnore
+    @Column(name = "price_version", nullable = false)
+    private Long priceVersion = 0L;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -94,16 +117,16 @@ public class Product implements Serializable {
         this.description = description;
     }
 
-    public BigDecimal getPrice() {
+    public Money getPrice() {
         return this.price;
     }
 
-    public Product price(BigDecimal price) {
+    public Product price(Money price) {
         this.price = price;
         return this;
     }
 
-    public void setPrice(BigDecimal price) {
+    public void setPrice(Money price) {
         this.price = price;
     }
 
@@ -133,6 +156,19 @@ public class Product implements Serializable {
         this.image = image;
     }
 
+    public String getImageHash() {
+        return this.imageHash;
+    }
+
+    public Product imageHash(String imageHash) {
+        this.imageHash = imageHash;
+        return this;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
     public String getImageContentType() {
         return this.imageContentType;
     }
@@ -159,6 +195,14 @@ public class Product implements Serializable {
         this.productCategory = productCategory;
     }
 
+    public Long getPriceVersion() {
+        return this.priceVersion;
+    }
+
+    public void setPriceVersion(Long priceVersion) {
+        this.priceVersion = priceVersion;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -187,7 +231,7 @@ public class Product implements Serializable {
             ", description='" + getDescription() + "'" +
             ", price=" + getPrice() +
             ", itemSize='" + getItemSize() + "'" +
-            ", image='" + getImage() + "'" +
+            ", imageHash='" + getImageHash() + "'" +
             ", imageContentType='" + getImageContentType() + "'" +
             "}";
     }
@@ -1,13 +1,13 @@
 package com.adyen.demo.store.domain;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
 import javax.persistence.*;
-import javax.validation.constraints.DecimalMin;
+import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /**
@@ -30,9 +30,15 @@ public class ProductOrder implements Serializable {
     private Integer quantity;
 
     @NotNull
-    @DecimalMin(value = "0")
-    @Column(name = "total_price", precision = 21, scale = 2, nullable = false)
-    private BigDecimal totalPrice;
+    @Valid
+    @Embedded
+    @AttributeOverrides(
+        {
+            @AttributeOverride(name = "amount", column = @Column(name = "total_price_amount", nullable = false)),
+            @AttributeOverride(name = "currency", column = @Column(name = "total_price_currency", length = 3, nullable = false)),
+        }
+    )
+    private Money totalPrice;
 
     @ManyToOne(optional = false)
     @NotNull
@@ -44,6 +50,17 @@ public class ProductOrder implements Serializable {
     @JsonIgnoreProperties(value = { "orders" }, allowSetters = true)
     private ShoppingCart cart;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * The {@link Product#getPriceVersion() price version} of the product the total price was computed with.
+     */
+    @JsonIgnore
+    @Column(name = "price_version", nullable = false)
+    private Long priceVersion;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -71,16 +88,16 @@ public class ProductOrder implements Serializable {
         this.quantity = quantity;
     }
 
-    public BigDecimal getTotalPrice() {
+    public Money getTotalPrice() {
         return this.totalPrice;
     }
 
-    public ProductOrder totalPrice(BigDecimal totalPrice) {
+    public ProductOrder totalPrice(Money totalPrice) {
         this.totalPrice = totalPrice;
         return this;
     }
 
-    public void setTotalPrice(BigDecimal totalPrice) {
+    public void setTotalPrice(Money totalPrice) {
         this.totalPrice = totalPrice;
     }
 
@@ -110,6 +127,47 @@ public class ProductOrder implements Serializable {
         this.cart = shoppingCart;
     }
 
+    public Long getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getPriceVersion() {
+        return this.priceVersion;
+    }
+
+    public ProductOrder priceVersion(Long priceVersion) {
+        this.priceVersion = priceVersion;
+        return this;
+    }
+
+    public void setPriceVersion(Long priceVersion) {
+        this.priceVersion = priceVersion;
+    }
+
+    /**
+     * @return whether the total price was computed before the last change of the price of the product.
+     */
+    @JsonIgnore
+    public boolean isPriceStale() {
+        return product != null && !product.getPriceVersion().equals(priceVersion);
+    }
+
+    /**
+     * Orders created or updated without a price version, through the entity API, are taken as priced with the current
+     * price of their product.
+     */
+    @PrePersist
+    @PreUpdate
+    protected void beforeSave() {
+        if (priceVersion == null && product != null) {
+            this.priceVersion = product.getPriceVersion();
+        }
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
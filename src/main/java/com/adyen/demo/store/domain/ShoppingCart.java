@@ -1,17 +1,17 @@
 package com.adyen.demo.store.domain;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 import javax.persistence.*;
-import javax.validation.constraints.DecimalMin;
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import com.adyen.demo.store.domain.enumeration.OrderStatus;
 import com.adyen.demo.store.domain.enumeration.PaymentMethod;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /**
@@ -37,10 +37,19 @@ public class ShoppingCart implements Serializable {
     @Column(name = "status", nullable = false)
     private OrderStatus status;
 
+    /**
+     * The sum of the total prices of the orders, kept up to date as orders are added, changed and removed.
+     */
     @NotNull
-    @DecimalMin(value = "0")
-    @Column(name = "total_price", precision = 21, scale = 2, nullable = false)
-    private BigDecimal totalPrice;
+    @Valid
+    @Embedded
+    @AttributeOverrides(
+        {
+            @AttributeOverride(name = "amount", column = @Column(name = "total_price_amount", nullable = false)),
+            @AttributeOverride(name = "currency", column = @Column(name = "total_price_currency", length = 3, nullable = false)),
+        }
+    )
+    private Money totalPrice;
 
     @NotNull
     @Enumerated(EnumType.STRING)
@@ -63,6 +72,25 @@ public class ShoppingCart implements Serializable {
     @JsonIgnoreProperties(value = { "user", "carts" }, allowSetters = true)
     private CustomerDetails customerDetails;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * The customer of an {@link OrderStatus#OPEN} cart, {@code null} for any other status. The column is unique, so a
+     * customer has at most one open cart.
+     */
+    @JsonIgnore
+    @Column(name = "open_customer_id", unique = true)
+    private Long openCustomerId;
+
+    /**
+     * When the cart was last saved, to find the open carts shoppers abandoned.
+     */
+    @JsonIgnore
+    @Column(name = "last_modified_date", nullable = false)
+    private Instant lastModifiedDate;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -103,23 +131,62 @@ public class ShoppingCart implements Serializable {
         this.status = status;
     }
 
-    public BigDecimal getTotalPrice() {
+    public Money getTotalPrice() {
         return this.totalPrice;
     }
 
-    public ShoppingCart totalPrice(BigDecimal totalPrice) {
+    public ShoppingCart totalPrice(Money totalPrice) {
         this.totalPrice = totalPrice;
         return this;
     }
 
-    public void setTotalPrice(BigDecimal totalPrice) {
+    public void setTotalPrice(Money totalPrice) {
         this.totalPrice = totalPrice;
     }
 
+    /**
+     * Recalculate the total price from all the orders, when they are replaced at once.
+     */
     public void calculateTotalPrice() {
         if (null != this.orders) {
-            this.setTotalPrice(this.orders.stream().map(ProductOrder::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add));
+            Money total = Money.zero(totalPrice != null ? totalPrice.getCurrency() : Money.DEFAULT_CURRENCY);
+            for (ProductOrder order : this.orders) {
+                total = total.plus(order.getTotalPrice());
+            }
+            this.totalPrice = total;
+        }
+    }
+
+    /**
+     * Set the quantity of one of the orders of this cart, updating the total price of the order from the price of its
+     * product, and the total price of the cart by the difference.
+     *
+     * @param productOrder an order of this cart.
+     * @param quantity the new quantity.
+     * @return this cart.
+     */
+    public ShoppingCart updateOrderQuantity(ProductOrder productOrder, int quantity) {
+        Money previous = productOrder.getTotalPrice();
+        Product product = productOrder.getProduct();
+        productOrder.quantity(quantity).totalPrice(product.getPrice().times(quantity)).priceVersion(product.getPriceVersion());
+        this.totalPrice = this.totalPrice.minus(previous).plus(productOrder.getTotalPrice());
+        return this;
+    }
+
+    /**
+     * Price the orders of this cart that were priced before the last price change of their product again.
+     *
+     * @return whether an order was repriced.
+     */
+    public boolean reprice() {
+        boolean repriced = false;
+        for (ProductOrder order : this.orders) {
+            if (order.isPriceStale()) {
+                updateOrderQuantity(order, order.getQuantity());
+                repriced = true;
+            }
         }
+        return repriced;
     }
 
     public PaymentMethod getPaymentMethod() {
@@ -167,21 +234,22 @@ public class ShoppingCart implements Serializable {
 
     public ShoppingCart orders(Set<ProductOrder> productOrders) {
         this.setOrders(productOrders);
-        calculateTotalPrice();
         return this;
     }
 
     public ShoppingCart addOrder(ProductOrder productOrder) {
-        this.orders.add(productOrder);
+        if (this.orders.add(productOrder)) {
+            this.totalPrice = this.totalPrice != null ? this.totalPrice.plus(productOrder.getTotalPrice()) : productOrder.getTotalPrice();
+        }
         productOrder.setCart(this);
-        calculateTotalPrice();
         return this;
     }
 
     public ShoppingCart removeOrder(ProductOrder productOrder) {
-        this.orders.remove(productOrder);
+        if (this.orders.remove(productOrder)) {
+            this.totalPrice = this.totalPrice.minus(productOrder.getTotalPrice());
+        }
         productOrder.setCart(null);
-        calculateTotalPrice();
         return this;
     }
 
@@ -209,13 +277,36 @@ public class ShoppingCart implements Serializable {
         this.customerDetails = customerDetails;
     }
 
+    public Long getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getLastModifiedDate() {
+        return this.lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void beforeSave() {
+        this.openCustomerId = status == OrderStatus.OPEN && customerDetails != null ? customerDetails.getId() : null;
+        this.lastModifiedDate = Instant.now();
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
 
     public ShoppingCart() {
     }
 
-    public ShoppingCart(@NotNull final Instant placedDate, @NotNull final OrderStatus status, @NotNull @DecimalMin(value = "0") final BigDecimal totalPrice, @NotNull final PaymentMethod paymentMethod, @NotNull final CustomerDetails customerDetails) {
+    public ShoppingCart(@NotNull final Instant placedDate, @NotNull final OrderStatus status, @NotNull final Money totalPrice, @NotNull final PaymentMethod paymentMethod, @NotNull final CustomerDetails customerDetails) {
         this.placedDate = placedDate;
         this.status = status;
         this.totalPrice = totalPrice;
@@ -1,6 +1,8 @@
 package com.adyen.demo.store.repository;
 
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import com.adyen.demo.store.domain.CustomerDetails;
@@ -13,5 +15,7 @@ import com.adyen.demo.store.domain.CustomerDetails;
 public interface CustomerDetailsRepository extends JpaRepository<CustomerDetails, Long> {
     Optional<CustomerDetails> findOneByUserLogin(String login);
 
+    Slice<CustomerDetails> findAllBy(Pageable pageable);
+
 }
 
@@ -0,0 +1,13 @@
+package com.adyen.demo.store.repository;
+
+/**
+ * Thrown when the last key of a {@link Keyset}, which the client may have altered, is not a valid key of its property.
+ */
+public class InvalidKeysetException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidKeysetException(String message) {
+        super(message);
+    }
+}
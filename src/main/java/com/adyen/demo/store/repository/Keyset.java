@@ -0,0 +1,115 @@
+package com.adyen.demo.store.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+
+/**
+ * A position in a keyset (seek) pagination over {@code (property, id)}.
+ * <p>
+ * Instead of skipping {@code offset} rows, the next page is read with
+ * {@code where (property, id) > (lastValue, lastId)}, so deep pages cost the same as the first one.
+ * Keysets are handed to clients as opaque cursors with {@link #encode()}.
+ */
+public final class Keyset {
+
+    private static final String SEPARATOR = "|";
+
+    private final String property;
+
+    private final Sort.Direction direction;
+
+    private final Long lastId;
+
+    private final String lastValue;
+
+    private Keyset(String property, Sort.Direction direction, Long lastId, String lastValue) {
+        this.property = Objects.requireNonNull(property);
+        this.direction = Objects.requireNonNull(direction);
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    /**
+     * The keyset of the first page for a sort order.
+     *
+     * @param order the sort order, or {@code null} to sort by ascending id.
+     * @return the keyset positioned before the first row.
+     */
+    public static Keyset first(Sort.Order order) {
+        if (order == null) {
+            return new Keyset("id", Sort.Direction.ASC, null, null);
+        }
+        return new Keyset(order.getProperty(), order.getDirection(), null, null);
+    }
+
+    /**
+     * Decode a cursor created by {@link #encode()}.
+     *
+     * @param cursor the opaque cursor.
+     * @return the keyset.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static Keyset decode(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] parts = decoded.split("\\|", 4);
+        if (parts.length != 4 || parts[0].isEmpty() || parts[2].isEmpty() || parts[3].isEmpty()) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        String lastValue = parts[3].charAt(0) == 'V' ? parts[3].substring(1) : null;
+        return new Keyset(parts[0], Sort.Direction.fromString(parts[1]), Long.valueOf(parts[2]), lastValue);
+    }
+
+    /**
+     * @return the opaque cursor of this keyset.
+     */
+    public String encode() {
+        String raw = property + SEPARATOR + direction + SEPARATOR + lastId + SEPARATOR + (lastValue != null ? "V" + lastValue : "N");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The keyset positioned after a row of the current page.
+     *
+     * @param row the last row of the page, either an entity or a DTO exposing the same properties.
+     * @return the keyset of the next page.
+     */
+    public Keyset after(Object row) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(row);
+        Object id = wrapper.getPropertyValue("id");
+        Object value = wrapper.getPropertyValue(property);
+        return new Keyset(property, direction, ((Number) id).longValue(), value != null ? String.valueOf(value) : null);
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public String getLastValue() {
+        return lastValue;
+    }
+
+    public Sort getSort() {
+        return "id".equals(property) ? Sort.by(direction, "id") : Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
+    @Override
+    public String toString() {
+        return "Keyset{" + property + " " + direction + " after (" + lastValue + ", " + lastId + ")}";
+    }
+}
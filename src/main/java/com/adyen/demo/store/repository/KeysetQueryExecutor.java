@@ -0,0 +1,259 @@
+package com.adyen.demo.store.repository;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.SingularAttribute;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Runs keyset (seek) pagination queries for any entity with a {@code Long id}.
+ * <p>
+ * A page is read as {@code where (key, id) > (lastKey, lastId) order by key, id limit size + 1}, so it only
+ * touches the rows it returns, and no count query is run. {@code null} keys sort lowest, in both directions. The
+ * rows with and without a key of a nullable property are read with separate {@code is null} and
+ * {@code is not null} queries, so that both keep a plain {@code order by} an index can serve; a page spanning
+ * both runs the two queries.
+ */
+@Repository
+public class KeysetQueryExecutor {
+
+    private static final DefaultConversionService CONVERSION_SERVICE = new DefaultConversionService();
+
+    private final EntityManager entityManager;
+
+    public KeysetQueryExecutor(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Read the entities following a keyset.
+     *
+     * @param type the entity type.
+     * @param keyset the position to read from.
+     * @param size the maximum number of entities to read.
+     * @return the slice of entities.
+     * @throws IllegalArgumentException if the keyset property is not an attribute of the entity.
+     * @throws InvalidKeysetException if the last key of the keyset is not a valid key of its property.
+     */
+    public <T> Slice<T> findAfter(Class<T> type, Keyset keyset, int size) {
+        return findAfter(type, type, keyset, size, (cb, root) -> root);
+    }
+
+    /**
+     * Read a projection of the entities following a keyset.
+     *
+     * @param type the entity type.
+     * @param resultType the projection type.
+     * @param keyset the position to read from.
+     * @param size the maximum number of rows to read.
+     * @param selection builds the projection, typically a {@link CriteriaBuilder#construct} expression.
+     * @return the slice of projected rows.
+     * @throws IllegalArgumentException if the keyset property is not an attribute of the entity.
+     * @throws InvalidKeysetException if the last key of the keyset is not a valid key of its property.
+     */
+    public <T, R> Slice<R> findAfter(
+        Class<T> type,
+        Class<R> resultType,
+        Keyset keyset,
+        int size,
+        BiFunction<CriteriaBuilder, Root<T>, Selection<? extends R>> selection
+    ) {
+        return findAfter(type, resultType, keyset, size, selection, (cb, root) -> null);
+    }
+
+    /**
+     * Read a projection of the entities matching a filter and following a keyset.
+     *
+     * @param type the entity type.
+     * @param resultType the projection type.
+     * @param keyset the position to read from.
+     * @param size the maximum number of rows to read.
+     * @param selection builds the projection, typically a {@link CriteriaBuilder#construct} expression.
+     * @param filter builds the restriction of the entities, or returns {@code null} to read all of them.
+     * @return the slice of projected rows.
+     * @throws IllegalArgumentException if the keyset property is not an attribute of the entity.
+     * @throws InvalidKeysetException if the last key of the keyset is not a valid key of its property.
+     */
+    public <T, R> Slice<R> findAfter(
+        Class<T> type,
+        Class<R> resultType,
+        Keyset keyset,
+        int size,
+        BiFunction<CriteriaBuilder, Root<T>, Selection<? extends R>> selection,
+        BiFunction<CriteriaBuilder, Root<T>, Predicate> filter
+    ) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        String property = keyset.getProperty();
+        boolean ascending = keyset.getDirection().isAscending();
+        Long lastId = keyset.getLastId();
+        int limit = size + 1;
+        List<R> rows;
+        if ("id".equals(property)) {
+            BiFunction<CriteriaBuilder, Root<T>, Predicate> seek = keyset.isFirst()
+                ? (builder, root) -> null
+                : (builder, root) -> afterId(builder, root, lastId, ascending);
+            rows = read(type, resultType, selection, filter, seek, null, ascending, limit);
+        } else {
+            Path<?> probe = resolve(cb.createQuery(type).from(type), property);
+            boolean nullable = isNullable(probe);
+            Comparable<Object> lastValue = keyset.isFirst() ? null : lastValue(keyset, probe.getJavaType(), nullable);
+            // null keys sort lowest: the null rows come first when ascending and last when descending
+            boolean inNulls = nullable && (keyset.isFirst() ? ascending : lastValue == null);
+            BiFunction<CriteriaBuilder, Root<T>, Predicate> seek;
+            if (inNulls) {
+                seek = (builder, root) -> nullSegment(builder, root, property, keyset.isFirst() ? null : lastId, ascending);
+            } else {
+                seek = (builder, root) -> valueSegment(builder, root, property, nullable, lastValue, lastId, ascending);
+            }
+            rows = read(type, resultType, selection, filter, seek, inNulls ? null : property, ascending, limit);
+            if (rows.size() < limit && nullable && inNulls == ascending) {
+                // the page goes on into the other segment, from its start
+                BiFunction<CriteriaBuilder, Root<T>, Predicate> rest = inNulls
+                    ? (builder, root) -> valueSegment(builder, root, property, true, null, null, ascending)
+                    : (builder, root) -> nullSegment(builder, root, property, null, ascending);
+                rows.addAll(read(type, resultType, selection, filter, rest, inNulls ? property : null, ascending, limit - rows.size()));
+            }
+        }
+        boolean hasNext = rows.size() > size;
+        List<R> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        return new SliceImpl<>(content, PageRequest.of(0, size, keyset.getSort()), hasNext);
+    }
+
+    /**
+     * Read the rows of one segment of the keyset order.
+     *
+     * @param sortProperty the key to order by before the id, or {@code null} to order by id only.
+     */
+    private <T, R> List<R> read(
+        Class<T> type,
+        Class<R> resultType,
+        BiFunction<CriteriaBuilder, Root<T>, Selection<? extends R>> selection,
+        BiFunction<CriteriaBuilder, Root<T>, Predicate> filter,
+        BiFunction<CriteriaBuilder, Root<T>, Predicate> seek,
+        String sortProperty,
+        boolean ascending,
+        int maxResults
+    ) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(resultType);
+        Root<T> root = query.from(type);
+        query.select(selection.apply(cb, root));
+        List<Predicate> predicates = new ArrayList<>();
+        for (Predicate predicate : new Predicate[] { filter.apply(cb, root), seek.apply(cb, root) }) {
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+        List<Order> orders = new ArrayList<>();
+        if (sortProperty != null) {
+            Path<Comparable<Object>> key = resolve(root, sortProperty);
+            orders.add(ascending ? cb.asc(key) : cb.desc(key));
+        }
+        Path<Long> id = root.get("id");
+        orders.add(ascending ? cb.asc(id) : cb.desc(id));
+        query.orderBy(orders);
+        return new ArrayList<>(entityManager.createQuery(query).setMaxResults(maxResults).getResultList());
+    }
+
+    /**
+     * The rows with a {@code null} key, after {@code lastId} if given.
+     */
+    private static <T> Predicate nullSegment(CriteriaBuilder cb, Root<T> root, String property, Long lastId, boolean ascending) {
+        Predicate isNull = cb.isNull(resolve(root, property));
+        return lastId == null ? isNull : cb.and(isNull, afterId(cb, root, lastId, ascending));
+    }
+
+    /**
+     * The rows with a key, after {@code (lastValue, lastId)} if given.
+     */
+    private static <T> Predicate valueSegment(
+        CriteriaBuilder cb,
+        Root<T> root,
+        String property,
+        boolean nullable,
+        Comparable<Object> lastValue,
+        Long lastId,
+        boolean ascending
+    ) {
+        Path<Comparable<Object>> key = resolve(root, property);
+        if (lastValue == null) {
+            return nullable ? cb.isNotNull(key) : null;
+        }
+        // comparisons with a null key are never true, so the null rows are left out
+        Predicate afterKey = ascending ? cb.greaterThan(key, lastValue) : cb.lessThan(key, lastValue);
+        return cb.or(afterKey, cb.and(cb.equal(key, lastValue), afterId(cb, root, lastId, ascending)));
+    }
+
+    private static <T> Predicate afterId(CriteriaBuilder cb, Root<T> root, Long lastId, boolean ascending) {
+        Path<Long> id = root.get("id");
+        return ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+    }
+
+    private static boolean isNullable(Path<?> path) {
+        return !(path.getModel() instanceof SingularAttribute) || ((SingularAttribute<?, ?>) path.getModel()).isOptional();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Path<Comparable<Object>> resolve(Root<T> root, String property) {
+        Path<?> path = root;
+        for (String segment : property.split("\\.")) {
+            path = path.get(segment);
+        }
+        return (Path<Comparable<Object>>) path;
+    }
+
+    /**
+     * Convert the last key of a cursor, which the client may have altered.
+     *
+     * @return the last key, or {@code null} if the cursor is positioned among the rows without a key.
+     * @throws InvalidKeysetException if the last key cannot be read as a key of the property.
+     */
+    private static Comparable<Object> lastValue(Keyset keyset, Class<?> javaType, boolean nullable) {
+        if (keyset.getLastValue() == null) {
+            if (!nullable) {
+                throw new InvalidKeysetException("No last key for the non-null property " + keyset.getProperty());
+            }
+            return null;
+        }
+        Object converted;
+        try {
+            converted = convert(keyset.getLastValue(), javaType);
+        } catch (IllegalArgumentException | DateTimeParseException | ConversionException e) {
+            throw new InvalidKeysetException("Invalid last key for the property " + keyset.getProperty());
+        }
+        if (!(converted instanceof Comparable)) {
+            throw new IllegalArgumentException("Cannot seek on a property of type " + javaType.getName());
+        }
+        @SuppressWarnings("unchecked")
+        Comparable<Object> comparable = (Comparable<Object>) converted;
+        return comparable;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object convert(String value, Class<?> javaType) {
+        if (javaType.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) javaType, value);
+        }
+        if (Instant.class.equals(javaType)) {
+            return Instant.parse(value);
+        }
+        return CONVERSION_SERVICE.convert(value, javaType);
+    }
+}
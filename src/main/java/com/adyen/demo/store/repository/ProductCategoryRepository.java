@@ -1,6 +1,8 @@
 package com.adyen.demo.store.repository;
 
 import com.adyen.demo.store.domain.ProductCategory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +11,6 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface ProductCategoryRepository extends JpaRepository<ProductCategory, Long> {}
+public interface ProductCategoryRepository extends JpaRepository<ProductCategory, Long> {
+    Slice<ProductCategory> findAllBy(Pageable pageable);
+}
@@ -1,7 +1,13 @@
 package com.adyen.demo.store.repository;
 
 import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.service.dto.CartLineDTO;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +15,66 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface ProductOrderRepository extends JpaRepository<ProductOrder, Long> {}
+public interface ProductOrderRepository extends JpaRepository<ProductOrder, Long> {
+    @Query("select o.product.id as productId, sum(o.quantity) as quantity from ProductOrder o group by o.product.id")
+    List<OrderedQuantity> findOrderedQuantities();
+
+    /**
+     * The next carts, in id order, with a status that have an order of a product. Reads the
+     * {@code (product_id, cart_id)} index of the orders.
+     *
+     * @param productId the id of the product.
+     * @param status the status of the carts.
+     * @param afterId the cart id to read from, exclusive.
+     * @param pageable the number of carts to read.
+     * @return the ids of the carts.
+     */
+    @Query(
+        "select distinct o.cart.id from ProductOrder o where o.product.id = :productId and o.cart.status = :status " +
+        "and o.cart.id > :afterId order by o.cart.id"
+    )
+    List<Long> findCartIdsByProductIdAndCartStatus(
+        @Param("productId") Long productId,
+        @Param("status") OrderStatus status,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
+
+    @Query(
+        "select o from ProductOrder o join fetch o.cart c join fetch o.product where o.product.id = :productId " +
+        "and c.id in :cartIds and c.status = :status"
+    )
+    List<ProductOrder> findAllWithCartByProductIdAndCartIdIn(
+        @Param("productId") Long productId,
+        @Param("cartIds") Collection<Long> cartIds,
+        @Param("status") OrderStatus status
+    );
+
+    /**
+     * The lines of a cart of a customer, with their products, in one query.
+     *
+     * @param cartId the id of the cart.
+     * @param login the login of the customer.
+     * @return the lines in id order, empty if the cart has none or is not a cart of the customer.
+     */
+    @Query(
+        "select new com.adyen.demo.store.service.dto.CartLineDTO(" +
+        "o.id, o.quantity, o.totalPrice, p.id, p.name, p.price, p.itemSize, p.imageHash) " +
+        "from ProductOrder o join o.product p join o.cart c where c.id = :cartId and c.customerDetails.user.login = :login " +
+        "order by o.id"
+    )
+    List<CartLineDTO> findLinesByCartIdAndLogin(@Param("cartId") Long cartId, @Param("login") String login);
+
+    @Modifying
+    @Query("delete from ProductOrder o where o.cart.id in :cartIds")
+    int deleteByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
+
+    /**
+     * The number of units of a product ordered over all carts.
+     */
+    interface OrderedQuantity {
+        Long getProductId();
+
+        Long getQuantity();
+    }
+}
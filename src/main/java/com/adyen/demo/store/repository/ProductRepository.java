@@ -1,7 +1,17 @@
 package com.adyen.demo.store.repository;
 
 import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.service.dto.ProductSuggestionDTO;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +19,99 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {}
+public interface ProductRepository extends JpaRepository<Product, Long> {
+    String SUMMARY_SELECT =
+        "select new com.adyen.demo.store.service.dto.ProductSummaryDTO(" +
+        "p.id, p.name, p.description, p.price, p.itemSize, p.imageHash, p.imageContentType, c.id, c.name) " +
+        "from Product p join p.productCategory c";
+
+    // the pattern is lower case, with %, _ and \ escaped by a \
+    String SEARCH_WHERE =
+        " where lower(p.name) like :pattern escape '\\' or lower(p.description) like :pattern escape '\\'" +
+        " or lower(c.name) like :pattern escape '\\'";
+
+    String FACET_SIZES = "(:anySize = true or p.itemSize in :sizes)";
+
+    String FACET_CATEGORIES = "(:anyCategory = true or c.id in :categoryIds)";
+
+    String FACET_PRICE = "p.price.amount between :minAmount and :maxAmount";
+
+    @Query(SUMMARY_SELECT)
+    Slice<ProductSummaryDTO> findAllSummaries(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.id = :id")
+    Optional<ProductSummaryDTO> findSummaryById(@Param("id") Long id);
+
+    @Query(SUMMARY_SELECT + " where p.id in :ids")
+    List<ProductSummaryDTO> findAllSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SUMMARY_SELECT + " where p.id > :id order by p.id")
+    List<ProductSummaryDTO> findSummariesAfterId(@Param("id") Long id, Pageable pageable);
+
+    @Query(
+        value = SUMMARY_SELECT + SEARCH_WHERE,
+        countQuery = "select count(p) from Product p join p.productCategory c" + SEARCH_WHERE
+    )
+    Page<ProductSummaryDTO> searchSummaries(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query(
+        value = SUMMARY_SELECT + " where " + FACET_SIZES + " and " + FACET_CATEGORIES + " and " + FACET_PRICE,
+        countQuery = "select count(p) from Product p join p.productCategory c" +
+        " where " + FACET_SIZES + " and " + FACET_CATEGORIES + " and " + FACET_PRICE
+    )
+    Page<ProductSummaryDTO> filterSummaries(
+        @Param("anySize") boolean anySize,
+        @Param("sizes") Collection<Size> sizes,
+        @Param("anyCategory") boolean anyCategory,
+        @Param("categoryIds") Collection<Long> categoryIds,
+        @Param("minAmount") long minAmount,
+        @Param("maxAmount") long maxAmount,
+        Pageable pageable
+    );
+
+    /**
+     * @return the item size and the number of products of that size, for each size.
+     */
+    @Query(
+        "select p.itemSize, count(p) from Product p join p.productCategory c" +
+        " where p.itemSize is not null and " + FACET_CATEGORIES + " and " + FACET_PRICE +
+        " group by p.itemSize"
+    )
+    List<Object[]> countBySize(
+        @Param("anyCategory") boolean anyCategory,
+        @Param("categoryIds") Collection<Long> categoryIds,
+        @Param("minAmount") long minAmount,
+        @Param("maxAmount") long maxAmount
+    );
+
+    /**
+     * @return the category id and the number of products in that category, for each category, by id.
+     */
+    @Query(
+        "select c.id, count(p) from Product p join p.productCategory c" +
+        " where " + FACET_SIZES + " and " + FACET_PRICE +
+        " group by c.id order by c.id"
+    )
+    List<Object[]> countByCategory(
+        @Param("anySize") boolean anySize,
+        @Param("sizes") Collection<Size> sizes,
+        @Param("minAmount") long minAmount,
+        @Param("maxAmount") long maxAmount
+    );
+
+    @Query(
+        "select new com.adyen.demo.store.service.dto.ProductSuggestionDTO(p.id, p.name) from Product p " +
+        "where lower(p.name) like :prefix or lower(p.name) like :wordPrefix order by p.name"
+    )
+    List<ProductSuggestionDTO> findSuggestions(
+        @Param("prefix") String prefix,
+        @Param("wordPrefix") String wordPrefix,
+        Pageable pageable
+    );
+
+    @Query("select p from Product p join fetch p.productCategory")
+    List<Product> findAllWithProductCategory();
+
+    @Query("select p from Product p join fetch p.productCategory where p.id = :id")
+    Optional<Product> findOneWithProductCategoryById(@Param("id") Long id);
+}
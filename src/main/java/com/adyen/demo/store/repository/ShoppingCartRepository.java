@@ -1,8 +1,17 @@
 package com.adyen.demo.store.repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import javax.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.adyen.demo.store.domain.ShoppingCart;
 import com.adyen.demo.store.domain.enumeration.OrderStatus;
@@ -14,9 +23,46 @@ import com.adyen.demo.store.domain.enumeration.OrderStatus;
 @Repository
 public interface ShoppingCartRepository extends JpaRepository<ShoppingCart, Long> {
 
-    Optional<ShoppingCart> findFirstByCustomerDetailsUserLoginAndStatusOrderByIdAsc(String login, OrderStatus orderStatus);
+    /**
+     * The open cart of a customer, with its orders and their products fetched in the same query. A customer has at most
+     * one open cart.
+     */
+    @EntityGraph(attributePaths = { "orders", "orders.product" })
+    Optional<ShoppingCart> findOneWithOrdersByCustomerDetailsUserLoginAndStatus(String login, OrderStatus orderStatus);
 
-    List<ShoppingCart> findAllByCustomerDetailsUserLoginAndStatusNot(String user, OrderStatus orderStatus);
+    /**
+     * Same as {@link #findOneWithOrdersByCustomerDetailsUserLoginAndStatus}, for a cart about to change: its version is
+     * incremented on commit even if only its orders changed, so concurrent changes of the same cart conflict.
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @EntityGraph(attributePaths = { "orders", "orders.product" })
+    Optional<ShoppingCart> findOneForChangeByCustomerDetailsUserLoginAndStatus(String login, OrderStatus orderStatus);
+
+    /**
+     * Lock the next carts, in id order, with a status that were last saved before a given time.
+     *
+     * @param status the status of the carts.
+     * @param before the time the carts were last saved before.
+     * @param afterId the id to read from, exclusive.
+     * @param pageable the number of carts to read.
+     * @return the ids of the carts, locked until the end of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(
+        "select c.id from ShoppingCart c where c.status = :status and c.lastModifiedDate < :before and c.id > :afterId order by c.id"
+    )
+    List<Long> findIdsForDeletion(
+        @Param("status") OrderStatus status,
+        @Param("before") Instant before,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
+
+    @Modifying
+    @Query("delete from ShoppingCart c where c.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    boolean existsByIdAndCustomerDetailsUserLogin(Long id, String login);
 
     Optional<ShoppingCart> findOneByPaymentModificationReference(String paymentRef);
 
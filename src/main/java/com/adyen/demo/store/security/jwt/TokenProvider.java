@@ -4,9 +4,12 @@ import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.util.*;
 import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -25,10 +28,18 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    private static final String GUEST_CART_SUBJECT = "guest-cart";
+
+    private static final String GUEST_CART_LINES_KEY = "lines";
+
     private final Key key;
 
     private final JwtParser jwtParser;
 
+    private final Key guestCartKey;
+
+    private final JwtParser guestCartParser;
+
     private final long tokenValidityInMilliseconds;
 
     private final long tokenValidityInMillisecondsForRememberMe;
@@ -48,6 +59,9 @@ public class TokenProvider {
         }
         key = Keys.hmacShaKeyFor(keyBytes);
         jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
+        // derived from the same secret, so a guest cart token never passes as a login token, nor the other way around
+        guestCartKey = Keys.hmacShaKeyFor(deriveKey(keyBytes, GUEST_CART_SUBJECT));
+        guestCartParser = Jwts.parserBuilder().setSigningKey(guestCartKey).requireSubject(GUEST_CART_SUBJECT).build();
         this.tokenValidityInMilliseconds = 1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds();
         this.tokenValidityInMillisecondsForRememberMe =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
@@ -87,6 +101,36 @@ public class TokenProvider {
         return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 
+    /**
+     * Sign the lines of the cart of a guest, which the client holds until the guest logs in.
+     *
+     * @param lines the encoded lines of the cart.
+     * @param validityInMilliseconds how long the token is valid for.
+     * @return the token.
+     */
+    public String createGuestCartToken(String lines, long validityInMilliseconds) {
+        return Jwts
+            .builder()
+            .setSubject(GUEST_CART_SUBJECT)
+            .claim(GUEST_CART_LINES_KEY, lines)
+            .signWith(guestCartKey, SignatureAlgorithm.HS256)
+            .setExpiration(new Date(System.currentTimeMillis() + validityInMilliseconds))
+            .compact();
+    }
+
+    /**
+     * @param token a guest cart token.
+     * @return the encoded lines of the cart, or empty if the token is not a valid guest cart token.
+     */
+    public Optional<String> getGuestCartLines(String token) {
+        try {
+            return Optional.ofNullable(guestCartParser.parseClaimsJws(token).getBody().get(GUEST_CART_LINES_KEY, String.class));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Invalid guest cart token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     public boolean validateToken(String authToken) {
         try {
             jwtParser.parseClaimsJws(authToken);
@@ -97,4 +141,14 @@ public class TokenProvider {
         }
         return false;
     }
+
+    private static byte[] deriveKey(byte[] keyBytes, String purpose) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(keyBytes, "HmacSHA512"));
+            return mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not derive the " + purpose + " key", e);
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.repository.ProductOrderRepository;
+import com.adyen.demo.store.repository.ShoppingCartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes the {@link OrderStatus#OPEN} carts that have not changed for a while, and their orders.
+ * <p>
+ * Every user who browses the shop gets an open cart, most of them are never paid. The carts are deleted in chunks
+ * of ids in ascending order, one transaction per chunk, so the locks are short and a run continues where the
+ * previous chunk stopped. Carts held in memory by the {@link ActiveCartStore} are in use and are kept.
+ */
+@Service
+public class AbandonedCartReaper {
+
+    private final Logger log = LoggerFactory.getLogger(AbandonedCartReaper.class);
+
+    private final ShoppingCartRepository shoppingCartRepository;
+
+    private final ProductOrderRepository productOrderRepository;
+
+    private final ActiveCartStore activeCartStore;
+
+    private final EntityManager entityManager;
+
+    private final ApplicationProperties.Cart properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer runTimer;
+
+    private final Counter deletedCarts;
+
+    private final Counter deletedOrders;
+
+    private final AtomicLong runDeletedCarts = new AtomicLong();
+
+    public AbandonedCartReaper(
+        ShoppingCartRepository shoppingCartRepository,
+        ProductOrderRepository productOrderRepository,
+        ActiveCartStore activeCartStore,
+        EntityManager entityManager,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.shoppingCartRepository = shoppingCartRepository;
+        this.productOrderRepository = productOrderRepository;
+        this.activeCartStore = activeCartStore;
+        this.entityManager = entityManager;
+        this.properties = applicationProperties.getCart();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.runTimer = Timer.builder("cart.reaper.run").description("Time to delete the abandoned carts").register(meterRegistry);
+        this.deletedCarts =
+            Counter
+                .builder("cart.reaper.deleted")
+                .description("Rows deleted with abandoned carts")
+                .tag("table", "shopping_cart")
+                .register(meterRegistry);
+        this.deletedOrders =
+            Counter
+                .builder("cart.reaper.deleted")
+                .description("Rows deleted with abandoned carts")
+                .tag("table", "product_order")
+                .register(meterRegistry);
+        Gauge
+            .builder("cart.reaper.progress", runDeletedCarts, AtomicLong::get)
+            .description("Carts deleted by the current or last run")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Abandoned carts should be deleted after the configured timeout.
+     * <p>
+     * This is scheduled to get fired every day, at 01:30 (am).
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    public void removeAbandonedCarts() {
+        Instant before = Instant.now().minusMillis(properties.getAbandonedTimeoutMs());
+        long deleted = runTimer.record(() -> reap(before));
+        log.debug("Deleted {} abandoned carts last changed before {}", deleted, before);
+    }
+
+    /**
+     * Delete the open carts last saved before a given time, and their orders.
+     *
+     * @param before the time the carts were last saved before.
+     * @return the number of deleted carts.
+     */
+    public long reap(Instant before) {
+        runDeletedCarts.set(0);
+        AtomicLong afterId = new AtomicLong();
+        boolean more = true;
+        while (more) {
+            more = transactionTemplate.execute(status -> deleteChunk(before, afterId));
+        }
+        return runDeletedCarts.get();
+    }
+
+    /**
+     * @return whether there may be more carts to delete after this chunk.
+     */
+    private boolean deleteChunk(Instant before, AtomicLong afterId) {
+        List<Long> ids = shoppingCartRepository.findIdsForDeletion(
+            OrderStatus.OPEN,
+            before,
+            afterId.get(),
+            PageRequest.of(0, properties.getReaperChunkSize())
+        );
+        if (ids.isEmpty()) {
+            return false;
+        }
+        afterId.set(ids.get(ids.size() - 1));
+        List<Long> abandoned = ids.stream().filter(id -> !activeCartStore.holdsCart(id)).collect(Collectors.toList());
+        if (!abandoned.isEmpty()) {
+            deletedOrders.increment(productOrderRepository.deleteByCartIdIn(abandoned));
+            int carts = shoppingCartRepository.deleteByIdIn(abandoned);
+            deletedCarts.increment(carts);
+            runDeletedCarts.addAndGet(carts);
+            // Hibernate invalidates the cached orders and cart collections with the bulk deletes, drop the carts too
+            Cache cache = entityManager.getEntityManagerFactory().getCache();
+            abandoned.forEach(id -> cache.evict(ShoppingCart.class, id));
+        }
+        return ids.size() == properties.getReaperChunkSize();
+    }
+}
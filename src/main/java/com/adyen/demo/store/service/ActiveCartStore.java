@@ -0,0 +1,667 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.CustomerDetails;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.domain.enumeration.PaymentMethod;
+import com.adyen.demo.store.repository.ProductOrderRepository;
+import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.repository.ShoppingCartRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the active {@link ShoppingCart} of each user in memory, and writes its changes to the database in the background.
+ * <p>
+ * A cart is loaded once, on first use, and then read and changed in memory under a lock striped by user. Changes
+ * only mark the cart dirty: every {@code application.cart.flush-interval-ms} the dirty carts are written in batches,
+ * one transaction per batch, so any number of changes made between two flushes cost a single write. Lines added
+ * since the last flush carry a negative id until they are written; both ids keep working to remove the line.
+ * {@link #flush(String)} writes a cart right away, which checkout does before charging the shopper, and
+ * {@link #evictCart(Long)} writes and forgets a cart before it is changed through the database.
+ * <p>
+ * The store is disabled unless {@code application.cart.write-behind-enabled} is set, and must only be enabled when a
+ * single instance serves the shop.
+ */
+@Service
+public class ActiveCartStore {
+
+    private static final int STRIPES = 64;
+
+    private final Logger log = LoggerFactory.getLogger(ActiveCartStore.class);
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private final Map<String, CartEntry> entries = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> usersByCart = new ConcurrentHashMap<>();
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    /** Serializes writes, so a cart is never written by two transactions at once. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicLong tempIds = new AtomicLong();
+
+    private final ShoppingCartRepository shoppingCartRepository;
+
+    private final ProductOrderRepository productOrderRepository;
+
+    private final ProductRepository productRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Cart properties;
+
+    public ActiveCartStore(
+        ShoppingCartRepository shoppingCartRepository,
+        ProductOrderRepository productOrderRepository,
+        ProductRepository productRepository,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.shoppingCartRepository = shoppingCartRepository;
+        this.productOrderRepository = productOrderRepository;
+        this.productRepository = productRepository;
+        // a flush must commit on its own, whatever transaction the caller is in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = applicationProperties.getCart();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isWriteBehindEnabled();
+    }
+
+    /**
+     * Get the active cart of a user.
+     *
+     * @param user   the login of the user.
+     * @param loader loads, or creates, the active cart of the user when it is not in memory yet.
+     * @return a copy of the cart, which must not be saved.
+     */
+    public ShoppingCart get(String user, Function<String, ShoppingCart> loader) {
+        ReentrantLock lock = stripe(user);
+        lock.lock();
+        try {
+            return load(user, loader).toCart();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Change the quantities of products in the active cart of a user. Lines dropping to zero are removed, and
+     * negative changes of products not in the cart are ignored. Either all changes are applied or none is.
+     *
+     * @param user     the login of the user.
+     * @param loader   loads, or creates, the active cart of the user when it is not in memory yet.
+     * @param deltas   the number of units to add, or to remove when negative, by product id.
+     * @param products the changed products, by id.
+     * @return a copy of the updated cart, which must not be saved.
+     * @throws IllegalArgumentException if a line would hold more than {@code application.cart.max-line-quantity} units.
+     */
+    public ShoppingCart changeQuantities(
+        String user,
+        Function<String, ShoppingCart> loader,
+        Map<Long, Integer> deltas,
+        Map<Long, Product> products
+    ) {
+        ReentrantLock lock = stripe(user);
+        lock.lock();
+        try {
+            CartEntry entry = load(user, loader);
+            deltas.forEach(
+                (productId, delta) -> {
+                    Line line = entry.lines.get(productId);
+                    if ((line != null ? line.quantity : 0L) + delta > properties.getMaxLineQuantity()) {
+                        throw new IllegalArgumentException("A cart line holds at most " + properties.getMaxLineQuantity() + " units");
+                    }
+                }
+            );
+            deltas.forEach(
+                (productId, delta) -> {
+                    Line line = entry.lines.get(productId);
+                    if (line == null) {
+                        if (delta > 0) {
+                            Product product = products.get(productId);
+                            line =
+                                new Line(
+                                    null,
+                                    -tempIds.incrementAndGet(),
+                                    product,
+                                    delta,
+                                    product.getPrice().times(delta),
+                                    product.getPriceVersion()
+                                );
+                            entry.lines.put(productId, line);
+                            entry.total = entry.total.plus(line.total);
+                        }
+                    } else if (line.quantity + (long) delta <= 0) {
+                        entry.lines.remove(productId);
+                        entry.total = entry.total.minus(line.total);
+                    } else {
+                        Money previous = line.total;
+                        line.setQuantity(line.quantity + delta);
+                        entry.total = entry.total.minus(previous).plus(line.total);
+                    }
+                }
+            );
+            markDirty(entry);
+            return entry.toCart();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove a line from the active cart of a user.
+     *
+     * @param user    the login of the user.
+     * @param loader  loads, or creates, the active cart of the user when it is not in memory yet.
+     * @param orderId the id of the line, either the id it was written with or the temporary one it had before.
+     * @return a copy of the updated cart, which must not be saved.
+     * @throws EntityNotFoundException if the cart has no such line.
+     */
+    public ShoppingCart removeLine(String user, Function<String, ShoppingCart> loader, Long orderId) {
+        ReentrantLock lock = stripe(user);
+        lock.lock();
+        try {
+            CartEntry entry = load(user, loader);
+            Line removed = null;
+            for (Iterator<Line> it = entry.lines.values().iterator(); it.hasNext() && removed == null;) {
+                Line line = it.next();
+                if (orderId.equals(line.id) || orderId.equals(line.tempId)) {
+                    it.remove();
+                    removed = line;
+                }
+            }
+            if (removed == null) {
+                throw new EntityNotFoundException("Product order not found in cart");
+            }
+            entry.total = entry.total.minus(removed.total);
+            markDirty(entry);
+            return entry.toCart();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the pending changes of the active cart of a user, and wait for them to commit.
+     *
+     * @param user the login of the user.
+     */
+    public void flush(String user) {
+        if (!isEnabled() || !dirty.contains(user)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            write(Collections.singletonList(user));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write the pending changes of the active cart of a user and drop it from memory, before it is changed through
+     * the database.
+     * <p>
+     * The flush cannot hold the stripe lock, as it takes the flush lock, which is taken before stripe locks. So the
+     * cart is only dropped if it did not change since the flush started; otherwise the new changes are flushed too.
+     *
+     * @param user the login of the user.
+     */
+    public void evict(String user) {
+        ReentrantLock lock = stripe(user);
+        while (true) {
+            CartEntry flushed;
+            long version;
+            lock.lock();
+            try {
+                flushed = entries.get(user);
+                if (flushed == null) {
+                    return;
+                }
+                version = flushed.version;
+            } finally {
+                lock.unlock();
+            }
+            flush(user);
+            lock.lock();
+            try {
+                CartEntry entry = entries.get(user);
+                if (entry == null) {
+                    return;
+                }
+                if (entry == flushed && entry.version == version && !dirty.contains(user)) {
+                    forget(user);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write the pending changes of a cart and drop it from memory, before it is changed through the database.
+     *
+     * @param cartId the id of the cart.
+     */
+    public void evictCart(Long cartId) {
+        String user = cartId != null ? usersByCart.get(cartId) : null;
+        if (user != null) {
+            evict(user);
+        }
+    }
+
+    /**
+     * @param cartId the id of the cart.
+     * @return whether the cart is held in memory, because its user is using it.
+     */
+    public boolean holdsCart(Long cartId) {
+        return usersByCart.containsKey(cartId);
+    }
+
+    /**
+     * Write the dirty carts in batches, and drop the carts that have not been used for a while.
+     */
+    @Scheduled(
+        initialDelayString = "${application.cart.flush-interval-ms:1000}",
+        fixedDelayString = "${application.cart.flush-interval-ms:1000}"
+    )
+    public void flushDirty() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (!dirty.isEmpty()) {
+            flushLock.lock();
+            try {
+                List<String> users = new ArrayList<>(dirty);
+                int batchSize = Math.max(1, properties.getFlushBatchSize());
+                for (int from = 0; from < users.size(); from += batchSize) {
+                    try {
+                        write(users.subList(from, Math.min(users.size(), from + batchSize)));
+                    } catch (RuntimeException e) {
+                        log.warn("Could not write a batch of carts, they are retried on the next flush: {}", e.getMessage());
+                    }
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        evictIdle();
+    }
+
+    /**
+     * Write all pending changes before the application stops.
+     */
+    @PreDestroy
+    public void flushAll() {
+        if (isEnabled() && !dirty.isEmpty()) {
+            log.info("Writing {} carts before shutdown", dirty.size());
+            flushDirty();
+        }
+    }
+
+    private void evictIdle() {
+        long idleSince = System.currentTimeMillis() - properties.getIdleTimeoutMs();
+        for (Iterator<CartEntry> it = entries.values().iterator(); it.hasNext();) {
+            CartEntry entry = it.next();
+            if (entry.lastAccess >= idleSince || dirty.contains(entry.user)) {
+                continue;
+            }
+            ReentrantLock lock = stripe(entry.user);
+            lock.lock();
+            try {
+                if (entry.lastAccess < idleSince && !dirty.contains(entry.user)) {
+                    forget(entry.user);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write the pending changes of some carts in one transaction. When that fails, each cart is written on its
+     * own, and a cart that still cannot be written is dropped, so it is reloaded from the database.
+     */
+    private void write(List<String> users) {
+        List<CartState> states = new ArrayList<>(users.size());
+        for (String user : users) {
+            ReentrantLock lock = stripe(user);
+            lock.lock();
+            try {
+                CartEntry entry = entries.get(user);
+                if (entry != null && dirty.contains(user)) {
+                    states.add(entry.state());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (states.isEmpty()) {
+            return;
+        }
+        try {
+            apply(transactionTemplate.execute(status -> store(states)));
+        } catch (RuntimeException e) {
+            if (states.size() == 1) {
+                drop(states.get(0), e);
+                throw e;
+            }
+            log.debug("Could not write {} carts at once, writing them one by one: {}", states.size(), e.getMessage());
+            for (CartState state : states) {
+                try {
+                    apply(transactionTemplate.execute(status -> store(Collections.singletonList(state))));
+                } catch (RuntimeException single) {
+                    drop(state, single);
+                }
+            }
+        }
+    }
+
+    private List<WriteResult> store(List<CartState> states) {
+        List<WriteResult> results = new ArrayList<>(states.size());
+        for (CartState state : states) {
+            ShoppingCart cart = shoppingCartRepository.findById(state.cartId).orElse(null);
+            if (cart == null || cart.getStatus() != OrderStatus.OPEN) {
+                results.add(new WriteResult(state, false, Collections.emptyMap()));
+                continue;
+            }
+            Map<Long, ProductOrder> orders = new HashMap<>();
+            cart.getOrders().forEach(order -> orders.put(order.getProduct().getId(), order));
+            Map<Long, Long> created = new HashMap<>();
+            for (LineState line : state.lines) {
+                ProductOrder order = orders.remove(line.productId);
+                if (order == null) {
+                    order = new ProductOrder().quantity(line.quantity).totalPrice(line.total).priceVersion(line.priceVersion);
+                    order.setProduct(productRepository.getOne(line.productId));
+                    order.setCart(cart);
+                    cart.getOrders().add(productOrderRepository.save(order));
+                    created.put(line.productId, order.getId());
+                } else {
+                    order.setQuantity(line.quantity);
+                    order.setTotalPrice(line.total);
+                    order.setPriceVersion(line.priceVersion);
+                }
+            }
+            for (ProductOrder removed : orders.values()) {
+                cart.getOrders().remove(removed);
+                productOrderRepository.delete(removed);
+            }
+            cart.setTotalPrice(state.total);
+            results.add(new WriteResult(state, true, created));
+        }
+        return results;
+    }
+
+    private void apply(List<WriteResult> results) {
+        for (WriteResult result : results) {
+            String user = result.state.user;
+            ReentrantLock lock = stripe(user);
+            lock.lock();
+            try {
+                CartEntry entry = entries.get(user);
+                if (entry == null || !entry.cartId.equals(result.state.cartId)) {
+                    continue;
+                }
+                if (!result.open) {
+                    log.info("Cart {} of user {} was closed or deleted, dropping its pending changes", entry.cartId, user);
+                    forget(user);
+                    continue;
+                }
+                result.created.forEach(
+                    (productId, orderId) -> {
+                        Line line = entry.lines.get(productId);
+                        if (line != null && line.id == null) {
+                            line.id = orderId;
+                        }
+                    }
+                );
+                if (entry.version == result.state.version) {
+                    dirty.remove(user);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drop(CartState state, RuntimeException e) {
+        log.warn("Could not write cart {} of user {}, reloading it from the database: {}", state.cartId, state.user, e.getMessage());
+        ReentrantLock lock = stripe(state.user);
+        lock.lock();
+        try {
+            forget(state.user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Must hold the lock of the stripe of the user. */
+    private CartEntry load(String user, Function<String, ShoppingCart> loader) {
+        CartEntry entry = entries.get(user);
+        if (entry == null) {
+            entry = new CartEntry(user, loader.apply(user));
+            entries.put(user, entry);
+            usersByCart.put(entry.cartId, user);
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        return entry;
+    }
+
+    /** Must hold the lock of the stripe of the user. */
+    private void markDirty(CartEntry entry) {
+        entry.version++;
+        dirty.add(entry.user);
+    }
+
+    /** Must hold the lock of the stripe of the user. */
+    private void forget(String user) {
+        CartEntry entry = entries.remove(user);
+        if (entry != null) {
+            usersByCart.remove(entry.cartId, user);
+        }
+        dirty.remove(user);
+    }
+
+    private ReentrantLock stripe(String user) {
+        return stripes[(user.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    /**
+     * The active cart of a user, guarded by the lock of its stripe.
+     */
+    private static final class CartEntry {
+
+        private final String user;
+
+        private final Long cartId;
+
+        private final Instant placedDate;
+
+        private final PaymentMethod paymentMethod;
+
+        private final CustomerDetails customerDetails;
+
+        /** The lines of the cart, by product id, in the order they were added. */
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+
+        /** The sum of the totals of the lines, updated as they change. */
+        private Money total;
+
+        private long version;
+
+        private volatile long lastAccess;
+
+        private CartEntry(String user, ShoppingCart cart) {
+            this.user = user;
+            this.cartId = cart.getId();
+            this.placedDate = cart.getPlacedDate();
+            this.paymentMethod = cart.getPaymentMethod();
+            this.customerDetails = cart.getCustomerDetails();
+            this.total = cart.getTotalPrice();
+            for (ProductOrder order : cart.getOrders()) {
+                Line line = new Line(
+                    order.getId(),
+                    null,
+                    order.getProduct(),
+                    order.getQuantity(),
+                    order.getTotalPrice(),
+                    order.getPriceVersion()
+                );
+                lines.put(order.getProduct().getId(), line);
+            }
+        }
+
+        private ShoppingCart toCart() {
+            ShoppingCart cart = new ShoppingCart(placedDate, OrderStatus.OPEN, total, paymentMethod, customerDetails).id(cartId);
+            for (Line line : lines.values()) {
+                ProductOrder order = new ProductOrder()
+                    .id(line.id != null ? line.id : line.tempId)
+                    .quantity(line.quantity)
+                    .totalPrice(line.total)
+                    .priceVersion(line.priceVersion)
+                    .product(line.product);
+                order.setCart(cart);
+                cart.getOrders().add(order);
+            }
+            return cart;
+        }
+
+        private CartState state() {
+            List<LineState> lineStates = new ArrayList<>(lines.size());
+            for (Map.Entry<Long, Line> line : lines.entrySet()) {
+                Line value = line.getValue();
+                lineStates.add(new LineState(line.getKey(), value.quantity, value.total, value.priceVersion));
+            }
+            return new CartState(user, cartId, version, lineStates, total);
+        }
+    }
+
+    /**
+     * A line of a cart in memory, guarded by the lock of the stripe of its cart.
+     */
+    private static final class Line {
+
+        /** The id of the product order, once written. */
+        private Long id;
+
+        /** The id the line was served with before it was written. */
+        private final Long tempId;
+
+        private final Product product;
+
+        private int quantity;
+
+        private Money total;
+
+        /** The price version of the product the total was computed with. */
+        private Long priceVersion;
+
+        private Line(Long id, Long tempId, Product product, int quantity, Money total, Long priceVersion) {
+            this.id = id;
+            this.tempId = tempId;
+            this.product = product;
+            this.quantity = quantity;
+            this.total = total;
+            this.priceVersion = priceVersion;
+        }
+
+        private void setQuantity(int quantity) {
+            this.quantity = quantity;
+            this.total = product.getPrice().times(quantity);
+            this.priceVersion = product.getPriceVersion();
+        }
+    }
+
+    /**
+     * The content of a cart at a given version, as it is written.
+     */
+    private static final class CartState {
+
+        private final String user;
+
+        private final Long cartId;
+
+        private final long version;
+
+        private final List<LineState> lines;
+
+        private final Money total;
+
+        private CartState(String user, Long cartId, long version, List<LineState> lines, Money total) {
+            this.user = user;
+            this.cartId = cartId;
+            this.version = version;
+            this.lines = lines;
+            this.total = total;
+        }
+    }
+
+    private static final class LineState {
+
+        private final Long productId;
+
+        private final int quantity;
+
+        private final Money total;
+
+        private final Long priceVersion;
+
+        private LineState(Long productId, int quantity, Money total, Long priceVersion) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.total = total;
+            this.priceVersion = priceVersion;
+        }
+    }
+
+    private static final class WriteResult {
+
+        private final CartState state;
+
+        /** Whether the cart was still open, otherwise nothing was written. */
+        private final boolean open;
+
+        /** The ids of the product orders created, by product id. */
+        private final Map<Long, Long> created;
+
+        private WriteResult(CartState state, boolean open, Map<Long, Long> created) {
+            this.state = state;
+            this.open = open;
+            this.created = created;
+        }
+    }
+}
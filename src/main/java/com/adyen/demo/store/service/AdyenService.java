@@ -0,0 +1,334 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.Client;
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.model.checkout.PaymentMethodsRequest;
+import com.adyen.model.checkout.PaymentMethodsResponse;
+import com.adyen.model.checkout.PaymentsDetailsRequest;
+import com.adyen.model.checkout.PaymentsDetailsResponse;
+import com.adyen.model.checkout.PaymentsRequest;
+import com.adyen.model.checkout.PaymentsResponse;
+import com.adyen.model.modification.CancelOrRefundRequest;
+import com.adyen.model.modification.ModificationResult;
+import com.adyen.service.Checkout;
+import com.adyen.service.Modification;
+import com.adyen.service.exception.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service for the calls to the Adyen Checkout and Modification APIs.
+ * <p>
+ * All calls run on the bounded {@code adyenExecutor} and return a future, so the web server threads are free while
+ * Adyen answers. The future fails with a {@link java.util.concurrent.TimeoutException}
+ * when Adyen has not answered within the call timeout, with an {@link AdyenUnavailableException} when the executor is
+ * full, and with the {@link IOException} or {@link ApiException} of the call otherwise. No transaction spans a call:
+ * callers read the cart before it and write the outcome after it, each in its own transaction.
+ * <p>
+ * Each operation has a bulkhead capping its concurrent calls, and all calls go through a {@link CircuitBreaker}, which
+ * stops calling Adyen for a while when too many calls fail. Calls refused by either fail at once with an
+ * {@link AdyenUnavailableException}, so a brownout of Adyen does not pile up waiting threads. Connection failures,
+ * server errors and rate limiting count as failures, other errors of the API are answers of Adyen. A call that could
+ * not connect is retried, as it never reached Adyen; a call of an operation that is safe to repeat is also retried on
+ * the other failures. Retries wait an exponential backoff with full jitter, and are only made while the call timeout
+ * has not passed.
+ */
+@Service
+public class AdyenService {
+
+    @FunctionalInterface
+    private interface AdyenCall<T> {
+        T execute() throws IOException, ApiException;
+    }
+
+    private enum Operation {
+        PAYMENT_METHODS("paymentMethods", true),
+        PAYMENTS("payments", false),
+        PAYMENTS_DETAILS("paymentsDetails", false),
+        CANCEL_OR_REFUND("cancelOrRefund", false);
+
+        private final String tag;
+
+        private final boolean idempotent;
+
+        Operation(String tag, boolean idempotent) {
+            this.tag = tag;
+            this.idempotent = idempotent;
+        }
+    }
+
+    private final Logger log = LoggerFactory.getLogger(AdyenService.class);
+
+    private final Checkout checkout;
+
+    private final Modification modification;
+
+    private final Executor adyenExecutor;
+
+    private final long callTimeoutMs;
+
+    private final int retryMaxAttempts;
+
+    private final long retryBackoffMs;
+
+    private final long retryMaxBackoffMs;
+
+    private final LongSupplier clock;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Map<Operation, Guard> guards = new EnumMap<>(Operation.class);
+
+    public AdyenService(
+        Client adyenClient,
+        @Qualifier("adyenExecutor") Executor adyenExecutor,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this(
+            new Checkout(adyenClient),
+            new Modification(adyenClient),
+            adyenExecutor,
+            applicationProperties.getAdyen(),
+            meterRegistry,
+            System::currentTimeMillis
+        );
+    }
+
+    AdyenService(
+        Checkout checkout,
+        Modification modification,
+        Executor adyenExecutor,
+        ApplicationProperties.Adyen properties,
+        MeterRegistry meterRegistry,
+        LongSupplier clock
+    ) {
+        this.checkout = checkout;
+        this.modification = modification;
+        this.adyenExecutor = adyenExecutor;
+        this.callTimeoutMs = properties.getCallTimeoutMs();
+        this.retryMaxAttempts = properties.getRetryMaxAttempts();
+        this.retryBackoffMs = properties.getRetryBackoffMs();
+        this.retryMaxBackoffMs = properties.getRetryMaxBackoffMs();
+        this.clock = clock;
+        this.circuitBreaker =
+            new CircuitBreaker(
+                properties.getCircuitBreakerWindowSize(),
+                properties.getCircuitBreakerMinimumCalls(),
+                properties.getCircuitBreakerFailureRateThreshold(),
+                properties.getCircuitBreakerOpenMs(),
+                properties.getCircuitBreakerHalfOpenCalls(),
+                clock
+            );
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge
+                .builder("adyen.circuit.breaker.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                .tag("state", state.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+        }
+        Gauge.builder("adyen.circuit.breaker.failure.rate", circuitBreaker, CircuitBreaker::getFailureRate).register(meterRegistry);
+        for (Operation operation : Operation.values()) {
+            guards.put(operation, new Guard(operation, properties.getBulkheadMaxCalls(), meterRegistry));
+        }
+    }
+
+    /**
+     * Get the payment methods.
+     *
+     * @param request the payment methods request.
+     * @return the future payment methods.
+     */
+    public CompletableFuture<PaymentMethodsResponse> paymentMethods(PaymentMethodsRequest request) {
+        return submit(Operation.PAYMENT_METHODS, () -> checkout.paymentMethods(request));
+    }
+
+    /**
+     * Make a payment.
+     *
+     * @param request the payment request.
+     * @return the future payment response.
+     */
+    public CompletableFuture<PaymentsResponse> payments(PaymentsRequest request) {
+        return submit(Operation.PAYMENTS, () -> checkout.payments(request));
+    }
+
+    /**
+     * Submit the additional details of a payment.
+     *
+     * @param request the payment details request.
+     * @return the future payment details response.
+     */
+    public CompletableFuture<PaymentsDetailsResponse> paymentsDetails(PaymentsDetailsRequest request) {
+        return submit(Operation.PAYMENTS_DETAILS, () -> checkout.paymentsDetails(request));
+    }
+
+    /**
+     * Cancel or refund a payment.
+     *
+     * @param request the cancel or refund request.
+     * @return the future modification result.
+     */
+    public CompletableFuture<ModificationResult> cancelOrRefund(CancelOrRefundRequest request) {
+        return submit(Operation.CANCEL_OR_REFUND, () -> modification.cancelOrRefund(request));
+    }
+
+    private <T> CompletableFuture<T> submit(Operation operation, AdyenCall<T> call) {
+        Guard guard;
+        try {
+            guard = enter(operation);
+        } catch (AdyenUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long deadline = clock.getAsLong() + callTimeoutMs;
+        CompletableFuture<T> future;
+        try {
+            future =
+                CompletableFuture.supplyAsync(
+                    () -> {
+                        // the permit is held until the call returns, even when the caller stopped waiting for it
+                        try {
+                            return execute(operation, guard, call, deadline);
+                        } catch (IOException | ApiException e) {
+                            throw new CompletionException(e);
+                        } finally {
+                            guard.bulkhead.release();
+                        }
+                    },
+                    adyenExecutor
+                );
+        } catch (RejectedExecutionException e) {
+            guard.bulkhead.release();
+            guard.rejected.increment();
+            log.warn("Adyen {} call rejected, all Adyen I/O threads are busy", operation.tag);
+            return CompletableFuture.failedFuture(new AdyenUnavailableException("Too many pending calls to Adyen"));
+        }
+        return future.orTimeout(callTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private Guard enter(Operation operation) {
+        Guard guard = guards.get(operation);
+        if (!guard.bulkhead.tryAcquire()) {
+            guard.rejected.increment();
+            log.warn("Adyen {} call rejected, too many calls in progress", operation.tag);
+            throw new AdyenUnavailableException("Too many pending calls to Adyen");
+        }
+        return guard;
+    }
+
+    private <T> T execute(Operation operation, Guard guard, AdyenCall<T> call, long deadline) throws IOException, ApiException {
+        int attempt = 1;
+        while (true) {
+            if (!circuitBreaker.tryAcquire()) {
+                guard.rejected.increment();
+                throw new AdyenUnavailableException("Adyen is unavailable, calls are suspended for a while");
+            }
+            try {
+                T result = call.execute();
+                circuitBreaker.onSuccess();
+                guard.succeeded.increment();
+                return result;
+            } catch (IOException | ApiException | RuntimeException e) {
+                if (!isFailure(e)) {
+                    circuitBreaker.onSuccess();
+                    guard.succeeded.increment();
+                    throw e;
+                }
+                circuitBreaker.onFailure();
+                if (attempt >= retryMaxAttempts || !isRetryable(operation, e) || !backoff(attempt, deadline)) {
+                    guard.failed.increment();
+                    throw e;
+                }
+                log.debug("Retrying Adyen {} call after attempt {} failed: {}", operation.tag, attempt, e.getMessage());
+            }
+            guard.retried.increment();
+            attempt++;
+        }
+    }
+
+    private static boolean isFailure(Exception e) {
+        if (e instanceof ApiException) {
+            int status = ((ApiException) e).getStatusCode();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private static boolean isRetryable(Operation operation, Exception e) {
+        return (
+            e instanceof ConnectException ||
+            e instanceof HttpConnectTimeoutException ||
+            (operation.idempotent && !(e instanceof RuntimeException))
+        );
+    }
+
+    /**
+     * Wait before the next attempt, a random time up to an exponential backoff.
+     *
+     * @return whether to make the next attempt, false when the deadline would pass first or when interrupted.
+     */
+    private boolean backoff(int attempt, long deadline) {
+        long bound = Math.min(retryMaxBackoffMs, retryBackoffMs << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(bound + 1);
+        if (clock.getAsLong() + delay >= deadline) {
+            return false;
+        }
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Bulkhead and meters of an operation.
+     */
+    private static final class Guard {
+
+        private final Semaphore bulkhead;
+
+        private final Counter succeeded;
+
+        private final Counter failed;
+
+        private final Counter rejected;
+
+        private final Counter retried;
+
+        private Guard(Operation operation, int maxCalls, MeterRegistry meterRegistry) {
+            this.bulkhead = new Semaphore(maxCalls);
+            this.succeeded = callCounter(meterRegistry, operation, "success");
+            this.failed = callCounter(meterRegistry, operation, "failure");
+            this.rejected = callCounter(meterRegistry, operation, "rejected");
+            this.retried = Counter.builder("adyen.call.retries").tag("operation", operation.tag).register(meterRegistry);
+            Gauge
+                .builder("adyen.bulkhead.available.calls", bulkhead, Semaphore::availablePermits)
+                .tag("operation", operation.tag)
+                .register(meterRegistry);
+        }
+
+        private static Counter callCounter(MeterRegistry meterRegistry, Operation operation, String outcome) {
+            return Counter.builder("adyen.calls").tag("operation", operation.tag).tag("outcome", outcome).register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.util.HMACValidator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local stand-in for the Adyen APIs the shop calls, to load test checkout without reaching Adyen's test environment.
+ * <p>
+ * It answers {@code /paymentMethods}, {@code /payments}, {@code /payments/details} and {@code /cancelOrRefund}
+ * under any API version. Each answer is delayed by a log-normal latency with the configured median and 99th
+ * percentile, a configured share of calls fail with {@code 500}, and payments get a result code drawn from the
+ * configured weights. After an authorised or refused payment, and after a cancel or refund, it posts an HMAC signed
+ * notification to the webhook URL, as Adyen does.
+ * <p>
+ * Notifications are sent asynchronously, each with a timeout. At most {@code webhook-max-pending} of them wait or are
+ * in flight; further ones are dropped and counted, so a slow webhook endpoint cannot make the stub pile them up.
+ */
+public class AdyenStubServer {
+
+    private static final double Z_99 = 2.326;
+
+    private static final String REFERENCE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private static final Duration WEBHOOK_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Logger log = LoggerFactory.getLogger(AdyenStubServer.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HMACValidator hmacValidator = new HMACValidator();
+
+    private final ApplicationProperties.AdyenStub properties;
+
+    private final String hmacKey;
+
+    private final double latencyMu;
+
+    private final double latencySigma;
+
+    private final Map<String, Integer> resultCodes;
+
+    private final int resultCodesTotal;
+
+    private final AtomicInteger pendingWebhooks = new AtomicInteger();
+
+    private final AtomicLong droppedWebhooks = new AtomicLong();
+
+    private HttpServer server;
+
+    private ExecutorService requestExecutor;
+
+    private ScheduledExecutorService webhookExecutor;
+
+    private HttpClient webhookClient;
+
+    public AdyenStubServer(ApplicationProperties.AdyenStub properties, String hmacKey) {
+        this.properties = properties;
+        this.hmacKey = hmacKey;
+        this.latencyMu = Math.log(Math.max(1L, properties.getLatencyMedianMs()));
+        this.latencySigma = Math.max(0d, (Math.log(Math.max(1L, properties.getLatencyP99Ms())) - latencyMu) / Z_99);
+        this.resultCodes = new LinkedHashMap<>(properties.getResultCodes());
+        this.resultCodesTotal = resultCodes.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", properties.getPort()), 0);
+        requestExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(requestExecutor);
+        server.createContext("/", this::handle);
+        webhookExecutor = Executors.newSingleThreadScheduledExecutor();
+        webhookClient = HttpClient.newBuilder().connectTimeout(WEBHOOK_TIMEOUT).build();
+        server.start();
+        log.info("Adyen stub listening on {}", getUrl());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            requestExecutor.shutdownNow();
+            webhookExecutor.shutdownNow();
+        }
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of notifications dropped because too many were pending.
+     */
+    public long getDroppedWebhooks() {
+        return droppedWebhooks.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            JsonNode request;
+            try {
+                request = objectMapper.readTree(exchange.getRequestBody().readAllBytes());
+            } catch (JsonProcessingException e) {
+                respond(exchange, 422, error(422, "702", "Invalid JSON: " + e.getOriginalMessage()));
+                return;
+            }
+            sleep(latency());
+            if (ThreadLocalRandom.current().nextDouble() < properties.getErrorRate()) {
+                respond(exchange, 500, error(500, "901", "Internal error"));
+            } else if (path.endsWith("/paymentMethods")) {
+                respond(exchange, 200, paymentMethods());
+            } else if (path.endsWith("/payments/details")) {
+                respond(exchange, 200, paymentResult(null, null));
+            } else if (path.endsWith("/payments")) {
+                respond(exchange, 200, payment(request));
+            } else if (path.endsWith("/cancelOrRefund")) {
+                respond(exchange, 200, cancelOrRefund(request));
+            } else {
+                respond(exchange, 404, error(404, "000", "Unknown endpoint " + path));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Adyen stub could not answer {}: {}", exchange.getRequestURI(), e.getMessage());
+            respond(exchange, 500, error(500, "000", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Map<String, Object> paymentMethods() {
+        Map<String, Object> card = new LinkedHashMap<>();
+        card.put("name", "Credit Card");
+        card.put("type", "scheme");
+        card.put("brands", List.of("visa", "mc", "amex"));
+        Map<String, Object> ideal = new LinkedHashMap<>();
+        ideal.put("name", "iDEAL");
+        ideal.put("type", "ideal");
+        return Map.of("paymentMethods", List.of(card, ideal));
+    }
+
+    private Map<String, Object> payment(JsonNode request) {
+        Map<String, Object> response = paymentResult(request.path("reference").asText(null), request);
+        String resultCode = (String) response.get("resultCode");
+        if ("Authorised".equals(resultCode) || "Refused".equals(resultCode)) {
+            notifyLater(
+                "AUTHORISATION",
+                (String) response.get("pspReference"),
+                null,
+                request,
+                "Authorised".equals(resultCode),
+                Map.of()
+            );
+        }
+        return response;
+    }
+
+    private Map<String, Object> paymentResult(String merchantReference, JsonNode request) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pspReference", newPspReference());
+        response.put("resultCode", nextResultCode());
+        if (merchantReference != null) {
+            response.put("merchantReference", merchantReference);
+        }
+        if (request != null && request.has("amount")) {
+            response.put("amount", request.get("amount"));
+        }
+        return response;
+    }
+
+    private Map<String, Object> cancelOrRefund(JsonNode request) {
+        String pspReference = newPspReference();
+        notifyLater(
+            "CANCEL_OR_REFUND",
+            pspReference,
+            request.path("originalReference").asText(null),
+            request,
+            true,
+            Map.of("modification.action", "refund")
+        );
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pspReference", pspReference);
+        response.put("response", "[cancelOrRefund-received]");
+        return response;
+    }
+
+    private void notifyLater(
+        String eventCode,
+        String pspReference,
+        String originalReference,
+        JsonNode request,
+        boolean success,
+        Map<String, String> additionalData
+    ) {
+        if (!properties.isWebhooksEnabled()) {
+            return;
+        }
+        if (pendingWebhooks.incrementAndGet() > properties.getWebhookMaxPending()) {
+            pendingWebhooks.decrementAndGet();
+            if (droppedWebhooks.incrementAndGet() % 1000 == 1) {
+                log.warn("Adyen stub dropped {} notifications, too many are pending", droppedWebhooks.get());
+            }
+            return;
+        }
+        try {
+            webhookExecutor.schedule(
+                () -> notify(eventCode, pspReference, originalReference, request, success, additionalData),
+                properties.getWebhookDelayMs(),
+                TimeUnit.MILLISECONDS
+            );
+        } catch (RejectedExecutionException e) {
+            // the stub is stopping
+            pendingWebhooks.decrementAndGet();
+        }
+    }
+
+    private void notify(
+        String eventCode,
+        String pspReference,
+        String originalReference,
+        JsonNode request,
+        boolean success,
+        Map<String, String> additionalData
+    ) {
+        HttpRequest webhook;
+        try {
+            webhook = webhookRequest(eventCode, pspReference, originalReference, request, success, additionalData);
+        } catch (IOException | SignatureException | RuntimeException e) {
+            pendingWebhooks.decrementAndGet();
+            log.warn("Adyen stub could not send {} notification: {}", eventCode, e.getMessage());
+            return;
+        }
+        webhookClient
+            .sendAsync(webhook, HttpResponse.BodyHandlers.discarding())
+            .whenComplete(
+                (response, error) -> {
+                    pendingWebhooks.decrementAndGet();
+                    if (error != null) {
+                        log.warn("Adyen stub could not send {} notification: {}", eventCode, error.getMessage());
+                    } else {
+                        log.debug("Adyen stub sent {} notification for {}, answered {}", eventCode, pspReference, response.statusCode());
+                    }
+                }
+            );
+    }
+
+    private HttpRequest webhookRequest(
+        String eventCode,
+        String pspReference,
+        String originalReference,
+        JsonNode request,
+        boolean success,
+        Map<String, String> additionalData
+    ) throws IOException, SignatureException {
+        String merchantAccount = request.path("merchantAccount").asText("");
+        String merchantReference = request.path("reference").asText("");
+        long value = request.path("amount").path("value").asLong(0L);
+        String currency = request.path("amount").path("currency").asText("EUR");
+        String dataToSign = String.join(
+            ":",
+            pspReference,
+            originalReference != null ? originalReference : "",
+            merchantAccount,
+            merchantReference,
+            String.valueOf(value),
+            currency,
+            eventCode,
+            String.valueOf(success)
+        );
+
+        Map<String, Object> item = new LinkedHashMap<>();
+        Map<String, String> itemData = new LinkedHashMap<>(additionalData);
+        itemData.put("hmacSignature", hmacValidator.calculateHMAC(dataToSign, hmacKey));
+        item.put("additionalData", itemData);
+        item.put("amount", Map.of("currency", currency, "value", value));
+        item.put("eventCode", eventCode);
+        item.put("eventDate", Instant.now().toString());
+        item.put("merchantAccountCode", merchantAccount);
+        item.put("merchantReference", merchantReference);
+        if (originalReference != null) {
+            item.put("originalReference", originalReference);
+        }
+        item.put("pspReference", pspReference);
+        item.put("success", String.valueOf(success));
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("live", "false");
+        notification.put("notificationItems", List.of(Map.of("NotificationRequestItem", item)));
+
+        String credentials = properties.getWebhookUsername() + ":" + properties.getWebhookPassword();
+        return HttpRequest
+            .newBuilder(URI.create(properties.getWebhookUrl()))
+            .timeout(WEBHOOK_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .header("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(notification)))
+            .build();
+    }
+
+    private long latency() {
+        if (properties.getLatencyMedianMs() <= 0L) {
+            return 0L;
+        }
+        return Math.round(Math.exp(latencyMu + latencySigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    private String nextResultCode() {
+        if (resultCodesTotal <= 0) {
+            return "Authorised";
+        }
+        int pick = ThreadLocalRandom.current().nextInt(resultCodesTotal);
+        for (Map.Entry<String, Integer> entry : resultCodes.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        return "Authorised";
+    }
+
+    private static String newPspReference() {
+        Random random = ThreadLocalRandom.current();
+        StringBuilder reference = new StringBuilder(16);
+        for (int i = 0; i < 16; i++) {
+            reference.append(REFERENCE_CHARS.charAt(random.nextInt(REFERENCE_CHARS.length())));
+        }
+        return reference.toString();
+    }
+
+    private static Map<String, Object> error(int status, String errorCode, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("status", status);
+        error.put("errorCode", errorCode);
+        error.put("message", message);
+        error.put("errorType", status >= 500 ? "internal" : "validation");
+        return error;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0L) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
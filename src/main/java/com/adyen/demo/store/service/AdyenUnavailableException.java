@@ -0,0 +1,13 @@
+package com.adyen.demo.store.service;
+
+/**
+ * Thrown when a call to Adyen is not made because Adyen cannot take it now.
+ */
+public class AdyenUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AdyenUnavailableException(String message) {
+        super(message);
+    }
+}
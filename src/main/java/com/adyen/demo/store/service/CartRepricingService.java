@@ -0,0 +1,162 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.repository.ProductOrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reprices the {@link OrderStatus#OPEN} carts holding a product after its price changed, so shoppers are charged the
+ * current price.
+ * <p>
+ * Price changes are queued once committed, and the products are handled every {@code application.cart.reprice-interval-ms}:
+ * the carts holding the product are found through the {@code (product_id, cart_id)} index of the orders, in
+ * batches of ids in ascending order, and each batch is repriced in its own transaction. Several changes of the same
+ * product before the worker runs cost one pass. A batch that conflicts with a shopper changing the cart is skipped:
+ * carts are also repriced when they are loaded, so no cart is ever served with a stale price.
+ */
+@Service
+public class CartRepricingService {
+
+    private final Logger log = LoggerFactory.getLogger(CartRepricingService.class);
+
+    private final Set<Long> pendingProducts = ConcurrentHashMap.newKeySet();
+
+    private final ProductOrderRepository productOrderRepository;
+
+    private final ActiveCartStore activeCartStore;
+
+    private final ApplicationProperties.Cart properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter repricedOrders;
+
+    public CartRepricingService(
+        ProductOrderRepository productOrderRepository,
+        ActiveCartStore activeCartStore,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.productOrderRepository = productOrderRepository;
+        this.activeCartStore = activeCartStore;
+        this.properties = applicationProperties.getCart();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.repricedOrders =
+            Counter
+                .builder("cart.repricing.orders")
+                .description("Orders of open carts repriced after a price change")
+                .register(meterRegistry);
+        Gauge
+            .builder("cart.repricing.pending", pendingProducts, Set::size)
+            .description("Products with a price change waiting for their carts to be repriced")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queue the carts holding a product for repricing, once the price change has committed.
+     *
+     * @param event the price change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductPriceChanged(ProductPriceChangedEvent event) {
+        pendingProducts.add(event.getProductId());
+    }
+
+    /**
+     * Reprice the carts of the products whose price changed since the last run.
+     */
+    @Scheduled(
+        initialDelayString = "${application.cart.reprice-interval-ms:1000}",
+        fixedDelayString = "${application.cart.reprice-interval-ms:1000}"
+    )
+    public void repricePending() {
+        for (Long productId : new ArrayList<>(pendingProducts)) {
+            pendingProducts.remove(productId);
+            try {
+                reprice(productId);
+            } catch (RuntimeException e) {
+                log.warn("Could not reprice the carts of product {}, they are repriced when loaded: {}", productId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reprice the orders of a product in the open carts.
+     *
+     * @param productId the id of the product.
+     * @return the number of repriced orders.
+     */
+    public long reprice(Long productId) {
+        long repriced = 0;
+        long afterId = 0;
+        List<Long> cartIds;
+        do {
+            long from = afterId;
+            cartIds =
+                transactionTemplate.execute(
+                    status ->
+                        productOrderRepository.findCartIdsByProductIdAndCartStatus(
+                            productId,
+                            OrderStatus.OPEN,
+                            from,
+                            PageRequest.of(0, properties.getRepriceBatchSize())
+                        )
+                );
+            if (cartIds.isEmpty()) {
+                break;
+            }
+            afterId = cartIds.get(cartIds.size() - 1);
+            // carts held in memory are written and dropped, and repriced when loaded again
+            cartIds.forEach(activeCartStore::evictCart);
+            repriced += repriceBatch(productId, cartIds);
+        } while (cartIds.size() == properties.getRepriceBatchSize());
+        log.debug("Repriced {} orders of product {}", repriced, productId);
+        return repriced;
+    }
+
+    private int repriceBatch(Long productId, List<Long> cartIds) {
+        try {
+            int repriced = transactionTemplate.execute(
+                status -> {
+                    int count = 0;
+                    List<ProductOrder> orders = productOrderRepository.findAllWithCartByProductIdAndCartIdIn(
+                        productId,
+                        cartIds,
+                        OrderStatus.OPEN
+                    );
+                    for (ProductOrder order : orders) {
+                        if (order.isPriceStale()) {
+                            order.getCart().updateOrderQuantity(order, order.getQuantity());
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            );
+            repricedOrders.increment(repriced);
+            return repriced;
+        } catch (ConcurrencyFailureException e) {
+            log.debug("Carts {} changed while being repriced, they are repriced when loaded: {}", cartIds, e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * An immutable, in-memory copy of the product catalog.
+ * <p>
+ * It holds every product as a summary, with the summary and the detail view serialized to JSON once, and keeps
+ * the products in a sorted array for each property the shop sorts listings by. A listing page is a slice of the
+ * array of its sort order with the serialized summaries joined, so serving it is a plain byte copy. Product changes
+ * are applied in batches with {@link #withChanges}, which serializes the changed products only and returns a new
+ * catalog; readers of this one keep seeing a consistent version of the whole catalog.
+ */
+public final class CatalogSnapshot {
+
+    private static final Map<String, Comparator<ProductSummaryDTO>> ORDERS;
+
+    static {
+        Map<String, Comparator<ProductSummaryDTO>> orders = new HashMap<>();
+        Comparator<ProductSummaryDTO> byId = Comparator.comparing(ProductSummaryDTO::getId);
+        orders.put("id", byId);
+        orders.put("name", Comparator.comparing(ProductSummaryDTO::getName).thenComparing(byId));
+        orders.put("price", Comparator.comparing(ProductSummaryDTO::getPrice).thenComparing(byId));
+        ORDERS = Collections.unmodifiableMap(orders);
+    }
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, Item> items;
+
+    /**
+     * Products, sorted by each sort order.
+     */
+    private final Map<String, Item[]> sorted = new HashMap<>();
+
+    private final long byteSize;
+
+    /**
+     * Build a catalog.
+     *
+     * @param summaries the product summaries, by product id.
+     * @param details the serialized product details, by product id.
+     * @param objectMapper the mapper to serialize summaries with.
+     */
+    public CatalogSnapshot(Map<Long, ProductSummaryDTO> summaries, Map<Long, byte[]> details, ObjectMapper objectMapper) {
+        this(new HashMap<>(summaries.size() * 2), summaries, details, objectMapper);
+    }
+
+    private CatalogSnapshot(
+        Map<Long, Item> items,
+        Map<Long, ProductSummaryDTO> summaries,
+        Map<Long, byte[]> details,
+        ObjectMapper objectMapper
+    ) {
+        this.objectMapper = objectMapper;
+        for (ProductSummaryDTO summary : summaries.values()) {
+            items.put(summary.getId(), new Item(summary, serialize(summary), details.get(summary.getId())));
+        }
+        this.items = items;
+        Item[] all = items.values().toArray(new Item[0]);
+        for (Map.Entry<String, Comparator<ProductSummaryDTO>> order : ORDERS.entrySet()) {
+            Item[] byOrder = all.clone();
+            Arrays.sort(byOrder, (a, b) -> order.getValue().compare(a.summary, b.summary));
+            sorted.put(order.getKey(), byOrder);
+        }
+        this.byteSize = Arrays.stream(all).mapToLong(Item::byteSize).sum();
+    }
+
+    /**
+     * Apply a batch of product changes to a copy of this catalog.
+     *
+     * @param summaries the summaries of the added or changed products, by product id.
+     * @param details the serialized details of the added or changed products, by product id.
+     * @param removed the ids of the removed products.
+     * @return the new catalog; this one is left unchanged.
+     */
+    public CatalogSnapshot withChanges(Map<Long, ProductSummaryDTO> summaries, Map<Long, byte[]> details, Collection<Long> removed) {
+        Map<Long, Item> copy = new HashMap<>(items);
+        copy.keySet().removeAll(removed);
+        return new CatalogSnapshot(copy, summaries, details, objectMapper);
+    }
+
+    /**
+     * @param id the id of the product.
+     * @return the serialized detail view of the product, if the catalog holds it.
+     */
+    public Optional<byte[]> findProductJson(Long id) {
+        Item item = items.get(id);
+        return item != null ? Optional.of(item.detail) : Optional.empty();
+    }
+
+    /**
+     * Get a listing page.
+     *
+     * @param pageable the pagination information; unsorted pages are sorted by id.
+     * @return the page and its serialized content, or empty if the catalog cannot serve this sort order.
+     */
+    public Optional<CatalogPage> findPage(Pageable pageable) {
+        if (pageable.isUnpaged() || pageable.getSort().stream().count() > 1) {
+            return Optional.empty();
+        }
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        Item[] byOrder = sorted.get(order.getProperty());
+        if (byOrder == null) {
+            return Optional.empty();
+        }
+        int from = (int) Math.min(pageable.getOffset(), byOrder.length);
+        int to = (int) Math.min((long) from + pageable.getPageSize(), byOrder.length);
+        List<ProductSummaryDTO> content = new ArrayList<>(to - from);
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('[');
+        for (int i = from; i < to; i++) {
+            Item item = byOrder[order.getDirection().isAscending() ? i : byOrder.length - 1 - i];
+            if (!content.isEmpty()) {
+                json.write(',');
+            }
+            content.add(item.summary);
+            json.writeBytes(item.summaryJson);
+        }
+        json.write(']');
+        return Optional.of(new CatalogPage(new PageImpl<>(content, pageable, byOrder.length), json.toByteArray()));
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return the number of bytes of serialized JSON the catalog holds.
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Item {
+
+        private final ProductSummaryDTO summary;
+
+        private final byte[] summaryJson;
+
+        private final byte[] detail;
+
+        private Item(ProductSummaryDTO summary, byte[] summaryJson, byte[] detail) {
+            this.summary = summary;
+            this.summaryJson = summaryJson;
+            this.detail = detail;
+        }
+
+        private long byteSize() {
+            return (long) summaryJson.length + detail.length;
+        }
+    }
+
+    /**
+     * A listing page served from the catalog.
+     */
+    public static final class CatalogPage {
+
+        private final Page<ProductSummaryDTO> page;
+
+        private final byte[] json;
+
+        private CatalogPage(Page<ProductSummaryDTO> page, byte[] json) {
+            this.page = page;
+            this.json = json;
+        }
+
+        public Page<ProductSummaryDTO> getPage() {
+            return page;
+        }
+
+        /**
+         * @return the page content, serialized as a JSON array.
+         */
+        public byte[] getJson() {
+            return json;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the current {@link CatalogSnapshot}, so product listings and details are served without touching
+ * Hibernate or Jackson.
+ * <p>
+ * The snapshot is built in the background when the application starts. Every {@link ProductChangedEvent} queues
+ * its product once the write has committed; a background task reads the queued products in batches and swaps in a
+ * new snapshot with each batch applied, so the writer's thread never waits for it and readers always see a whole
+ * version of the catalog. If a batch cannot be applied, the snapshot is dropped and rebuilt by that same task. While no snapshot is available, for instance before the first build
+ * succeeds or while it is rebuilt, reads return empty and callers use the database.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final ProductRepository productRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties.Catalog properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Executor executor;
+
+    private final Timer fullRebuildTimer;
+
+    private final Timer updateTimer;
+
+    public CatalogSnapshotService(
+        ProductRepository productRepository,
+        ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("taskExecutor") Executor executor,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.properties = applicationProperties.getCatalog();
+        this.executor = executor;
+        // the snapshot is read from a background task, outside of any caller's transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        this.fullRebuildTimer = Timer
+            .builder("catalog.snapshot.rebuild")
+            .description("Time to build the catalog snapshot")
+            .tag("type", "full")
+            .register(meterRegistry);
+        this.updateTimer = Timer
+            .builder("catalog.snapshot.rebuild")
+            .description("Time to build the catalog snapshot")
+            .tag("type", "batch")
+            .register(meterRegistry);
+        Gauge
+            .builder("catalog.snapshot.products", snapshot, ref -> ref.get() != null ? ref.get().size() : 0)
+            .description("Number of products in the catalog snapshot")
+            .register(meterRegistry);
+        Gauge
+            .builder("catalog.snapshot.size", snapshot, ref -> ref.get() != null ? ref.get().getByteSize() : 0)
+            .description("Serialized JSON held by the catalog snapshot")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge
+            .builder("catalog.snapshot.pending", pending, Set::size)
+            .description("Number of changed products not yet applied to the catalog snapshot")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Build the snapshot from the whole product table, in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuild() {
+        if (properties.isSnapshotEnabled()) {
+            rebuildRequested.set(true);
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Rebuild the snapshot once products were imported in bulk.
+     *
+     * @param event the import.
+     */
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        scheduleRebuild();
+    }
+
+    /**
+     * Queue a product to be refreshed in the snapshot, once the transaction that changed it has committed.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (properties.isSnapshotEnabled()) {
+            pending.add(event.getProductId());
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * @param pageable the pagination information.
+     * @return the listing page from the snapshot, or empty if it cannot be served from memory.
+     */
+    public Optional<CatalogSnapshot.CatalogPage> findPage(Pageable pageable) {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current.findPage(pageable) : Optional.empty();
+    }
+
+    /**
+     * @param id the id of the product.
+     * @return the serialized product from the snapshot, or empty if it is not held in memory.
+     */
+    public Optional<byte[]> findProductJson(Long id) {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current.findProductJson(id) : Optional.empty();
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // the work stays queued and is picked up by the next change
+            draining.set(false);
+            log.warn("Could not schedule a catalog snapshot update: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Apply the queued work; only one drain runs at a time, so the snapshot has a single writer.
+     */
+    private void drain() {
+        try {
+            if (rebuildRequested.getAndSet(false)) {
+                rebuild();
+            }
+            while (!pending.isEmpty()) {
+                List<Long> ids = new ArrayList<>();
+                Iterator<Long> queued = pending.iterator();
+                while (queued.hasNext()) {
+                    ids.add(queued.next());
+                    queued.remove();
+                }
+                CatalogSnapshot current = snapshot.get();
+                if (current == null) {
+                    // a rebuild reads the products anyway
+                    continue;
+                }
+                try {
+                    snapshot.set(updateTimer.record(() -> update(current, ids)));
+                } catch (RuntimeException e) {
+                    // never serve a snapshot that missed a write
+                    snapshot.set(null);
+                    rebuildRequested.set(true);
+                    log.warn("Could not update {} products in the catalog snapshot, rebuilding it: {}", ids.size(), e.getMessage());
+                    return;
+                }
+            }
+        } finally {
+            draining.set(false);
+            if (rebuildRequested.get() || !pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void rebuild() {
+        // changes queued from here on are applied on top of the new snapshot
+        pending.clear();
+        try {
+            CatalogSnapshot built = fullRebuildTimer.record(
+                () ->
+                    transactionTemplate.execute(
+                        status -> {
+                            List<Product> products = productRepository.findAllWithProductCategory();
+                            Map<Long, ProductSummaryDTO> summaries = new HashMap<>(products.size() * 2);
+                            Map<Long, byte[]> details = new HashMap<>(products.size() * 2);
+                            for (Product product : products) {
+                                summaries.put(product.getId(), new ProductSummaryDTO(product));
+                                details.put(product.getId(), serialize(product));
+                            }
+                            return new CatalogSnapshot(summaries, details, objectMapper);
+                        }
+                    )
+            );
+            snapshot.set(built);
+            log.info("Built catalog snapshot of {} products ({} bytes)", built.size(), built.getByteSize());
+        } catch (RuntimeException e) {
+            snapshot.set(null);
+            log.warn("Could not build the catalog snapshot, products are read from the database: {}", e.getMessage());
+        }
+    }
+
+    private CatalogSnapshot update(CatalogSnapshot current, List<Long> ids) {
+        Map<Long, ProductSummaryDTO> summaries = new HashMap<>();
+        Map<Long, byte[]> details = new HashMap<>();
+        List<Long> removed = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(
+            status -> {
+                for (Long id : ids) {
+                    Optional<Product> product = productRepository.findOneWithProductCategoryById(id);
+                    if (product.isPresent()) {
+                        summaries.put(id, new ProductSummaryDTO(product.get()));
+                        details.put(id, serialize(product.get()));
+                    } else {
+                        removed.add(id);
+                    }
+                }
+            }
+        );
+        return current.withChanges(summaries, details, removed);
+    }
+
+    private byte[] serialize(Product product) {
+        try {
+            return objectMapper.writeValueAsBytes(product);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
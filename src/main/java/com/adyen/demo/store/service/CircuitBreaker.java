@@ -0,0 +1,137 @@
+package com.adyen.demo.store.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker over a sliding window of the outcomes of the last calls.
+ * <p>
+ * While {@link State#CLOSED closed}, every call is permitted, and the breaker opens when at least the minimum number
+ * of calls is in the window and the share of failures reaches the threshold. While {@link State#OPEN open}, calls are
+ * not permitted. After the open duration the breaker is {@link State#HALF_OPEN half open}: a few trial calls are
+ * permitted, it closes again once all of them succeed and opens again on the first failure.
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long openDurationMs;
+
+    private final int halfOpenCalls;
+
+    private final LongSupplier clock;
+
+    /**
+     * Whether each of the last calls failed, as a ring buffer.
+     */
+    private final boolean[] window;
+
+    private int next;
+
+    private int calls;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int halfOpenPermitted;
+
+    private int halfOpenSucceeded;
+
+    CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openDurationMs, int halfOpenCalls, LongSupplier clock) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+    }
+
+    /**
+     * Ask for a call to be permitted. A permitted call must report its outcome with {@link #onSuccess} or
+     * {@link #onFailure}.
+     *
+     * @return whether the call is permitted.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openDurationMs) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= halfOpenCalls) {
+                state = State.CLOSED;
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures * 100L >= (long) failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the share of failed calls in the window, from 0 to 1.
+     */
+    synchronized double getFailureRate() {
+        return calls == 0 ? 0d : (double) failures / calls;
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,106 @@
+package com.adyen.demo.store.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records, as defined by RFC 4180, one at a time.
+ * <p>
+ * Values may be double quoted, and quoted values may hold separators, doubled double quotes and line breaks, so a
+ * record can span several lines. Records end with {@code \n}, {@code \r\n} or {@code \r}. The reader is not
+ * buffered: wrap it in a {@link java.io.BufferedReader}.
+ */
+final class CsvRecordReader {
+
+    private static final int NONE = -2;
+
+    private final Reader reader;
+
+    private final char separator;
+
+    private long lineNumber = 1;
+
+    private long recordLineNumber;
+
+    private int pushedBack = NONE;
+
+    CsvRecordReader(Reader reader, char separator) {
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the values of the record, or {@code null} at the end of the input.
+     * @throws IOException if the input could not be read.
+     * @throws IllegalArgumentException if the input ends within a quoted value.
+     */
+    List<String> next() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("unterminated quoted value");
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following != '"') {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    lineNumber++;
+                }
+                value.append((char) c);
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        pushedBack = following;
+                    }
+                }
+                lineNumber++;
+                break;
+            } else if (c == -1) {
+                break;
+            } else {
+                value.append((char) c);
+            }
+            c = read();
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * @return the line the last record read starts on, counting from 1.
+     */
+    long getLineNumber() {
+        return recordLineNumber;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+}
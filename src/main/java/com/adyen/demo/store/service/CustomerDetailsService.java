@@ -2,11 +2,15 @@ package com.adyen.demo.store.service;
 
 import com.adyen.demo.store.domain.CustomerDetails;
 import com.adyen.demo.store.repository.CustomerDetailsRepository;
+import com.adyen.demo.store.repository.Keyset;
+import com.adyen.demo.store.repository.KeysetQueryExecutor;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,8 +25,18 @@ public class CustomerDetailsService {
 
     private final CustomerDetailsRepository customerDetailsRepository;
 
-    public CustomerDetailsService(CustomerDetailsRepository customerDetailsRepository) {
+    private final KeysetQueryExecutor keysetQueryExecutor;
+
+    private final EntityCountCache entityCountCache;
+
+    public CustomerDetailsService(
+        CustomerDetailsRepository customerDetailsRepository,
+        KeysetQueryExecutor keysetQueryExecutor,
+        EntityCountCache entityCountCache
+    ) {
         this.customerDetailsRepository = customerDetailsRepository;
+        this.keysetQueryExecutor = keysetQueryExecutor;
+        this.entityCountCache = entityCountCache;
     }
 
     /**
@@ -33,6 +47,9 @@ public class CustomerDetailsService {
      */
     public CustomerDetails save(CustomerDetails customerDetails) {
         log.debug("Request to save CustomerDetails : {}", customerDetails);
+        if (customerDetails.getId() == null) {
+            entityCountCache.invalidate(CustomerDetails.class);
+        }
         return customerDetailsRepository.save(customerDetails);
     }
 
@@ -78,12 +95,39 @@ public class CustomerDetailsService {
      * Get all the customerDetails.
      *
      * @param pageable the pagination information.
-     * @return the list of entities.
+     * @return the list of entities, with the total from the {@link EntityCountCache}.
      */
     @Transactional(readOnly = true)
     public Page<CustomerDetails> findAll(Pageable pageable) {
         log.debug("Request to get all CustomerDetails");
-        return customerDetailsRepository.findAll(pageable);
+        Slice<CustomerDetails> slice = customerDetailsRepository.findAllBy(pageable);
+        long total = entityCountCache.getCount(CustomerDetails.class, customerDetailsRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    /**
+     * Get a slice of the customerDetails, for listings that do not need a total.
+     *
+     * @param pageable the pagination information.
+     * @return the slice of entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<CustomerDetails> findSlice(Pageable pageable) {
+        log.debug("Request to get a slice of CustomerDetails");
+        return customerDetailsRepository.findAllBy(pageable);
+    }
+
+    /**
+     * Get the customerDetails following a keyset.
+     *
+     * @param keyset the position to read from.
+     * @param size the maximum number of entities.
+     * @return the slice of entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<CustomerDetails> findAllAfter(Keyset keyset, int size) {
+        log.debug("Request to get CustomerDetails after {}", keyset);
+        return keysetQueryExecutor.findAfter(CustomerDetails.class, keyset, size);
     }
 
     /**
@@ -106,5 +150,6 @@ public class CustomerDetailsService {
     public void delete(Long id) {
         log.debug("Request to delete CustomerDetails : {}", id);
         customerDetailsRepository.deleteById(id);
+        entityCountCache.invalidate(CustomerDetails.class);
     }
 }
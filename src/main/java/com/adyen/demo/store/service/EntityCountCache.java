@@ -0,0 +1,125 @@
+package com.adyen.demo.store.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Per-entity cache of row counts, used for the {@code X-Total-Count} header of paged listings.
+ * <p>
+ * A count is computed once, then served from memory. Services {@link #invalidate(Class) invalidate} it when
+ * they create or delete rows; the stale count keeps being served while a single refresh runs on the task
+ * executor, so listings never wait on a {@code count(*)} after the first one.
+ */
+@Service
+public class EntityCountCache {
+
+    private final Logger log = LoggerFactory.getLogger(EntityCountCache.class);
+
+    private final ConcurrentMap<Class<?>, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Executor taskExecutor;
+
+    public EntityCountCache(@Qualifier("taskExecutor") Executor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Get the number of rows of an entity.
+     *
+     * @param type the entity type.
+     * @param counter runs the count query, on first use and on refreshes.
+     * @return the cached count, possibly stale while a refresh is running.
+     */
+    public long getCount(Class<?> type, LongSupplier counter) {
+        Entry entry = entries.get(type);
+        if (entry == null) {
+            entry = new Entry(counter, counter.getAsLong());
+            Entry existing = entries.putIfAbsent(type, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        if (entry.stale) {
+            refresh(entry);
+        }
+        return entry.count;
+    }
+
+    /**
+     * Mark the count of an entity as stale, once the current transaction commits.
+     *
+     * @param type the entity type.
+     */
+    public void invalidate(Class<?> type) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        markStale(type);
+                    }
+                }
+            );
+        } else {
+            markStale(type);
+        }
+    }
+
+    private void markStale(Class<?> type) {
+        Entry entry = entries.get(type);
+        if (entry != null) {
+            entry.stale = true;
+            refresh(entry);
+        }
+    }
+
+    private void refresh(Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        taskExecutor.execute(
+            () -> {
+                boolean failed = false;
+                try {
+                    // cleared first, so an invalidation during the count triggers another refresh
+                    entry.stale = false;
+                    entry.count = entry.counter.getAsLong();
+                } catch (RuntimeException e) {
+                    failed = true;
+                    entry.stale = true;
+                    log.warn("Could not refresh entity count: {}", e.getMessage());
+                } finally {
+                    entry.refreshing.set(false);
+                }
+                if (!failed && entry.stale) {
+                    refresh(entry);
+                }
+            }
+        );
+    }
+
+    private static final class Entry {
+
+        private final LongSupplier counter;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private volatile long count;
+
+        private volatile boolean stale;
+
+        private Entry(LongSupplier counter, long count) {
+            this.counter = counter;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.domain.enumeration.PaymentMethod;
+import com.adyen.demo.store.security.jwt.TokenProvider;
+import com.adyen.demo.store.service.dto.CartItemChangeDTO;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service for the carts of guests, who browse without logging in.
+ * <p>
+ * A guest cart is never stored: its lines, product ids and quantities, are held by the client in a token signed by
+ * the {@link TokenProvider}, and priced from the current products on every read. When the guest logs in, the lines
+ * are merged into their active {@link ShoppingCart} in a single change, each line raised to the guest quantity. A token
+ * stays valid after a login, so merging the same cart again changes nothing. A token that is invalid or expired is an
+ * empty cart.
+ */
+@Service
+public class GuestCartService {
+
+    private final Logger log = LoggerFactory.getLogger(GuestCartService.class);
+
+    private final TokenProvider tokenProvider;
+
+    private final ProductService productService;
+
+    private final ShoppingCartService shoppingCartService;
+
+    private final ApplicationProperties.Cart properties;
+
+    public GuestCartService(
+        TokenProvider tokenProvider,
+        ProductService productService,
+        ShoppingCartService shoppingCartService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.tokenProvider = tokenProvider;
+        this.productService = productService;
+        this.shoppingCartService = shoppingCartService;
+        this.properties = applicationProperties.getCart();
+    }
+
+    /**
+     * Get the cart of a guest, priced from the current products. Products that no longer exist are left out.
+     *
+     * @param token the guest cart token, or {@code null} for an empty cart.
+     * @return the cart, which must not be saved.
+     */
+    public ShoppingCart getCart(String token) {
+        Map<Long, Integer> lines = getLines(token);
+        ShoppingCart cart = new ShoppingCart(
+            Instant.now(),
+            OrderStatus.OPEN,
+            Money.zero(Money.DEFAULT_CURRENCY),
+            PaymentMethod.CREDIT_CARD,
+            null
+        );
+        if (lines.isEmpty()) {
+            return cart;
+        }
+        Map<Long, Product> products = findProducts(lines.keySet());
+        lines.forEach(
+            (productId, quantity) -> {
+                Product product = products.get(productId);
+                if (product != null) {
+                    cart.addOrder(
+                        new ProductOrder()
+                            .quantity(quantity)
+                            .totalPrice(product.getPrice().times(quantity))
+                            .priceVersion(product.getPriceVersion())
+                            .product(product)
+                    );
+                }
+            }
+        );
+        return cart;
+    }
+
+    /**
+     * Apply several quantity changes to the cart of a guest. Changes of the same product are summed; a line whose
+     * quantity drops to zero or below is removed, and a negative change of a product that is not in the cart is
+     * ignored.
+     *
+     * @param token   the guest cart token, or {@code null} for an empty cart.
+     * @param changes the quantity changes to apply.
+     * @return the token of the updated cart.
+     * @throws EntityNotFoundException  if one of the added products is not found.
+     * @throws IllegalArgumentException if the cart would hold more than {@code application.cart.guest-max-lines}
+     * products, or a line more than {@code application.cart.max-line-quantity} units.
+     */
+    public String updateProducts(String token, List<CartItemChangeDTO> changes) {
+        Map<Long, Integer> lines = getLines(token);
+        // summed as longs, so that no list of int changes can overflow
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        changes.forEach(change -> deltas.merge(change.getProductId(), (long) change.getQuantityDelta(), Long::sum));
+        deltas.values().removeIf(delta -> delta == 0);
+        Map<Long, Long> added = deltas
+            .entrySet()
+            .stream()
+            .filter(delta -> delta.getValue() > 0)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (!added.isEmpty() && findProducts(added.keySet()).size() < added.size()) {
+            throw new EntityNotFoundException("Product not found");
+        }
+        deltas.forEach(
+            (productId, delta) -> {
+                long quantity = lines.getOrDefault(productId, 0) + delta;
+                if (quantity <= 0) {
+                    lines.remove(productId);
+                } else if (quantity > properties.getMaxLineQuantity()) {
+                    throw new IllegalArgumentException("A cart line holds at most " + properties.getMaxLineQuantity() + " units");
+                } else {
+                    lines.put(productId, (int) quantity);
+                }
+            }
+        );
+        if (lines.size() > properties.getGuestMaxLines()) {
+            throw new IllegalArgumentException("A guest cart holds at most " + properties.getGuestMaxLines() + " products");
+        }
+        return tokenProvider.createGuestCartToken(encode(lines), properties.getGuestTokenValiditySeconds() * 1000);
+    }
+
+    /**
+     * Merge the lines of the cart of a guest into the active cart of the user they logged in as: each line ends up
+     * with the larger of the guest and the user quantity, so logging in again with the same token adds nothing. A cart
+     * that cannot be merged is dropped, without failing the login.
+     *
+     * @param user  the login of the user.
+     * @param token the guest cart token.
+     */
+    public void mergeIntoActiveCart(String user, String token) {
+        Map<Long, Integer> lines = getLines(token);
+        if (lines.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Product> products = findProducts(lines.keySet());
+            Map<Long, Integer> held = new HashMap<>();
+            shoppingCartService
+                .findActiveCartByUser(user)
+                .getOrders()
+                .forEach(order -> held.merge(order.getProduct().getId(), order.getQuantity(), Integer::sum));
+            List<CartItemChangeDTO> changes = lines
+                .entrySet()
+                .stream()
+                .filter(line -> products.containsKey(line.getKey()))
+                .filter(line -> line.getValue() > held.getOrDefault(line.getKey(), 0))
+                .map(line -> new CartItemChangeDTO(line.getKey(), line.getValue() - held.getOrDefault(line.getKey(), 0)))
+                .collect(Collectors.toList());
+            if (!changes.isEmpty()) {
+                shoppingCartService.updateProductsForUser(changes, user);
+            }
+            log.debug("Merged {} guest cart lines into the cart of user {}", changes.size(), user);
+        } catch (RuntimeException e) {
+            log.warn("Could not merge the guest cart into the cart of user {}: {}", user, e.getMessage());
+        }
+    }
+
+    private Map<Long, Product> findProducts(Collection<Long> ids) {
+        return productService.findAllById(ids).stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    /**
+     * @return the lines of the cart, quantities by product id in the order they were added.
+     */
+    private Map<Long, Integer> getLines(String token) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        if (token == null || token.isEmpty()) {
+            return lines;
+        }
+        tokenProvider
+            .getGuestCartLines(token)
+            .ifPresent(
+                encoded -> {
+                    for (String line : encoded.split(",")) {
+                        int separator = line.indexOf(':');
+                        if (separator > 0) {
+                            lines.put(Long.valueOf(line.substring(0, separator)), Integer.valueOf(line.substring(separator + 1)));
+                        }
+                    }
+                }
+            );
+        return lines;
+    }
+
+    /**
+     * Encode the lines as {@code productId:quantity}, separated by commas, to keep the token compact.
+     */
+    private static String encode(Map<Long, Integer> lines) {
+        return lines.entrySet().stream().map(line -> line.getKey() + ":" + line.getValue()).collect(Collectors.joining(","));
+    }
+}
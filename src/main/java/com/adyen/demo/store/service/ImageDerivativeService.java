@@ -0,0 +1,307 @@
+package com.adyen.demo.store.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.service.dto.ProductImageDTO;
+
+/**
+ * Service generating the resized {@link ImageVariant}s of the images held by the {@link ImageStore}.
+ * <p>
+ * Variants are re-encoded as JPEG (or PNG for images with transparency) and kept in a disk cache
+ * bounded by {@code application.image-store.derivative-max-bytes}. The least recently served variants
+ * are evicted first; an evicted variant is simply rendered again on its next request.
+ * <p>
+ * Only one variant of an image is rendered at a time: concurrent requests for the same image wait for the
+ * running render and then find its result in the cache. Originals larger than
+ * {@code application.image-store.derivative-max-pixels}, or that cannot be decoded, get no variants.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private final ImageStore imageStore;
+
+    private final Path root;
+
+    private final long maxBytes;
+
+    private final long maxPixels;
+
+    /**
+     * Renders running, by image hash.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> rendering = new ConcurrentHashMap<>();
+
+    /**
+     * Sizes of the cached variant files, in access order.
+     */
+    private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long totalBytes;
+
+    public ImageDerivativeService(ImageStore imageStore, ApplicationProperties applicationProperties) {
+        this.imageStore = imageStore;
+        this.root = Paths.get(applicationProperties.getImageStore().getDerivativeDirectory()).toAbsolutePath().normalize();
+        this.maxBytes = applicationProperties.getImageStore().getDerivativeMaxBytes();
+        this.maxPixels = applicationProperties.getImageStore().getDerivativeMaxPixels();
+    }
+
+    @PostConstruct
+    public void loadCache() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).filter(path -> !path.toString().endsWith(".tmp")).forEach(this::register);
+        }
+        log.debug("Loaded {} cached image variants ({} bytes)", entries.size(), totalBytes);
+    }
+
+    /**
+     * Render all variants of an image in the background.
+     *
+     * @param hash the content hash of the original image.
+     */
+    @Async
+    public void generateVariants(String hash) {
+        renderVariants(hash);
+    }
+
+    /**
+     * Render all variants of several images in the background, in a single task.
+     *
+     * @param hashes the content hashes of the original images.
+     */
+    @Async
+    public void generateVariants(Collection<String> hashes) {
+        hashes.forEach(this::renderVariants);
+    }
+
+    private void renderVariants(String hash) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            findVariant(hash, variant);
+        }
+    }
+
+    /**
+     * Get a variant of an image, rendering it if it is not cached.
+     *
+     * @param hash    the content hash of the original image.
+     * @param variant the variant to get.
+     * @return the variant file, or empty if the original is missing, too large or cannot be rendered.
+     */
+    public Optional<ProductImageDTO> findVariant(String hash, ImageVariant variant) {
+        if (!ImageStore.isValidHash(hash)) {
+            return Optional.empty();
+        }
+        while (true) {
+            Optional<ProductImageDTO> cached = findCached(hash, variant);
+            if (cached.isPresent()) {
+                return cached;
+            }
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> running = rendering.putIfAbsent(hash, mine);
+            if (running == null) {
+                try {
+                    return imageStore.find(hash).flatMap(original -> render(hash, variant, original));
+                } finally {
+                    rendering.remove(hash, mine);
+                    mine.complete(null);
+                }
+            }
+            // the running render may be the variant asked for; look in the cache again once it is done
+            running.join();
+        }
+    }
+
+    private Optional<ProductImageDTO> findCached(String hash, ImageVariant variant) {
+        for (String format : new String[] { "jpg", "png" }) {
+            Path path = pathOf(hash, variant, format);
+            if (Files.isRegularFile(path)) {
+                if (!touch(path)) {
+                    register(path);
+                }
+                return Optional.of(new ProductImageDTO(hash, contentTypeOf(format), path, variant));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<ProductImageDTO> render(String hash, ImageVariant variant, Path original) {
+        try {
+            BufferedImage source = decode(hash, original);
+            if (source == null) {
+                return Optional.empty();
+            }
+            boolean alpha = source.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+            BufferedImage scaled = scale(source, variant.maxDimension, alpha);
+            Path target = pathOf(hash, variant, format);
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                write(scaled, format, tmp);
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            register(target);
+            evictExcept(target);
+            log.debug("Rendered {} variant of image {}", variant.label, hash);
+            return Optional.of(new ProductImageDTO(hash, contentTypeOf(format), target, variant));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not render {} variant of image {}", variant.label, hash, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Decode an image, reading its dimensions first so that oversized images are not decoded at all.
+     *
+     * @return the image, or {@code null} if it is not a raster image or is too large.
+     */
+    private BufferedImage decode(String hash, Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Not rendering variants of image {}: {} pixels exceed the limit of {}", hash, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale an image down to fit in a square of {@code maxDimension}, halving it step by step so that
+     * bilinear interpolation keeps a good quality. Images already small enough are only re-encoded.
+     */
+    private static BufferedImage scale(BufferedImage source, int maxDimension, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        double ratio = Math.min(1d, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private synchronized boolean touch(Path path) {
+        return entries.get(path) != null;
+    }
+
+    private synchronized void register(Path path) {
+        try {
+            Long previous = entries.put(path, Files.size(path));
+            totalBytes += entries.get(path) - (previous != null ? previous : 0L);
+        } catch (IOException e) {
+            log.warn("Could not register cached image variant {}", path, e);
+        }
+    }
+
+    private synchronized void evictExcept(Path keep) {
+        Iterator<Map.Entry<Path, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Path, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(eldest.getKey());
+            } catch (IOException e) {
+                log.warn("Could not evict cached image variant {}", eldest.getKey(), e);
+            }
+        }
+    }
+
+    private Path pathOf(String hash, ImageVariant variant, String format) {
+        return root.resolve(variant.label).resolve(hash.substring(0, 2)).resolve(hash + "." + format);
+    }
+
+    private static String contentTypeOf(String format) {
+        return "png".equals(format) ? "image/png" : "image/jpeg";
+    }
+}
@@ -0,0 +1,111 @@
+package com.adyen.demo.store.service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.adyen.demo.store.config.ApplicationProperties;
+
+/**
+ * Content-addressed file store for binary product images.
+ * <p>
+ * Every image is written once under the hex SHA-256 of its content, so the hash doubles as a
+ * strong ETag and files never change once written. Files are laid out as {@code ab/abcdef...}
+ * to keep directories small.
+ */
+@Service
+public class ImageStore {
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Logger log = LoggerFactory.getLogger(ImageStore.class);
+
+    private final Path root;
+
+    @Autowired
+    public ImageStore(ApplicationProperties applicationProperties) {
+        this(Paths.get(applicationProperties.getImageStore().getDirectory()));
+    }
+
+    public ImageStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Store an image, unless an identical one is already present.
+     *
+     * @param content the image bytes.
+     * @return the content hash the image can be retrieved with.
+     * @throws IOException if the image could not be written.
+     */
+    public String store(byte[] content) throws IOException {
+        String hash = hash(content);
+        Path target = pathOf(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            Files.write(tmp, content);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        log.debug("Stored image {} ({} bytes)", hash, content.length);
+        return hash;
+    }
+
+    /**
+     * Find the file holding an image.
+     *
+     * @param hash the content hash of the image.
+     * @return the path of the image file, if it exists.
+     */
+    public Optional<Path> find(String hash) {
+        if (!isValidHash(hash)) {
+            return Optional.empty();
+        }
+        Path path = pathOf(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+
+    public static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
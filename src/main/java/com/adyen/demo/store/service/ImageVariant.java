@@ -0,0 +1,37 @@
+package com.adyen.demo.store.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The resized variants generated for every product image.
+ */
+public enum ImageVariant {
+    THUMBNAIL("thumbnail", 96),
+    LISTING("listing", 320),
+    DETAIL("detail", 1024);
+
+    public final String label;
+
+    /**
+     * Maximum width and height of the variant, in pixels.
+     */
+    public final int maxDimension;
+
+    private static final Map<String, ImageVariant> BY_LABEL = new HashMap<>();
+
+    static {
+        for (ImageVariant e : values()) {
+            BY_LABEL.put(e.label, e);
+        }
+    }
+
+    ImageVariant(final String label, final int maxDimension) {
+        this.label = label;
+        this.maxDimension = maxDimension;
+    }
+
+    public static ImageVariant fromLabel(String label) {
+        return BY_LABEL.get(label);
+    }
+}
@@ -0,0 +1,188 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.model.Amount;
+import com.adyen.model.checkout.PaymentMethodsRequest;
+import com.adyen.model.checkout.PaymentMethodsResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache of the payment methods Adyen offers, which only depend on the merchant account, the country, the locale, the
+ * channel and the amount of the payment.
+ * <p>
+ * Amounts are grouped in buckets of a configured size, so carts of about the same total share an entry. An entry is
+ * fresh for the TTL; after that, and for the stale period, it is still served while a single refresh runs in the
+ * background, so checkouts only wait on Adyen for the first request of a key or after a long idle time. The least
+ * recently used entries are evicted above the maximum size. Requests for a known shopper, which may list their
+ * stored payment methods, are never cached.
+ */
+@Service
+public class PaymentMethodsCache {
+
+    /**
+     * Loads payment methods from Adyen.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        CompletableFuture<PaymentMethodsResponse> load();
+    }
+
+    private final Logger log = LoggerFactory.getLogger(PaymentMethodsCache.class);
+
+    private final boolean enabled;
+
+    private final long ttlMs;
+
+    private final long staleMs;
+
+    private final int maxEntries;
+
+    private final long amountBucketSize;
+
+    private final LongSupplier clock;
+
+    /**
+     * Entries by key, in access order.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final Counter hits;
+
+    private final Counter staleHits;
+
+    private final Counter misses;
+
+    public PaymentMethodsCache(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this(applicationProperties, meterRegistry, System::currentTimeMillis);
+    }
+
+    PaymentMethodsCache(ApplicationProperties applicationProperties, MeterRegistry meterRegistry, LongSupplier clock) {
+        ApplicationProperties.PaymentMethodsCache properties = applicationProperties.getPaymentMethodsCache();
+        this.enabled = properties.isEnabled();
+        this.ttlMs = properties.getTtlMs();
+        this.staleMs = properties.getStaleMs();
+        this.maxEntries = properties.getMaxEntries();
+        this.amountBucketSize = properties.getAmountBucketSize();
+        this.clock = clock;
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.staleHits = requestCounter(meterRegistry, "stale");
+        this.misses = requestCounter(meterRegistry, "miss");
+        Gauge.builder("adyen.payment.methods.cache.size", this, PaymentMethodsCache::size).register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("adyen.payment.methods.cache.requests").tag("result", result).register(meterRegistry);
+    }
+
+    /**
+     * Get the payment methods for a request.
+     *
+     * @param request the request to Adyen.
+     * @param loader calls Adyen with the request, on a miss and on refreshes.
+     * @return the future payment methods, possibly stale while a refresh is running.
+     */
+    public CompletableFuture<PaymentMethodsResponse> get(PaymentMethodsRequest request, Loader loader) {
+        if (!enabled || request.getShopperReference() != null) {
+            return loader.load();
+        }
+        String key = keyOf(request);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        long now = clock.getAsLong();
+        if (entry != null && now - entry.loadedAt < ttlMs) {
+            hits.increment();
+            return CompletableFuture.completedFuture(entry.response);
+        }
+        if (entry != null && now - entry.loadedAt < ttlMs + staleMs) {
+            staleHits.increment();
+            refresh(key, entry, loader);
+            return CompletableFuture.completedFuture(entry.response);
+        }
+        misses.increment();
+        return loader
+            .load()
+            .thenApply(
+                response -> {
+                    put(key, new Entry(response, clock.getAsLong()));
+                    return response;
+                }
+            );
+    }
+
+    private void refresh(String key, Entry entry, Loader loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        loader
+            .load()
+            .whenComplete(
+                (response, e) -> {
+                    if (e != null) {
+                        log.warn("Could not refresh payment methods: {}", e.getMessage());
+                    } else {
+                        put(key, new Entry(response, clock.getAsLong()));
+                    }
+                    entry.refreshing.set(false);
+                }
+            );
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+            while (entries.size() > maxEntries) {
+                Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private String keyOf(PaymentMethodsRequest request) {
+        Amount amount = request.getAmount();
+        String bucket = amount == null || amount.getValue() == null
+            ? "-"
+            : amount.getCurrency() + ":" + Math.floorDiv(amount.getValue(), amountBucketSize);
+        return String.join(
+            "|",
+            request.getMerchantAccount(),
+            request.getCountryCode(),
+            request.getShopperLocale(),
+            String.valueOf(request.getChannel()),
+            bucket
+        );
+    }
+
+    private static final class Entry {
+
+        private final PaymentMethodsResponse response;
+
+        private final long loadedAt;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(PaymentMethodsResponse response, long loadedAt) {
+            this.response = response;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.Client;
+import com.adyen.Config;
+import com.adyen.constants.ApiConstants;
+import com.adyen.httpclient.ClientInterface;
+import com.adyen.httpclient.HTTPClientException;
+import com.adyen.model.RequestOptions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Transport of the Adyen {@link Client} over a single shared JDK {@link HttpClient}.
+ * <p>
+ * The SDK's default transport opens a connection, with its TLS handshake, for every call. The JDK client keeps
+ * connections alive in its pool and reuses them, and negotiates HTTP/2 with ALPN when Adyen offers it, so concurrent
+ * calls share one connection. The calls in flight are bounded by the configured maximum; a call waits at most the
+ * connect timeout for a free slot. The transport publishes the calls in flight and waiting, and times each call by
+ * status and HTTP version.
+ */
+public class PooledAdyenHttpClient implements ClientInterface {
+
+    private static final String JSON = "application/json";
+
+    private final HttpClient httpClient;
+
+    private final Duration readTimeout;
+
+    private final long acquireTimeoutMs;
+
+    private final int maxConnections;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+
+    public PooledAdyenHttpClient(int maxConnections, long connectTimeoutMs, long readTimeoutMs, MeterRegistry meterRegistry) {
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).connectTimeout(Duration.ofMillis(connectTimeoutMs)).build();
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.acquireTimeoutMs = connectTimeoutMs;
+        this.maxConnections = maxConnections;
+        this.permits = new Semaphore(maxConnections);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("adyen.http.requests.active", this, PooledAdyenHttpClient::active).register(meterRegistry);
+        Gauge.builder("adyen.http.requests.pending", waiting, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("adyen.http.requests.max", this, client -> client.maxConnections).register(meterRegistry);
+    }
+
+    @Override
+    public String request(String endpoint, String json, Config config) throws IOException, HTTPClientException {
+        return request(endpoint, json, config, false, null, ApiConstants.HttpMethod.POST);
+    }
+
+    @Override
+    public String request(String endpoint, String json, Config config, boolean isApiKeyRequired) throws IOException, HTTPClientException {
+        return request(endpoint, json, config, isApiKeyRequired, null, ApiConstants.HttpMethod.POST);
+    }
+
+    @Override
+    public String request(String endpoint, String json, Config config, boolean isApiKeyRequired, RequestOptions requestOptions)
+        throws IOException, HTTPClientException {
+        return request(endpoint, json, config, isApiKeyRequired, requestOptions, ApiConstants.HttpMethod.POST);
+    }
+
+    @Override
+    public String request(
+        String endpoint,
+        String json,
+        Config config,
+        boolean isApiKeyRequired,
+        RequestOptions requestOptions,
+        ApiConstants.HttpMethod httpMethod
+    ) throws IOException, HTTPClientException {
+        HttpRequest.Builder request = newRequest(endpoint, config, isApiKeyRequired).header("Content-Type", JSON);
+        if (requestOptions != null && requestOptions.getIdempotencyKey() != null) {
+            request.header("Idempotency-Key", requestOptions.getIdempotencyKey());
+        }
+        if (httpMethod == null || httpMethod == ApiConstants.HttpMethod.POST) {
+            request.POST(HttpRequest.BodyPublishers.ofString(json != null ? json : "", StandardCharsets.UTF_8));
+        } else {
+            request.method(
+                httpMethod.name(),
+                json != null ? HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8) : HttpRequest.BodyPublishers.noBody()
+            );
+        }
+        return send(request.build());
+    }
+
+    @Override
+    public String post(String endpoint, Map<String, String> postParameters, Config config) throws IOException, HTTPClientException {
+        String form = postParameters
+            .entrySet()
+            .stream()
+            .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+            .collect(Collectors.joining("&"));
+        HttpRequest.Builder request = newRequest(endpoint, config, false)
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form, StandardCharsets.UTF_8));
+        return send(request.build());
+    }
+
+    private HttpRequest.Builder newRequest(String endpoint, Config config, boolean isApiKeyRequired) {
+        HttpRequest.Builder request = HttpRequest
+            .newBuilder(URI.create(endpoint))
+            .timeout(readTimeout)
+            .header("Accept", JSON)
+            .header("User-Agent", Client.LIB_NAME + "/" + Client.LIB_VERSION);
+        String apiKey = config.getApiKey();
+        if (apiKey != null && !apiKey.isEmpty()) {
+            request.header("x-api-key", apiKey);
+        } else if (!isApiKeyRequired && config.getUsername() != null) {
+            String credentials = config.getUsername() + ":" + config.getPassword();
+            request.header("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        return request;
+    }
+
+    private String send(HttpRequest request) throws IOException, HTTPClientException {
+        acquire();
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        String version = "unknown";
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            status = String.valueOf(response.statusCode());
+            version = response.version().name();
+            if (response.statusCode() >= 300) {
+                throw new HTTPClientException(response.statusCode(), "HTTP Exception", response.headers().map(), response.body());
+            }
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling Adyen", e);
+        } finally {
+            permits.release();
+            Timer
+                .builder("adyen.http.requests")
+                .tag("status", status)
+                .tag("version", version)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void acquire() throws IOException {
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("No Adyen connection available within " + acquireTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an Adyen connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private int active() {
+        return maxConnections - permits.availablePermits();
+    }
+}
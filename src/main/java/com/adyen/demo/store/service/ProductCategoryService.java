@@ -2,11 +2,15 @@ package com.adyen.demo.store.service;
 
 import com.adyen.demo.store.domain.ProductCategory;
 import com.adyen.demo.store.repository.ProductCategoryRepository;
+import com.adyen.demo.store.repository.Keyset;
+import com.adyen.demo.store.repository.KeysetQueryExecutor;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,8 +25,18 @@ public class ProductCategoryService {
 
     private final ProductCategoryRepository productCategoryRepository;
 
-    public ProductCategoryService(ProductCategoryRepository productCategoryRepository) {
+    private final KeysetQueryExecutor keysetQueryExecutor;
+
+    private final EntityCountCache entityCountCache;
+
+    public ProductCategoryService(
+        ProductCategoryRepository productCategoryRepository,
+        KeysetQueryExecutor keysetQueryExecutor,
+        EntityCountCache entityCountCache
+    ) {
         this.productCategoryRepository = productCategoryRepository;
+        this.keysetQueryExecutor = keysetQueryExecutor;
+        this.entityCountCache = entityCountCache;
     }
 
     /**
@@ -33,6 +47,9 @@ public class ProductCategoryService {
      */
     public ProductCategory save(ProductCategory productCategory) {
         log.debug("Request to save ProductCategory : {}", productCategory);
+        if (productCategory.getId() == null) {
+            entityCountCache.invalidate(ProductCategory.class);
+        }
         return productCategoryRepository.save(productCategory);
     }
 
@@ -66,12 +83,39 @@ public class ProductCategoryService {
      * Get all the productCategories.
      *
      * @param pageable the pagination information.
-     * @return the list of entities.
+     * @return the list of entities, with the total from the {@link EntityCountCache}.
      */
     @Transactional(readOnly = true)
     public Page<ProductCategory> findAll(Pageable pageable) {
         log.debug("Request to get all ProductCategories");
-        return productCategoryRepository.findAll(pageable);
+        Slice<ProductCategory> slice = productCategoryRepository.findAllBy(pageable);
+        long total = entityCountCache.getCount(ProductCategory.class, productCategoryRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    /**
+     * Get a slice of the productCategories, for listings that do not need a total.
+     *
+     * @param pageable the pagination information.
+     * @return the slice of entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ProductCategory> findSlice(Pageable pageable) {
+        log.debug("Request to get a slice of ProductCategories");
+        return productCategoryRepository.findAllBy(pageable);
+    }
+
+    /**
+     * Get the productCategories following a keyset.
+     *
+     * @param keyset the position to read from.
+     * @param size the maximum number of entities.
+     * @return the slice of entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ProductCategory> findAllAfter(Keyset keyset, int size) {
+        log.debug("Request to get ProductCategories after {}", keyset);
+        return keysetQueryExecutor.findAfter(ProductCategory.class, keyset, size);
     }
 
     /**
@@ -94,5 +138,6 @@ public class ProductCategoryService {
     public void delete(Long id) {
         log.debug("Request to delete ProductCategory : {}", id);
         productCategoryRepository.deleteById(id);
+        entityCountCache.invalidate(ProductCategory.class);
     }
 }
@@ -0,0 +1,25 @@
+package com.adyen.demo.store.service;
+
+/**
+ * Published by {@link ProductService} when a product is created, updated or deleted.
+ * <p>
+ * In-memory views of the catalog listen to it with a
+ * {@link org.springframework.transaction.event.TransactionalEventListener}, so they only see committed changes.
+ */
+public class ProductChangedEvent {
+
+    private final Long productId;
+
+    public ProductChangedEvent(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChangedEvent{productId=" + productId + "}";
+    }
+}
@@ -0,0 +1,426 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * In-memory bitmap index over the facets shoppers filter the catalog by: item size, category and price.
+ * <p>
+ * Every product gets a dense slot number. Each size and each category keeps a {@link BitSet} of the slots of
+ * its products, and prices are kept as minor units in an array sorted by price, so a price range is two binary
+ * searches. A filter is a few bitmap intersections, and the facet counts of a size or category are the
+ * cardinalities of its bitmap intersected with the other filters. Slots of removed products are reused.
+ * Reads and writes are guarded by a read-write lock.
+ */
+public class ProductFacetIndex {
+
+    private static final Map<String, Comparator<ProductSummaryDTO>> ORDERS;
+
+    static {
+        Map<String, Comparator<ProductSummaryDTO>> orders = new HashMap<>();
+        Comparator<ProductSummaryDTO> byId = Comparator.comparing(ProductSummaryDTO::getId);
+        orders.put("id", byId);
+        orders.put("name", Comparator.comparing(ProductSummaryDTO::getName).thenComparing(byId));
+        ORDERS = Collections.unmodifiableMap(orders);
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+
+    private final BitSet live = new BitSet();
+
+    private final Map<Size, BitSet> bySize = new EnumMap<>(Size.class);
+
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+
+    private ProductSummaryDTO[] products = new ProductSummaryDTO[1024];
+
+    private long[] sortedPrices = new long[1024];
+
+    private int[] sortedSlots = new int[1024];
+
+    private int[] freeSlots = new int[16];
+
+    private int freeCount;
+
+    private int slotCount;
+
+    public ProductFacetIndex() {}
+
+    /**
+     * Build an index of many products at once, sorting the price index only once.
+     *
+     * @param products the product summaries.
+     */
+    public ProductFacetIndex(Collection<ProductSummaryDTO> products) {
+        Map<Long, ProductSummaryDTO> unique = new LinkedHashMap<>();
+        for (ProductSummaryDTO product : products) {
+            unique.put(product.getId(), product);
+        }
+        int capacity = Math.max(1024, unique.size());
+        this.products = new ProductSummaryDTO[capacity];
+        this.sortedPrices = new long[capacity];
+        this.sortedSlots = new int[capacity];
+        Integer[] order = new Integer[unique.size()];
+        long[] prices = new long[unique.size()];
+        for (ProductSummaryDTO product : unique.values()) {
+            int slot = slotCount++;
+            this.products[slot] = product;
+            slots.put(product.getId(), slot);
+            live.set(slot);
+            if (product.getItemSize() != null) {
+                bySize.computeIfAbsent(product.getItemSize(), size -> new BitSet()).set(slot);
+            }
+            byCategory.computeIfAbsent(product.getProductCategory().getId(), id -> new BitSet()).set(slot);
+            prices[slot] = product.getPrice().getAmount();
+            order[slot] = slot;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer slot) -> prices[slot]).thenComparingInt(slot -> slot));
+        for (int i = 0; i < order.length; i++) {
+            sortedSlots[i] = order[i];
+            sortedPrices[i] = prices[order[i]];
+        }
+    }
+
+    /**
+     * Index a product, replacing its previous version.
+     *
+     * @param product the product summary.
+     */
+    public void put(ProductSummaryDTO product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+            if (slot == products.length) {
+                products = Arrays.copyOf(products, slot * 2);
+                sortedPrices = Arrays.copyOf(sortedPrices, slot * 2);
+                sortedSlots = Arrays.copyOf(sortedSlots, slot * 2);
+            }
+            products[slot] = product;
+            slots.put(product.getId(), slot);
+            live.set(slot);
+            if (product.getItemSize() != null) {
+                bySize.computeIfAbsent(product.getItemSize(), size -> new BitSet()).set(slot);
+            }
+            byCategory.computeIfAbsent(product.getProductCategory().getId(), id -> new BitSet()).set(slot);
+            int indexed = slots.size() - 1;
+            long price = product.getPrice().getAmount();
+            int position = upperBound(price, indexed);
+            System.arraycopy(sortedPrices, position, sortedPrices, position + 1, indexed - position);
+            System.arraycopy(sortedSlots, position, sortedSlots, position + 1, indexed - position);
+            sortedPrices[position] = price;
+            sortedSlots[position] = slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product from the index.
+     *
+     * @param productId the product id.
+     */
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find a page of the products matching a filter, with the facet counts of the matching products.
+     *
+     * @param filter the filter.
+     * @param pageable the pagination information; products can be sorted by id, name or price.
+     * @return the page and its facet counts.
+     */
+    public FacetedPage filter(Filter filter, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            BitSet inPriceRange = priceRange(filter.getMinPrice(), filter.getMaxPrice());
+            BitSet ofSizes = union(bySize, filter.getSizes());
+            BitSet ofCategories = union(byCategory, filter.getCategoryIds());
+
+            // each facet is counted among the products matching the other filters
+            BitSet sizeBase = intersect(inPriceRange, ofCategories);
+            Map<Size, Long> sizeCounts = new EnumMap<>(Size.class);
+            for (Map.Entry<Size, BitSet> size : bySize.entrySet()) {
+                long count = intersectionCount(sizeBase, size.getValue());
+                if (count > 0) {
+                    sizeCounts.put(size.getKey(), count);
+                }
+            }
+            BitSet categoryBase = intersect(inPriceRange, ofSizes);
+            Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+            byCategory
+                .entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(
+                    category -> {
+                        long count = intersectionCount(categoryBase, category.getValue());
+                        if (count > 0) {
+                            categoryCounts.put(category.getKey(), count);
+                        }
+                    }
+                );
+
+            BitSet matches = intersect(sizeBase, ofSizes);
+            List<ProductSummaryDTO> content = page(matches, pageable);
+            return new FacetedPage(new PageImpl<>(content, pageable, matches.cardinality()), sizeCounts, categoryCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long productId) {
+        Integer slot = slots.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        ProductSummaryDTO product = products[slot];
+        int count = slots.size() + 1;
+        long price = product.getPrice().getAmount();
+        int position = lowerBound(price, count);
+        while (sortedSlots[position] != slot) {
+            position++;
+        }
+        System.arraycopy(sortedPrices, position + 1, sortedPrices, position, count - 1 - position);
+        System.arraycopy(sortedSlots, position + 1, sortedSlots, position, count - 1 - position);
+        live.clear(slot);
+        if (product.getItemSize() != null) {
+            bySize.get(product.getItemSize()).clear(slot);
+        }
+        BitSet category = byCategory.get(product.getProductCategory().getId());
+        category.clear(slot);
+        if (category.isEmpty()) {
+            byCategory.remove(product.getProductCategory().getId());
+        }
+        products[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private BitSet priceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return (BitSet) live.clone();
+        }
+        int count = slots.size();
+        int from = minPrice != null ? lowerBound(toMinorUnits(minPrice, RoundingMode.CEILING), count) : 0;
+        int to = maxPrice != null ? upperBound(toMinorUnits(maxPrice, RoundingMode.FLOOR), count) : count;
+        BitSet range = new BitSet(slotCount);
+        for (int i = from; i < to; i++) {
+            range.set(sortedSlots[i]);
+        }
+        return range;
+    }
+
+    private List<ProductSummaryDTO> page(BitSet matches, Pageable pageable) {
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        List<ProductSummaryDTO> sorted = new ArrayList<>(matches.cardinality());
+        if ("price".equals(order.getProperty())) {
+            // the price index is already in order, ties by slot
+            for (int i = 0; i < slots.size(); i++) {
+                if (matches.get(sortedSlots[i])) {
+                    sorted.add(products[sortedSlots[i]]);
+                }
+            }
+        } else {
+            for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                sorted.add(products[slot]);
+            }
+            sorted.sort(ORDERS.getOrDefault(order.getProperty(), ORDERS.get("id")));
+        }
+        if (order.isDescending()) {
+            Collections.reverse(sorted);
+        }
+        if (pageable.isUnpaged()) {
+            return sorted;
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new ArrayList<>(sorted.subList(from, to));
+    }
+
+    /**
+     * @return the first position whose price is not below the given price.
+     */
+    private int lowerBound(long price, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedPrices[middle] < price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first position whose price is above the given price.
+     */
+    private int upperBound(long price, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedPrices[middle] <= price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> bitmaps, Collection<K> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return null;
+        }
+        BitSet union = new BitSet();
+        for (K key : keys) {
+            BitSet bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Intersect a bitmap with an optional filter, {@code null} meaning no filter.
+     */
+    private static BitSet intersect(BitSet bitmap, BitSet filter) {
+        BitSet result = (BitSet) bitmap.clone();
+        if (filter != null) {
+            result.and(filter);
+        }
+        return result;
+    }
+
+    private static long intersectionCount(BitSet left, BitSet right) {
+        BitSet result = (BitSet) left.clone();
+        result.and(right);
+        return result.cardinality();
+    }
+
+    static long toMinorUnits(BigDecimal price, RoundingMode roundingMode) {
+        return price.movePointRight(2).setScale(0, roundingMode).longValue();
+    }
+
+    /**
+     * The facets to filter products by; {@code null} or empty values do not filter.
+     */
+    public static final class Filter {
+
+        private final Collection<Size> sizes;
+
+        private final Collection<Long> categoryIds;
+
+        private final BigDecimal minPrice;
+
+        private final BigDecimal maxPrice;
+
+        /**
+         * @param sizes the sizes a product may have.
+         * @param categoryIds the ids of the categories a product may belong to.
+         * @param minPrice the lowest price, inclusive.
+         * @param maxPrice the highest price, inclusive.
+         */
+        public Filter(Collection<Size> sizes, Collection<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice) {
+            this.sizes = sizes;
+            this.categoryIds = categoryIds;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        public Collection<Size> getSizes() {
+            return sizes;
+        }
+
+        public Collection<Long> getCategoryIds() {
+            return categoryIds;
+        }
+
+        public BigDecimal getMinPrice() {
+            return minPrice;
+        }
+
+        public BigDecimal getMaxPrice() {
+            return maxPrice;
+        }
+    }
+
+    /**
+     * A page of filtered products, with the number of matching products for each size and category.
+     */
+    public static final class FacetedPage {
+
+        private final Page<ProductSummaryDTO> page;
+
+        private final Map<Size, Long> sizeCounts;
+
+        private final Map<Long, Long> categoryCounts;
+
+        FacetedPage(Page<ProductSummaryDTO> page, Map<Size, Long> sizeCounts, Map<Long, Long> categoryCounts) {
+            this.page = page;
+            this.sizeCounts = Collections.unmodifiableMap(sizeCounts);
+            this.categoryCounts = Collections.unmodifiableMap(categoryCounts);
+        }
+
+        public Page<ProductSummaryDTO> getPage() {
+            return page;
+        }
+
+        /**
+         * @return the number of products of each size matching the price and category filters.
+         */
+        public Map<Size, Long> getSizeCounts() {
+            return sizeCounts;
+        }
+
+        /**
+         * @return the number of products of each category id matching the price and size filters.
+         */
+        public Map<Long, Long> getCategoryCounts() {
+            return categoryCounts;
+        }
+    }
+}
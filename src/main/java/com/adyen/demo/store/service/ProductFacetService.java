@@ -0,0 +1,258 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Filters the catalog by size, category and price range with a {@link ProductFacetIndex} held in memory.
+ * <p>
+ * The index is built in the background when the application starts, and every {@link ProductChangedEvent}
+ * updates that product in it once the write has committed. While no index is available, for instance before the
+ * first build completes or after an update failed, filters and facet counts are queried from the database.
+ */
+@Service
+public class ProductFacetService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(ProductFacetService.class);
+
+    private final ProductRepository productRepository;
+
+    private final ApplicationProperties.Catalog properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Executor executor;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+
+    private volatile ProductFacetIndex index;
+
+    public ProductFacetService(
+        ProductRepository productRepository,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("taskExecutor") Executor executor,
+        ApplicationProperties applicationProperties
+    ) {
+        this.productRepository = productRepository;
+        this.properties = applicationProperties.getCatalog();
+        this.executor = executor;
+        // updates run from afterCommit callbacks, where only a new transaction is safe to use
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Build the index in the background, unless a build is already running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuild() {
+        if (properties.isFacetIndexEnabled() && rebuilding.compareAndSet(false, true)) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Rebuild the index once products were imported in bulk.
+     *
+     * @param event the import.
+     */
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        scheduleRebuild();
+    }
+
+    /**
+     * Refresh a product in the index, once the transaction that changed it has committed.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!properties.isFacetIndexEnabled()) {
+            return;
+        }
+        synchronized (changedDuringRebuild) {
+            if (rebuilding.get()) {
+                changedDuringRebuild.add(event.getProductId());
+            }
+        }
+        ProductFacetIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            apply(current, event.getProductId());
+        } catch (RuntimeException e) {
+            // never filter with an index that missed a write
+            index = null;
+            log.warn(
+                "Could not update product {} in the facet index, filters are read from the database until it is rebuilt: {}",
+                event.getProductId(),
+                e.getMessage()
+            );
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Filter products by facets.
+     *
+     * @param filter the facets to filter by.
+     * @param pageable the pagination information.
+     * @return the page of matching product summaries, with the facet counts.
+     */
+    @Transactional(readOnly = true)
+    public ProductFacetIndex.FacetedPage filter(ProductFacetIndex.Filter filter, Pageable pageable) {
+        log.debug("Request to filter Products by facets");
+        ProductFacetIndex current = index;
+        if (current == null) {
+            return query(filter, pageable);
+        }
+        return current.filter(filter, pageable);
+    }
+
+    private void rebuild() {
+        try {
+            List<ProductSummaryDTO> all = new ArrayList<>();
+            long lastId = Long.MIN_VALUE;
+            PageRequest batch = PageRequest.of(0, BATCH_SIZE);
+            List<ProductSummaryDTO> summaries;
+            do {
+                long after = lastId;
+                summaries = transactionTemplate.execute(status -> productRepository.findSummariesAfterId(after, batch));
+                all.addAll(summaries);
+                if (!summaries.isEmpty()) {
+                    lastId = summaries.get(summaries.size() - 1).getId();
+                }
+            } while (summaries.size() == BATCH_SIZE);
+            ProductFacetIndex built = new ProductFacetIndex(all);
+            while (true) {
+                List<Long> changed;
+                synchronized (changedDuringRebuild) {
+                    if (changedDuringRebuild.isEmpty()) {
+                        // from now on changes go to the new index
+                        index = built;
+                        rebuilding.set(false);
+                        break;
+                    }
+                    changed = new ArrayList<>(changedDuringRebuild);
+                    changedDuringRebuild.clear();
+                }
+                for (Long id : changed) {
+                    apply(built, id);
+                }
+            }
+            log.info("Built product facet index of {} products", built.size());
+        } catch (RuntimeException e) {
+            synchronized (changedDuringRebuild) {
+                changedDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+            log.warn("Could not build the product facet index, filters are read from the database: {}", e.getMessage());
+        }
+    }
+
+    private void apply(ProductFacetIndex target, Long id) {
+        Optional<ProductSummaryDTO> summary = transactionTemplate.execute(status -> productRepository.findSummaryById(id));
+        if (summary.isPresent()) {
+            target.put(summary.get());
+        } else {
+            target.remove(id);
+        }
+    }
+
+    /**
+     * Filter in the database, with the same semantics as {@link ProductFacetIndex#filter}.
+     */
+    private ProductFacetIndex.FacetedPage query(ProductFacetIndex.Filter filter, Pageable pageable) {
+        boolean anySize = filter.getSizes() == null || filter.getSizes().isEmpty();
+        // an empty list is not valid SQL, so an unused one gets a placeholder
+        Collection<Size> sizes = anySize ? EnumSet.allOf(Size.class) : filter.getSizes();
+        boolean anyCategory = filter.getCategoryIds() == null || filter.getCategoryIds().isEmpty();
+        Collection<Long> categoryIds = anyCategory ? Collections.singletonList(0L) : filter.getCategoryIds();
+        long minAmount = filter.getMinPrice() != null
+            ? ProductFacetIndex.toMinorUnits(filter.getMinPrice(), RoundingMode.CEILING)
+            : Long.MIN_VALUE;
+        long maxAmount = filter.getMaxPrice() != null
+            ? ProductFacetIndex.toMinorUnits(filter.getMaxPrice(), RoundingMode.FLOOR)
+            : Long.MAX_VALUE;
+
+        Page<ProductSummaryDTO> page = productRepository.filterSummaries(
+            anySize,
+            sizes,
+            anyCategory,
+            categoryIds,
+            minAmount,
+            maxAmount,
+            sortedLikeIndex(pageable)
+        );
+        Map<Size, Long> sizeCounts = new EnumMap<>(Size.class);
+        for (Object[] row : productRepository.countBySize(anyCategory, categoryIds, minAmount, maxAmount)) {
+            sizeCounts.put((Size) row[0], (Long) row[1]);
+        }
+        Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+        for (Object[] row : productRepository.countByCategory(anySize, sizes, minAmount, maxAmount)) {
+            categoryCounts.put((Long) row[0], (Long) row[1]);
+        }
+        return new ProductFacetIndex.FacetedPage(page, sizeCounts, categoryCounts);
+    }
+
+    /**
+     * The index sorts by id, name or price, and by id otherwise; prices are sorted by amount.
+     */
+    private static Pageable sortedLikeIndex(Pageable pageable) {
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        String property;
+        switch (order.getProperty()) {
+            case "name":
+                property = "name";
+                break;
+            case "price":
+                property = "price.amount";
+                break;
+            default:
+                property = "id";
+        }
+        Sort sort = Sort.by(order.getDirection(), property);
+        if (!"id".equals(property)) {
+            sort = sort.and(Sort.by(order.getDirection(), "id"));
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+    }
+}
@@ -0,0 +1,535 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductCategory;
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.repository.ProductCategoryRepository;
+import com.adyen.demo.store.service.dto.ProductImportReportDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports products in bulk from CSV or NDJSON, in the format of {@code fake-data/product.csv}.
+ * <p>
+ * The input is copied to a temporary file and imported in the background on the task executor. It is read a
+ * record at a time, CSV records possibly spanning several lines, and each row is validated on its own, so invalid
+ * rows are reported without failing the import. Category references are resolved against a map of all categories,
+ * loaded once. Valid rows are inserted with JDBC batches, one transaction per chunk, since Hibernate cannot batch
+ * {@code IDENTITY} inserts. When a chunk fails the import stops, and the chunks committed before it are kept. The
+ * variants of the images of a chunk are rendered by a single background task once the chunk is committed. The
+ * progress of running and recent imports can be read with {@link #findRecentImports()}.
+ */
+@Service
+public class ProductImportService {
+
+    /**
+     * The formats products can be imported from.
+     */
+    public enum Format {
+        CSV,
+        NDJSON,
+    }
+
+    static final int MAX_ERRORS = 100;
+
+    private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+    private static final int MAX_REPORTS = 20;
+
+    private static final String INSERT_SQL =
+        "insert into product (name, description, price_amount, price_currency, item_size, image_hash, image_content_type, " +
+        "product_category_id) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final Map<String, String> CSV_COLUMNS;
+
+    static {
+        Map<String, String> columns = new HashMap<>();
+        columns.put("item_size", "itemSize");
+        columns.put("image_content_type", "imageContentType");
+        columns.put("product_category_id", "productCategoryId");
+        columns.put("product_category", "productCategoryName");
+        CSV_COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
+    private final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ProductCategoryRepository productCategoryRepository;
+
+    private final ImageStore imageStore;
+
+    private final ImageDerivativeService imageDerivativeService;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final EntityCountCache entityCountCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Executor executor;
+
+    private final int chunkSize;
+
+    public ProductImportService(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        ProductCategoryRepository productCategoryRepository,
+        ImageStore imageStore,
+        ImageDerivativeService imageDerivativeService,
+        Validator validator,
+        ObjectMapper objectMapper,
+        EntityCountCache entityCountCache,
+        ApplicationEventPublisher eventPublisher,
+        @Qualifier("taskExecutor") Executor executor,
+        ApplicationProperties applicationProperties
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productCategoryRepository = productCategoryRepository;
+        this.imageStore = imageStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.entityCountCache = entityCountCache;
+        this.eventPublisher = eventPublisher;
+        this.executor = executor;
+        this.chunkSize = applicationProperties.getCatalog().getImportChunkSize();
+    }
+
+    /**
+     * Start importing products in the background.
+     *
+     * @param input the CSV, with a header line, or the NDJSON to read; it is read fully before this returns.
+     * @param format the format of the input.
+     * @return the report of the import, which failed at once if it could not be started.
+     * @throws IOException if the input could not be read.
+     */
+    public ProductImportReportDTO startImport(InputStream input, Format format) throws IOException {
+        Path file = Files.createTempFile("product-import-", format == Format.CSV ? ".csv" : ".ndjson");
+        try {
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Job job = register();
+        try {
+            executor.execute(
+                () -> {
+                    try {
+                        importProducts(job, file, format);
+                    } finally {
+                        delete(file);
+                    }
+                }
+            );
+        } catch (RejectedExecutionException e) {
+            delete(file);
+            job.error(0, "import not started: too many background tasks");
+            job.finish(ProductImportReportDTO.Status.FAILED);
+            log.warn("Product import {} could not be started: {}", job.id, e.getMessage());
+        }
+        return job.report();
+    }
+
+    /**
+     * @param id the id of the import.
+     * @return the report of the import, if it is running or recent.
+     */
+    public Optional<ProductImportReportDTO> findImport(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id)).map(Job::report);
+        }
+    }
+
+    private void importProducts(Job job, Path file, Format format) {
+        log.info("Starting {} product import {}", format, job.id);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, Long> categories = transactionTemplate.execute(status -> loadCategories());
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+            List<Object[]> chunk = new ArrayList<>(chunkSize);
+            if (format == Format.CSV) {
+                importCsv(job, reader, categories, chunk);
+            } else {
+                importNdjson(job, reader, categories, chunk);
+            }
+            flush(job, chunk);
+            job.finish(ProductImportReportDTO.Status.COMPLETED);
+        } catch (RuntimeException | IOException e) {
+            job.error(job.lineNumber, "import stopped: " + e.getMessage());
+            job.finish(ProductImportReportDTO.Status.FAILED);
+            log.warn("Product import {} failed at line {}: {}", job.id, job.lineNumber, e.getMessage());
+        } finally {
+            long imported = job.imported.get();
+            if (imported > 0) {
+                entityCountCache.invalidate(Product.class);
+                eventPublisher.publishEvent(new ProductsImportedEvent(imported));
+            }
+        }
+        log.info("Finished product import {}: {}", job.id, job.report());
+    }
+
+    private void importCsv(Job job, BufferedReader reader, Map<String, Long> categories, List<Object[]> chunk)
+        throws IOException {
+        // the separator is the one the header line uses
+        reader.mark(MAX_HEADER_LENGTH);
+        String firstLine = reader.readLine();
+        reader.reset();
+        if (firstLine == null) {
+            return;
+        }
+        CsvRecordReader records = new CsvRecordReader(reader, firstLine.indexOf(';') >= 0 ? ';' : ',');
+        List<String> header = null;
+        List<String> values;
+        while (true) {
+            try {
+                values = records.next();
+            } catch (IllegalArgumentException e) {
+                job.processed.incrementAndGet();
+                job.reject(records.getLineNumber(), e.getMessage());
+                break;
+            }
+            if (values == null) {
+                break;
+            }
+            job.lineNumber = records.getLineNumber();
+            if (values.size() == 1 && values.get(0).trim().isEmpty()) {
+                continue;
+            }
+            if (header == null) {
+                header = values.stream().map(String::trim).collect(Collectors.toList());
+                continue;
+            }
+            List<String> headerColumns = header;
+            addRow(job, chunk, () -> csvRow(headerColumns, values), categories);
+        }
+    }
+
+    private void importNdjson(Job job, BufferedReader reader, Map<String, Long> categories, List<Object[]> chunk)
+        throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            job.lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String json = line;
+            addRow(job, chunk, () -> jsonRow(json), categories);
+        }
+    }
+
+    private void addRow(Job job, List<Object[]> chunk, Supplier<Map<String, String>> row, Map<String, Long> categories) {
+        job.processed.incrementAndGet();
+        try {
+            chunk.add(toInsertArguments(row.get(), categories));
+        } catch (IllegalArgumentException e) {
+            job.reject(job.lineNumber, e.getMessage());
+        }
+        if (chunk.size() == chunkSize) {
+            flush(job, chunk);
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete product import file {}", file, e);
+        }
+    }
+
+    /**
+     * @return the reports of the running and most recent imports, the latest first.
+     */
+    public List<ProductImportReportDTO> findRecentImports() {
+        List<ProductImportReportDTO> reports;
+        synchronized (jobs) {
+            reports = jobs.values().stream().map(Job::report).collect(Collectors.toList());
+        }
+        Collections.reverse(reports);
+        return reports;
+    }
+
+    private Job register() {
+        Job job = new Job(UUID.randomUUID().toString());
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+            if (jobs.size() > MAX_REPORTS) {
+                jobs.values().stream().filter(Job::isFinished).findFirst().ifPresent(oldest -> jobs.remove(oldest.id));
+            }
+        }
+        return job;
+    }
+
+    private void flush(Job job, List<Object[]> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, chunk));
+        long imported = job.imported.addAndGet(chunk.size());
+        log.debug("Product import {}: {} rows read, {} products imported", job.id, job.processed.get(), imported);
+        List<String> imageHashes = chunk.stream().map(row -> (String) row[5]).filter(Objects::nonNull).collect(Collectors.toList());
+        chunk.clear();
+        if (!imageHashes.isEmpty()) {
+            try {
+                imageDerivativeService.generateVariants(imageHashes);
+            } catch (RejectedExecutionException e) {
+                // variants missing from the cache are rendered on their first request
+                log.warn("Product import {}: variants of {} images deferred, the task executor is full", job.id, imageHashes.size());
+            }
+        }
+    }
+
+    private Map<String, Long> loadCategories() {
+        Map<String, Long> categories = new HashMap<>();
+        for (ProductCategory category : productCategoryRepository.findAll()) {
+            categories.put("#" + category.getId(), category.getId());
+            if (category.getName() != null) {
+                categories.putIfAbsent(category.getName().toLowerCase(Locale.ROOT), category.getId());
+            }
+        }
+        return categories;
+    }
+
+    private Object[] toInsertArguments(Map<String, String> row, Map<String, Long> categories) {
+        Product product = new Product()
+            .name(row.get("name"))
+            .description(row.get("description"))
+            .imageContentType(row.get("imageContentType"));
+        String price = row.get("price");
+        if (price != null) {
+            try {
+                product.setPrice(Money.of(new BigDecimal(price.trim())));
+            } catch (ArithmeticException | NumberFormatException e) {
+                throw new IllegalArgumentException("invalid price " + price);
+            }
+        }
+        String itemSize = row.get("itemSize");
+        if (itemSize != null) {
+            try {
+                product.setItemSize(Size.valueOf(itemSize.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("invalid item size " + itemSize);
+            }
+        }
+        product.setProductCategory(resolveCategory(row, categories));
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(
+                violations
+                    .stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "))
+            );
+        }
+        String imageHash = storeImage(row.get("image"));
+        return new Object[] {
+            product.getName(),
+            product.getDescription(),
+            product.getPrice().getAmount(),
+            product.getPrice().getCurrency(),
+            product.getItemSize().name(),
+            imageHash,
+            imageHash != null ? product.getImageContentType() : null,
+            product.getProductCategory().getId(),
+        };
+    }
+
+    private ProductCategory resolveCategory(Map<String, String> row, Map<String, Long> categories) {
+        String id = row.get("productCategoryId");
+        String name = row.get("productCategoryName");
+        Long categoryId = null;
+        if (id != null && !id.trim().isEmpty()) {
+            categoryId = categories.get("#" + id.trim());
+            if (categoryId == null) {
+                throw new IllegalArgumentException("unknown product category " + id);
+            }
+        } else if (name != null && !name.trim().isEmpty()) {
+            categoryId = categories.get(name.trim().toLowerCase(Locale.ROOT));
+            if (categoryId == null) {
+                throw new IllegalArgumentException("unknown product category " + name);
+            }
+        }
+        return categoryId != null ? new ProductCategory().id(categoryId) : null;
+    }
+
+    /**
+     * Store a base64 encoded image; anything else, like the file paths of the sample data, is ignored.
+     */
+    private String storeImage(String image) {
+        if (image == null || image.trim().isEmpty()) {
+            return null;
+        }
+        byte[] content;
+        try {
+            content = Base64.getMimeDecoder().decode(image.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (content.length == 0) {
+            return null;
+        }
+        try {
+            return imageStore.store(content);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not store image: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, String> csvRow(List<String> header, List<String> values) {
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("expected " + header.size() + " columns, got " + values.size());
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            String column = header.get(i).toLowerCase(Locale.ROOT);
+            String value = values.get(i);
+            row.put(CSV_COLUMNS.getOrDefault(column, column), value.isEmpty() ? null : value);
+        }
+        return row;
+    }
+
+    private Map<String, String> jsonRow(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        Map<String, String> row = new HashMap<>();
+        for (String field : new String[] { "name", "description", "price", "itemSize", "image", "imageContentType" }) {
+            row.put(field, text(node.get(field)));
+        }
+        JsonNode category = node.path("productCategory");
+        row.put("productCategoryId", category.isObject() ? text(category.get("id")) : text(node.get("productCategoryId")));
+        row.put("productCategoryName", category.isObject() ? text(category.get("name")) : null);
+        return row;
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() || node.isContainerNode() ? null : node.asText();
+    }
+
+    /**
+     * The progress of one import.
+     */
+    private static final class Job {
+
+        private final String id;
+
+        private final Instant startedAt = Instant.now();
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong imported = new AtomicLong();
+
+        private final AtomicLong rejected = new AtomicLong();
+
+        private final List<String> errors = new ArrayList<>();
+
+        private volatile ProductImportReportDTO.Status status = ProductImportReportDTO.Status.RUNNING;
+
+        private volatile Instant finishedAt;
+
+        /**
+         * The line being imported, only used by the import thread.
+         */
+        private long lineNumber;
+
+        private Job(String id) {
+            this.id = id;
+        }
+
+        private void reject(long lineNumber, String message) {
+            rejected.incrementAndGet();
+            error(lineNumber, message);
+        }
+
+        private void error(long lineNumber, String message) {
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("line " + lineNumber + ": " + message);
+                }
+            }
+        }
+
+        private void finish(ProductImportReportDTO.Status finalStatus) {
+            finishedAt = Instant.now();
+            status = finalStatus;
+        }
+
+        private boolean isFinished() {
+            return status != ProductImportReportDTO.Status.RUNNING;
+        }
+
+        private ProductImportReportDTO report() {
+            List<String> errorsSoFar;
+            synchronized (errors) {
+                errorsSoFar = new ArrayList<>(errors);
+            }
+            return new ProductImportReportDTO(
+                id,
+                status,
+                startedAt,
+                finishedAt,
+                processed.get(),
+                imported.get(),
+                rejected.get(),
+                errorsSoFar
+            );
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.service.dto.ProductSuggestionDTO;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix trie suggesting product names as the shopper types, most popular first.
+ * <p>
+ * A product name is indexed from its start and from the start of each of its words, lower case and without
+ * accents, so {@code "shi"} suggests {@code "Blue Shirt"}. Every node keeps the best suggestions of its
+ * subtree, so a lookup only walks the prefix and copies that list. Adding or removing a product recomputes the
+ * lists along the paths of its name, under the write lock of a read-write lock. Replacing every product or
+ * popularity builds a new trie without any lock held and publishes it with a single volatile write, so lookups keep
+ * reading the previous trie meanwhile. Writers are serialized with each other.
+ */
+public class ProductNameSuggester {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Comparator<Entry> BEST_FIRST = Comparator
+        .comparingLong((Entry entry) -> entry.popularity)
+        .reversed()
+        .thenComparing(entry -> entry.name, String.CASE_INSENSITIVE_ORDER)
+        .thenComparingLong(entry -> entry.productId);
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int maxSuggestions;
+
+    private volatile State state = new State(new Node(), new HashMap<>(), new HashMap<>());
+
+    /**
+     * @param maxSuggestions the number of suggestions kept for each prefix.
+     */
+    public ProductNameSuggester(int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    /**
+     * Index a product name, replacing its previous version.
+     *
+     * @param productId the product id.
+     * @param name the product name.
+     */
+    public synchronized void put(long productId, String name) {
+        lock.writeLock().lock();
+        try {
+            State current = state;
+            removeLocked(current, productId);
+            Entry entry = new Entry(productId, name, current.popularities.getOrDefault(productId, 0L));
+            current.entries.put(productId, entry);
+            insert(current.root, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product from the suggestions.
+     *
+     * @param productId the product id.
+     */
+    public synchronized void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(state, productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace every product and popularity, building the trie in one pass.
+     *
+     * @param names the name of each product id.
+     * @param newPopularities the popularity of each product id; products missing from it have none.
+     */
+    public synchronized void replaceAll(Map<Long, String> names, Map<Long, Long> newPopularities) {
+        state = build(names, new HashMap<>(newPopularities));
+    }
+
+    /**
+     * Replace the popularity of every product.
+     *
+     * @param newPopularities the popularity of each product id; products missing from it have none.
+     */
+    public synchronized void setPopularities(Map<Long, Long> newPopularities) {
+        // writers are serialized, so the current entries cannot change while they are read
+        Map<Long, Entry> entries = state.entries;
+        Map<Long, String> names = new HashMap<>(entries.size() * 2);
+        for (Entry entry : entries.values()) {
+            names.put(entry.productId, entry.name);
+        }
+        state = build(names, new HashMap<>(newPopularities));
+    }
+
+    private State build(Map<Long, String> names, Map<Long, Long> popularities) {
+        Map<Long, Entry> entries = new HashMap<>(names.size() * 2);
+        Node root = new Node();
+        for (Map.Entry<Long, String> name : names.entrySet()) {
+            Entry entry = new Entry(name.getKey(), name.getValue(), popularities.getOrDefault(name.getKey(), 0L));
+            entries.put(entry.productId, entry);
+            for (String key : keys(entry.name)) {
+                Node node = root;
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.childOrCreate(key.charAt(i));
+                }
+                node.addTerminal(entry);
+            }
+        }
+        computeBest(root);
+        return new State(root, entries, popularities);
+    }
+
+    /**
+     * Suggest product names starting with a prefix, or with a word starting with it.
+     *
+     * @param prefix what the shopper typed.
+     * @param limit the maximum number of suggestions; at most the number kept for each prefix.
+     * @return the suggestions, most popular first.
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = state.root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            int count = Math.min(limit, node.top.length);
+            List<ProductSuggestionDTO> suggestions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                suggestions.add(new ProductSuggestionDTO(node.top[i].productId, node.top[i].name));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower case a text, strip its accents and collapse everything but letters and digits to single spaces.
+     *
+     * @param text the text.
+     * @return the normalized text.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return the name and each of its word suffixes, normalized.
+     */
+    private static Set<String> keys(String name) {
+        String normalized = normalize(name);
+        Set<String> keys = new HashSet<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    private void removeLocked(State target, long productId) {
+        Entry entry = target.entries.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        for (String key : keys(entry.name)) {
+            Deque<Node> path = new ArrayDeque<>(key.length() + 1);
+            Node node = target.root;
+            path.push(node);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.child(key.charAt(i));
+                path.push(node);
+            }
+            node.removeTerminal(productId);
+            // recompute from the end of the key, dropping nodes left empty
+            for (int i = key.length() - 1; i >= -1; i--) {
+                Node current = path.pop();
+                if (i >= 0 && current.isEmpty()) {
+                    path.peek().removeChild(key.charAt(i));
+                } else {
+                    current.top = best(current);
+                }
+            }
+        }
+    }
+
+    private void insert(Node root, Entry entry) {
+        for (String key : keys(entry.name)) {
+            Deque<Node> path = new ArrayDeque<>(key.length() + 1);
+            Node node = root;
+            path.push(node);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                path.push(node);
+            }
+            node.addTerminal(entry);
+            while (!path.isEmpty()) {
+                Node current = path.pop();
+                current.top = best(current);
+            }
+        }
+    }
+
+    private void computeBest(Node node) {
+        for (Node child : node.children) {
+            computeBest(child);
+        }
+        node.top = best(node);
+    }
+
+    /**
+     * @return the best entries among the node's own and its children's best, one per product.
+     */
+    private Entry[] best(Node node) {
+        int size = node.terminal.length;
+        for (Node child : node.children) {
+            size += child.top.length;
+        }
+        Entry[] candidates = Arrays.copyOf(node.terminal, size);
+        int position = node.terminal.length;
+        for (Node child : node.children) {
+            System.arraycopy(child.top, 0, candidates, position, child.top.length);
+            position += child.top.length;
+        }
+        Arrays.sort(candidates, BEST_FIRST);
+        Entry[] best = new Entry[Math.min(maxSuggestions, size)];
+        int count = 0;
+        for (int i = 0; i < size && count < best.length; i++) {
+            if (!contains(best, count, candidates[i].productId)) {
+                best[count++] = candidates[i];
+            }
+        }
+        return count == best.length ? best : Arrays.copyOf(best, count);
+    }
+
+    private static boolean contains(Entry[] entries, int count, long productId) {
+        for (int i = 0; i < count; i++) {
+            if (entries[i].productId == productId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A trie with its entries, replaced as a whole by a rebuild.
+     */
+    private static final class State {
+
+        private final Node root;
+
+        private final Map<Long, Entry> entries;
+
+        private final Map<Long, Long> popularities;
+
+        private State(Node root, Map<Long, Entry> entries, Map<Long, Long> popularities) {
+            this.root = root;
+            this.entries = entries;
+            this.popularities = popularities;
+        }
+    }
+
+    private static final class Entry {
+
+        private final long productId;
+
+        private final String name;
+
+        private final long popularity;
+
+        private Entry(long productId, String name, long popularity) {
+            this.productId = productId;
+            this.name = name;
+            this.popularity = popularity;
+        }
+    }
+
+    /**
+     * A trie node, with its children sorted by label.
+     */
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] labels = new char[0];
+
+        private Node[] children = NO_CHILDREN;
+
+        private Entry[] terminal = NO_ENTRIES;
+
+        private Entry[] top = NO_ENTRIES;
+
+        private Node child(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            return position >= 0 ? children[position] : null;
+        }
+
+        private Node childOrCreate(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            if (position >= 0) {
+                return children[position];
+            }
+            int insertion = -position - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            System.arraycopy(labels, insertion, newLabels, insertion + 1, labels.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            Node child = new Node();
+            newLabels[insertion] = label;
+            newChildren[insertion] = child;
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        private void removeChild(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            if (position < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(labels, position + 1, newLabels, position, labels.length - position - 1);
+            System.arraycopy(children, position + 1, newChildren, position, children.length - position - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        private void addTerminal(Entry entry) {
+            terminal = Arrays.copyOf(terminal, terminal.length + 1);
+            terminal[terminal.length - 1] = entry;
+        }
+
+        private void removeTerminal(long productId) {
+            terminal = Arrays.stream(terminal).filter(entry -> entry.productId != productId).toArray(Entry[]::new);
+        }
+
+        private boolean isEmpty() {
+            return terminal.length == 0 && children.length == 0;
+        }
+    }
+}
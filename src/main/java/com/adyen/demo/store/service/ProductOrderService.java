@@ -20,8 +20,11 @@ public class ProductOrderService {
 
     private final ProductOrderRepository productOrderRepository;
 
-    public ProductOrderService(ProductOrderRepository productOrderRepository) {
+    private final ActiveCartStore activeCartStore;
+
+    public ProductOrderService(ProductOrderRepository productOrderRepository, ActiveCartStore activeCartStore) {
         this.productOrderRepository = productOrderRepository;
+        this.activeCartStore = activeCartStore;
     }
 
     /**
@@ -32,6 +35,9 @@ public class ProductOrderService {
      */
     public ProductOrder save(ProductOrder productOrder) {
         log.debug("Request to save ProductOrder : {}", productOrder);
+        if (productOrder.getCart() != null) {
+            activeCartStore.evictCart(productOrder.getCart().getId());
+        }
         return productOrderRepository.save(productOrder);
     }
 
@@ -43,6 +49,7 @@ public class ProductOrderService {
      */
     public Optional<ProductOrder> partialUpdate(ProductOrder productOrder) {
         log.debug("Request to partially update ProductOrder : {}", productOrder);
+        evictCartOf(productOrder.getId());
 
         return productOrderRepository
             .findById(productOrder.getId())
@@ -91,6 +98,16 @@ public class ProductOrderService {
      */
     public void delete(Long id) {
         log.debug("Request to delete ProductOrder : {}", id);
+        evictCartOf(id);
         productOrderRepository.deleteById(id);
     }
+
+    /**
+     * Write and forget the cart of a productOrder when it is held in memory, before the productOrder is changed.
+     */
+    private void evictCartOf(Long id) {
+        if (activeCartStore.isEnabled() && id != null) {
+            productOrderRepository.findById(id).ifPresent(order -> activeCartStore.evictCart(order.getCart().getId()));
+        }
+    }
 }
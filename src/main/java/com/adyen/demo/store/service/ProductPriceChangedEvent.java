@@ -0,0 +1,24 @@
+package com.adyen.demo.store.service;
+
+/**
+ * Published by {@link ProductService} when the price of a product changes, along with its {@link ProductChangedEvent}.
+ * <p>
+ * The {@link CartRepricingService} listens to it to reprice the open carts holding the product.
+ */
+public class ProductPriceChangedEvent {
+
+    private final Long productId;
+
+    public ProductPriceChangedEvent(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductPriceChangedEvent{productId=" + productId + "}";
+    }
+}
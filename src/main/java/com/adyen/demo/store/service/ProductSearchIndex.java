@@ -0,0 +1,305 @@
+package com.adyen.demo.store.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product names, descriptions and category names, ranked with BM25.
+ * <p>
+ * Each product is a document whose field term frequencies are weighted (name over category over description)
+ * before BM25 saturation. Postings are primitive arrays; replacing or removing a product only marks its old
+ * document as deleted, so callers should rebuild the index once {@link #getDeletedCount()} grows large.
+ * Reads and writes are guarded by a read-write lock.
+ */
+public class ProductSearchIndex {
+
+    static final float K1 = 1.2f;
+
+    static final float B = 0.75f;
+
+    static final float NAME_WEIGHT = 3f;
+
+    static final float CATEGORY_WEIGHT = 2f;
+
+    static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(
+        Arrays.asList("a", "an", "and", "are", "as", "at", "by", "for", "in", "is", "it", "of", "on", "or", "the", "to", "with")
+    );
+
+    private static final ThreadLocal<float[]> SCORES = ThreadLocal.withInitial(() -> new float[0]);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private final Map<Long, Integer> documents = new HashMap<>();
+
+    private final BitSet deleted = new BitSet();
+
+    private long[] productIds = new long[1024];
+
+    private float[] lengths = new float[1024];
+
+    private int documentCount;
+
+    private double totalLength;
+
+    /**
+     * Index a product, replacing its previous version.
+     *
+     * @param productId the product id.
+     * @param name the product name.
+     * @param description the product description, may be {@code null}.
+     * @param category the product category name, may be {@code null}.
+     */
+    public void put(long productId, String name, String description, String category) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = addTerms(frequencies, name, NAME_WEIGHT) +
+            addTerms(frequencies, category, CATEGORY_WEIGHT) +
+            addTerms(frequencies, description, DESCRIPTION_WEIGHT);
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            int doc = documentCount++;
+            if (doc == productIds.length) {
+                productIds = Arrays.copyOf(productIds, doc * 2);
+                lengths = Arrays.copyOf(lengths, doc * 2);
+            }
+            productIds[doc] = productId;
+            lengths[doc] = length;
+            totalLength += length;
+            documents.put(productId, doc);
+            for (Map.Entry<String, Float> frequency : frequencies.entrySet()) {
+                postings.computeIfAbsent(frequency.getKey(), term -> new Postings()).add(doc, frequency.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product from the index.
+     *
+     * @param productId the product id.
+     */
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the products best matching a query.
+     *
+     * @param query the free text query; a product matches if it contains any of its terms.
+     * @param offset the number of best hits to skip; hits past the last match are empty, whatever the offset.
+     * @param limit the maximum number of hits to return.
+     * @return the hits, best first.
+     */
+    public Hits search(String query, long offset, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        lock.readLock().lock();
+        try {
+            int live = documents.size();
+            if (terms.isEmpty() || live == 0) {
+                return new Hits(Collections.emptyList(), 0);
+            }
+            float averageLength = (float) (totalLength / live);
+            float[] scores = SCORES.get();
+            if (scores.length < documentCount) {
+                scores = new float[Math.max(documentCount, scores.length * 2)];
+                SCORES.set(scores);
+            }
+            int[] touched = new int[16];
+            int matches = 0;
+            try {
+                for (String term : terms) {
+                    Postings termPostings = postings.get(term);
+                    if (termPostings == null) {
+                        continue;
+                    }
+                    float idf = (float) Math.log(1 + (live - termPostings.size + 0.5) / (termPostings.size + 0.5));
+                    for (int i = 0; i < termPostings.size; i++) {
+                        int doc = termPostings.docs[i];
+                        if (deleted.get(doc)) {
+                            continue;
+                        }
+                        float tf = termPostings.frequencies[i];
+                        float norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                        if (scores[doc] == 0) {
+                            if (matches == touched.length) {
+                                touched = Arrays.copyOf(touched, matches * 2);
+                            }
+                            touched[matches++] = doc;
+                        }
+                        scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                    }
+                }
+                if (offset >= matches) {
+                    return new Hits(Collections.emptyList(), matches);
+                }
+                // the heap never holds more than the matches, whatever page the client asks for
+                int count = (int) Math.min(offset + limit, matches);
+                return new Hits(top(scores, touched, matches, count, (int) offset), matches);
+            } finally {
+                for (int i = 0; i < matches; i++) {
+                    scores[touched[i]] = 0;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of replaced or removed documents still held in the postings.
+     */
+    public int getDeletedCount() {
+        lock.readLock().lock();
+        try {
+            return deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Split a text into normalized terms: lower case, without accents, stop words or plural {@code s}.
+     *
+     * @param text the text.
+     * @return the terms, in order.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (token.isEmpty() || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+                token = token.substring(0, token.length() - 1);
+            }
+            terms.add(token);
+        }
+        return terms;
+    }
+
+    private static float addTerms(Map<String, Float> frequencies, String text, float weight) {
+        List<String> terms = tokenize(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Float::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    private void removeLocked(long productId) {
+        Integer doc = documents.remove(productId);
+        if (doc != null) {
+            deleted.set(doc);
+            totalLength -= lengths[doc];
+        }
+    }
+
+    private List<Long> top(float[] scores, int[] touched, int matches, int count, int offset) {
+        if (count <= offset) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Integer> heap = new PriorityQueue<>(count + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+        for (int i = 0; i < matches; i++) {
+            int doc = touched[i];
+            if (heap.size() < count) {
+                heap.add(doc);
+            } else if (scores[doc] > scores[heap.peek()]) {
+                heap.poll();
+                heap.add(doc);
+            }
+        }
+        Long[] best = new Long[heap.size()];
+        for (int i = best.length - 1; i >= 0; i--) {
+            best[i] = productIds[heap.poll()];
+        }
+        return offset >= best.length ? Collections.emptyList() : Arrays.asList(best).subList(offset, best.length);
+    }
+
+    /**
+     * The result of a search.
+     */
+    public static final class Hits {
+
+        private final List<Long> productIds;
+
+        private final int total;
+
+        Hits(List<Long> productIds, int total) {
+            this.productIds = productIds;
+            this.total = total;
+        }
+
+        /**
+         * @return the ids of the matching products on the requested page, best first.
+         */
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+
+        /**
+         * @return the number of matching products.
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    private static final class Postings {
+
+        private int[] docs = new int[4];
+
+        private float[] frequencies = new float[4];
+
+        private int size;
+
+        private void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Full-text search over products, answered from a {@link ProductSearchIndex} held in memory.
+ * <p>
+ * The index is built in the background when the application starts, and every {@link ProductChangedEvent}
+ * updates it once the write has committed. Products changed while a build is running are indexed again before
+ * the new index replaces the current one. Replaced documents are only marked as deleted in the index, so it is
+ * rebuilt once they outnumber the live ones. Until the first build completes, searches fall back to a
+ * {@code LIKE} query on the database.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private final ProductRepository productRepository;
+
+    private final ApplicationProperties.Search properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Executor executor;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+
+    private volatile ProductSearchIndex index;
+
+    public ProductSearchService(
+        ProductRepository productRepository,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("taskExecutor") Executor executor,
+        ApplicationProperties applicationProperties
+    ) {
+        this.productRepository = productRepository;
+        this.properties = applicationProperties.getSearch();
+        this.executor = executor;
+        // updates run from afterCommit callbacks, where only a new transaction is safe to use
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Build the index in the background, unless a build is already running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuild() {
+        if (properties.isIndexEnabled() && rebuilding.compareAndSet(false, true)) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Rebuild the index once products were imported in bulk.
+     *
+     * @param event the import.
+     */
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        scheduleRebuild();
+    }
+
+    /**
+     * Index the new state of a product, once the transaction that changed it has committed.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!properties.isIndexEnabled()) {
+            return;
+        }
+        synchronized (changedDuringRebuild) {
+            if (rebuilding.get()) {
+                changedDuringRebuild.add(event.getProductId());
+            }
+        }
+        ProductSearchIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            apply(current, event.getProductId());
+        } catch (RuntimeException e) {
+            // never search an index that missed a write
+            index = null;
+            log.warn(
+                "Could not index product {}, searching the database until the index is rebuilt: {}",
+                event.getProductId(),
+                e.getMessage()
+            );
+            scheduleRebuild();
+            return;
+        }
+        if (current.getDeletedCount() > Math.max(COMPACTION_THRESHOLD, current.size())) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Search products by name, category name and description.
+     *
+     * @param query the free text query.
+     * @param pageable the pagination information; the sort is ignored, hits come best first.
+     * @return the page of matching product summaries.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductSummaryDTO> search(String query, Pageable pageable) {
+        log.debug("Request to search Products for query {}", query);
+        ProductSearchIndex current = index;
+        if (current == null) {
+            String pattern = "%" + escapeLike(query.trim().toLowerCase(Locale.ROOT)) + "%";
+            return productRepository.searchSummaries(pattern, pageable);
+        }
+        ProductSearchIndex.Hits hits = current.search(query, pageable.getOffset(), pageable.getPageSize());
+        if (hits.getProductIds().isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, hits.getTotal());
+        }
+        Map<Long, ProductSummaryDTO> summaries = productRepository
+            .findAllSummariesByIdIn(hits.getProductIds())
+            .stream()
+            .collect(Collectors.toMap(ProductSummaryDTO::getId, Function.identity()));
+        List<ProductSummaryDTO> content = new ArrayList<>(summaries.size());
+        for (Long id : hits.getProductIds()) {
+            ProductSummaryDTO summary = summaries.get(id);
+            // a product deleted since the search ran is skipped
+            if (summary != null) {
+                content.add(summary);
+            }
+        }
+        return new PageImpl<>(content, pageable, hits.getTotal());
+    }
+
+    private void rebuild() {
+        try {
+            ProductSearchIndex built = new ProductSearchIndex();
+            long lastId = Long.MIN_VALUE;
+            PageRequest batch = PageRequest.of(0, properties.getRebuildBatchSize());
+            List<ProductSummaryDTO> summaries;
+            do {
+                long after = lastId;
+                summaries = transactionTemplate.execute(status -> productRepository.findSummariesAfterId(after, batch));
+                for (ProductSummaryDTO summary : summaries) {
+                    put(built, summary);
+                    lastId = summary.getId();
+                }
+            } while (summaries.size() == batch.getPageSize());
+            while (true) {
+                List<Long> changed;
+                synchronized (changedDuringRebuild) {
+                    if (changedDuringRebuild.isEmpty()) {
+                        // from now on changes go to the new index
+                        index = built;
+                        rebuilding.set(false);
+                        break;
+                    }
+                    changed = new ArrayList<>(changedDuringRebuild);
+                    changedDuringRebuild.clear();
+                }
+                for (Long id : changed) {
+                    apply(built, id);
+                }
+            }
+            log.info("Built product search index of {} products", built.size());
+        } catch (RuntimeException e) {
+            synchronized (changedDuringRebuild) {
+                changedDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+            log.warn("Could not build the product search index, searching the database: {}", e.getMessage());
+        }
+    }
+
+    private void apply(ProductSearchIndex target, Long id) {
+        Optional<ProductSummaryDTO> summary = transactionTemplate.execute(status -> productRepository.findSummaryById(id));
+        if (summary.isPresent()) {
+            put(target, summary.get());
+        } else {
+            target.remove(id);
+        }
+    }
+
+    private static void put(ProductSearchIndex target, ProductSummaryDTO summary) {
+        target.put(summary.getId(), summary.getName(), summary.getDescription(), summary.getProductCategory().getName());
+    }
+
+    /**
+     * Escape the {@code like} wildcards of a text, so it matches literally in the repository's search queries.
+     */
+    private static String escapeLike(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -1,13 +1,27 @@
 package com.adyen.demo.store.service;
 
 import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductCategory;
+import com.adyen.demo.store.repository.Keyset;
+import com.adyen.demo.store.repository.KeysetQueryExecutor;
 import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.service.dto.ProductImageDTO;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import javax.persistence.criteria.Join;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -21,8 +35,30 @@ public class ProductService {
 
     private final ProductRepository productRepository;
 
-    public ProductService(ProductRepository productRepository) {
+    private final ImageStore imageStore;
+
+    private final ImageDerivativeService imageDerivativeService;
+
+    private final KeysetQueryExecutor keysetQueryExecutor;
+
+    private final EntityCountCache entityCountCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductService(
+        ProductRepository productRepository,
+        ImageStore imageStore,
+        ImageDerivativeService imageDerivativeService,
+        KeysetQueryExecutor keysetQueryExecutor,
+        EntityCountCache entityCountCache,
+        ApplicationEventPublisher eventPublisher
+    ) {
         this.productRepository = productRepository;
+        this.imageStore = imageStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.keysetQueryExecutor = keysetQueryExecutor;
+        this.entityCountCache = entityCountCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -33,7 +69,18 @@ public class ProductService {
      */
     public Product save(Product product) {
         log.debug("Request to save Product : {}", product);
-        return productRepository.save(product);
+        if (product.getId() == null) {
+            entityCountCache.invalidate(Product.class);
+        }
+        keepImageHash(product);
+        storeImage(product);
+        boolean priceChanged = updatePriceVersion(product);
+        Product result = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(result.getId()));
+        if (priceChanged) {
+            eventPublisher.publishEvent(new ProductPriceChangedEvent(result.getId()));
+        }
+        return result;
     }
 
     /**
@@ -55,14 +102,17 @@ public class ProductService {
                     if (product.getDescription() != null) {
                         existingProduct.setDescription(product.getDescription());
                     }
-                    if (product.getPrice() != null) {
+                    if (product.getPrice() != null && !product.getPrice().equals(existingProduct.getPrice())) {
                         existingProduct.setPrice(product.getPrice());
+                        existingProduct.setPriceVersion(existingProduct.getPriceVersion() + 1);
+                        eventPublisher.publishEvent(new ProductPriceChangedEvent(existingProduct.getId()));
                     }
                     if (product.getItemSize() != null) {
                         existingProduct.setItemSize(product.getItemSize());
                     }
                     if (product.getImage() != null) {
                         existingProduct.setImage(product.getImage());
+                        storeImage(existingProduct);
                     }
                     if (product.getImageContentType() != null) {
                         existingProduct.setImageContentType(product.getImageContentType());
@@ -71,7 +121,13 @@ public class ProductService {
                     return existingProduct;
                 }
             )
-            .map(productRepository::save);
+            .map(productRepository::save)
+            .map(
+                result -> {
+                    eventPublisher.publishEvent(new ProductChangedEvent(result.getId()));
+                    return result;
+                }
+            );
     }
 
     /**
@@ -86,6 +142,65 @@ public class ProductService {
         return productRepository.findAll(pageable);
     }
 
+    /**
+     * Get a page of product summaries, for listings.
+     *
+     * @param pageable the pagination information.
+     * @return the page of summaries, with the total from the {@link EntityCountCache}.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductSummaryDTO> findAllSummaries(Pageable pageable) {
+        log.debug("Request to get a page of Product summaries");
+        Slice<ProductSummaryDTO> slice = productRepository.findAllSummaries(pageable);
+        long total = entityCountCache.getCount(Product.class, productRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    /**
+     * Get a slice of product summaries, for listings that do not need a total.
+     *
+     * @param pageable the pagination information.
+     * @return the slice of summaries.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ProductSummaryDTO> findSummarySlice(Pageable pageable) {
+        log.debug("Request to get a slice of Product summaries");
+        return productRepository.findAllSummaries(pageable);
+    }
+
+    /**
+     * Get the product summaries following a keyset, for listings paged with a cursor.
+     *
+     * @param keyset the position to read from.
+     * @param size the maximum number of summaries.
+     * @return the slice of summaries.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ProductSummaryDTO> findAllSummariesAfter(Keyset keyset, int size) {
+        log.debug("Request to get Product summaries after {}", keyset);
+        return keysetQueryExecutor.findAfter(
+            Product.class,
+            ProductSummaryDTO.class,
+            keyset,
+            size,
+            (cb, root) -> {
+                Join<Product, ProductCategory> category = root.join("productCategory");
+                return cb.construct(
+                    ProductSummaryDTO.class,
+                    root.get("id"),
+                    root.get("name"),
+                    root.get("description"),
+                    root.get("price"),
+                    root.get("itemSize"),
+                    root.get("imageHash"),
+                    root.get("imageContentType"),
+                    category.get("id"),
+                    category.get("name")
+                );
+            }
+        );
+    }
+
     /**
      * Get one product by id.
      *
@@ -98,6 +213,46 @@ public class ProductService {
         return productRepository.findById(id);
     }
 
+    /**
+     * Get the products with the given ids, in one query.
+     *
+     * @param ids the ids of the entities.
+     * @return the entities found; ids without a product are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<Product> findAllById(Collection<Long> ids) {
+        log.debug("Request to get Products : {}", ids);
+        return productRepository.findAllById(ids);
+    }
+
+    /**
+     * Get the image file of the "id" product.
+     *
+     * @param id      the id of the entity.
+     * @param variant the resized variant to get, or {@code null} for the original image.
+     * @return the image file, if the product has one. The original image is returned when no variant can be rendered.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<ProductImageDTO> findImage(Long id, ImageVariant variant) {
+        log.debug("Request to get {} image of Product : {}", variant != null ? variant.label : "original", id);
+        return productRepository
+            .findById(id)
+            .flatMap(
+                product -> {
+                    // rendering a variant may take a while, so it runs without holding a database connection
+                    Optional<ProductImageDTO> resized = variant != null
+                        ? imageDerivativeService.findVariant(product.getImageHash(), variant)
+                        : Optional.empty();
+                    if (resized.isPresent()) {
+                        return resized;
+                    }
+                    return imageStore
+                        .find(product.getImageHash())
+                        .map(path -> new ProductImageDTO(product.getImageHash(), product.getImageContentType(), path));
+                }
+            );
+    }
+
     /**
      * Delete the product by id.
      *
@@ -106,5 +261,61 @@ public class ProductService {
     public void delete(Long id) {
         log.debug("Request to delete Product : {}", id);
         productRepository.deleteById(id);
+        entityCountCache.invalidate(Product.class);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
+    }
+
+    /**
+     * Carry the price version of a stored product over to its updated copy, incremented when the price changed.
+     *
+     * @return whether the price changed.
+     */
+    private boolean updatePriceVersion(Product product) {
+        if (product.getId() == null) {
+            return false;
+        }
+        return productRepository
+            .findById(product.getId())
+            .map(
+                existing -> {
+                    boolean changed = !existing.getPrice().equals(product.getPrice());
+                    product.setPriceVersion(changed ? existing.getPriceVersion() + 1 : existing.getPriceVersion());
+                    return changed;
+                }
+            )
+            .orElse(false);
+    }
+
+    /**
+     * The image hash is not writable by clients: a saved product keeps the hash stored for it, which
+     * {@link #storeImage} replaces when a new image is uploaded.
+     */
+    private void keepImageHash(Product product) {
+        product.setImageHash(
+            product.getId() != null ? productRepository.findById(product.getId()).map(Product::getImageHash).orElse(null) : null
+        );
+    }
+
+    /**
+     * Move an uploaded image into the {@link ImageStore}, keep only its hash on the product and
+     * render its resized variants in the background.
+     */
+    private void storeImage(Product product) {
+        byte[] image = product.getImage();
+        if (image == null) {
+            return;
+        }
+        if (image.length > 0) {
+            try {
+                String hash = imageStore.store(image);
+                if (!hash.equals(product.getImageHash())) {
+                    product.setImageHash(hash);
+                    imageDerivativeService.generateVariants(hash);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not store image of product " + product.getId(), e);
+            }
+        }
+        product.setImage(null);
     }
 }
@@ -0,0 +1,248 @@
+package com.adyen.demo.store.service;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.repository.ProductOrderRepository;
+import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.service.dto.ProductSuggestionDTO;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Suggests product names as the shopper types, from a {@link ProductNameSuggester} held in memory.
+ * <p>
+ * The suggester is built from the product table in the background when the application starts, and every
+ * {@link ProductChangedEvent} updates it once the write has committed. Suggestions are ranked by the number of
+ * units of each product ordered, which is reloaded periodically. While no suggester is available, for instance
+ * before the first build succeeds or after an update failed, suggestions are read from the database.
+ */
+@Service
+public class ProductSuggestService {
+
+    private final Logger log = LoggerFactory.getLogger(ProductSuggestService.class);
+
+    private final ProductRepository productRepository;
+
+    private final ProductOrderRepository productOrderRepository;
+
+    private final ApplicationProperties.Search properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Executor executor;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+
+    private volatile ProductNameSuggester suggester;
+
+    public ProductSuggestService(
+        ProductRepository productRepository,
+        ProductOrderRepository productOrderRepository,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("taskExecutor") Executor executor,
+        ApplicationProperties applicationProperties
+    ) {
+        this.productRepository = productRepository;
+        this.productOrderRepository = productOrderRepository;
+        this.properties = applicationProperties.getSearch();
+        this.executor = executor;
+        // updates run from afterCommit callbacks, where only a new transaction is safe to use
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Build the suggester from the whole product table in the background, unless a build is already running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuild() {
+        if (!properties.isSuggesterEnabled() || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            // the next change or import schedules it again; suggestions are read from the database meanwhile
+            synchronized (changedDuringRebuild) {
+                changedDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+            log.warn("Could not schedule a rebuild of the product name suggester: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload the popularity of every product.
+     */
+    @Scheduled(
+        initialDelayString = "${application.search.popularity-refresh-ms:600000}",
+        fixedDelayString = "${application.search.popularity-refresh-ms:600000}"
+    )
+    public void refreshPopularities() {
+        ProductNameSuggester current = suggester;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.setPopularities(transactionTemplate.execute(status -> loadPopularities()));
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the popularity of product suggestions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the suggester once products were imported in bulk.
+     *
+     * @param event the import.
+     */
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        scheduleRebuild();
+    }
+
+    /**
+     * Refresh a product in the suggester, once the transaction that changed it has committed.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!properties.isSuggesterEnabled()) {
+            return;
+        }
+        Long id = event.getProductId();
+        synchronized (changedDuringRebuild) {
+            if (rebuilding.get()) {
+                changedDuringRebuild.add(id);
+            }
+        }
+        ProductNameSuggester current = suggester;
+        if (current == null) {
+            scheduleRebuild();
+            return;
+        }
+        try {
+            apply(current, id);
+        } catch (RuntimeException e) {
+            // never suggest from a trie that missed a write
+            suggester = null;
+            log.warn(
+                "Could not update product {} in the name suggester, suggestions are read from the database until it is rebuilt: {}",
+                id,
+                e.getMessage()
+            );
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Suggest product names.
+     *
+     * @param prefix what the shopper typed: the start of a product name, or of one of its words.
+     * @param limit the maximum number of suggestions.
+     * @return the suggestions, most popular first.
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        int size = Math.min(limit, properties.getMaxSuggestions());
+        ProductNameSuggester current = suggester;
+        if (current != null) {
+            return current.suggest(prefix, size);
+        }
+        // normalizing leaves no LIKE wildcards; match the start of the name or of any word, like the suggester
+        String normalized = ProductNameSuggester.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // only the fallback needs a connection, so the suggester path never opens a transaction
+        return transactionTemplate.execute(
+            status -> productRepository.findSuggestions(normalized + "%", "% " + normalized + "%", PageRequest.of(0, size))
+        );
+    }
+
+    private void rebuild() {
+        try {
+            ProductNameSuggester built = new ProductNameSuggester(properties.getMaxSuggestions());
+            transactionTemplate.executeWithoutResult(status -> built.replaceAll(loadNames(), loadPopularities()));
+            while (true) {
+                List<Long> changed;
+                synchronized (changedDuringRebuild) {
+                    if (changedDuringRebuild.isEmpty()) {
+                        // from now on changes go to the new suggester
+                        suggester = built;
+                        rebuilding.set(false);
+                        break;
+                    }
+                    changed = new ArrayList<>(changedDuringRebuild);
+                    changedDuringRebuild.clear();
+                }
+                for (Long id : changed) {
+                    apply(built, id);
+                }
+            }
+            log.info("Built product name suggester of {} products", built.size());
+        } catch (RuntimeException e) {
+            synchronized (changedDuringRebuild) {
+                changedDuringRebuild.clear();
+                suggester = null;
+                rebuilding.set(false);
+            }
+            log.warn("Could not build the product name suggester, suggestions are read from the database: {}", e.getMessage());
+        }
+    }
+
+    private void apply(ProductNameSuggester target, Long id) {
+        Optional<ProductSummaryDTO> product = transactionTemplate.execute(status -> productRepository.findSummaryById(id));
+        if (product.isPresent()) {
+            target.put(id, product.get().getName());
+        } else {
+            target.remove(id);
+        }
+    }
+
+    private Map<Long, String> loadNames() {
+        Map<Long, String> names = new HashMap<>();
+        PageRequest batch = PageRequest.of(0, properties.getRebuildBatchSize());
+        long lastId = Long.MIN_VALUE;
+        List<ProductSummaryDTO> summaries;
+        do {
+            summaries = productRepository.findSummariesAfterId(lastId, batch);
+            for (ProductSummaryDTO summary : summaries) {
+                names.put(summary.getId(), summary.getName());
+                lastId = summary.getId();
+            }
+        } while (summaries.size() == batch.getPageSize());
+        return names;
+    }
+
+    private Map<Long, Long> loadPopularities() {
+        Map<Long, Long> popularities = new HashMap<>();
+        for (ProductOrderRepository.OrderedQuantity ordered : productOrderRepository.findOrderedQuantities()) {
+            popularities.put(ordered.getProductId(), ordered.getQuantity());
+        }
+        return popularities;
+    }
+}
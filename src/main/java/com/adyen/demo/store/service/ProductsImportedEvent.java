@@ -0,0 +1,25 @@
+package com.adyen.demo.store.service;
+
+/**
+ * Published by {@link ProductImportService} once a bulk import has written its products.
+ * <p>
+ * Imported rows are inserted with JDBC, one {@link ProductChangedEvent} per row would be too many, so in-memory
+ * views of the catalog rebuild from the database when they receive it.
+ */
+public class ProductsImportedEvent {
+
+    private final long importedCount;
+
+    public ProductsImportedEvent(long importedCount) {
+        this.importedCount = importedCount;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductsImportedEvent{importedCount=" + importedCount + "}";
+    }
+}
@@ -1,23 +1,45 @@
 package com.adyen.demo.store.service;
 
-import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.OptimisticLockException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.adyen.demo.store.config.ApplicationProperties;
 import com.adyen.demo.store.domain.CustomerDetails;
+import com.adyen.demo.store.domain.Money;
 import com.adyen.demo.store.domain.Product;
 import com.adyen.demo.store.domain.ProductOrder;
 import com.adyen.demo.store.domain.ShoppingCart;
 import com.adyen.demo.store.domain.enumeration.OrderStatus;
 import com.adyen.demo.store.domain.enumeration.PaymentMethod;
 import com.adyen.demo.store.repository.CustomerDetailsRepository;
+import com.adyen.demo.store.repository.Keyset;
+import com.adyen.demo.store.repository.KeysetQueryExecutor;
+import com.adyen.demo.store.repository.ProductOrderRepository;
 import com.adyen.demo.store.repository.ShoppingCartRepository;
+import com.adyen.demo.store.service.dto.CartItemChangeDTO;
+import com.adyen.demo.store.service.dto.CartLineDTO;
+import com.adyen.demo.store.service.dto.CartSummaryDTO;
 
 /**
  * Service Implementation for managing {@link ShoppingCart}.
@@ -26,18 +48,33 @@ import com.adyen.demo.store.repository.ShoppingCartRepository;
 @Transactional
 public class ShoppingCartService {
 
+    /**
+     * How many times a change of the active cart is attempted when it conflicts with a concurrent change of the same cart.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
     private final Logger log = LoggerFactory.getLogger(ShoppingCartService.class);
 
     private final ShoppingCartRepository shoppingCartRepository;
     private final ProductService productService;
     private final CustomerDetailsRepository customerDetailsRepository;
     private final ProductOrderService productOrderService;
+    private final ActiveCartStore activeCartStore;
+    private final ProductOrderRepository productOrderRepository;
+    private final KeysetQueryExecutor keysetQueryExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxLineQuantity;
 
-    public ShoppingCartService(ShoppingCartRepository shoppingCartRepository, ProductService productService, final CustomerDetailsRepository customerDetailsRepository, final ProductOrderService productOrderService) {
+    public ShoppingCartService(ShoppingCartRepository shoppingCartRepository, ProductService productService, final CustomerDetailsRepository customerDetailsRepository, final ProductOrderService productOrderService, final ActiveCartStore activeCartStore, final ProductOrderRepository productOrderRepository, final KeysetQueryExecutor keysetQueryExecutor, final PlatformTransactionManager transactionManager, final ApplicationProperties applicationProperties) {
         this.shoppingCartRepository = shoppingCartRepository;
         this.productService = productService;
         this.customerDetailsRepository = customerDetailsRepository;
         this.productOrderService = productOrderService;
+        this.activeCartStore = activeCartStore;
+        this.productOrderRepository = productOrderRepository;
+        this.keysetQueryExecutor = keysetQueryExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxLineQuantity = applicationProperties.getCart().getMaxLineQuantity();
     }
 
     /**
@@ -48,6 +85,7 @@ public class ShoppingCartService {
      */
     public ShoppingCart save(ShoppingCart shoppingCart) {
         log.debug("Request to save ShoppingCart : {}", shoppingCart);
+        activeCartStore.evictCart(shoppingCart.getId());
         return shoppingCartRepository.save(shoppingCart);
     }
 
@@ -59,6 +97,7 @@ public class ShoppingCartService {
      */
     public Optional<ShoppingCart> partialUpdate(ShoppingCart shoppingCart) {
         log.debug("Request to partially update ShoppingCart : {}", shoppingCart);
+        activeCartStore.evictCart(shoppingCart.getId());
 
         return shoppingCartRepository
             .findById(shoppingCart.getId())
@@ -119,29 +158,149 @@ public class ShoppingCartService {
      */
     public void delete(Long id) {
         log.debug("Request to delete ShoppingCart : {}", id);
+        activeCartStore.evictCart(id);
         shoppingCartRepository.deleteById(id);
     }
 
+    /**
+     * Get the active shoppingCart of a user, creating it when the user has none.
+     * <p>
+     * When the write-behind cart store is enabled, the cart is served from memory and must not be saved.
+     *
+     * @param user the login of the user.
+     * @return the active cart.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ShoppingCart findActiveCartByUser(String user) {
-        Optional<ShoppingCart> oCart = shoppingCartRepository.findFirstByCustomerDetailsUserLoginAndStatusOrderByIdAsc(user, OrderStatus.OPEN);
+        if (activeCartStore.isEnabled()) {
+            return activeCartStore.get(user, this::loadActiveCartWithRetry);
+        }
+        return loadActiveCartWithRetry(user);
+    }
+
+    /**
+     * Write the pending changes of the active shoppingCart of a user to the database, when it is held in memory.
+     *
+     * @param user the login of the user.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flushActiveCart(String user) {
+        activeCartStore.flush(user);
+    }
+
+    private ShoppingCart loadActiveCartWithRetry(String user) {
+        return retryOnConflict(() -> loadActiveCart(user, false));
+    }
+
+    /**
+     * @param forChange whether the cart is about to change; its version is then incremented on commit, so a concurrent
+     *                  change of the same cart fails instead of, for example, adding the same product twice.
+     */
+    private ShoppingCart loadActiveCart(String user, boolean forChange) {
+        Optional<ShoppingCart> oCart = forChange
+            ? shoppingCartRepository.findOneForChangeByCustomerDetailsUserLoginAndStatus(user, OrderStatus.OPEN)
+            : shoppingCartRepository.findOneWithOrdersByCustomerDetailsUserLoginAndStatus(user, OrderStatus.OPEN);
         ShoppingCart activeCart = oCart.orElseGet(() -> {
             Optional<CustomerDetails> customer = customerDetailsRepository.findOneByUserLogin(user);
             return shoppingCartRepository.save(new ShoppingCart(
-                Instant.now(), OrderStatus.OPEN, BigDecimal.ZERO, PaymentMethod.CREDIT_CARD, customer.get()
+                Instant.now(), OrderStatus.OPEN, Money.zero(Money.DEFAULT_CURRENCY), PaymentMethod.CREDIT_CARD, customer.get()
             ));
         });
-        // also serves as lazy init of orders
         log.info("Cart for user {} has {} orders", user, activeCart.getOrders().size());
+        // the repricing worker may not have reached this cart yet
+        if (activeCart.reprice()) {
+            log.debug("Repriced cart {} of user {} to {}", activeCart.getId(), user, activeCart.getTotalPrice());
+        }
         return activeCart;
     }
 
+    /**
+     * Run a change of the active cart in its own transaction, and run it again when it conflicts with a concurrent
+     * change of the same cart: a stale version, or a second open cart for the same customer.
+     * <p>
+     * When a transaction is already active the change joins it and is not retried, as the conflict has marked that
+     * transaction rollback-only; the conflict is then reported to the caller as is.
+     */
+    private <T> T retryOnConflict(Supplier<T> change) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return change.get();
+        }
+        for (int attempt = 1;; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> change.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException | OptimisticLockException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Cart change conflicted with a concurrent change, attempt {} of {}: {}", attempt, MAX_ATTEMPTS, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the order history of a user: the summaries of the carts that are not open, following a keyset.
+     *
+     * @param user the login of the user.
+     * @param keyset the position to read from, by placed date.
+     * @param size the maximum number of summaries.
+     * @return the slice of summaries.
+     */
     @Transactional(readOnly = true)
-    public List<ShoppingCart> findCartsByUser(String user) {
-        return shoppingCartRepository.findAllByCustomerDetailsUserLoginAndStatusNot(user, OrderStatus.OPEN);
+    public Slice<CartSummaryDTO> findCartsByUser(String user, Keyset keyset, int size) {
+        log.debug("Request to get ShoppingCarts of {} after {}", user, keyset);
+        return keysetQueryExecutor.findAfter(
+            ShoppingCart.class,
+            CartSummaryDTO.class,
+            keyset,
+            size,
+            (cb, root) ->
+                cb.construct(
+                    CartSummaryDTO.class,
+                    root.get("id"),
+                    root.get("placedDate"),
+                    root.get("status"),
+                    root.get("totalPrice"),
+                    root.get("paymentMethod"),
+                    root.get("paymentReference"),
+                    cb.size(root.<Collection<ProductOrder>>get("orders"))
+                ),
+            (cb, root) ->
+                cb.and(
+                    cb.equal(root.get("customerDetails").get("user").get("login"), user),
+                    cb.notEqual(root.get("status"), OrderStatus.OPEN)
+                )
+        );
     }
 
+    /**
+     * Get the lines of a cart of a user, with their products, in one query.
+     *
+     * @param id the id of the cart.
+     * @param user the login of the user.
+     * @return the lines in id order, or empty if the cart is not a cart of the user.
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<CartLineDTO>> findCartLinesByUser(Long id, String user) {
+        log.debug("Request to get the lines of ShoppingCart {} of {}", id, user);
+        List<CartLineDTO> lines = productOrderRepository.findLinesByCartIdAndLogin(id, user);
+        // only a cart without lines needs a second look to tell whether it is one of the user
+        if (lines.isEmpty() && !shoppingCartRepository.existsByIdAndCustomerDetailsUserLogin(id, user)) {
+            return Optional.empty();
+        }
+        return Optional.of(lines);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ShoppingCart addProductForUser(Long id, String user) throws EntityNotFoundException {
-        ShoppingCart activeCart = findActiveCartByUser(user);
+        if (activeCartStore.isEnabled()) {
+            Product product = productService.findOne(id).orElseThrow(() -> new EntityNotFoundException("Product not found"));
+            return activeCartStore.changeQuantities(user, this::loadActiveCartWithRetry, Collections.singletonMap(id, 1), Collections.singletonMap(id, product));
+        }
+        return retryOnConflict(() -> addProduct(id, user));
+    }
+
+    private ShoppingCart addProduct(Long id, String user) {
+        ShoppingCart activeCart = loadActiveCart(user, true);
         Product product = productService.findOne(id).orElseThrow(() -> new EntityNotFoundException("Product not found"));
         ProductOrder order;
         List<ProductOrder> orders = activeCart.getOrders().stream().filter(productOrder -> productOrder.getProduct().getId().equals(id)).collect(Collectors.toList());
@@ -154,16 +313,91 @@ public class ShoppingCartService {
             activeCart.addOrder(order);
         } else {
             order = orders.get(0);
-            order.setQuantity(order.getQuantity() + 1);
-            order.setTotalPrice(product.getPrice().multiply(new BigDecimal(order.getQuantity())));
+            if (order.getQuantity() >= maxLineQuantity) {
+                throw new IllegalArgumentException(tooManyUnits());
+            }
+            activeCart.updateOrderQuantity(order, order.getQuantity() + 1);
         }
-        activeCart.calculateTotalPrice();
         productOrderService.save(order);
         return save(activeCart);
     }
 
+    /**
+     * Apply several quantity changes to the active shoppingCart of a user at once.
+     * <p>
+     * The products are loaded with one query and the cart total is updated by the difference of each line. Changes
+     * of the same product are summed; a line whose quantity drops to zero or below is removed, and a negative change
+     * of a product that is not in the cart is ignored.
+     *
+     * @param changes the quantity changes to apply.
+     * @param user    the login of the user.
+     * @return the updated cart.
+     * @throws EntityNotFoundException if one of the products is not found.
+     * @throws IllegalArgumentException if a line would hold more than {@code application.cart.max-line-quantity} units.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ShoppingCart updateProductsForUser(final List<CartItemChangeDTO> changes, final String user) throws EntityNotFoundException {
+        // summed as longs, so that no list of int changes can overflow
+        Map<Long, Long> sums = new LinkedHashMap<>();
+        changes.forEach(change -> sums.merge(change.getProductId(), (long) change.getQuantityDelta(), Long::sum));
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        sums.forEach((productId, sum) -> {
+            if (sum > maxLineQuantity) {
+                throw new IllegalArgumentException(tooManyUnits());
+            }
+            // a line holds at most maxLineQuantity units, so a larger removal empties it all the same
+            deltas.put(productId, (int) Math.max(sum, -maxLineQuantity));
+        });
+        Map<Long, Product> products = productService.findAllById(deltas.keySet()).stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+        if (products.size() < deltas.size()) {
+            throw new EntityNotFoundException("Product not found");
+        }
+        if (activeCartStore.isEnabled()) {
+            return activeCartStore.changeQuantities(user, this::loadActiveCartWithRetry, deltas, products);
+        }
+        return retryOnConflict(() -> updateProducts(deltas, products, user));
+    }
+
+    private ShoppingCart updateProducts(final Map<Long, Integer> deltas, final Map<Long, Product> products, final String user) {
+        ShoppingCart activeCart = loadActiveCart(user, true);
+        Map<Long, ProductOrder> ordersByProduct = new HashMap<>();
+        activeCart.getOrders().forEach(order -> ordersByProduct.put(order.getProduct().getId(), order));
+        deltas.forEach((productId, delta) -> {
+            Product product = products.get(productId);
+            ProductOrder order = ordersByProduct.get(productId);
+            if (order == null) {
+                if (delta > 0) {
+                    order = new ProductOrder().quantity(delta).totalPrice(product.getPrice().times(delta)).product(product);
+                    order.setCart(activeCart);
+                    activeCart.addOrder(productOrderService.save(order));
+                }
+            } else if (order.getQuantity() + delta <= 0) {
+                activeCart.removeOrder(order);
+                productOrderService.delete(order.getId());
+            } else if (order.getQuantity() + delta > maxLineQuantity) {
+                // rolls the whole change back
+                throw new IllegalArgumentException(tooManyUnits());
+            } else {
+                activeCart.updateOrderQuantity(order, order.getQuantity() + delta);
+            }
+        });
+        return save(activeCart);
+    }
+
+    private String tooManyUnits() {
+        return "A cart line holds at most " + maxLineQuantity + " units";
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ShoppingCart removeProductOrderForUser(final Long id, final String user) {
-        ShoppingCart activeCart = findActiveCartByUser(user);
+        if (activeCartStore.isEnabled()) {
+            return activeCartStore.removeLine(user, this::loadActiveCartWithRetry, id);
+        }
+        return retryOnConflict(() -> removeProductOrder(id, user));
+    }
+
+    private ShoppingCart removeProductOrder(final Long id, final String user) {
+        ShoppingCart activeCart = loadActiveCart(user, true);
         List<ProductOrder> orders = activeCart.getOrders().stream().filter(productOrder -> productOrder.getId().equals(id)).collect(Collectors.toList());
         if (orders.isEmpty()) {
             throw new EntityNotFoundException("Product order not found in cart");
@@ -175,15 +409,14 @@ public class ShoppingCartService {
         return save(activeCart);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ShoppingCart updateCartWithPayment(final String user, final String paymentType, final String paymentRef, OrderStatus status) {
-        ShoppingCart cart = findActiveCartByUser(user);
-        cart.setStatus(status);
-        cart.setPaymentReference(paymentRef);
-        cart.setPaymentMethod(PaymentMethod.fromLabel(paymentType));
-        return updateCartWithPayment(cart, paymentType, paymentRef, status);
+        activeCartStore.evict(user);
+        return retryOnConflict(() -> updateCartWithPayment(loadActiveCart(user, true), paymentType, paymentRef, status));
     }
 
     public ShoppingCart updateCartWithPayment(final Long id, final String paymentType, final String paymentRef, OrderStatus status) {
+        activeCartStore.evictCart(id);
         ShoppingCart cart = findOne(id).orElseThrow(() -> new EntityNotFoundException("Cart not found"));
         return updateCartWithPayment(cart, paymentType, paymentRef, status);
     }
@@ -195,6 +428,14 @@ public class ShoppingCartService {
         return save(cart);
     }
 
+    public ShoppingCart updateCartWithRefund(final Long id, final String modificationRef) {
+        activeCartStore.evictCart(id);
+        ShoppingCart cart = findOne(id).orElseThrow(() -> new EntityNotFoundException("Cart not found"));
+        cart.setStatus(OrderStatus.REFUND_INITIATED);
+        cart.setPaymentModificationReference(modificationRef);
+        return save(cart);
+    }
+
     public Optional<ShoppingCart> findOneByPaymentModificationReference(final String paymentRef) {
         return shoppingCartRepository.findOneByPaymentModificationReference(paymentRef);
     }
@@ -8,7 +8,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,8 @@ import com.adyen.demo.store.domain.Authority;
 import com.adyen.demo.store.domain.CustomerDetails;
 import com.adyen.demo.store.domain.User;
 import com.adyen.demo.store.repository.AuthorityRepository;
+import com.adyen.demo.store.repository.Keyset;
+import com.adyen.demo.store.repository.KeysetQueryExecutor;
 import com.adyen.demo.store.repository.UserRepository;
 import com.adyen.demo.store.security.AuthoritiesConstants;
 import com.adyen.demo.store.security.SecurityUtils;
@@ -46,12 +50,18 @@ public class UserService {
 
     private final CacheManager cacheManager;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository, final CustomerDetailsService customerDetailsService, CacheManager cacheManager) {
+    private final KeysetQueryExecutor keysetQueryExecutor;
+
+    private final EntityCountCache entityCountCache;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository, final CustomerDetailsService customerDetailsService, CacheManager cacheManager, KeysetQueryExecutor keysetQueryExecutor, EntityCountCache entityCountCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
         this.customerDetailsService = customerDetailsService;
         this.cacheManager = cacheManager;
+        this.keysetQueryExecutor = keysetQueryExecutor;
+        this.entityCountCache = entityCountCache;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -151,6 +161,7 @@ public class UserService {
         userRepository.save(newUser);
         customerDetailsService.save(customer);
         this.clearUserCaches(newUser);
+        entityCountCache.invalidate(User.class);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
     }
@@ -162,6 +173,7 @@ public class UserService {
         userRepository.delete(existingUser);
         userRepository.flush();
         this.clearUserCaches(existingUser);
+        entityCountCache.invalidate(User.class);
         return true;
     }
 
@@ -196,6 +208,7 @@ public class UserService {
         }
         userRepository.save(user);
         this.clearUserCaches(user);
+        entityCountCache.invalidate(User.class);
         log.debug("Created Information for User: {}", user);
         return user;
     }
@@ -247,6 +260,7 @@ public class UserService {
                 user -> {
                     userRepository.delete(user);
                     this.clearUserCaches(user);
+                    entityCountCache.invalidate(User.class);
                     log.debug("Deleted User: {}", user);
                 }
             );
@@ -301,7 +315,19 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public Page<AdminUserDTO> getAllManagedUsers(Pageable pageable) {
-        return userRepository.findAll(pageable).map(AdminUserDTO::new);
+        Slice<AdminUserDTO> slice = getAllManagedUserSlice(pageable);
+        long total = entityCountCache.getCount(User.class, userRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<AdminUserDTO> getAllManagedUserSlice(Pageable pageable) {
+        return userRepository.findAllBy(pageable).map(AdminUserDTO::new);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<AdminUserDTO> getAllManagedUsersAfter(Keyset keyset, int size) {
+        return keysetQueryExecutor.findAfter(User.class, keyset, size).map(AdminUserDTO::new);
     }
 
     @Transactional(readOnly = true)
@@ -333,6 +359,7 @@ public class UserService {
                     log.debug("Deleting not activated user {}", user.getLogin());
                     userRepository.delete(user);
                     this.clearUserCaches(user);
+                    entityCountCache.invalidate(User.class);
                 }
             );
     }
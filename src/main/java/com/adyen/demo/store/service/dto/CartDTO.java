@@ -0,0 +1,92 @@
+package com.adyen.demo.store.service.dto;
+
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.domain.enumeration.PaymentMethod;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A DTO representing a {@link ShoppingCart} in the responses of the cart of the current user.
+ * <p>
+ * It is built from a cart read with its orders and their products in one query, and serializes to the same JSON
+ * shape as the entity, without the customer and with {@link CartLineDTO lean lines}.
+ */
+public class CartDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final Instant placedDate;
+
+    private final OrderStatus status;
+
+    private final Money totalPrice;
+
+    private final PaymentMethod paymentMethod;
+
+    private final Long version;
+
+    private final List<CartLineDTO> orders;
+
+    public CartDTO(ShoppingCart cart) {
+        this.id = cart.getId();
+        this.placedDate = cart.getPlacedDate();
+        this.status = cart.getStatus();
+        this.totalPrice = cart.getTotalPrice();
+        this.paymentMethod = cart.getPaymentMethod();
+        this.version = cart.getVersion();
+        this.orders =
+            cart
+                .getOrders()
+                .stream()
+                .sorted(Comparator.comparing(ProductOrder::getId, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(CartLineDTO::new)
+                .collect(Collectors.toList());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Instant getPlacedDate() {
+        return placedDate;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public Money getTotalPrice() {
+        return totalPrice;
+    }
+
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public List<CartLineDTO> getOrders() {
+        return orders;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CartDTO{" +
+            "id=" + id +
+            ", status='" + status + "'" +
+            ", totalPrice=" + totalPrice +
+            ", orders=" + orders.size() +
+            "}";
+    }
+}
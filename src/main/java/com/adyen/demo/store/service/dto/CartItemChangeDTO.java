@@ -0,0 +1,55 @@
+package com.adyen.demo.store.service.dto;
+
+import java.io.Serializable;
+import javax.validation.constraints.NotNull;
+
+/**
+ * A DTO representing a change of the quantity of one product in a shopping cart.
+ */
+public class CartItemChangeDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    private Long productId;
+
+    @NotNull
+    private Integer quantityDelta;
+
+    public CartItemChangeDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CartItemChangeDTO(Long productId, Integer quantityDelta) {
+        this.productId = productId;
+        this.quantityDelta = quantityDelta;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    /**
+     * @return the number of units to add, or to remove when negative.
+     */
+    public Integer getQuantityDelta() {
+        return quantityDelta;
+    }
+
+    public void setQuantityDelta(Integer quantityDelta) {
+        this.quantityDelta = quantityDelta;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CartItemChangeDTO{" +
+            "productId=" + productId +
+            ", quantityDelta=" + quantityDelta +
+            "}";
+    }
+}
@@ -0,0 +1,136 @@
+package com.adyen.demo.store.service.dto;
+
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.service.ImageVariant;
+import java.io.Serializable;
+
+/**
+ * A DTO representing a {@link ProductOrder}, a line of a cart, in cart responses.
+ * <p>
+ * It holds only what the cart shows of the product, with a link to its thumbnail instead of the image. It
+ * serializes to the same JSON shape as the entity, with fewer fields.
+ */
+public class CartLineDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final Integer quantity;
+
+    private final Money totalPrice;
+
+    private final ProductDTO product;
+
+    public CartLineDTO(
+        Long id,
+        Integer quantity,
+        Money totalPrice,
+        Long productId,
+        String productName,
+        Money productPrice,
+        Size productItemSize,
+        String productImageHash
+    ) {
+        this.id = id;
+        this.quantity = quantity;
+        this.totalPrice = totalPrice;
+        this.product = new ProductDTO(productId, productName, productPrice, productItemSize, productImageHash);
+    }
+
+    public CartLineDTO(ProductOrder order) {
+        this(
+            order.getId(),
+            order.getQuantity(),
+            order.getTotalPrice(),
+            order.getProduct().getId(),
+            order.getProduct().getName(),
+            order.getProduct().getPrice(),
+            order.getProduct().getItemSize(),
+            order.getProduct().getImageHash()
+        );
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Money getTotalPrice() {
+        return totalPrice;
+    }
+
+    public ProductDTO getProduct() {
+        return product;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CartLineDTO{" +
+            "id=" + id +
+            ", quantity=" + quantity +
+            ", totalPrice=" + totalPrice +
+            ", product=" + product.getId() +
+            "}";
+    }
+
+    /**
+     * The product of a cart line.
+     */
+    public static class ProductDTO implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Long id;
+
+        private final String name;
+
+        private final Money price;
+
+        private final Size itemSize;
+
+        private final String thumbnailUrl;
+
+        public ProductDTO(Long id, String name, Money price, Size itemSize, String imageHash) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.itemSize = itemSize;
+            this.thumbnailUrl = imageHash != null
+                ? "/api/products/" + id + "/image?v=" + imageHash + "&size=" + ImageVariant.THUMBNAIL.label
+                : null;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the unit price.
+         */
+        public Money getPrice() {
+            return price;
+        }
+
+        public Size getItemSize() {
+            return itemSize;
+        }
+
+        /**
+         * @return the path of the thumbnail of the product image, or {@code null} if the product has no image.
+         */
+        public String getThumbnailUrl() {
+            return thumbnailUrl;
+        }
+    }
+}
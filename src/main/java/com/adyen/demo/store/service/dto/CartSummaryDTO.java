@@ -0,0 +1,96 @@
+package com.adyen.demo.store.service.dto;
+
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.domain.enumeration.PaymentMethod;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO representing a {@link com.adyen.demo.store.domain.ShoppingCart} in the order history of a customer.
+ * <p>
+ * It is read with a constructor expression, with the number of lines counted in the same query, so a page of the
+ * history loads neither the orders nor their products. The lines of one cart are read with {@link CartLineDTO}.
+ */
+public class CartSummaryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final Instant placedDate;
+
+    private final OrderStatus status;
+
+    private final Money totalPrice;
+
+    private final PaymentMethod paymentMethod;
+
+    private final String paymentReference;
+
+    private final int lineCount;
+
+    public CartSummaryDTO(
+        Long id,
+        Instant placedDate,
+        OrderStatus status,
+        Money totalPrice,
+        PaymentMethod paymentMethod,
+        String paymentReference,
+        Number lineCount
+    ) {
+        this.id = id;
+        this.placedDate = placedDate;
+        this.status = status;
+        this.totalPrice = totalPrice;
+        this.paymentMethod = paymentMethod;
+        this.paymentReference = paymentReference;
+        this.lineCount = lineCount != null ? lineCount.intValue() : 0;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Instant getPlacedDate() {
+        return placedDate;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public Money getTotalPrice() {
+        return totalPrice;
+    }
+
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    /**
+     * @return the Adyen reference of the payment, needed to refund it.
+     */
+    public String getPaymentReference() {
+        return paymentReference;
+    }
+
+    /**
+     * @return the number of lines of the cart.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CartSummaryDTO{" +
+            "id=" + id +
+            ", placedDate='" + placedDate + "'" +
+            ", status='" + status + "'" +
+            ", totalPrice=" + totalPrice +
+            ", lineCount=" + lineCount +
+            "}";
+    }
+}
@@ -0,0 +1,66 @@
+package com.adyen.demo.store.service.dto;
+
+import com.adyen.demo.store.service.ImageVariant;
+import java.nio.file.Path;
+
+/**
+ * A DTO representing a product image file held by the {@link com.adyen.demo.store.service.ImageStore}.
+ */
+public class ProductImageDTO {
+
+    private final String hash;
+
+    private final String contentType;
+
+    private final Path path;
+
+    private final ImageVariant variant;
+
+    public ProductImageDTO(String hash, String contentType, Path path) {
+        this(hash, contentType, path, null);
+    }
+
+    public ProductImageDTO(String hash, String contentType, Path path, ImageVariant variant) {
+        this.hash = hash;
+        this.contentType = contentType;
+        this.path = path;
+        this.variant = variant;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the resized variant this file holds, or {@code null} for the original image.
+     */
+    public ImageVariant getVariant() {
+        return variant;
+    }
+
+    /**
+     * @return a strong entity tag for the file, derived from the image hash and variant.
+     */
+    public String getETag() {
+        return "\"" + hash + (variant != null ? "-" + variant.label : "") + "\"";
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductImageDTO{" +
+            "hash='" + hash + '\'' +
+            ", contentType='" + contentType + '\'' +
+            ", path=" + path +
+            ", variant=" + variant +
+            "}";
+    }
+}
@@ -0,0 +1,114 @@
+package com.adyen.demo.store.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A DTO representing the progress of a bulk product import.
+ */
+public class ProductImportReportDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The state of an import.
+     */
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+    }
+
+    private final String id;
+
+    private final Status status;
+
+    private final Instant startedAt;
+
+    private final Instant finishedAt;
+
+    private final long processed;
+
+    private final long imported;
+
+    private final long rejected;
+
+    private final List<String> errors;
+
+    public ProductImportReportDTO(
+        String id,
+        Status status,
+        Instant startedAt,
+        Instant finishedAt,
+        long processed,
+        long imported,
+        long rejected,
+        List<String> errors
+    ) {
+        this.id = id;
+        this.status = status;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.processed = processed;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.errors = errors;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * @return the number of rows read so far.
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return the number of products committed so far.
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * @return the number of rows that failed validation.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the first errors, prefixed with their line number.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductImportReportDTO{" +
+            "id='" + id + "'" +
+            ", status=" + status +
+            ", processed=" + processed +
+            ", imported=" + imported +
+            ", rejected=" + rejected +
+            "}";
+    }
+}
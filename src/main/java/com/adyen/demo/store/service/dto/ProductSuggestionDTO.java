@@ -0,0 +1,37 @@
+package com.adyen.demo.store.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO representing a product name suggested while the shopper types a search.
+ */
+public class ProductSuggestionDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final String name;
+
+    public ProductSuggestionDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductSuggestionDTO{" +
+            "id=" + id +
+            ", name='" + name + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,138 @@
+package com.adyen.demo.store.service.dto;
+
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.enumeration.Size;
+import java.io.Serializable;
+
+/**
+ * A DTO representing a {@link com.adyen.demo.store.domain.Product} in product listings.
+ * <p>
+ * It is read with a constructor expression, so listing a page of products neither hydrates
+ * entities nor loads their categories one by one. It serializes to the same JSON shape as the entity.
+ */
+public class ProductSummaryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final String name;
+
+    private final String description;
+
+    private final Money price;
+
+    private final Size itemSize;
+
+    private final String imageHash;
+
+    private final String imageContentType;
+
+    private final CategoryDTO productCategory;
+
+    public ProductSummaryDTO(
+        Long id,
+        String name,
+        String description,
+        Money price,
+        Size itemSize,
+        String imageHash,
+        String imageContentType,
+        Long productCategoryId,
+        String productCategoryName
+    ) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.itemSize = itemSize;
+        this.imageHash = imageHash;
+        this.imageContentType = imageContentType;
+        this.productCategory = new CategoryDTO(productCategoryId, productCategoryName);
+    }
+
+    public ProductSummaryDTO(Product product) {
+        this(
+            product.getId(),
+            product.getName(),
+            product.getDescription(),
+            product.getPrice(),
+            product.getItemSize(),
+            product.getImageHash(),
+            product.getImageContentType(),
+            product.getProductCategory().getId(),
+            product.getProductCategory().getName()
+        );
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Money getPrice() {
+        return price;
+    }
+
+    public Size getItemSize() {
+        return itemSize;
+    }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public String getImageContentType() {
+        return imageContentType;
+    }
+
+    public CategoryDTO getProductCategory() {
+        return productCategory;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductSummaryDTO{" +
+            "id=" + id +
+            ", name='" + name + "'" +
+            ", price=" + price +
+            ", itemSize='" + itemSize + "'" +
+            ", imageHash='" + imageHash + "'" +
+            ", productCategory=" + productCategory.getId() +
+            "}";
+    }
+
+    /**
+     * The category a listed product belongs to.
+     */
+    public static class CategoryDTO implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Long id;
+
+        private final String name;
+
+        public CategoryDTO(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
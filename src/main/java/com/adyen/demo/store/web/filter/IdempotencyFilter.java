@@ -0,0 +1,223 @@
+package com.adyen.demo.store.web.filter;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.security.SecurityUtils;
+import com.adyen.demo.store.web.filter.IdempotencyStore.Claim;
+import com.adyen.demo.store.web.filter.IdempotencyStore.Entry;
+import com.adyen.demo.store.web.filter.IdempotencyStore.StoredResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Makes the mutating API requests of signed-in users idempotent with an {@code Idempotency-Key} header.
+ * <p>
+ * The first request with a key runs, and its response is kept in an {@link IdempotencyStore} under the user and the
+ * key. A request sent again with the same key gets the kept response back, with an {@code Idempotent-Replayed}
+ * header, instead of running again; if the first one is still running, it waits for its response. Responses with a
+ * server error are not kept, so the request can be retried. A key sent again for another method or path is
+ * answered {@code 422 (Unprocessable Entity)}.
+ * <p>
+ * The filter runs after Spring Security, so the user is known, and it also handles asynchronous requests, whose
+ * response is kept when their async dispatch completes.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final Set<String> MUTATING_METHODS = new HashSet<>(Arrays.asList("POST", "PUT", "PATCH", "DELETE"));
+
+    private static final String ENTRY_ATTRIBUTE = IdempotencyFilter.class.getName() + ".ENTRY";
+
+    private final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    private final boolean enabled;
+
+    private final long waitTimeoutMs;
+
+    private final IdempotencyStore store;
+
+    private final Counter executed;
+
+    private final Counter replayed;
+
+    private final Counter conflicts;
+
+    public IdempotencyFilter(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.Idempotency properties = applicationProperties.getIdempotency();
+        this.enabled = properties.isEnabled();
+        this.waitTimeoutMs = properties.getWaitTimeoutMs();
+        this.store = new IdempotencyStore(properties.getMaxEntries(), properties.getTtlMs(), System::currentTimeMillis);
+        this.executed = requestCounter(meterRegistry, "executed");
+        this.replayed = requestCounter(meterRegistry, "replayed");
+        this.conflicts = requestCounter(meterRegistry, "conflict");
+        Gauge.builder("http.idempotency.keys", store, IdempotencyStore::size).register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("http.idempotency.requests").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return (
+            !enabled ||
+            !MUTATING_METHODS.contains(request.getMethod()) ||
+            !request.getRequestURI().startsWith(request.getContextPath() + "/api/") ||
+            request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+        );
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        Entry entry = (Entry) request.getAttribute(ENTRY_ATTRIBUTE);
+        if (entry == null) {
+            String key = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+            if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid " + IDEMPOTENCY_KEY_HEADER + " header");
+                return;
+            }
+            if (!SecurityUtils.isAuthenticated()) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            String user = SecurityUtils.getCurrentUserLogin().orElseThrow(IllegalStateException::new);
+            entry = claim(user + " " + key, fingerprintOf(request), response);
+            if (entry == null) {
+                return;
+            }
+            request.setAttribute(ENTRY_ATTRIBUTE, entry);
+            executed.increment();
+        }
+
+        ContentCachingResponseWrapper responseToUse = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (responseToUse == null) {
+            responseToUse = new ContentCachingResponseWrapper(response);
+        }
+        boolean kept = false;
+        try {
+            filterChain.doFilter(request, responseToUse);
+            if (isAsyncStarted(request)) {
+                // the async dispatch keeps the response
+                kept = true;
+                return;
+            }
+            if (responseToUse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                store.complete(
+                    entry,
+                    new StoredResponse(
+                        responseToUse.getStatus(),
+                        responseToUse.getContentType(),
+                        headersOf(responseToUse),
+                        responseToUse.getContentAsByteArray()
+                    )
+                );
+                kept = true;
+            }
+            responseToUse.copyBodyToResponse();
+        } finally {
+            if (!kept) {
+                store.release(entry);
+            }
+        }
+    }
+
+    /**
+     * Claim a key, waiting for the response of an earlier request with the same key if there is one.
+     *
+     * @return the entry to complete with the response of this request, or {@code null} if the response was sent.
+     */
+    private Entry claim(String key, String fingerprint, HttpServletResponse response) throws IOException {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        while (true) {
+            Claim claim = store.claim(key, fingerprint);
+            if (claim.isOwner()) {
+                return claim.getEntry();
+            }
+            if (!claim.getEntry().matches(fingerprint)) {
+                conflicts.increment();
+                response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), IDEMPOTENCY_KEY_HEADER + " was used for another request");
+                return null;
+            }
+            StoredResponse stored;
+            try {
+                stored = claim.getEntry().await(Math.max(0L, deadline - System.currentTimeMillis()));
+            } catch (TimeoutException e) {
+                stored = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stored = null;
+            }
+            if (stored != null) {
+                replayed.increment();
+                replay(stored, response);
+                return null;
+            }
+            if (System.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted()) {
+                conflicts.increment();
+                log.debug("Request with idempotency key {} is still running", key);
+                response.sendError(HttpStatus.CONFLICT.value(), "A request with this " + IDEMPOTENCY_KEY_HEADER + " is in progress");
+                return null;
+            }
+            // the earlier request failed and released the key, try to claim it again
+        }
+    }
+
+    private static String fingerprintOf(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return request.getMethod() + " " + request.getRequestURI() + (query != null ? "?" + query : "");
+    }
+
+    private static Map<String, List<String>> headersOf(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                headers.put(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        stored.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+}
@@ -0,0 +1,191 @@
+package com.adyen.demo.store.web.filter;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Responses of the requests sent with an idempotency key, kept in memory for a limited time.
+ * <p>
+ * A request first {@link #claim claims} its key. The first claim runs the request and {@link #complete completes}
+ * the key with the response; later claims of the key get the same {@link Entry}, and can wait for the response
+ * while the first request runs. When the first request fails, it {@link #release releases} the key, so the next
+ * claim runs the request again. Keys are evicted in the order they were first claimed, once they expire or when
+ * the store is full.
+ */
+class IdempotencyStore {
+
+    private final int maxEntries;
+
+    private final long ttlMs;
+
+    private final LongSupplier clock;
+
+    /**
+     * Entries by key, in claim order, which is also expiry order.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    IdempotencyStore(int maxEntries, long ttlMs, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Claim a key for a request.
+     *
+     * @param key the key, unique per user.
+     * @param fingerprint what identifies the request, to detect a key reused for another request.
+     * @return the claim, {@link Claim#isOwner owned} by the caller if it is the first claim of the key.
+     */
+    synchronized Claim claim(String key, String fingerprint) {
+        long now = clock.getAsLong();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (entry.expiresAt > now && entries.size() < maxEntries) {
+                break;
+            }
+            eldest.remove();
+        }
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            return new Claim(existing, false);
+        }
+        Entry entry = new Entry(key, fingerprint, now + ttlMs);
+        entries.put(key, entry);
+        return new Claim(entry, true);
+    }
+
+    /**
+     * Complete the entry of a request with its response, for later claims to replay.
+     */
+    void complete(Entry entry, StoredResponse response) {
+        entry.response.complete(response);
+    }
+
+    /**
+     * Forget the entry of a request that failed, and wake up the claims waiting for it.
+     */
+    void release(Entry entry) {
+        synchronized (this) {
+            entries.remove(entry.key, entry);
+        }
+        entry.response.complete(null);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The result of a claim.
+     */
+    static final class Claim {
+
+        private final Entry entry;
+
+        private final boolean owner;
+
+        private Claim(Entry entry, boolean owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        Entry getEntry() {
+            return entry;
+        }
+
+        /**
+         * @return whether this claim was the first one, so the request must run.
+         */
+        boolean isOwner() {
+            return owner;
+        }
+    }
+
+    /**
+     * A claimed key.
+     */
+    static final class Entry {
+
+        private final String key;
+
+        private final String fingerprint;
+
+        private final long expiresAt;
+
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(String key, String fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean matches(String fingerprint) {
+            return this.fingerprint.equals(fingerprint);
+        }
+
+        /**
+         * Wait for the response of the request that claimed the key first.
+         *
+         * @param timeoutMs how long to wait.
+         * @return the response, or {@code null} if the request failed and the key was released.
+         * @throws TimeoutException if the request is still running.
+         * @throws InterruptedException if the thread was interrupted while waiting.
+         */
+        StoredResponse await(long timeoutMs) throws TimeoutException, InterruptedException {
+            try {
+                return response.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A response kept to be replayed: its status, content type, other headers and body.
+     */
+    static final class StoredResponse {
+
+        private final int status;
+
+        private final String contentType;
+
+        private final Map<String, List<String>> headers;
+
+        private final byte[] body;
+
+        StoredResponse(int status, String contentType, Map<String, List<String>> headers, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.body = body;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+    }
+}
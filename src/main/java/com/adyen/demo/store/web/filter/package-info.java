@@ -0,0 +1,4 @@
+/**
+ * Servlet filters.
+ */
+package com.adyen.demo.store.web.filter;
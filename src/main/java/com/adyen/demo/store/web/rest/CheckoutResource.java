@@ -1,36 +1,40 @@
 package com.adyen.demo.store.web.rest;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.net.URL;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import javax.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.view.RedirectView;
-import com.adyen.Client;
+import com.adyen.demo.store.domain.Money;
 import com.adyen.demo.store.domain.ShoppingCart;
 import com.adyen.demo.store.domain.enumeration.OrderStatus;
 import com.adyen.demo.store.security.SecurityUtils;
+import com.adyen.demo.store.service.AdyenService;
+import com.adyen.demo.store.service.PaymentMethodsCache;
 import com.adyen.demo.store.service.ShoppingCartService;
 import com.adyen.demo.store.web.rest.errors.EntityNotFoundException;
-import com.adyen.enums.Environment;
 import com.adyen.model.Amount;
 import com.adyen.model.checkout.*;
 import com.adyen.model.modification.CancelOrRefundRequest;
 import com.adyen.model.modification.ModificationResult;
-import com.adyen.service.Checkout;
-import com.adyen.service.Modification;
-import com.adyen.service.exception.ApiException;
 
 /**
  * REST controller for using Adyen checkout API
+ * <p>
+ * The endpoints that take part in a payment return a {@link CompletableFuture}: the call to Adyen runs on the Adyen
+ * I/O executor and the request thread goes back to the web server meanwhile. The cart updates that follow a call
+ * run on the task executor, so database writes never hold an Adyen I/O thread.
  */
 @RestController
 @RequestMapping("/api")
@@ -42,16 +46,19 @@ public class CheckoutResource {
     @Value("${ADYEN_CLIENT_KEY}")
     private String clientKey;
 
-    private final Checkout checkout;
-    private final Modification modification;
+    private final AdyenService adyenService;
     private final ShoppingCartService shoppingCartService;
-
-    public CheckoutResource(final ShoppingCartService shoppingCartService,
-                            @Value("${ADYEN_API_KEY}") String apiKey) {
+    private final PaymentMethodsCache paymentMethodsCache;
+    private final Executor taskExecutor;
+
+    public CheckoutResource(final AdyenService adyenService,
+                            final ShoppingCartService shoppingCartService,
+                            final PaymentMethodsCache paymentMethodsCache,
+                            @Qualifier("taskExecutor") final Executor taskExecutor) {
+        this.adyenService = adyenService;
         this.shoppingCartService = shoppingCartService;
-        Client client = new Client(apiKey, Environment.TEST);
-        this.checkout = new Checkout(client);
-        this.modification = new Modification(client);
+        this.paymentMethodsCache = paymentMethodsCache;
+        this.taskExecutor = taskExecutor;
     }
 
     /**
@@ -71,13 +78,11 @@ public class CheckoutResource {
     /**
      * {@code POST  /checkout/payment-methods} : Get valid payment methods.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (Ok)} and with body the paymentMethods response.
+     * @return the future {@link ResponseEntity} with status {@code 200 (Ok)} and with body the paymentMethods response.
      * @throws EntityNotFoundException when user is not found.
-     * @throws IOException             from Adyen API.
-     * @throws ApiException            from Adyen API.
      */
     @PostMapping("/checkout/payment-methods")
-    public ResponseEntity<PaymentMethodsResponse> paymentMethods() throws IOException, ApiException {
+    public CompletableFuture<ResponseEntity<PaymentMethodsResponse>> paymentMethods() {
         PaymentMethodsRequest paymentMethodsRequest = new PaymentMethodsRequest();
         paymentMethodsRequest.setMerchantAccount(merchantAccount);
         paymentMethodsRequest.setCountryCode("NL");
@@ -87,21 +92,20 @@ public class CheckoutResource {
         Amount amount = getAmountFromCart(getUserCart());
         paymentMethodsRequest.setAmount(amount);
         log.debug("REST request to get Adyen payment methods {}", paymentMethodsRequest);
-        PaymentMethodsResponse response = checkout.paymentMethods(paymentMethodsRequest);
-        return ResponseEntity.ok()
-            .body(response);
+        return paymentMethodsCache.get(paymentMethodsRequest, () -> adyenService.paymentMethods(paymentMethodsRequest))
+            .thenApply(response -> ResponseEntity.ok()
+                .body(response));
     }
 
     /**
      * {@code POST  /checkout/initiate-payment} : Make a payment.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (Ok)} and with req the paymentMethods response.
+     * @return the future {@link ResponseEntity} with status {@code 200 (Ok)} and with req the paymentMethods response.
      * @throws EntityNotFoundException when user is not found.
-     * @throws IOException             from Adyen API.
-     * @throws ApiException            from Adyen API.
+     * @throws IOException             when the referer is not a URL.
      */
     @PostMapping("/checkout/initiate-payment")
-    public ResponseEntity<PaymentsResponse> payments(@RequestHeader("referer") String referer, @RequestBody PaymentsRequest req, HttpServletRequest request) throws IOException, ApiException {
+    public CompletableFuture<ResponseEntity<PaymentsResponse>> payments(@RequestHeader("referer") String referer, @RequestBody PaymentsRequest req, HttpServletRequest request) throws IOException {
         PaymentsRequest paymentRequest = new PaymentsRequest();
         paymentRequest.setMerchantAccount(merchantAccount);
         paymentRequest.setCountryCode("NL");
@@ -109,7 +113,10 @@ public class CheckoutResource {
         paymentRequest.setChannel(PaymentsRequest.ChannelEnum.WEB);
         URL refURL = new URL(referer);
         String originalHost = refURL.getProtocol() + "://" + refURL.getHost() + (refURL.getPort() >= 80 ? ":" + refURL.getPort() : "");
-        ShoppingCart activeCart = getUserCart();
+        String user = SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new EntityNotFoundException("User"));
+        // write pending cart changes first, so the cart the shopper pays for is the one in the database
+        shoppingCartService.flushActiveCart(user);
+        ShoppingCart activeCart = shoppingCartService.findActiveCartByUser(user);
         String returnUrl = originalHost + "/api/checkout/redirect?cartId=" + activeCart.getId() + "&referer=" + referer + "&paymentType=" + req.getPaymentMethod().getType();
         String orderRef = UUID.randomUUID().toString();
         paymentRequest.setReturnUrl(returnUrl);
@@ -125,72 +132,77 @@ public class CheckoutResource {
 
         paymentRequest.setAmount(getAmountFromCart(activeCart));
         log.debug("REST request to make Adyen payment {}", paymentRequest);
-        PaymentsResponse response = checkout.payments(paymentRequest);
-
-        return ResponseEntity.ok()
-            .body(response);
+        return adyenService.payments(paymentRequest)
+            .thenApply(response -> ResponseEntity.ok()
+                .body(response));
     }
 
     /**
      * {@code POST  /checkout/submit-additional-details} : Make a payment.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (Ok)} and with body the paymentMethods response.
-     * @throws EntityNotFoundException when user is not found.
-     * @throws IOException             from Adyen API.
-     * @throws ApiException            from Adyen API.
+     * @return the future {@link ResponseEntity} with status {@code 200 (Ok)} and with body the paymentMethods response.
      */
     @PostMapping("/checkout/submit-additional-details")
-    public ResponseEntity<PaymentsDetailsResponse> payments(@RequestBody PaymentsDetailsRequest detailsRequest) throws IOException, ApiException {
+    public CompletableFuture<ResponseEntity<PaymentsDetailsResponse>> payments(@RequestBody PaymentsDetailsRequest detailsRequest) {
         log.debug("REST request to make Adyen payment details {}", detailsRequest);
-        PaymentsDetailsResponse response = checkout.paymentsDetails(detailsRequest);
-        return ResponseEntity.ok()
-            .body(response);
+        return adyenService.paymentsDetails(detailsRequest)
+            .thenApply(response -> ResponseEntity.ok()
+                .body(response));
     }
 
     /**
      * {@code POST  /checkout/refund-payment} : Cancel & Refund a payment.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (Ok)} and with body the paymentMethods response.
-     * @throws EntityNotFoundException when user is not found.
-     * @throws IOException             from Adyen API.
-     * @throws ApiException            from Adyen API.
+     * @return the future {@link ResponseEntity} with status {@code 200 (Ok)} and with body the paymentMethods response,
+     * or with status {@code 404 (Not Found)} if the cart is not found.
      */
     @PostMapping("/checkout/refund-payment")
-    public ResponseEntity<ModificationResult> refund(@RequestBody ShoppingCart cart) throws IOException, ApiException {
+    public CompletableFuture<ResponseEntity<ModificationResult>> refund(@RequestBody ShoppingCart cart) {
         log.debug("REST request to cancel payment {}", cart);
         CancelOrRefundRequest req = new CancelOrRefundRequest();
         req.setMerchantAccount(merchantAccount);
         req.setOriginalReference(cart.getPaymentReference());
         req.setReference(UUID.randomUUID().toString());
-        ModificationResult modificationResult = modification.cancelOrRefund(req);
-        // update the shopping cart with ref & status
-        cart = shoppingCartService.findOne(cart.getId()).orElseThrow(() -> new EntityNotFoundException("Cart"));
-        cart.setStatus(OrderStatus.REFUND_INITIATED);
-        cart.setPaymentModificationReference(modificationResult.getPspReference());
-        shoppingCartService.save(cart);
-
-        return ResponseEntity.ok()
-            .body(modificationResult);
+        Long cartId = cart.getId();
+        return adyenService.cancelOrRefund(req)
+            .thenApplyAsync(modificationResult -> {
+                // update the shopping cart with ref & status
+                try {
+                    shoppingCartService.updateCartWithRefund(cartId, modificationResult.getPspReference());
+                } catch (javax.persistence.EntityNotFoundException e) {
+                    throw new EntityNotFoundException("Cart");
+                }
+                return ResponseEntity.ok()
+                    .body(modificationResult);
+            }, taskExecutor);
     }
 
     /**
      * {@code GET  /checkout/redirect} : Handle redirect during payment.
      *
-     * @return the {@link RedirectView} with status {@code 302}
-     * @throws IOException  from Adyen API.
-     * @throws ApiException from Adyen API.
+     * @return the future {@link RedirectView} with status {@code 302}
      */
     @GetMapping("/checkout/redirect")
-    public RedirectView redirect(@RequestParam String redirectResult, @RequestParam String cartId, @RequestParam String referer, @RequestParam String paymentType) throws IOException, ApiException {
+    public CompletableFuture<RedirectView> redirect(@RequestParam String redirectResult, @RequestParam String cartId, @RequestParam String referer, @RequestParam String paymentType) {
         PaymentsDetailsRequest detailsRequest = new PaymentsDetailsRequest();
         detailsRequest.setDetails(Collections.singletonMap("redirectResult", redirectResult));
         return getRedirectView(Long.valueOf(cartId), referer, paymentType, detailsRequest);
     }
 
-    private RedirectView getRedirectView(final Long cartId, final String referer, final String paymentType, final PaymentsDetailsRequest detailsRequest) throws ApiException, IOException {
+    private CompletableFuture<RedirectView> getRedirectView(final Long cartId, final String referer, final String paymentType, final PaymentsDetailsRequest detailsRequest) {
         log.debug("REST request to handle payment redirect {}", detailsRequest);
 
-        PaymentsDetailsResponse response = checkout.paymentsDetails(detailsRequest);
+        return adyenService.paymentsDetails(detailsRequest)
+            .thenApplyAsync(response -> {
+                try {
+                    return getRedirectView(cartId, referer, paymentType, response);
+                } catch (javax.persistence.EntityNotFoundException e) {
+                    throw new EntityNotFoundException("Cart");
+                }
+            }, taskExecutor);
+    }
+
+    private RedirectView getRedirectView(final Long cartId, final String referer, final String paymentType, final PaymentsDetailsResponse response) {
         String redirectURL = referer + "/status/";
         switch (response.getResultCode()) {
             case AUTHORISED:
@@ -218,13 +230,10 @@ public class CheckoutResource {
     }
 
     private Amount getAmountFromCart(ShoppingCart activeCart) {
+        Money total = activeCart.getTotalPrice();
         Amount amount = new Amount();
-        amount.setCurrency("EUR");
-        amount.setValue(toMinorUnit(activeCart.getTotalPrice()));
+        amount.setCurrency(total.getCurrency());
+        amount.setValue(total.getAmount());
         return amount;
     }
-
-    private Long toMinorUnit(BigDecimal val) {
-        return val.longValue() * 100L;
-    }
 }
@@ -2,10 +2,15 @@ package com.adyen.demo.store.web.rest;
 
 import com.adyen.demo.store.domain.CustomerDetails;
 import com.adyen.demo.store.repository.CustomerDetailsRepository;
+import com.adyen.demo.store.repository.Keyset;
 import com.adyen.demo.store.service.CustomerDetailsService;
 import com.adyen.demo.store.web.rest.errors.BadRequestAlertException;
+import com.adyen.demo.store.web.rest.util.KeysetPaginationUtil;
+import com.adyen.demo.store.web.rest.util.SlicePaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -16,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -36,6 +42,10 @@ public class CustomerDetailsResource {
 
     private static final String ENTITY_NAME = "customerDetails";
 
+    private static final List<String> KEYSET_PROPERTIES = Collections.unmodifiableList(
+        Arrays.asList("id", "gender", "phone", "city", "country")
+    );
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -141,13 +151,40 @@ public class CustomerDetailsResource {
 
     /**
      * {@code GET  /customer-details} : get all the customerDetails.
+     * <p>
+     * When {@code after} is present, even empty, the page is read with a keyset instead of an offset.
      *
      * @param pageable the pagination information.
+     * @param after the cursor of the page to read, in keyset mode.
+     * @param count whether to send the total number of entities in {@code X-Total-Count}.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of customerDetails in body.
      */
     @GetMapping("/customer-details")
-    public ResponseEntity<List<CustomerDetails>> getAllCustomerDetails(Pageable pageable) {
+    public ResponseEntity<List<CustomerDetails>> getAllCustomerDetails(
+        Pageable pageable,
+        @RequestParam(value = KeysetPaginationUtil.CURSOR_PARAMETER, required = false) String after,
+        @RequestParam(value = SlicePaginationUtil.COUNT_PARAMETER, defaultValue = "false") boolean count
+    ) {
         log.debug("REST request to get a page of CustomerDetails");
+        if (after != null) {
+            Keyset keyset = KeysetPaginationUtil.parse(after, pageable, KEYSET_PROPERTIES, ENTITY_NAME);
+            Slice<CustomerDetails> slice = KeysetPaginationUtil.read(
+                keyset,
+                k -> customerDetailsService.findAllAfter(k, pageable.getPageSize()),
+                ENTITY_NAME
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                keyset,
+                slice
+            );
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
+        if (!count) {
+            Slice<CustomerDetails> slice = customerDetailsService.findSlice(pageable);
+            HttpHeaders headers = SlicePaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
         Page<CustomerDetails> page = customerDetailsService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
@@ -0,0 +1,80 @@
+package com.adyen.demo.store.web.rest;
+
+import com.adyen.demo.store.service.GuestCartService;
+import com.adyen.demo.store.service.dto.CartDTO;
+import com.adyen.demo.store.service.dto.CartItemChangeDTO;
+import com.adyen.demo.store.web.rest.errors.BadRequestAlertException;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for the carts of guests, held by the client in a signed token.
+ */
+@RestController
+@RequestMapping("/api")
+public class GuestCartResource {
+
+    /**
+     * The header carrying the guest cart token, in requests and in the responses that change the cart.
+     */
+    public static final String GUEST_CART_HEADER = "X-Guest-Cart";
+
+    private static final String ENTITY_NAME = "shoppingCart";
+
+    private final Logger log = LoggerFactory.getLogger(GuestCartResource.class);
+
+    private final GuestCartService guestCartService;
+
+    public GuestCartResource(GuestCartService guestCartService) {
+        this.guestCartService = guestCartService;
+    }
+
+    /**
+     * {@code GET  /guest-cart} : get the cart of a guest.
+     *
+     * @param token the guest cart token, if the guest has a cart.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cart, empty if the token is
+     * missing, invalid or expired.
+     */
+    @GetMapping("/guest-cart")
+    public ResponseEntity<CartDTO> getGuestCart(@RequestHeader(value = GUEST_CART_HEADER, required = false) String token) {
+        log.debug("REST request to get guest ShoppingCart");
+        return ResponseEntity.ok().body(new CartDTO(guestCartService.getCart(token)));
+    }
+
+    /**
+     * {@code PATCH  /guest-cart} : Change the quantities of several products in the cart of a guest.
+     *
+     * @param token   the guest cart token, if the guest has a cart.
+     * @param changes the products and the number of units to add, or to remove when negative.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, with the token of the updated cart in the
+     * {@value #GUEST_CART_HEADER} header and with body the updated cart,
+     * or with status {@code 400 (Bad Request)} if the changes are not valid, refer to an unknown product or make the cart
+     * or one of its lines too large.
+     */
+    @PatchMapping("/guest-cart")
+    public ResponseEntity<CartDTO> updateGuestCart(
+        @RequestHeader(value = GUEST_CART_HEADER, required = false) String token,
+        @RequestBody List<CartItemChangeDTO> changes
+    ) {
+        log.debug("REST request to change products of guest ShoppingCart : {}", changes);
+        if (changes.isEmpty()) {
+            throw new BadRequestAlertException("No changes", ENTITY_NAME, "changesempty");
+        }
+        if (changes.stream().anyMatch(change -> change == null || change.getProductId() == null || change.getQuantityDelta() == null)) {
+            throw new BadRequestAlertException("A change needs a productId and a quantityDelta", ENTITY_NAME, "changeinvalid");
+        }
+        String updated;
+        try {
+            updated = guestCartService.updateProducts(token, changes);
+        } catch (javax.persistence.EntityNotFoundException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "productnotfound");
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "guestcartfull");
+        }
+        return ResponseEntity.ok().header(GUEST_CART_HEADER, updated).body(new CartDTO(guestCartService.getCart(updated)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.adyen.demo.store.web.rest;
+
+import com.adyen.demo.store.security.AuthoritiesConstants;
+import com.adyen.demo.store.service.ProductImportService;
+import com.adyen.demo.store.service.dto.ProductImportReportDTO;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for importing {@link com.adyen.demo.store.domain.Product} in bulk.
+ */
+@RestController
+@RequestMapping("/api")
+public class ProductImportResource {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String CSV_VALUE = "text/csv";
+
+    private final Logger log = LoggerFactory.getLogger(ProductImportResource.class);
+
+    private final ProductImportService productImportService;
+
+    public ProductImportResource(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+
+    /**
+     * {@code POST  /products/import} : Import products from CSV or NDJSON.
+     * <p>
+     * The request body is streamed: CSV with a header line, separated by {@code ;} or {@code ,}, with the columns
+     * of {@code fake-data/product.csv}, or one JSON product per line. The products are imported in the background;
+     * rows failing validation are skipped and reported. The progress of the import can be followed at the returned
+     * location.
+     *
+     * @param request the request to read the products from.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and with body the import report.
+     * @throws IOException if the request body could not be read.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping(value = "/products/import", consumes = { CSV_VALUE, NDJSON_VALUE })
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ProductImportReportDTO> importProducts(HttpServletRequest request) throws IOException, URISyntaxException {
+        log.debug("REST request to import Products as {}", request.getContentType());
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        ProductImportService.Format format = contentType.isCompatibleWith(MediaType.valueOf(CSV_VALUE))
+            ? ProductImportService.Format.CSV
+            : ProductImportService.Format.NDJSON;
+        ProductImportReportDTO report = productImportService.startImport(request.getInputStream(), format);
+        return ResponseEntity.accepted().location(new URI("/api/products/imports/" + report.getId())).body(report);
+    }
+
+    /**
+     * {@code GET  /products/imports} : get the running and most recent product imports.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of import reports in body, latest first.
+     */
+    @GetMapping("/products/imports")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public List<ProductImportReportDTO> getProductImports() {
+        log.debug("REST request to get Product imports");
+        return productImportService.findRecentImports();
+    }
+
+    /**
+     * {@code GET  /products/imports/:id} : get the "id" product import.
+     *
+     * @param id the id of the import.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the import report, or with status
+     * {@code 404 (Not Found)} if the import is unknown or no longer recent.
+     */
+    @GetMapping("/products/imports/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ProductImportReportDTO> getProductImport(@PathVariable String id) {
+        log.debug("REST request to get Product import : {}", id);
+        return ResponseUtil.wrapOrNotFound(productImportService.findImport(id));
+    }
+}
@@ -1,27 +1,60 @@
 package com.adyen.demo.store.web.rest;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.Money;
 import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.repository.Keyset;
 import com.adyen.demo.store.repository.ProductRepository;
 import com.adyen.demo.store.security.AuthoritiesConstants;
+import com.adyen.demo.store.service.CatalogSnapshot;
+import com.adyen.demo.store.service.CatalogSnapshotService;
+import com.adyen.demo.store.service.ImageVariant;
+import com.adyen.demo.store.service.ProductFacetIndex;
+import com.adyen.demo.store.service.ProductFacetService;
+import com.adyen.demo.store.service.ProductSearchService;
 import com.adyen.demo.store.service.ProductService;
+import com.adyen.demo.store.service.ProductSuggestService;
+import com.adyen.demo.store.service.dto.ProductImageDTO;
+import com.adyen.demo.store.service.dto.ProductSuggestionDTO;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
 import com.adyen.demo.store.web.rest.errors.BadRequestAlertException;
+import com.adyen.demo.store.web.rest.util.KeysetPaginationUtil;
+import com.adyen.demo.store.web.rest.util.SlicePaginationUtil;
+import io.undertow.servlet.spec.ServletOutputStreamImpl;
 
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -38,6 +71,14 @@ public class ProductResource {
 
     private static final String ENTITY_NAME = "product";
 
+    static final String ITEM_SIZE_FACET_HEADER = "X-Facet-Item-Size";
+
+    static final String CATEGORY_FACET_HEADER = "X-Facet-Product-Category";
+
+    private static final List<String> KEYSET_PROPERTIES = Collections.unmodifiableList(
+        Arrays.asList("id", "name", "price.amount", "itemSize", "productCategory.id")
+    );
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -45,9 +86,32 @@ public class ProductResource {
 
     private final ProductRepository productRepository;
 
-    public ProductResource(ProductService productService, ProductRepository productRepository) {
+    private final ApplicationProperties applicationProperties;
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    private final ProductSearchService productSearchService;
+
+    private final ProductFacetService productFacetService;
+
+    private final ProductSuggestService productSuggestService;
+
+    public ProductResource(
+        ProductService productService,
+        ProductRepository productRepository,
+        ApplicationProperties applicationProperties,
+        CatalogSnapshotService catalogSnapshotService,
+        ProductSearchService productSearchService,
+        ProductFacetService productFacetService,
+        ProductSuggestService productSuggestService
+    ) {
         this.productService = productService;
         this.productRepository = productRepository;
+        this.applicationProperties = applicationProperties;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.productSearchService = productSearchService;
+        this.productFacetService = productFacetService;
+        this.productSuggestService = productSuggestService;
     }
 
     /**
@@ -144,18 +208,137 @@ public class ProductResource {
 
     /**
      * {@code GET  /products} : get all the products.
+     * <p>
+     * When any of {@code itemSize}, {@code category}, {@code minPrice} or {@code maxPrice} is present, the products
+     * are filtered with the facet index, and the number of matching products of each size and category is sent in
+     * the {@code X-Facet-Item-Size} and {@code X-Facet-Product-Category} headers, as {@code key=count} lists. Each
+     * facet is counted with the other filters applied. When {@code after} is present, even empty, the page is read
+     * with a keyset instead of an offset. Otherwise pages in the sort orders the shop offers are served
+     * pre-serialized from the catalog snapshot.
      *
      * @param pageable the pagination information.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of products in body.
+     * @param itemSize the sizes to filter by, if any.
+     * @param category the ids of the categories to filter by, if any.
+     * @param minPrice the lowest price to filter by, inclusive, if any.
+     * @param maxPrice the highest price to filter by, inclusive, if any.
+     * @param after the cursor of the page to read, in keyset mode.
+     * @param count whether to send the total number of entities in {@code X-Total-Count}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of product summaries in body,
+     * or with status {@code 400 (Bad Request)} if the price range is invalid.
      */
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getAllProducts(Pageable pageable) {
+    public ResponseEntity<?> getAllProducts(
+        Pageable pageable,
+        @RequestParam(value = "itemSize", required = false) List<Size> itemSize,
+        @RequestParam(value = "category", required = false) List<Long> category,
+        @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+        @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+        @RequestParam(value = KeysetPaginationUtil.CURSOR_PARAMETER, required = false) String after,
+        @RequestParam(value = SlicePaginationUtil.COUNT_PARAMETER, defaultValue = "false") boolean count
+    ) {
         log.debug("REST request to get a page of Products");
-        Page<Product> page = productService.findAll(pageable);
+        if (itemSize != null || category != null || minPrice != null || maxPrice != null) {
+            if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+                throw new BadRequestAlertException("Invalid price range", ENTITY_NAME, "pricerangeinvalid");
+            }
+            ProductFacetIndex.FacetedPage result = productFacetService.filter(
+                new ProductFacetIndex.Filter(itemSize, category, minPrice, maxPrice),
+                pageable
+            );
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                result.getPage()
+            );
+            headers.add(ITEM_SIZE_FACET_HEADER, facetHeader(result.getSizeCounts()));
+            headers.add(CATEGORY_FACET_HEADER, facetHeader(result.getCategoryCounts()));
+            return ResponseEntity.ok().headers(headers).body(result.getPage().getContent());
+        }
+        if (after != null) {
+            Keyset keyset = KeysetPaginationUtil.parse(after, byPriceAmount(pageable), KEYSET_PROPERTIES, ENTITY_NAME);
+            Slice<ProductSummaryDTO> slice = KeysetPaginationUtil.read(
+                keyset,
+                k -> productService.findAllSummariesAfter(k, pageable.getPageSize()),
+                ENTITY_NAME
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                keyset,
+                slice
+            );
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
+        Optional<CatalogSnapshot.CatalogPage> snapshotPage = catalogSnapshotService.findPage(pageable);
+        if (snapshotPage.isPresent()) {
+            Page<ProductSummaryDTO> page = snapshotPage.get().getPage();
+            HttpHeaders headers = count
+                ? PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page)
+                : SlicePaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+            return ResponseEntity.ok().headers(headers).contentType(MediaType.APPLICATION_JSON).body(snapshotPage.get().getJson());
+        }
+        if (!count) {
+            Slice<ProductSummaryDTO> slice = productService.findSummarySlice(byPriceAmount(pageable));
+            HttpHeaders headers = SlicePaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
+        Page<ProductSummaryDTO> page = productService.findAllSummaries(byPriceAmount(pageable));
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * The price is a {@link Money}, stored as an amount and a currency: the database sorts by the amount, as all
+     * products are priced in the same currency.
+     */
+    private static Pageable byPriceAmount(Pageable pageable) {
+        Sort sort = Sort.by(
+            pageable
+                .getSort()
+                .stream()
+                .map(order -> "price".equals(order.getProperty()) ? order.withProperty("price.amount") : order)
+                .collect(Collectors.toList())
+        );
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+    }
+
+    /**
+     * {@code SEARCH  /_search/products?q=:query} : search for the products matching the query.
+     *
+     * @param query the free text query, matched against product names, category names and descriptions.
+     * @param pageable the pagination information; hits are sorted by relevance.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of product summaries in body,
+     * or with status {@code 400 (Bad Request)} if the query is blank.
+     */
+    @GetMapping("/_search/products")
+    public ResponseEntity<List<ProductSummaryDTO>> searchProducts(@RequestParam("q") String query, Pageable pageable) {
+        log.debug("REST request to search for a page of Products for query {}", query);
+        if (query.trim().isEmpty()) {
+            throw new BadRequestAlertException("Empty search query", ENTITY_NAME, "queryempty");
+        }
+        Page<ProductSummaryDTO> page = productSearchService.search(query, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /_suggest/products?prefix=:prefix} : suggest product names as the shopper types.
+     *
+     * @param prefix the start of a product name, or of one of its words.
+     * @param limit the maximum number of suggestions.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the suggestions in body, most ordered first,
+     * or with status {@code 400 (Bad Request)} if the limit is not positive.
+     */
+    @GetMapping("/_suggest/products")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(
+        @RequestParam("prefix") String prefix,
+        @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        log.debug("REST request to suggest Products for prefix {}", prefix);
+        if (limit < 1) {
+            throw new BadRequestAlertException("Invalid suggestion limit", ENTITY_NAME, "limitinvalid");
+        }
+        return ResponseEntity.ok(productSuggestService.suggest(prefix, limit));
+    }
+
     /**
      * {@code GET  /products/:id} : get the "id" product.
      *
@@ -163,12 +346,78 @@ public class ProductResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the product, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/products/{id}")
-    public ResponseEntity<Product> getProduct(@PathVariable Long id) {
+    public ResponseEntity<?> getProduct(@PathVariable Long id) {
         log.debug("REST request to get Product : {}", id);
+        Optional<byte[]> json = catalogSnapshotService.findProductJson(id);
+        if (json.isPresent()) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json.get());
+        }
         Optional<Product> product = productService.findOne(id);
         return ResponseUtil.wrapOrNotFound(product);
     }
 
+    /**
+     * {@code GET  /products/:id/image} : get the image of the "id" product.
+     * <p>
+     * On Undertow the file is handed to the connection with {@link ServletOutputStreamImpl#transferFrom}, which
+     * lets the connection send it with {@code sendfile}; other containers get a plain copy. The image hash is
+     * used as a strong ETag; when the request carries the current hash as {@code v} parameter the response is
+     * marked immutable, otherwise clients have to revalidate.
+     *
+     * @param id          the id of the product whose image to retrieve.
+     * @param size        the resized variant to get ({@code thumbnail}, {@code listing} or {@code detail}), if any.
+     * @param version     the image hash the client expects, if any.
+     * @param ifNoneMatch the ETag the client already holds, if any.
+     * @param response    the response to stream the image to.
+     * @throws IOException if the image could not be read or written.
+     */
+    @GetMapping("/products/{id}/image")
+    public void getProductImage(
+        @PathVariable Long id,
+        @RequestParam(value = "size", required = false) String size,
+        @RequestParam(value = "v", required = false) String version,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+        HttpServletResponse response
+    ) throws IOException {
+        log.debug("REST request to get image of Product : {}, {}", id, size);
+        ImageVariant variant = null;
+        if (size != null) {
+            variant = ImageVariant.fromLabel(size);
+            if (variant == null) {
+                throw new BadRequestAlertException("Invalid image size", ENTITY_NAME, "imagesizeinvalid");
+            }
+        }
+        Optional<ProductImageDTO> image = productService.findImage(id, variant);
+        if (!image.isPresent()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String eTag = image.get().getETag();
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        if (image.get().getHash().equals(version)) {
+            response.setHeader(
+                HttpHeaders.CACHE_CONTROL,
+                "public, max-age=" + applicationProperties.getImageStore().getMaxAgeSeconds() + ", immutable"
+            );
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+        if (eTag.equals(ifNoneMatch)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(image.get().getPath(), StandardOpenOption.READ)) {
+            response.setContentType(image.get().getContentType() != null ? image.get().getContentType() : "application/octet-stream");
+            response.setContentLengthLong(channel.size());
+            ServletOutputStream out = response.getOutputStream();
+            if (out instanceof ServletOutputStreamImpl) {
+                ((ServletOutputStreamImpl) out).transferFrom(channel);
+            } else {
+                Channels.newInputStream(channel).transferTo(out);
+            }
+        }
+    }
+
     /**
      * {@code DELETE  /products/:id} : delete the "id" product.
      *
@@ -185,4 +434,8 @@ public class ProductResource {
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString()))
             .build();
     }
+
+    private static String facetHeader(Map<?, Long> counts) {
+        return counts.entrySet().stream().map(facet -> facet.getKey() + "=" + facet.getValue()).collect(Collectors.joining(","));
+    }
 }
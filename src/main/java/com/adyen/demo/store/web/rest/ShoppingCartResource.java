@@ -2,6 +2,7 @@ package com.adyen.demo.store.web.rest;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -10,17 +11,29 @@ import javax.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import com.adyen.demo.store.domain.ShoppingCart;
 import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.repository.Keyset;
 import com.adyen.demo.store.repository.ShoppingCartRepository;
 import com.adyen.demo.store.security.AuthoritiesConstants;
 import com.adyen.demo.store.security.SecurityUtils;
 import com.adyen.demo.store.service.ShoppingCartService;
+import com.adyen.demo.store.service.dto.CartDTO;
+import com.adyen.demo.store.service.dto.CartItemChangeDTO;
+import com.adyen.demo.store.service.dto.CartLineDTO;
+import com.adyen.demo.store.service.dto.CartSummaryDTO;
 import com.adyen.demo.store.web.rest.errors.BadRequestAlertException;
 import com.adyen.demo.store.web.rest.errors.EntityNotFoundException;
+import com.adyen.demo.store.web.rest.util.KeysetPaginationUtil;
 
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.ResponseUtil;
@@ -36,6 +49,10 @@ public class ShoppingCartResource {
 
     private static final String ENTITY_NAME = "shoppingCart";
 
+    private static final Sort HISTORY_SORT = Sort.by(Sort.Direction.DESC, "placedDate");
+
+    private static final List<String> HISTORY_KEYSET_PROPERTIES = Collections.singletonList("placedDate");
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -190,42 +207,114 @@ public class ShoppingCartResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the shoppingCart, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/shopping-carts/current-user-active")
-    public ResponseEntity<ShoppingCart> getActiveShoppingCartByUser() {
+    public ResponseEntity<CartDTO> getActiveShoppingCartByUser() {
         String user = SecurityUtils.getCurrentUserLogin().orElse("");
         log.debug("REST request to get ShoppingCart for user: {}", user);
-        return ResponseEntity.ok().body(shoppingCartService.findActiveCartByUser(user));
+        return ResponseEntity.ok().body(new CartDTO(shoppingCartService.findActiveCartByUser(user)));
     }
 
     /**
-     * {@code GET  /shopping-carts/current-user} : get all shoppingCarts of current user.
+     * {@code GET  /shopping-carts/current-user} : get the order history of current user, newest first.
+     * <p>
+     * The history is paged with a keyset on the placed date: the next page is found in the {@code rel="next"} link.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the shoppingCart, or with status {@code 404 (Not Found)}.
+     * @param pageable the pagination information, only its size is used.
+     * @param after the cursor of the page to read, absent for the first page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of cart summaries in body.
      */
     @GetMapping("/shopping-carts/current-user")
-    public List<ShoppingCart> getShoppingCartByUser() {
+    public ResponseEntity<List<CartSummaryDTO>> getShoppingCartByUser(
+        Pageable pageable,
+        @RequestParam(value = KeysetPaginationUtil.CURSOR_PARAMETER, required = false) String after
+    ) {
         String user = SecurityUtils.getCurrentUserLogin().orElse("");
-        log.debug("REST request to get ShoppingCart for user: {}", user);
-        return shoppingCartService.findCartsByUser(user);
+        log.debug("REST request to get ShoppingCarts for user: {}", user);
+        Keyset keyset = KeysetPaginationUtil.parse(
+            after,
+            PageRequest.of(0, pageable.getPageSize(), HISTORY_SORT),
+            HISTORY_KEYSET_PROPERTIES,
+            ENTITY_NAME
+        );
+        Slice<CartSummaryDTO> slice = KeysetPaginationUtil.read(
+            keyset,
+            k -> shoppingCartService.findCartsByUser(user, k, pageable.getPageSize()),
+            ENTITY_NAME
+        );
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            keyset,
+            slice
+        );
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
     }
 
+    /**
+     * {@code GET  /shopping-carts/current-user/:id/orders} : get the lines of a shoppingCart of current user.
+     *
+     * @param id the id of the shoppingCart.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the lines, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/shopping-carts/current-user/{id}/orders")
+    public ResponseEntity<List<CartLineDTO>> getShoppingCartLinesByUser(@PathVariable Long id) {
+        String user = SecurityUtils.getCurrentUserLogin().orElse("");
+        log.debug("REST request to get the lines of ShoppingCart {} for user: {}", id, user);
+        return ResponseUtil.wrapOrNotFound(shoppingCartService.findCartLinesByUser(id, user));
+    }
 
     /**
      * {@code PUT /shopping-carts/add-product/:id} : Add a product to active shoppingCart of current user
      *
      * @param id the id of the product to add.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated shoppingCart,
-     * or with status {@code 400 (Bad Request)} if the shoppingCart is not valid,
+     * or with status {@code 400 (Bad Request)} if the shoppingCart is not valid or already holds the most units of the product,
      * or with status {@code 500 (Internal Server Error)} if the shoppingCart couldn't be updated.
      * @throws EntityNotFoundException if the product is not found.
      */
     @PutMapping("/shopping-carts/add-product/{id}")
-    public ResponseEntity<ShoppingCart> addProduct(@PathVariable Long id) throws EntityNotFoundException {
+    public ResponseEntity<CartDTO> addProduct(@PathVariable Long id) throws EntityNotFoundException {
         log.debug("REST request to add product to ShoppingCart");
         String user = SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new EntityNotFoundException("User"));
-        ShoppingCart result = shoppingCartService.addProductForUser(id, user);
+        ShoppingCart result;
+        try {
+            result = shoppingCartService.addProductForUser(id, user);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "quantityinvalid");
+        }
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
-            .body(result);
+            .body(new CartDTO(result));
+    }
+
+    /**
+     * {@code PATCH /shopping-carts/current-user-active} : Change the quantities of several products in the active shoppingCart of current user
+     *
+     * @param changes the products and the number of units to add, or to remove when negative.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated shoppingCart,
+     * or with status {@code 400 (Bad Request)} if the changes are not valid, refer to an unknown product or exceed the units a line holds,
+     * or with status {@code 500 (Internal Server Error)} if the shoppingCart couldn't be updated.
+     * @throws EntityNotFoundException if the user is not found.
+     */
+    @PatchMapping("/shopping-carts/current-user-active")
+    public ResponseEntity<CartDTO> updateActiveShoppingCart(@RequestBody List<CartItemChangeDTO> changes) throws EntityNotFoundException {
+        log.debug("REST request to change products of ShoppingCart : {}", changes);
+        if (changes.isEmpty()) {
+            throw new BadRequestAlertException("No changes", ENTITY_NAME, "changesempty");
+        }
+        if (changes.stream().anyMatch(change -> change == null || change.getProductId() == null || change.getQuantityDelta() == null)) {
+            throw new BadRequestAlertException("A change needs a productId and a quantityDelta", ENTITY_NAME, "changeinvalid");
+        }
+        String user = SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new EntityNotFoundException("User"));
+        ShoppingCart result;
+        try {
+            result = shoppingCartService.updateProductsForUser(changes, user);
+        } catch (javax.persistence.EntityNotFoundException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "productnotfound");
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "quantityinvalid");
+        }
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+            .body(new CartDTO(result));
     }
 
     /**
@@ -238,13 +327,13 @@ public class ShoppingCartResource {
      * @throws EntityNotFoundException if the order is not found.
      */
     @DeleteMapping("/shopping-carts/remove-order/{id}")
-    public ResponseEntity<ShoppingCart> removeOrder(@PathVariable Long id) throws EntityNotFoundException {
+    public ResponseEntity<CartDTO> removeOrder(@PathVariable Long id) throws EntityNotFoundException {
         log.debug("REST request to remove product order from ShoppingCart");
         String user = SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new EntityNotFoundException("User"));
         ShoppingCart result = shoppingCartService.removeProductOrderForUser(id, user);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
-            .body(result);
+            .body(new CartDTO(result));
     }
 
     /**
@@ -258,12 +347,12 @@ public class ShoppingCartResource {
      * @throws EntityNotFoundException if the order is not found.
      */
     @PutMapping("/shopping-carts/close")
-    public ResponseEntity<ShoppingCart> closeShoppingCart(@RequestParam String paymentType, @RequestParam String paymentRef, @RequestParam OrderStatus status) throws EntityNotFoundException {
+    public ResponseEntity<CartDTO> closeShoppingCart(@RequestParam String paymentType, @RequestParam String paymentRef, @RequestParam OrderStatus status) throws EntityNotFoundException {
         log.debug("REST request to update ShoppingCart");
         String user = SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new EntityNotFoundException("User"));
         ShoppingCart result = shoppingCartService.updateCartWithPayment(user, paymentType, paymentRef, status);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
-            .body(result);
+            .body(new CartDTO(result));
     }
 }
@@ -2,6 +2,7 @@ package com.adyen.demo.store.web.rest;
 
 import com.adyen.demo.store.security.jwt.JWTFilter;
 import com.adyen.demo.store.security.jwt.TokenProvider;
+import com.adyen.demo.store.service.GuestCartService;
 import com.adyen.demo.store.web.rest.vm.LoginVM;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import javax.validation.Valid;
@@ -25,13 +26,30 @@ public class UserJWTController {
 
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
 
-    public UserJWTController(TokenProvider tokenProvider, AuthenticationManagerBuilder authenticationManagerBuilder) {
+    private final GuestCartService guestCartService;
+
+    public UserJWTController(
+        TokenProvider tokenProvider,
+        AuthenticationManagerBuilder authenticationManagerBuilder,
+        GuestCartService guestCartService
+    ) {
         this.tokenProvider = tokenProvider;
         this.authenticationManagerBuilder = authenticationManagerBuilder;
+        this.guestCartService = guestCartService;
     }
 
+    /**
+     * {@code POST  /authenticate} : Log in, adding the cart the user built as a guest to their active cart.
+     *
+     * @param loginVM    the credentials.
+     * @param guestCart  the guest cart token, if the user has a guest cart.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the JWT.
+     */
     @PostMapping("/authenticate")
-    public ResponseEntity<JWTToken> authorize(@Valid @RequestBody LoginVM loginVM) {
+    public ResponseEntity<JWTToken> authorize(
+        @Valid @RequestBody LoginVM loginVM,
+        @RequestHeader(value = GuestCartResource.GUEST_CART_HEADER, required = false) String guestCart
+    ) {
         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
             loginVM.getUsername(),
             loginVM.getPassword()
@@ -39,6 +57,9 @@ public class UserJWTController {
 
         Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
         SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (guestCart != null) {
+            guestCartService.mergeIntoActiveCart(authentication.getName(), guestCart);
+        }
         String jwt = tokenProvider.createToken(authentication, loginVM.isRememberMe());
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
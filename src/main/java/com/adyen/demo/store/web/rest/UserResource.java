@@ -2,6 +2,7 @@ package com.adyen.demo.store.web.rest;
 
 import com.adyen.demo.store.config.Constants;
 import com.adyen.demo.store.domain.User;
+import com.adyen.demo.store.repository.Keyset;
 import com.adyen.demo.store.repository.UserRepository;
 import com.adyen.demo.store.security.AuthoritiesConstants;
 import com.adyen.demo.store.service.MailService;
@@ -10,6 +11,8 @@ import com.adyen.demo.store.service.dto.AdminUserDTO;
 import com.adyen.demo.store.web.rest.errors.BadRequestAlertException;
 import com.adyen.demo.store.web.rest.errors.EmailAlreadyUsedException;
 import com.adyen.demo.store.web.rest.errors.LoginAlreadyUsedException;
+import com.adyen.demo.store.web.rest.util.KeysetPaginationUtil;
+import com.adyen.demo.store.web.rest.util.SlicePaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -21,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -149,16 +153,41 @@ public class UserResource {
      * {@code GET /admin/users} : get all users with all the details - calling this are only allowed for the administrators.
      *
      * @param pageable the pagination information.
+     * @param after the cursor of the page to read, to page with a keyset instead of an offset.
+     * @param count whether to send the total number of entities in {@code X-Total-Count}.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
      */
     @GetMapping("/users")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<List<AdminUserDTO>> getAllUsers(Pageable pageable) {
+    public ResponseEntity<List<AdminUserDTO>> getAllUsers(
+        Pageable pageable,
+        @RequestParam(value = KeysetPaginationUtil.CURSOR_PARAMETER, required = false) String after,
+        @RequestParam(value = SlicePaginationUtil.COUNT_PARAMETER, defaultValue = "false") boolean count
+    ) {
         log.debug("REST request to get all User for an admin");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
         }
+        if (after != null) {
+            Keyset keyset = KeysetPaginationUtil.parse(after, pageable, ALLOWED_ORDERED_PROPERTIES, "userManagement");
+            Slice<AdminUserDTO> slice = KeysetPaginationUtil.read(
+                keyset,
+                k -> userService.getAllManagedUsersAfter(k, pageable.getPageSize()),
+                "userManagement"
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                keyset,
+                slice
+            );
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
 
+        if (!count) {
+            Slice<AdminUserDTO> slice = userService.getAllManagedUserSlice(pageable);
+            HttpHeaders headers = SlicePaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         final Page<AdminUserDTO> page = userService.getAllManagedUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
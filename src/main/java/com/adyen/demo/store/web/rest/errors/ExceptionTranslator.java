@@ -1,10 +1,12 @@
 package com.adyen.demo.store.web.rest.errors;
 
+import com.adyen.demo.store.service.AdyenUnavailableException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -165,6 +167,21 @@ public class ExceptionTranslator implements ProblemHandling, SecurityAdviceTrait
         return create(ex, problem, request);
     }
 
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleAdyenUnavailable(
+        AdyenUnavailableException ex,
+        NativeWebRequest request
+    ) {
+        Problem problem = Problem.builder().withStatus(Status.SERVICE_UNAVAILABLE).withDetail(ex.getMessage()).build();
+        return create(ex, problem, request);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleTimeout(TimeoutException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder().withStatus(Status.GATEWAY_TIMEOUT).withDetail("Upstream call timed out").build();
+        return create(ex, problem, request);
+    }
+
     @Override
     public ProblemBuilder prepare(final Throwable throwable, final StatusType status, final URI type) {
         Collection<String> activeProfiles = Arrays.asList(env.getActiveProfiles());
@@ -0,0 +1,92 @@
+package com.adyen.demo.store.web.rest.util;
+
+import com.adyen.demo.store.repository.InvalidKeysetException;
+import com.adyen.demo.store.repository.Keyset;
+import com.adyen.demo.store.web.rest.errors.BadRequestAlertException;
+import java.util.Collection;
+import java.util.function.Function;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (cursor) pagination.
+ * <p>
+ * A client opts in by sending an {@code after} request parameter: empty for the first page, then the cursor
+ * found in the {@code rel="next"} link of the previous response. Cursor mode never counts rows, so no
+ * {@code X-Total-Count} header is sent.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String CURSOR_PARAMETER = "after";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Resolve the keyset to read a page from.
+     *
+     * @param after the cursor sent by the client, blank for the first page.
+     * @param pageable the pagination information; only its first sort order is used, and only for the first page.
+     * @param properties the properties the entity can be paged by.
+     * @param entityName the entity name, for error reporting.
+     * @return the keyset.
+     * @throws BadRequestAlertException if the cursor is malformed or its property is not allowed.
+     */
+    public static Keyset parse(String after, Pageable pageable, Collection<String> properties, String entityName) {
+        Keyset keyset;
+        if (after == null || after.trim().isEmpty()) {
+            keyset = Keyset.first(pageable.getSort().stream().findFirst().orElse(null));
+        } else {
+            try {
+                keyset = Keyset.decode(after.trim());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException("Invalid cursor", entityName, "cursorinvalid");
+            }
+        }
+        if (!properties.contains(keyset.getProperty())) {
+            throw new BadRequestAlertException("Invalid cursor", entityName, "cursorinvalid");
+        }
+        return keyset;
+    }
+
+    /**
+     * Read a page from a keyset.
+     *
+     * @param keyset the keyset to read from.
+     * @param reader reads the page following a keyset, typically a service method.
+     * @param entityName the entity name, for error reporting.
+     * @param <T> the type of the page content.
+     * @return the page.
+     * @throws BadRequestAlertException if the last key of the cursor is not a valid key of its property.
+     */
+    public static <T> Slice<T> read(Keyset keyset, Function<Keyset, Slice<T>> reader, String entityName) {
+        try {
+            return reader.apply(keyset);
+        } catch (InvalidKeysetException e) {
+            throw new BadRequestAlertException("Invalid cursor", entityName, "cursorinvalid");
+        }
+    }
+
+    /**
+     * Generate the pagination headers of a keyset page: a {@code Link} to the next page, if there is one.
+     *
+     * @param uriBuilder the builder of the current request URI.
+     * @param keyset the keyset the page was read from.
+     * @param slice the page.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateKeysetHttpHeaders(UriComponentsBuilder uriBuilder, Keyset keyset, Slice<?> slice) {
+        HttpHeaders headers = new HttpHeaders();
+        if (slice.hasNext()) {
+            String next = uriBuilder
+                .replaceQueryParam("page")
+                .replaceQueryParam("sort")
+                .replaceQueryParam(CURSOR_PARAMETER, keyset.after(slice.getContent().get(slice.getNumberOfElements() - 1)).encode())
+                .replaceQueryParam("size", slice.getSize())
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,49 @@
+package com.adyen.demo.store.web.rest.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling pagination without a total count.
+ * <p>
+ * Listings only compute {@code X-Total-Count} when the client asks for it with {@code count=true}; otherwise
+ * they read a {@link Slice} and only advertise the neighbouring pages, in the same {@code Link} format as
+ * {@link tech.jhipster.web.util.PaginationUtil}.
+ */
+public final class SlicePaginationUtil {
+
+    public static final String COUNT_PARAMETER = "count";
+
+    private SlicePaginationUtil() {}
+
+    /**
+     * Generate the pagination headers of a slice: {@code next}, {@code prev} and {@code first} links.
+     *
+     * @param uriBuilder the builder of the current request URI.
+     * @param slice the slice.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateSliceHttpHeaders(UriComponentsBuilder uriBuilder, Slice<?> slice) {
+        int pageNumber = slice.getNumber();
+        int pageSize = slice.getSize();
+        List<String> links = new ArrayList<>();
+        if (slice.hasNext()) {
+            links.add(link(uriBuilder, pageNumber + 1, pageSize, "next"));
+        }
+        if (slice.hasPrevious()) {
+            links.add(link(uriBuilder, pageNumber - 1, pageSize, "prev"));
+        }
+        links.add(link(uriBuilder, 0, pageSize, "first"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LINK, String.join(",", links));
+        return headers;
+    }
+
+    private static String link(UriComponentsBuilder uriBuilder, int pageNumber, int pageSize, String relType) {
+        String uri = uriBuilder.replaceQueryParam("page", pageNumber).replaceQueryParam("size", pageSize).toUriString();
+        return "<" + uri + ">; rel=\"" + relType + "\"";
+    }
+}
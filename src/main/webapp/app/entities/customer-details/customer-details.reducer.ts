@@ -106,7 +106,7 @@ const apiUrl = 'api/customer-details';
 // Actions
 
 export const getEntities: ICrudGetAllAction<ICustomerDetails> = (page, size, sort) => {
-  const requestUrl = `${apiUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}` : ''}`;
+  const requestUrl = `${apiUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}&count=true` : ''}`;
   return {
     type: ACTION_TYPES.FETCH_CUSTOMERDETAILS_LIST,
     payload: axios.get<ICustomerDetails>(`${requestUrl}${sort ? '&' : '?'}cacheBuster=${new Date().getTime()}`),
@@ -106,7 +106,7 @@ const apiUrl = 'api/product-categories';
 // Actions
 
 export const getEntities: ICrudGetAllAction<IProductCategory> = (page, size, sort) => {
-  const requestUrl = `${apiUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}` : ''}`;
+  const requestUrl = `${apiUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}&count=true` : ''}`;
   return {
     type: ACTION_TYPES.FETCH_PRODUCTCATEGORY_LIST,
     payload: axios.get<IProductCategory>(`${requestUrl}${sort ? '&' : '?'}cacheBuster=${new Date().getTime()}`),
@@ -2,13 +2,13 @@ import React, { useEffect } from 'react';
 import { connect } from 'react-redux';
 import { Link, RouteComponentProps } from 'react-router-dom';
 import { Button, Row, Col } from 'reactstrap';
-import { openFile, byteSize } from 'react-jhipster';
 import { FontAwesomeIcon } from '@fortawesome/react-fontawesome';
 
 import { IRootState } from 'app/shared/reducers';
 import { getEntity } from './product.reducer';
 import { AUTHORITIES } from 'app/config/constants';
 import { hasAnyAuthority } from 'app/shared/auth/private-route';
+import { productImageUrl } from 'app/shared/util/image-utils';
 
 export interface IProductDetailProps extends StateProps, DispatchProps, RouteComponentProps<{ id: string }> {}
 
@@ -47,16 +47,12 @@ export const ProductDetail = (props: IProductDetailProps) => {
             <span id="image">Image</span>
           </dt>
           <dd>
-            {productEntity.image ? (
+            {productEntity.imageHash ? (
               <div>
-                {productEntity.imageContentType ? (
-                  <a onClick={openFile(productEntity.imageContentType, productEntity.image)}>
-                    <img src={`data:${productEntity.imageContentType};base64,${productEntity.image}`} style={{ maxHeight: '30px' }} />
-                  </a>
-                ) : null}
-                <span>
-                  {productEntity.imageContentType}, {byteSize(productEntity.image)}
-                </span>
+                <a href={productImageUrl(productEntity)} target="_blank" rel="noopener noreferrer">
+                  <img src={productImageUrl(productEntity, 'detail')} style={{ maxHeight: '300px' }} />
+                </a>
+                <span>{productEntity.imageContentType}</span>
               </div>
             ) : null}
           </dd>
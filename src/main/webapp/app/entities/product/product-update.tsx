@@ -13,6 +13,7 @@ import { getEntity, updateEntity, createEntity, setBlob, reset } from './product
 import { IProduct } from 'app/shared/model/product.model';
 import { convertDateTimeFromServer, convertDateTimeToServer, displayDefaultDateTime } from 'app/shared/util/date-utils';
 import { mapIdList } from 'app/shared/util/entity-utils';
+import { productImageUrl } from 'app/shared/util/image-utils';
 
 export interface IProductUpdateProps extends StateProps, DispatchProps, RouteComponentProps<{ id: string }> {}
 
@@ -21,7 +22,7 @@ export const ProductUpdate = (props: IProductUpdateProps) => {
 
   const { productEntity, productCategories, loading, updating } = props;
 
-  const { image, imageContentType } = productEntity;
+  const { image, imageContentType, imageHash } = productEntity;
 
   const handleClose = () => {
     props.history.push('/product' + props.location.search);
@@ -170,6 +171,21 @@ export const ProductUpdate = (props: IProductUpdateProps) => {
                         </Col>
                       </Row>
                     </div>
+                  ) : imageHash ? (
+                    <div>
+                      <img src={productImageUrl(productEntity, 'listing')} style={{ maxHeight: '100px' }} />
+                      <br />
+                      <Row>
+                        <Col md="11">
+                          <span>{imageContentType}</span>
+                        </Col>
+                        <Col md="1">
+                          <Button color="danger" onClick={clearBlob('image')}>
+                            <FontAwesomeIcon icon="times-circle" />
+                          </Button>
+                        </Col>
+                      </Row>
+                    </div>
                   ) : null}
                   <input id="file_image" data-cy="image" type="file" onChange={onBlobChange(true, 'image')} accept="image/*" />
                   <AvInput type="hidden" name="image" value={image} />
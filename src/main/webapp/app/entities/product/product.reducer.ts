@@ -101,6 +101,7 @@ export default (state: ProductState = initialState, action): ProductState => {
           ...state.entity,
           [name]: data,
           [name + 'ContentType']: contentType,
+          [name + 'Hash']: undefined,
         },
       };
     }
@@ -118,7 +119,7 @@ const apiUrl = 'api/products';
 // Actions
 
 export const getEntities: ICrudGetAllAction<IProduct> = (page, size, sort) => {
-  const requestUrl = `${apiUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}` : ''}`;
+  const requestUrl = `${apiUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}&count=true` : ''}`;
   return {
     type: ACTION_TYPES.FETCH_PRODUCT_LIST,
     payload: axios.get<IProduct>(`${requestUrl}${sort ? '&' : '?'}cacheBuster=${new Date().getTime()}`),
@@ -2,7 +2,7 @@ import React, { useState, useEffect } from 'react';
 import { connect } from 'react-redux';
 import { Link, RouteComponentProps } from 'react-router-dom';
 import { Button, Col, Row, Table } from 'reactstrap';
-import { openFile, byteSize, Translate, getSortState, IPaginationBaseState, JhiPagination, JhiItemCount } from 'react-jhipster';
+import { Translate, getSortState, IPaginationBaseState, JhiPagination, JhiItemCount } from 'react-jhipster';
 import { FontAwesomeIcon } from '@fortawesome/react-fontawesome';
 
 import { IRootState } from 'app/shared/reducers';
@@ -11,6 +11,7 @@ import { IProduct } from 'app/shared/model/product.model';
 import { APP_DATE_FORMAT, APP_LOCAL_DATE_FORMAT } from 'app/config/constants';
 import { ITEMS_PER_PAGE } from 'app/shared/util/pagination.constants';
 import { overridePaginationStateWithQueryParams } from 'app/shared/util/entity-utils';
+import { productImageUrl } from 'app/shared/util/image-utils';
 
 export interface IProductProps extends StateProps, DispatchProps, RouteComponentProps<{ url: string }> {}
 
@@ -103,9 +104,7 @@ export const Product = (props: IProductProps) => {
                 <th className="hand" onClick={sort('itemSize')}>
                   Item Size <FontAwesomeIcon icon="sort" />
                 </th>
-                <th className="hand" onClick={sort('image')}>
-                  Image <FontAwesomeIcon icon="sort" />
-                </th>
+                <th>Image</th>
                 <th>
                   Product Category <FontAwesomeIcon icon="sort" />
                 </th>
@@ -126,17 +125,13 @@ export const Product = (props: IProductProps) => {
                   <td>{product.price}</td>
                   <td>{product.itemSize}</td>
                   <td>
-                    {product.image ? (
+                    {product.imageHash ? (
                       <div>
-                        {product.imageContentType ? (
-                          <a onClick={openFile(product.imageContentType, product.image)}>
-                            <img src={`data:${product.imageContentType};base64,${product.image}`} style={{ maxHeight: '30px' }} />
-                            &nbsp;
-                          </a>
-                        ) : null}
-                        <span>
-                          {product.imageContentType}, {byteSize(product.image)}
-                        </span>
+                        <a href={productImageUrl(product)} target="_blank" rel="noopener noreferrer">
+                          <img src={productImageUrl(product, 'thumbnail')} style={{ maxHeight: '30px' }} />
+                          &nbsp;
+                        </a>
+                        <span>{product.imageContentType}</span>
                       </div>
                     ) : null}
                   </td>
@@ -10,6 +10,7 @@ import { OrderStatus } from 'app/shared/model/enumerations/order-status.model';
 
 export const ACTION_TYPES = {
   FETCH_SHOPPINGCART_LIST: 'shoppingCart/FETCH_SHOPPINGCART_LIST',
+  FETCH_SHOPPINGCART_LIST_NEXT: 'shoppingCart/FETCH_SHOPPINGCART_LIST_NEXT',
   FETCH_SHOPPINGCART: 'shoppingCart/FETCH_SHOPPINGCART',
   CREATE_SHOPPINGCART: 'shoppingCart/CREATE_SHOPPINGCART',
   UPDATE_SHOPPINGCART: 'shoppingCart/UPDATE_SHOPPINGCART',
@@ -24,6 +25,7 @@ const initialState = {
   loading: false,
   errorMessage: null,
   entities: [] as ReadonlyArray<IShoppingCart>,
+  nextCursor: null as string | null,
   entity: defaultValue,
   updating: false,
   updateSuccess: false,
@@ -31,11 +33,18 @@ const initialState = {
 
 export type ShoppingCartState = Readonly<typeof initialState>;
 
+// The cursor of the rel="next" link of a keyset paged response, if there is a next page
+const parseNextCursor = (headers): string | null => {
+  const match = /<[^>]*[?&]after=([^&>]*)[^>]*>;\s*rel="next"/.exec(headers?.link || '');
+  return match ? decodeURIComponent(match[1]) : null;
+};
+
 // Reducer
 
 export default (state: ShoppingCartState = initialState, action): ShoppingCartState => {
   switch (action.type) {
     case REQUEST(ACTION_TYPES.FETCH_SHOPPINGCART_LIST):
+    case REQUEST(ACTION_TYPES.FETCH_SHOPPINGCART_LIST_NEXT):
     case REQUEST(ACTION_TYPES.FETCH_SHOPPINGCART):
       return {
         ...state,
@@ -56,6 +65,7 @@ export default (state: ShoppingCartState = initialState, action): ShoppingCartSt
         updating: true,
       };
     case FAILURE(ACTION_TYPES.FETCH_SHOPPINGCART_LIST):
+    case FAILURE(ACTION_TYPES.FETCH_SHOPPINGCART_LIST_NEXT):
     case FAILURE(ACTION_TYPES.FETCH_SHOPPINGCART):
     case FAILURE(ACTION_TYPES.CREATE_SHOPPINGCART):
     case FAILURE(ACTION_TYPES.UPDATE_SHOPPINGCART):
@@ -75,6 +85,14 @@ export default (state: ShoppingCartState = initialState, action): ShoppingCartSt
         ...state,
         loading: false,
         entities: action.payload.data,
+        nextCursor: parseNextCursor(action.payload.headers),
+      };
+    case SUCCESS(ACTION_TYPES.FETCH_SHOPPINGCART_LIST_NEXT):
+      return {
+        ...state,
+        loading: false,
+        entities: [...state.entities, ...action.payload.data],
+        nextCursor: parseNextCursor(action.payload.headers),
       };
     case SUCCESS(ACTION_TYPES.FETCH_SHOPPINGCART):
       return {
@@ -142,6 +160,14 @@ export const getCartsForCurrentUser: ICrudSearchAction<IShoppingCart> = () => {
   };
 };
 
+export const getNextCartsForCurrentUser = (after: string) => {
+  const requestUrl = `${apiUrl}/current-user?after=${encodeURIComponent(after)}`;
+  return {
+    type: ACTION_TYPES.FETCH_SHOPPINGCART_LIST_NEXT,
+    payload: axios.get<IShoppingCart>(requestUrl)
+  };
+};
+
 export const createEntity: ICrudPutAction<IShoppingCart> = entity => async dispatch => {
   const result = await dispatch({
     type: ACTION_TYPES.CREATE_SHOPPINGCART,
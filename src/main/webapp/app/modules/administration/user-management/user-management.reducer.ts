@@ -122,7 +122,7 @@ export const getUsers: ICrudGetAllAction<IUser> = (page, size, sort) => {
 };
 
 export const getUsersAsAdmin: ICrudGetAllAction<IUser> = (page, size, sort) => {
-  const requestUrl = `${adminUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}` : ''}`;
+  const requestUrl = `${adminUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}&count=true` : ''}`;
   return {
     type: ACTION_TYPES.FETCH_USERS_AS_ADMIN,
     payload: axios.get<IUser>(requestUrl),
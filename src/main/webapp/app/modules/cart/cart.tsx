@@ -34,11 +34,8 @@ export const Cart = (props: ICartProp) => {
                     <div key={`entity-${i}`} className="list-group-item list-group-item-action flex-column align-items-start">
                       <div className="row">
                         <div className="col-2 col-xs-12 justify-content-center">
-                          {order.product && order.product.image ? (
-                            <img
-                              src={`data:${order.product.imageContentType};base64,${order.product.image}`}
-                              style={{ maxHeight: '130px' }}
-                            />
+                          {order.product && order.product.thumbnailUrl ? (
+                            <img src={order.product.thumbnailUrl} style={{ maxHeight: '130px' }} />
                           ) : null}
                         </div>
                         <div className="col col-xs-12">
@@ -13,6 +13,7 @@ import { addProduct } from 'app/entities/shopping-cart/shopping-cart.reducer';
 import { IProductProps } from 'app/entities/product/product';
 import { ITEMS_PER_PAGE } from 'app/shared/util/pagination.constants';
 import { IProduct } from 'app/shared/model/product.model';
+import { productImageUrl } from 'app/shared/util/image-utils';
 
 export interface IHomeProp extends IProductProps, StateProps, DispatchProps {}
 
@@ -105,9 +106,7 @@ export const Home = (props: IHomeProp) => {
                     <div key={`entity-${i}`} className="list-group-item list-group-item-action flex-column align-items-start">
                       <div className="row">
                         <div className="col-2 col-xs-12 justify-content-center">
-                          {product.image ? (
-                            <img src={`data:${product.imageContentType};base64,${product.image}`} style={{ maxHeight: '130px' }} />
-                          ) : null}
+                          {product.imageHash ? <img src={productImageUrl(product, 'listing')} style={{ maxHeight: '130px' }} /> : null}
                         </div>
                         <div className="col col-xs-12">
                           <div className="d-flex w-100 justify-content-between">
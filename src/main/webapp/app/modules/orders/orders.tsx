@@ -5,7 +5,7 @@ import { FontAwesomeIcon } from '@fortawesome/react-fontawesome';
 import { TextFormat } from 'react-jhipster';
 
 import { IRootState } from 'app/shared/reducers';
-import { getCartsForCurrentUser } from 'app/entities/shopping-cart/shopping-cart.reducer';
+import { getCartsForCurrentUser, getNextCartsForCurrentUser } from 'app/entities/shopping-cart/shopping-cart.reducer';
 import { APP_DATE_FORMAT } from 'app/config/constants';
 import { refundPayment } from 'app/modules/checkout/checkout.reducer';
 import { OrderStatus } from 'app/shared/model/enumerations/order-status.model';
@@ -37,7 +37,7 @@ export const Orders = (props: IOrdersProp) => {
     }
   };
 
-  const { isAuthenticated, carts, loading } = props;
+  const { isAuthenticated, carts, nextCursor, loading } = props;
 
   return (
     <Row className="d-flex justify-content-center">
@@ -51,40 +51,50 @@ export const Orders = (props: IOrdersProp) => {
                 &nbsp; Refresh
               </Button>
             </h2>
-            <p className="lead">You have {carts?.length} past orders</p>
+            <p className="lead">
+              You have {carts?.length}
+              {nextCursor ? '+' : ''} past orders
+            </p>
             {carts && carts.length > 0 ? (
               <>
                 <div className="list-group">
-                  {[...carts]
-                    .sort((a, b) => b.id - a.id)
-                    .map((cart, i) => (
-                      <div key={`entity-${i}`} className="list-group-item list-group-item-action flex-column align-items-start">
-                        <div className="row">
-                          <div className="col col-xs-12">
-                            <div className="d-flex w-100 justify-content-between">
-                              {cart.placedDate ? <TextFormat type="date" value={cart.placedDate} format={APP_DATE_FORMAT} /> : null}
-                              <small>ID: {cart.id}</small>
-                            </div>
-                            <div>
-                              <small>
-                                Status: <Badge color="info">{cart.status}</Badge>
-                              </small>
-                            </div>
-                            <div>
-                              <small>Payment type: {cart.paymentMethod}</small>
-                            </div>
-                            <p>
-                              <small>Payment reference: {cart.paymentReference}</small>
+                  {carts.map((cart, i) => (
+                    <div key={`entity-${i}`} className="list-group-item list-group-item-action flex-column align-items-start">
+                      <div className="row">
+                        <div className="col col-xs-12">
+                          <div className="d-flex w-100 justify-content-between">
+                            {cart.placedDate ? <TextFormat type="date" value={cart.placedDate} format={APP_DATE_FORMAT} /> : null}
+                            <small>ID: {cart.id}</small>
+                          </div>
+                          <div>
+                            <small>
+                              Status: <Badge color="info">{cart.status}</Badge>
+                            </small>
+                          </div>
+                          <div>
+                            <small>Payment type: {cart.paymentMethod}</small>
+                          </div>
+                          <p>
+                            <small>Payment reference: {cart.paymentReference}</small>
+                          </p>
+                          <div className="d-flex w-100 justify-content-between">
+                            <p className="mb-1">
+                              Total price: € {cart.totalPrice} ({cart.lineCount} {cart.lineCount === 1 ? 'item' : 'items'})
                             </p>
-                            <div className="d-flex w-100 justify-content-between">
-                              <p className="mb-1">Total price: € {cart.totalPrice}</p>
-                              <div>{getStatusAction(cart)}</div>
-                            </div>
+                            <div>{getStatusAction(cart)}</div>
                           </div>
                         </div>
                       </div>
-                    ))}
+                    </div>
+                  ))}
                 </div>
+                {nextCursor ? (
+                  <div className="text-center mt-2">
+                    <Button color="secondary" disabled={loading} onClick={() => props.getNextCartsForCurrentUser(nextCursor)}>
+                      Show older orders
+                    </Button>
+                  </div>
+                ) : null}
               </>
             ) : (
               !loading && <div className="alert alert-warning">No items found</div>
@@ -103,11 +113,13 @@ export const Orders = (props: IOrdersProp) => {
 const mapStateToProps = ({ authentication, shoppingCart }: IRootState) => ({
   isAuthenticated: authentication.isAuthenticated,
   carts: shoppingCart.entities,
+  nextCursor: shoppingCart.nextCursor,
   loading: shoppingCart.loading,
 });
 
 const mapDispatchToProps = {
   getCartsForCurrentUser,
+  getNextCartsForCurrentUser,
   refundPayment,
 };
 
@@ -7,6 +7,7 @@ export interface IProductOrder {
   totalPrice?: number;
   product?: IProduct;
   cart?: IShoppingCart;
+  version?: number;
 }
 
 export const defaultValue: Readonly<IProductOrder> = {};
@@ -9,6 +9,8 @@ export interface IProduct {
   itemSize?: Size;
   imageContentType?: string | null;
   image?: string | null;
+  imageHash?: string | null;
+  thumbnailUrl?: string | null;
   productCategory?: IProductCategory;
 }
 
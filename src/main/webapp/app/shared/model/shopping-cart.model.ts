@@ -14,6 +14,8 @@ export interface IShoppingCart {
   paymentModificationReference?: string | null;
   orders?: IProductOrder[] | null;
   customerDetails?: ICustomerDetails;
+  version?: number;
+  lineCount?: number;
 }
 
 export const defaultValue: Readonly<IShoppingCart> = {};
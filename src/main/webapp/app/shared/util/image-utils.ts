@@ -0,0 +1,13 @@
+import { IProduct } from 'app/shared/model/product.model';
+
+export type ImageSize = 'thumbnail' | 'listing' | 'detail';
+
+/**
+ * Build the URL of the stored image of a product.
+ * The image hash is part of the URL so browsers can cache the image for good.
+ *
+ * @param product Product to show the image of.
+ * @param size Resized variant to load, the original image is loaded when omitted.
+ */
+export const productImageUrl = (product: IProduct, size?: ImageSize) =>
+  `api/products/${product.id}/image?v=${product.imageHash}${size ? `&size=${size}` : ''}`;
@@ -0,0 +1,82 @@
+package com.adyen.demo.store.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link Money}.
+ */
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void convertsBetweenMajorAndMinorUnits() {
+        assertThat(Money.of(new BigDecimal("19.99")).getAmount()).isEqualTo(1999L);
+        assertThat(Money.of(new BigDecimal("19.9")).getAmount()).isEqualTo(1990L);
+        assertThat(Money.of(new BigDecimal("1500"), "JPY").getAmount()).isEqualTo(1500L);
+        assertThat(Money.of(1999L, Money.DEFAULT_CURRENCY).toBigDecimal()).isEqualTo(new BigDecimal("19.99"));
+        assertThat(Money.of(1500L, "JPY").toBigDecimal()).isEqualTo(new BigDecimal("1500"));
+    }
+
+    @Test
+    void rejectsAmountsFinerThanTheMinorUnit() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("19.999"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1.5"), "JPY")).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void rejectsUnknownCurrencies() {
+        assertThatThrownBy(() -> Money.of(100L, "XYZ")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void addsAndMultipliesExactly() {
+        Money price = Money.of(new BigDecimal("0.10"));
+
+        assertThat(price.times(3L)).isEqualTo(Money.of(new BigDecimal("0.30")));
+        assertThat(price.plus(price).plus(price)).isEqualTo(Money.of(30L, Money.DEFAULT_CURRENCY));
+        assertThat(price.minus(Money.of(new BigDecimal("0.25"))).isNegative()).isTrue();
+        assertThat(Money.zero(Money.DEFAULT_CURRENCY).compareTo(price)).isNegative();
+    }
+
+    @Test
+    void rejectsMismatchedCurrencies() {
+        Money euros = Money.of(100L, "EUR");
+        Money dollars = Money.of(100L, "USD");
+
+        assertThatThrownBy(() -> euros.plus(dollars)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> euros.minus(dollars)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> euros.compareTo(dollars)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(euros).isNotEqualTo(dollars);
+    }
+
+    @Test
+    void failsInsteadOfOverflowing() {
+        Money max = Money.of(Long.MAX_VALUE, Money.DEFAULT_CURRENCY);
+        Money min = Money.of(Long.MIN_VALUE, Money.DEFAULT_CURRENCY);
+        Money cent = Money.of(1L, Money.DEFAULT_CURRENCY);
+
+        assertThatThrownBy(() -> max.plus(cent)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> min.minus(cent)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.times(2L)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1E+30"))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void roundTripsThroughJson() throws Exception {
+        Money price = Money.of(1999L, Money.DEFAULT_CURRENCY);
+
+        String json = objectMapper.writeValueAsString(price);
+
+        assertThat(json).isEqualTo("19.99");
+        assertThat(objectMapper.readValue(json, Money.class)).isEqualTo(price);
+        assertThat(objectMapper.readValue("20", Money.class)).isEqualTo(Money.of(2000L, Money.DEFAULT_CURRENCY));
+        assertThatThrownBy(() -> objectMapper.readValue("19.999", Money.class)).isInstanceOf(JsonMappingException.class);
+    }
+}
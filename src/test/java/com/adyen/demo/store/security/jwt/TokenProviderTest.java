@@ -83,6 +83,37 @@ class TokenProviderTest {
         assertThat(isTokenValid).isFalse();
     }
 
+    @Test
+    void testGuestCartTokenHoldsLines() {
+        String token = tokenProvider.createGuestCartToken("1:2,3:1", ONE_MINUTE);
+
+        assertThat(tokenProvider.getGuestCartLines(token)).contains("1:2,3:1");
+    }
+
+    @Test
+    void testGuestCartTokenIsNotALoginToken() {
+        String guestCartToken = tokenProvider.createGuestCartToken("1:2", ONE_MINUTE);
+        String loginToken = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.validateToken(guestCartToken)).isFalse();
+        assertThat(tokenProvider.getGuestCartLines(loginToken)).isEmpty();
+    }
+
+    @Test
+    void testGuestCartTokenIsEmptyWhenExpiredOrTampered() {
+        String expired = tokenProvider.createGuestCartToken("1:2", -ONE_MINUTE);
+        String token = tokenProvider.createGuestCartToken("1:2", ONE_MINUTE);
+        String[] parts = token.split("\\.");
+        String payload = Base64
+            .getUrlEncoder()
+            .withoutPadding()
+            .encodeToString("{\"sub\":\"guest-cart\",\"lines\":\"1:99\"}".getBytes(StandardCharsets.UTF_8));
+        String tampered = parts[0] + "." + payload + "." + parts[2];
+
+        assertThat(tokenProvider.getGuestCartLines(expired)).isEmpty();
+        assertThat(tokenProvider.getGuestCartLines(tampered)).isEmpty();
+    }
+
     @Test
     void testKeyIsSetFromSecretWhenSecretIsNotEmpty() {
         final String secret = "NwskoUmKHZtzGRKJKVjsJF7BtQMMxNWi";
@@ -0,0 +1,93 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.CustomerDetails;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.web.rest.CustomerDetailsResourceIT;
+import com.adyen.demo.store.web.rest.ProductOrderResourceIT;
+import com.adyen.demo.store.web.rest.ShoppingCartResourceIT;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link AbandonedCartReaper}.
+ */
+@IntegrationTest
+@Transactional
+class AbandonedCartReaperIT {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private AbandonedCartReaper abandonedCartReaper;
+
+    private ShoppingCart abandonedCart;
+
+    private ProductOrder abandonedOrder;
+
+    private ShoppingCart openCart;
+
+    private ShoppingCart paidCart;
+
+    @BeforeEach
+    void init() {
+        CustomerDetails customer = CustomerDetailsResourceIT.createEntity(em);
+        em.persist(customer);
+        CustomerDetails otherCustomer = CustomerDetailsResourceIT.createEntity(em);
+        em.persist(otherCustomer);
+
+        abandonedCart = persistCart(customer, OrderStatus.OPEN);
+        abandonedOrder = ProductOrderResourceIT.createEntity(em).cart(abandonedCart);
+        em.persist(abandonedOrder);
+        openCart = persistCart(otherCustomer, OrderStatus.OPEN);
+        paidCart = persistCart(customer, OrderStatus.PAID);
+        em.flush();
+
+        em
+            .createQuery("update ShoppingCart c set c.lastModifiedDate = :date where c.id in :ids")
+            .setParameter("date", Instant.now().minus(10, ChronoUnit.DAYS))
+            .setParameter("ids", Arrays.asList(abandonedCart.getId(), paidCart.getId()))
+            .executeUpdate();
+        em.clear();
+    }
+
+    @Test
+    void assertThatOnlyAbandonedOpenCartsAreDeleted() {
+        long deleted = abandonedCartReaper.reap(Instant.now().minus(7, ChronoUnit.DAYS));
+
+        assertThat(deleted).isGreaterThanOrEqualTo(1);
+        assertThat(em.find(ShoppingCart.class, abandonedCart.getId())).isNull();
+        assertThat(em.find(ProductOrder.class, abandonedOrder.getId())).isNull();
+        assertThat(em.find(ShoppingCart.class, openCart.getId())).isNotNull();
+        assertThat(em.find(ShoppingCart.class, paidCart.getId())).isNotNull();
+    }
+
+    @Test
+    void assertThatSavingACartKeepsIt() {
+        ShoppingCart cart = em.find(ShoppingCart.class, abandonedCart.getId());
+        cart.setPaymentReference("changed");
+        em.flush();
+
+        abandonedCartReaper.reap(Instant.now().minus(7, ChronoUnit.DAYS));
+
+        assertThat(em.find(ShoppingCart.class, abandonedCart.getId())).isNotNull();
+    }
+
+    private ShoppingCart persistCart(CustomerDetails customer, OrderStatus status) {
+        ShoppingCart cart = ShoppingCartResourceIT.createEntity(em).status(status);
+        cart.setCustomerDetails(customer);
+        em.persist(cart);
+        return cart;
+    }
+}
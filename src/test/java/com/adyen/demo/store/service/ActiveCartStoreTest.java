@@ -0,0 +1,229 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.domain.enumeration.PaymentMethod;
+import com.adyen.demo.store.repository.ProductOrderRepository;
+import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.repository.ShoppingCartRepository;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for the {@link ActiveCartStore}.
+ */
+class ActiveCartStoreTest {
+
+    private static final String USER = "user";
+
+    private final Product shirt = new Product().id(1L).name("Shirt").price(euros(1000));
+
+    private final Product cap = new Product().id(2L).name("Cap").price(euros(250));
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ShoppingCartRepository shoppingCartRepository;
+
+    private ProductOrderRepository productOrderRepository;
+
+    private ActiveCartStore store;
+
+    private ShoppingCart stored;
+
+    @BeforeEach
+    void setup() {
+        stored = new ShoppingCart(Instant.now(), OrderStatus.OPEN, euros(0), PaymentMethod.CREDIT_CARD, null).id(5L);
+        stored.addOrder(new ProductOrder().id(50L).quantity(1).totalPrice(shirt.getPrice()).product(shirt));
+
+        shoppingCartRepository = mock(ShoppingCartRepository.class);
+        when(shoppingCartRepository.findById(5L)).thenAnswer(invocation -> Optional.of(stored));
+        productOrderRepository = mock(ProductOrderRepository.class);
+        AtomicInteger ids = new AtomicInteger(60);
+        when(productOrderRepository.save(any(ProductOrder.class)))
+            .thenAnswer(
+                invocation -> {
+                    ProductOrder order = invocation.getArgument(0);
+                    order.setId((long) ids.getAndIncrement());
+                    return order;
+                }
+            );
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.getOne(2L)).thenReturn(cap);
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getCart().setWriteBehindEnabled(true);
+        store =
+            new ActiveCartStore(
+                shoppingCartRepository,
+                productOrderRepository,
+                productRepository,
+                mock(PlatformTransactionManager.class),
+                properties
+            );
+    }
+
+    @Test
+    void loadsCartOnce() {
+        ShoppingCart cart = store.get(USER, loader());
+        store.get(USER, loader());
+
+        assertThat(loads).hasValue(1);
+        assertThat(cart.getId()).isEqualTo(5L);
+        assertThat(cart.getOrders()).extracting(ProductOrder::getId).containsExactly(50L);
+        assertThat(cart.getTotalPrice()).isEqualTo(euros(1000));
+    }
+
+    @Test
+    void changesCartInMemoryUntilFlushed() {
+        ShoppingCart cart = store.changeQuantities(USER, loader(), deltas(1L, 2, 2L, 4), products());
+
+        assertThat(cart.getTotalPrice()).isEqualTo(euros(4000));
+        assertThat(cart.getOrders()).extracting(ProductOrder::getId).contains(50L).anyMatch(id -> id < 0);
+        assertThat(stored.getTotalPrice()).isEqualTo(euros(1000));
+        verify(shoppingCartRepository, times(0)).findById(5L);
+    }
+
+    @Test
+    void coalescesChangesIntoOneWrite() {
+        store.changeQuantities(USER, loader(), deltas(2L, 1), products());
+        store.changeQuantities(USER, loader(), deltas(2L, 1), products());
+        store.changeQuantities(USER, loader(), deltas(1L, 1), products());
+
+        store.flush(USER);
+        store.flush(USER);
+
+        verify(shoppingCartRepository, times(1)).findById(5L);
+        verify(productOrderRepository, times(1)).save(any(ProductOrder.class));
+        assertThat(stored.getTotalPrice()).isEqualTo(euros(2500));
+        assertThat(stored.getOrders()).extracting(ProductOrder::getQuantity).containsExactlyInAnyOrder(2, 2);
+        assertThat(store.get(USER, loader()).getOrders()).extracting(ProductOrder::getId).containsExactlyInAnyOrder(50L, 60L);
+    }
+
+    @Test
+    void removesLinesByTemporaryOrWrittenId() {
+        ShoppingCart cart = store.changeQuantities(USER, loader(), deltas(2L, 1), products());
+        Long tempId = cart.getOrders().stream().filter(order -> order.getProduct() == cap).findFirst().get().getId();
+        store.flush(USER);
+
+        cart = store.removeLine(USER, loader(), tempId);
+        assertThat(cart.getOrders()).extracting(ProductOrder::getId).containsExactly(50L);
+
+        cart = store.removeLine(USER, loader(), 50L);
+        assertThat(cart.getOrders()).isEmpty();
+
+        store.flush(USER);
+        assertThat(stored.getOrders()).isEmpty();
+        assertThat(stored.getTotalPrice()).isEqualTo(euros(0));
+        verify(productOrderRepository, times(2)).delete(any(ProductOrder.class));
+    }
+
+    @Test
+    void dropsCartClosedInTheDatabase() {
+        store.changeQuantities(USER, loader(), deltas(1L, 1), products());
+        stored.setStatus(OrderStatus.PAID);
+
+        store.flush(USER);
+
+        assertThat(stored.getOrders()).extracting(ProductOrder::getQuantity).containsExactly(1);
+        store.get(USER, loader());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictsCartBeforeDatabaseChange() {
+        store.changeQuantities(USER, loader(), deltas(1L, 1), products());
+
+        store.evictCart(5L);
+
+        assertThat(stored.getTotalPrice()).isEqualTo(euros(2000));
+        store.get(USER, loader());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictKeepsChangeMadeDuringItsFlush() {
+        store.changeQuantities(USER, loader(), deltas(1L, 1), products());
+        AtomicBoolean changed = new AtomicBoolean();
+        when(shoppingCartRepository.findById(5L))
+            .thenAnswer(
+                invocation -> {
+                    if (changed.compareAndSet(false, true)) {
+                        store.changeQuantities(USER, loader(), deltas(2L, 1), products());
+                    }
+                    return Optional.of(stored);
+                }
+            );
+
+        store.evictCart(5L);
+
+        assertThat(stored.getTotalPrice()).isEqualTo(euros(2250));
+        assertThat(stored.getOrders()).extracting(ProductOrder::getQuantity).containsExactlyInAnyOrder(2, 1);
+    }
+
+    private Function<String, ShoppingCart> loader() {
+        return user -> {
+            loads.incrementAndGet();
+            ShoppingCart cart = new ShoppingCart(
+                stored.getPlacedDate(),
+                OrderStatus.OPEN,
+                stored.getTotalPrice(),
+                stored.getPaymentMethod(),
+                null
+            )
+                .id(stored.getId());
+            stored
+                .getOrders()
+                .forEach(
+                    order ->
+                        cart
+                            .getOrders()
+                            .add(
+                                new ProductOrder()
+                                    .id(order.getId())
+                                    .quantity(order.getQuantity())
+                                    .totalPrice(order.getTotalPrice())
+                                    .product(order.getProduct())
+                            )
+                );
+            return cart;
+        };
+    }
+
+    private Map<Long, Product> products() {
+        Map<Long, Product> products = new HashMap<>();
+        products.put(shirt.getId(), shirt);
+        products.put(cap.getId(), cap);
+        return products;
+    }
+
+    private static Money euros(long cents) {
+        return Money.of(cents, Money.DEFAULT_CURRENCY);
+    }
+
+    private static Map<Long, Integer> deltas(Object... productsAndDeltas) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < productsAndDeltas.length; i += 2) {
+            deltas.put((Long) productsAndDeltas[i], (Integer) productsAndDeltas[i + 1]);
+        }
+        return deltas;
+    }
+}
@@ -0,0 +1,200 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.model.checkout.PaymentMethodsRequest;
+import com.adyen.model.checkout.PaymentMethodsResponse;
+import com.adyen.model.checkout.PaymentsDetailsRequest;
+import com.adyen.model.checkout.PaymentsRequest;
+import com.adyen.model.checkout.PaymentsResponse;
+import com.adyen.service.Checkout;
+import com.adyen.service.Modification;
+import com.adyen.service.exception.ApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link AdyenService}.
+ */
+class AdyenServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ApplicationProperties.Adyen properties = new ApplicationProperties.Adyen();
+
+    private Checkout checkout;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() {
+        checkout = mock(Checkout.class);
+        executor = Executors.newCachedThreadPool();
+        properties.setCallTimeoutMs(1000L);
+        properties.setBulkheadMaxCalls(1);
+        properties.setCircuitBreakerWindowSize(4);
+        properties.setCircuitBreakerMinimumCalls(2);
+        properties.setCircuitBreakerFailureRateThreshold(50);
+        properties.setCircuitBreakerOpenMs(1000L);
+        properties.setCircuitBreakerHalfOpenCalls(1);
+        properties.setRetryMaxAttempts(3);
+        properties.setRetryBackoffMs(1L);
+        properties.setRetryMaxBackoffMs(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void completesWithResponseOfAdyen() throws Exception {
+        PaymentsResponse response = new PaymentsResponse();
+        when(checkout.payments(any())).thenReturn(response);
+        AdyenService adyenService = adyenService(executor);
+
+        assertThat(adyenService.payments(new PaymentsRequest()).get(5, TimeUnit.SECONDS)).isSameAs(response);
+    }
+
+    @Test
+    void failsWithErrorOfAdyen() throws Exception {
+        when(checkout.paymentsDetails(any())).thenThrow(new ApiException("Refused", 422));
+        AdyenService adyenService = adyenService(executor);
+
+        assertThat(causeOf(adyenService.paymentsDetails(new PaymentsDetailsRequest()))).isInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void failsWhenAdyenDoesNotAnswerInTime() throws Exception {
+        when(checkout.payments(any())).then(invocation -> awaitRelease());
+        properties.setCallTimeoutMs(50L);
+        AdyenService adyenService = adyenService(executor);
+
+        assertThat(causeOf(adyenService.payments(new PaymentsRequest()))).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void failsWhenExecutorIsFull() throws Exception {
+        AdyenService adyenService = adyenService(
+            command -> {
+                throw new RejectedExecutionException();
+            }
+        );
+
+        assertThat(causeOf(adyenService.payments(new PaymentsRequest()))).isInstanceOf(AdyenUnavailableException.class);
+        // the bulkhead permit was given back
+        assertThat(meterRegistry.get("adyen.bulkhead.available.calls").tag("operation", "payments").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsCallsBeyondBulkhead() throws Exception {
+        when(checkout.payments(any())).then(invocation -> awaitRelease());
+        AdyenService adyenService = adyenService(executor);
+
+        CompletableFuture<PaymentsResponse> running = adyenService.payments(new PaymentsRequest());
+
+        assertThat(causeOf(adyenService.payments(new PaymentsRequest()))).isInstanceOf(AdyenUnavailableException.class);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(adyenService.payments(new PaymentsRequest()).get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(meterRegistry.get("adyen.calls").tag("operation", "payments").tag("outcome", "rejected").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void retriesIdempotentCalls() throws Exception {
+        PaymentMethodsResponse response = new PaymentMethodsResponse();
+        when(checkout.paymentMethods(any())).thenThrow(new SocketTimeoutException()).thenReturn(response);
+        AdyenService adyenService = adyenService(executor);
+
+        assertThat(adyenService.paymentMethods(new PaymentMethodsRequest()).get(5, TimeUnit.SECONDS)).isSameAs(response);
+        assertThat(meterRegistry.get("adyen.call.retries").tag("operation", "paymentMethods").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesOtherCallsOnlyWhenTheyCouldNotConnect() throws Exception {
+        when(checkout.payments(any())).thenThrow(new ConnectException()).thenThrow(new SocketTimeoutException());
+        AdyenService adyenService = adyenService(executor);
+
+        assertThat(causeOf(adyenService.payments(new PaymentsRequest()))).isInstanceOf(SocketTimeoutException.class);
+        verify(checkout, times(2)).payments(any());
+    }
+
+    @Test
+    void stopsRetryingAtCallTimeout() throws Exception {
+        when(checkout.paymentMethods(any()))
+            .then(
+                invocation -> {
+                    now.addAndGet(1000L);
+                    throw new SocketTimeoutException();
+                }
+            );
+        AdyenService adyenService = adyenService(executor);
+
+        // the first attempt used up the call timeout, so it is not retried
+        assertThat(causeOf(adyenService.paymentMethods(new PaymentMethodsRequest()))).isInstanceOf(SocketTimeoutException.class);
+        verify(checkout, times(1)).paymentMethods(any());
+    }
+
+    @Test
+    void stopsCallingAdyenWhenTooManyCallsFail() throws Exception {
+        properties.setRetryMaxAttempts(1);
+        when(checkout.paymentMethods(any())).thenThrow(new ApiException("Unavailable", 503));
+        AdyenService adyenService = adyenService(executor);
+
+        assertThat(causeOf(adyenService.paymentMethods(new PaymentMethodsRequest()))).isInstanceOf(ApiException.class);
+        assertThat(causeOf(adyenService.paymentMethods(new PaymentMethodsRequest()))).isInstanceOf(ApiException.class);
+        assertThat(causeOf(adyenService.paymentMethods(new PaymentMethodsRequest()))).isInstanceOf(AdyenUnavailableException.class);
+        verify(checkout, times(2)).paymentMethods(any());
+        assertThat(meterRegistry.get("adyen.circuit.breaker.state").tag("state", "open").gauge().value()).isEqualTo(1);
+
+        // refusals of Adyen are answers, they close the breaker again
+        now.addAndGet(1000L);
+        when(checkout.paymentMethods(any())).thenThrow(new ApiException("Invalid request", 422));
+        assertThat(causeOf(adyenService.paymentMethods(new PaymentMethodsRequest()))).isInstanceOf(ApiException.class);
+        assertThat(meterRegistry.get("adyen.circuit.breaker.state").tag("state", "closed").gauge().value()).isEqualTo(1);
+    }
+
+    private AdyenService adyenService(Executor adyenExecutor) {
+        return new AdyenService(checkout, mock(Modification.class), adyenExecutor, properties, meterRegistry, now::get);
+    }
+
+    private PaymentsResponse awaitRelease() throws InterruptedException {
+        release.await(5, TimeUnit.SECONDS);
+        return new PaymentsResponse();
+    }
+
+    private static Throwable causeOf(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Expected the call to fail");
+    }
+}
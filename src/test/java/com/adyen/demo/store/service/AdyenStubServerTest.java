@@ -0,0 +1,150 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.util.HMACValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link AdyenStubServer}.
+ */
+class AdyenStubServerTest {
+
+    private static final String HMAC_KEY = "44782DEF547AAA06C910C43932B1EB0C71FC68D9D0C057550C48EC2ACF6BA056";
+
+    private static final String PAYMENT =
+        "{\"merchantAccount\":\"Shop\",\"reference\":\"order-1\",\"amount\":{\"currency\":\"EUR\",\"value\":1000}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private final BlockingQueue<String> webhooks = new LinkedBlockingQueue<>();
+
+    private final ApplicationProperties.AdyenStub properties = new ApplicationProperties.AdyenStub();
+
+    private HttpServer webhookServer;
+
+    private AdyenStubServer stub;
+
+    @BeforeEach
+    void setup() throws Exception {
+        webhookServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        webhookServer.createContext(
+            "/api/webhook/notification",
+            exchange -> {
+                webhooks.add(exchange.getRequestHeaders().getFirst("Authorization") + " " + new String(exchange.getRequestBody().readAllBytes()));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        );
+        webhookServer.start();
+        properties.setPort(0);
+        properties.setLatencyMedianMs(0L);
+        properties.setWebhookDelayMs(0L);
+        properties.setWebhookUrl("http://localhost:" + webhookServer.getAddress().getPort() + "/api/webhook/notification");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) {
+            stub.stop();
+        }
+        webhookServer.stop(0);
+    }
+
+    @Test
+    void authorisesPaymentAndSendsSignedNotification() throws Exception {
+        startStub();
+
+        HttpResponse<String> response = post("/checkout/v67/payments", PAYMENT);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode payment = objectMapper.readTree(response.body().getBytes());
+        assertThat(payment.path("resultCode").asText()).isEqualTo("Authorised");
+        String pspReference = payment.path("pspReference").asText();
+
+        String webhook = webhooks.poll(5, TimeUnit.SECONDS);
+        assertThat(webhook).startsWith("Basic d2ViaG9vazphZG1pbg== ");
+        JsonNode item = objectMapper
+            .readTree(webhook.substring(webhook.indexOf(' ', 6) + 1).getBytes())
+            .path("notificationItems")
+            .path(0)
+            .path("NotificationRequestItem");
+        assertThat(item.path("eventCode").asText()).isEqualTo("AUTHORISATION");
+        assertThat(item.path("pspReference").asText()).isEqualTo(pspReference);
+        String signature = new HMACValidator()
+            .calculateHMAC(pspReference + "::Shop:order-1:1000:EUR:AUTHORISATION:true", HMAC_KEY);
+        assertThat(item.path("additionalData").path("hmacSignature").asText()).isEqualTo(signature);
+    }
+
+    @Test
+    void answersWithConfiguredResultCodesAndErrors() throws Exception {
+        properties.getResultCodes().put("Refused", 1);
+        properties.setWebhooksEnabled(false);
+        startStub();
+
+        assertThat(post("/checkout/v67/payments", PAYMENT).body()).contains("\"resultCode\":\"Refused\"");
+        assertThat(post("/checkout/v67/paymentMethods", "{}").body()).contains("\"type\":\"scheme\"");
+        assertThat(post("/pal/servlet/Payment/v64/cancelOrRefund", "{\"originalReference\":\"X\"}").body())
+            .contains("[cancelOrRefund-received]");
+
+        stub.stop();
+        properties.setErrorRate(1d);
+        startStub();
+
+        assertThat(post("/checkout/v67/payments/details", "{}").statusCode()).isEqualTo(500);
+        assertThat(webhooks).isEmpty();
+    }
+
+    @Test
+    void answersMalformedRequestsWithAnError() throws Exception {
+        startStub();
+
+        HttpResponse<String> response = post("/checkout/v67/payments", "{\"amount\":");
+
+        assertThat(response.statusCode()).isEqualTo(422);
+        assertThat(response.body()).contains("\"errorCode\":\"702\"");
+        assertThat(webhooks).isEmpty();
+    }
+
+    @Test
+    void dropsNotificationsBeyondMaxPending() throws Exception {
+        properties.setWebhookDelayMs(60000L);
+        properties.setWebhookMaxPending(1);
+        startStub();
+
+        post("/checkout/v67/payments", PAYMENT);
+        post("/checkout/v67/payments", PAYMENT);
+
+        assertThat(stub.getDroppedWebhooks()).isEqualTo(1L);
+    }
+
+    private void startStub() throws Exception {
+        stub = new AdyenStubServer(properties, HMAC_KEY);
+        stub.start();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest
+            .newBuilder(URI.create(stub.getUrl() + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
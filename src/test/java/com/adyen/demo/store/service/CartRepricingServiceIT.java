@@ -0,0 +1,101 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.web.rest.ProductResourceIT;
+import com.adyen.demo.store.web.rest.ShoppingCartResourceIT;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link CartRepricingService}.
+ */
+@IntegrationTest
+@Transactional
+class CartRepricingServiceIT {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private CartRepricingService cartRepricingService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    private Product product;
+
+    private ShoppingCart openCart;
+
+    private ProductOrder openOrder;
+
+    private ProductOrder paidOrder;
+
+    @BeforeEach
+    void init() {
+        product = ProductResourceIT.createEntity(em).price(euros(100));
+        em.persist(product);
+
+        openCart = ShoppingCartResourceIT.createEntity(em).status(OrderStatus.OPEN).totalPrice(euros(0));
+        openOrder = new ProductOrder().quantity(2).totalPrice(euros(200)).product(product);
+        openCart.addOrder(openOrder);
+        em.persist(openCart);
+        em.persist(openOrder);
+
+        ShoppingCart paidCart = ShoppingCartResourceIT.createEntity(em).status(OrderStatus.PAID).totalPrice(euros(0));
+        paidOrder = new ProductOrder().quantity(1).totalPrice(euros(100)).product(product);
+        paidCart.addOrder(paidOrder);
+        em.persist(paidCart);
+        em.persist(paidOrder);
+        em.flush();
+
+        productService.partialUpdate(new Product().id(product.getId()).price(euros(300)));
+        em.flush();
+    }
+
+    @Test
+    void assertThatOpenCartsAreRepriced() {
+        long repriced = cartRepricingService.reprice(product.getId());
+        em.flush();
+        em.clear();
+
+        assertThat(repriced).isEqualTo(1);
+        assertThat(em.find(ProductOrder.class, openOrder.getId()).getTotalPrice()).isEqualTo(euros(600));
+        assertThat(em.find(ShoppingCart.class, openCart.getId()).getTotalPrice()).isEqualTo(euros(600));
+        assertThat(em.find(ProductOrder.class, paidOrder.getId()).getTotalPrice()).isEqualTo(euros(100));
+    }
+
+    @Test
+    void assertThatRepricedCartsAreNotRepricedAgain() {
+        cartRepricingService.reprice(product.getId());
+        em.flush();
+
+        assertThat(cartRepricingService.reprice(product.getId())).isZero();
+    }
+
+    @Test
+    void assertThatStaleCartIsRepricedWhenLoaded() {
+        String login = openCart.getCustomerDetails().getUser().getLogin();
+
+        ShoppingCart cart = shoppingCartService.findActiveCartByUser(login);
+
+        assertThat(cart.getId()).isEqualTo(openCart.getId());
+        assertThat(cart.getTotalPrice()).isEqualTo(euros(600));
+    }
+
+    private static Money euros(long cents) {
+        return Money.of(cents, Money.DEFAULT_CURRENCY);
+    }
+}
@@ -0,0 +1,97 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Test class for the {@link CatalogSnapshot}.
+ */
+class CatalogSnapshotTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CatalogSnapshot snapshot;
+
+    @BeforeEach
+    void setup() {
+        Map<Long, ProductSummaryDTO> summaries = new HashMap<>();
+        Map<Long, byte[]> details = new HashMap<>();
+        ProductSummaryDTO[] products = { summary(1L, "Shirt", 30), summary(2L, "Cap", 10), summary(3L, "Jeans", 20) };
+        for (ProductSummaryDTO summary : products) {
+            summaries.put(summary.getId(), summary);
+            details.put(summary.getId(), ("{\"id\":" + summary.getId() + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        snapshot = new CatalogSnapshot(summaries, details, objectMapper);
+    }
+
+    @Test
+    void servesPagesInEachSortOrder() throws Exception {
+        CatalogSnapshot.CatalogPage byPrice = snapshot.findPage(PageRequest.of(0, 2, Sort.by("price"))).get();
+        CatalogSnapshot.CatalogPage byNameDesc = snapshot.findPage(PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "name"))).get();
+
+        assertThat(ids(byPrice.getPage().getContent())).containsExactly(2L, 3L);
+        assertThat(byPrice.getPage().getTotalElements()).isEqualTo(3);
+        assertThat(byPrice.getJson()).isEqualTo(objectMapper.writeValueAsBytes(byPrice.getPage().getContent()));
+        assertThat(ids(byNameDesc.getPage().getContent())).containsExactly(2L);
+        assertThat(byNameDesc.getJson()).isEqualTo(objectMapper.writeValueAsBytes(byNameDesc.getPage().getContent()));
+    }
+
+    @Test
+    void doesNotServeOtherSortOrders() {
+        assertThat(snapshot.findPage(PageRequest.of(0, 2, Sort.by("description")))).isEmpty();
+        assertThat(snapshot.findPage(PageRequest.of(0, 2, Sort.by("price", "name")))).isEmpty();
+    }
+
+    @Test
+    void appliesChangesToACopy() {
+        Map<Long, ProductSummaryDTO> summaries = new HashMap<>();
+        Map<Long, byte[]> details = new HashMap<>();
+        for (ProductSummaryDTO summary : new ProductSummaryDTO[] { summary(4L, "Belt", 5), summary(3L, "Jeans", 50) }) {
+            summaries.put(summary.getId(), summary);
+            details.put(summary.getId(), new byte[] { '{', '}' });
+        }
+
+        CatalogSnapshot changed = snapshot.withChanges(summaries, details, List.of(1L));
+
+        assertThat(ids(changed.findPage(PageRequest.of(0, 10)).get().getPage().getContent())).containsExactly(2L, 3L, 4L);
+        assertThat(ids(changed.findPage(PageRequest.of(0, 10, Sort.by("price"))).get().getPage().getContent()))
+            .containsExactly(4L, 2L, 3L);
+        assertThat(changed.findProductJson(1L)).isEmpty();
+        assertThat(changed.findProductJson(4L)).isPresent();
+        assertThat(changed.size()).isEqualTo(3);
+        assertThat(ids(snapshot.findPage(PageRequest.of(0, 10, Sort.by("price"))).get().getPage().getContent()))
+            .containsExactly(2L, 3L, 1L);
+        assertThat(snapshot.findProductJson(4L)).isEmpty();
+    }
+
+    @Test
+    void servesPagesPastTheEnd() {
+        CatalogSnapshot.CatalogPage page = snapshot.findPage(PageRequest.of(Integer.MAX_VALUE - 1, 2)).get();
+
+        assertThat(page.getPage().getContent()).isEmpty();
+        assertThat(page.getPage().getTotalElements()).isEqualTo(3);
+        assertThat(page.getJson()).isEqualTo(new byte[] { '[', ']' });
+    }
+
+    private static List<Long> ids(List<ProductSummaryDTO> summaries) {
+        return summaries.stream().map(ProductSummaryDTO::getId).collect(Collectors.toList());
+    }
+
+    private static ProductSummaryDTO summary(Long id, String name, int price) {
+        return new ProductSummaryDTO(id, name, name, Money.of(BigDecimal.valueOf(price)), Size.M, null, null, 1L, "Clothes");
+    }
+}
@@ -0,0 +1,97 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.service.CircuitBreaker.State;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link CircuitBreaker}.
+ */
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setup() {
+        circuitBreaker = new CircuitBreaker(4, 3, 50, 100L, 2, now::get);
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        call(false);
+        call(true);
+        // fewer calls than the minimum
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+        call(true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void forgetsCallsOutsideWindow() {
+        call(true);
+        call(false);
+        call(false);
+        call(false);
+        assertThat(circuitBreaker.getFailureRate()).isEqualTo(0.25d);
+
+        call(false);
+
+        assertThat(circuitBreaker.getFailureRate()).isZero();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialCalls() {
+        open();
+        now.addAndGet(100L);
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        // only the trial calls are permitted
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.getFailureRate()).isZero();
+    }
+
+    @Test
+    void opensAgainWhenTrialCallFails() {
+        open();
+        now.addAndGet(100L);
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        now.addAndGet(99L);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    private void open() {
+        call(true);
+        call(true);
+        call(true);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    private void call(boolean failure) {
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        if (failure) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+}
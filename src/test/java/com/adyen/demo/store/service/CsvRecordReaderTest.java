@@ -0,0 +1,47 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link CsvRecordReader}.
+ */
+class CsvRecordReaderTest {
+
+    @Test
+    void readsQuotedValuesSpanningLines() throws Exception {
+        CsvRecordReader records = reader("name;description\r\nShirt;\"A shirt; with\n\"\"quotes\"\"\"\nCap;A cap");
+
+        assertThat(records.next()).containsExactly("name", "description");
+        assertThat(records.next()).containsExactly("Shirt", "A shirt; with\n\"quotes\"");
+        assertThat(records.getLineNumber()).isEqualTo(2);
+        assertThat(records.next()).containsExactly("Cap", "A cap");
+        assertThat(records.getLineNumber()).isEqualTo(4);
+        assertThat(records.next()).isNull();
+    }
+
+    @Test
+    void keepsEmptyValues() throws Exception {
+        CsvRecordReader records = reader(";;\r\r\n");
+
+        assertThat(records.next()).containsExactly("", "", "");
+        assertThat(records.next()).containsExactly("");
+        assertThat(records.getLineNumber()).isEqualTo(2);
+        assertThat(records.next()).isNull();
+    }
+
+    @Test
+    void rejectsUnterminatedQuotedValue() throws Exception {
+        CsvRecordReader records = reader("Shirt;\"A shirt\n");
+
+        assertThatThrownBy(records::next).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static CsvRecordReader reader(String csv) {
+        return new CsvRecordReader(new BufferedReader(new StringReader(csv)), ';');
+    }
+}
@@ -0,0 +1,58 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.domain.Product;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link EntityCountCache}.
+ */
+class EntityCountCacheTest {
+
+    private final AtomicLong rows = new AtomicLong(3);
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private EntityCountCache entityCountCache;
+
+    @BeforeEach
+    void setup() {
+        entityCountCache = new EntityCountCache(Runnable::run);
+    }
+
+    @Test
+    void countsOnlyOnFirstUse() {
+        assertThat(entityCountCache.getCount(Product.class, this::count)).isEqualTo(3);
+        rows.set(4);
+
+        assertThat(entityCountCache.getCount(Product.class, this::count)).isEqualTo(3);
+        assertThat(queries).hasValue(1);
+    }
+
+    @Test
+    void refreshesOnInvalidation() {
+        entityCountCache.getCount(Product.class, this::count);
+        rows.set(4);
+
+        entityCountCache.invalidate(Product.class);
+
+        assertThat(entityCountCache.getCount(Product.class, this::count)).isEqualTo(4);
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    void ignoresInvalidationOfUncountedEntities() {
+        entityCountCache.invalidate(Product.class);
+
+        assertThat(queries).hasValue(0);
+    }
+
+    private long count() {
+        queries.incrementAndGet();
+        return rows.get();
+    }
+}
@@ -0,0 +1,91 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.demo.store.service.dto.ProductImageDTO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the {@link ImageDerivativeService}.
+ */
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImageStore imageStore;
+
+    private ApplicationProperties applicationProperties;
+
+    @BeforeEach
+    void setup() {
+        imageStore = new ImageStore(tempDir.resolve("store"));
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getImageStore().setDerivativeDirectory(tempDir.resolve("cache").toString());
+    }
+
+    @Test
+    void rendersVariantWithinMaxDimension() throws IOException {
+        String hash = imageStore.store(createJpeg(2000, 1000));
+        ImageDerivativeService service = new ImageDerivativeService(imageStore, applicationProperties);
+
+        Optional<ProductImageDTO> variant = service.findVariant(hash, ImageVariant.LISTING);
+
+        assertThat(variant).isPresent();
+        assertThat(variant.get().getContentType()).isEqualTo("image/jpeg");
+        assertThat(variant.get().getVariant()).isEqualTo(ImageVariant.LISTING);
+        BufferedImage image = ImageIO.read(variant.get().getPath().toFile());
+        assertThat(image.getWidth()).isEqualTo(ImageVariant.LISTING.maxDimension);
+        assertThat(image.getHeight()).isEqualTo(ImageVariant.LISTING.maxDimension / 2);
+    }
+
+    @Test
+    void doesNotRenderNonImages() throws IOException {
+        String hash = imageStore.store(new byte[] { 1, 2, 3 });
+        ImageDerivativeService service = new ImageDerivativeService(imageStore, applicationProperties);
+
+        assertThat(service.findVariant(hash, ImageVariant.THUMBNAIL)).isEmpty();
+        assertThat(service.findVariant(null, ImageVariant.THUMBNAIL)).isEmpty();
+    }
+
+    @Test
+    void doesNotDecodeOversizedImages() throws IOException {
+        String hash = imageStore.store(createJpeg(300, 200));
+        applicationProperties.getImageStore().setDerivativeMaxPixels(300 * 200 - 1);
+        ImageDerivativeService service = new ImageDerivativeService(imageStore, applicationProperties);
+
+        assertThat(service.findVariant(hash, ImageVariant.THUMBNAIL)).isEmpty();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedVariants() throws IOException {
+        String first = imageStore.store(createJpeg(400, 400));
+        String second = imageStore.store(createJpeg(500, 500));
+        ImageDerivativeService service = new ImageDerivativeService(imageStore, applicationProperties);
+        Path firstVariant = service.findVariant(first, ImageVariant.DETAIL).get().getPath();
+        applicationProperties.getImageStore().setDerivativeMaxBytes(Files.size(firstVariant));
+        service = new ImageDerivativeService(imageStore, applicationProperties);
+        service.loadCache();
+
+        service.findVariant(second, ImageVariant.DETAIL);
+
+        assertThat(firstVariant).doesNotExist();
+        assertThat(service.findVariant(first, ImageVariant.DETAIL)).isPresent();
+    }
+
+    private static byte[] createJpeg(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.config.ApplicationProperties;
+import com.adyen.model.Amount;
+import com.adyen.model.checkout.PaymentMethodsRequest;
+import com.adyen.model.checkout.PaymentMethodsResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link PaymentMethodsCache}.
+ */
+class PaymentMethodsCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final List<CompletableFuture<PaymentMethodsResponse>> pendingLoads = new ArrayList<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PaymentMethodsCache cache;
+
+    @BeforeEach
+    void setup() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getPaymentMethodsCache().setTtlMs(100L);
+        properties.getPaymentMethodsCache().setStaleMs(1000L);
+        properties.getPaymentMethodsCache().setMaxEntries(2);
+        properties.getPaymentMethodsCache().setAmountBucketSize(5000L);
+        cache = new PaymentMethodsCache(properties, meterRegistry, now::get);
+    }
+
+    @Test
+    void sharesEntryWithinAmountBucket() throws Exception {
+        PaymentMethodsResponse first = cache.get(request("NL", 1000L), this::load).join();
+        PaymentMethodsResponse second = cache.get(request("NL", 4999L), this::load).join();
+        PaymentMethodsResponse otherBucket = cache.get(request("NL", 5000L), this::load).join();
+
+        assertThat(second).isSameAs(first);
+        assertThat(otherBucket).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("adyen.payment.methods.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("adyen.payment.methods.cache.requests").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void servesStaleEntryWhileRefreshing() throws Exception {
+        PaymentMethodsResponse first = cache.get(request("NL", 1000L), this::load).join();
+        now.addAndGet(150L);
+
+        assertThat(cache.get(request("NL", 1000L), this::loadLater).join()).isSameAs(first);
+        assertThat(cache.get(request("NL", 1000L), this::loadLater).join()).isSameAs(first);
+        assertThat(pendingLoads).hasSize(1);
+        assertThat(loads).hasValue(2);
+
+        pendingLoads.get(0).complete(new PaymentMethodsResponse());
+
+        assertThat(cache.get(request("NL", 1000L), this::load).join()).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("adyen.payment.methods.cache.requests").tag("result", "stale").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void loadsAgainAfterStalePeriod() throws Exception {
+        cache.get(request("NL", 1000L), this::load);
+        now.addAndGet(1100L);
+
+        cache.get(request("NL", 1000L), this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("adyen.payment.methods.cache.requests").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws Exception {
+        cache.get(request("NL", 1000L), this::load);
+        cache.get(request("BE", 1000L), this::load);
+        cache.get(request("NL", 1000L), this::load);
+        cache.get(request("DE", 1000L), this::load);
+
+        assertThat(cache.size()).isEqualTo(2);
+        cache.get(request("NL", 1000L), this::load);
+        assertThat(loads).hasValue(3);
+        cache.get(request("BE", 1000L), this::load);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void neverCachesRequestsOfKnownShoppers() throws Exception {
+        PaymentMethodsRequest request = request("NL", 1000L);
+        request.setShopperReference("shopper");
+
+        cache.get(request, this::load);
+        cache.get(request, this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    private CompletableFuture<PaymentMethodsResponse> load() {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(new PaymentMethodsResponse());
+    }
+
+    private CompletableFuture<PaymentMethodsResponse> loadLater() {
+        loads.incrementAndGet();
+        CompletableFuture<PaymentMethodsResponse> response = new CompletableFuture<>();
+        pendingLoads.add(response);
+        return response;
+    }
+
+    private static PaymentMethodsRequest request(String countryCode, long amount) {
+        PaymentMethodsRequest request = new PaymentMethodsRequest();
+        request.setMerchantAccount("merchant");
+        request.setCountryCode(countryCode);
+        request.setShopperLocale("nl-NL");
+        request.setChannel(PaymentMethodsRequest.ChannelEnum.WEB);
+        Amount value = new Amount();
+        value.setCurrency("EUR");
+        value.setValue(amount);
+        request.setAmount(value);
+        return request;
+    }
+}
@@ -0,0 +1,108 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.adyen.Config;
+import com.adyen.httpclient.HTTPClientException;
+import com.adyen.model.RequestOptions;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link PooledAdyenHttpClient}.
+ */
+class PooledAdyenHttpClientTest {
+
+    private final Map<String, String> received = new ConcurrentHashMap<>();
+
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    private PooledAdyenHttpClient httpClient;
+
+    private Config config;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(
+            "/payments",
+            exchange -> {
+                remotePorts.add(exchange.getRemoteAddress().getPort());
+                received.put("apiKey", String.valueOf(exchange.getRequestHeaders().getFirst("x-api-key")));
+                received.put("idempotencyKey", String.valueOf(exchange.getRequestHeaders().getFirst("Idempotency-Key")));
+                received.put("body", new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                respond(exchange, 200, "{\"resultCode\":\"Authorised\"}");
+            }
+        );
+        server.createContext("/refused", exchange -> respond(exchange, 422, "{\"errorCode\":\"14_030\"}"));
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        httpClient = new PooledAdyenHttpClient(2, 1000L, 5000L, meterRegistry);
+        config = new Config();
+        config.setApiKey("test-key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void sendsJsonWithApiKey() throws Exception {
+        RequestOptions requestOptions = new RequestOptions();
+        requestOptions.setIdempotencyKey("order-1");
+
+        String response = httpClient.request(baseUrl + "/payments", "{\"reference\":\"order-1\"}", config, true, requestOptions);
+
+        assertThat(response).isEqualTo("{\"resultCode\":\"Authorised\"}");
+        assertThat(received)
+            .containsEntry("apiKey", "test-key")
+            .containsEntry("idempotencyKey", "order-1")
+            .containsEntry("body", "{\"reference\":\"order-1\"}");
+
+        // the second call reuses the kept-alive connection
+        httpClient.request(baseUrl + "/payments", "{}", config);
+        assertThat(remotePorts).hasSize(1);
+        assertThat(meterRegistry.get("adyen.http.requests").tag("status", "200").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("adyen.http.requests.active").gauge().value()).isZero();
+    }
+
+    @Test
+    void failsWithStatusOfErrorResponse() {
+        assertThatThrownBy(() -> httpClient.request(baseUrl + "/refused", "{}", config))
+            .isInstanceOfSatisfying(
+                HTTPClientException.class,
+                e -> {
+                    assertThat(e.getCode()).isEqualTo(422);
+                    assertThat(e.getResponseBody()).contains("14_030");
+                }
+            );
+        assertThat(meterRegistry.get("adyen.http.requests").tag("status", "422").timer().count()).isEqualTo(1);
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.enumeration.Size;
+import com.adyen.demo.store.service.dto.ProductSummaryDTO;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Test class for the {@link ProductFacetIndex}.
+ */
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new ProductFacetIndex();
+        index.put(summary(1L, "Shirt", "30.00", Size.M, 1L));
+        index.put(summary(2L, "Cap", "10.00", Size.S, 2L));
+        index.put(summary(3L, "Jeans", "20.50", Size.M, 1L));
+        index.put(summary(4L, "Socks", "5.00", Size.S, 1L));
+    }
+
+    @Test
+    void filtersBySizeCategoryAndPrice() {
+        ProductFacetIndex.FacetedPage result = index.filter(
+            new ProductFacetIndex.Filter(
+                Collections.singletonList(Size.M),
+                Collections.singletonList(1L),
+                new BigDecimal("20.5"),
+                null
+            ),
+            PageRequest.of(0, 10)
+        );
+
+        assertThat(ids(result)).containsExactly(1L, 3L);
+        assertThat(result.getPage().getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void countsEachFacetWithTheOtherFilters() {
+        ProductFacetIndex.FacetedPage result = index.filter(
+            new ProductFacetIndex.Filter(Collections.singletonList(Size.S), Collections.singletonList(1L), null, null),
+            PageRequest.of(0, 10)
+        );
+
+        assertThat(ids(result)).containsExactly(4L);
+        assertThat(result.getSizeCounts()).containsEntry(Size.S, 1L).containsEntry(Size.M, 2L).hasSize(2);
+        assertThat(result.getCategoryCounts()).containsEntry(1L, 1L).containsEntry(2L, 1L).hasSize(2);
+    }
+
+    @Test
+    void sortsAndPagesMatches() {
+        ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter(null, null, new BigDecimal("5"), new BigDecimal("29.99"));
+
+        ProductFacetIndex.FacetedPage byPrice = index.filter(filter, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "price")));
+        ProductFacetIndex.FacetedPage byName = index.filter(filter, PageRequest.of(1, 2, Sort.by("name")));
+
+        assertThat(ids(byPrice)).containsExactly(3L, 2L);
+        assertThat(ids(byName)).containsExactly(4L);
+        assertThat(byName.getPage().getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void replacesAndRemovesProducts() {
+        index.put(summary(1L, "Shirt", "8.00", Size.S, 2L));
+        index.remove(3L);
+
+        ProductFacetIndex.FacetedPage result = index.filter(
+            new ProductFacetIndex.Filter(null, null, null, new BigDecimal("9")),
+            PageRequest.of(0, 10, Sort.by("price"))
+        );
+
+        assertThat(ids(result)).containsExactly(4L, 1L);
+        assertThat(result.getSizeCounts()).containsOnlyKeys(Size.S);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void buildsFromManyProducts() {
+        ProductFacetIndex built = new ProductFacetIndex(
+            Arrays.asList(summary(1L, "Shirt", "30.00", Size.M, 1L), summary(2L, "Cap", "10.00", Size.S, 2L))
+        );
+        built.put(summary(3L, "Jeans", "20.50", Size.M, 1L));
+
+        ProductFacetIndex.FacetedPage result = built.filter(
+            new ProductFacetIndex.Filter(null, null, null, null),
+            PageRequest.of(0, 10, Sort.by("price"))
+        );
+
+        assertThat(ids(result)).containsExactly(2L, 3L, 1L);
+    }
+
+    private static List<Long> ids(ProductFacetIndex.FacetedPage result) {
+        return result.getPage().getContent().stream().map(ProductSummaryDTO::getId).collect(Collectors.toList());
+    }
+
+    private static ProductSummaryDTO summary(Long id, String name, String price, Size size, Long categoryId) {
+        return new ProductSummaryDTO(id, name, null, Money.of(new BigDecimal(price)), size, null, null, categoryId, "Category " + categoryId);
+    }
+}
@@ -0,0 +1,63 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adyen.demo.store.service.dto.ProductSuggestionDTO;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ProductNameSuggester}.
+ */
+class ProductNameSuggesterTest {
+
+    private ProductNameSuggester suggester;
+
+    @BeforeEach
+    void setup() {
+        suggester = new ProductNameSuggester(2);
+        suggester.put(1L, "Blue Shirt");
+        suggester.put(2L, "Blouse");
+        suggester.put(3L, "Crème brûlée");
+        suggester.put(4L, "Shirt dress");
+    }
+
+    @Test
+    void suggestsNamesAndWordsStartingWithThePrefix() {
+        assertThat(ids(suggester.suggest("bl", 10))).containsExactly(2L, 1L);
+        assertThat(ids(suggester.suggest("SHI", 10))).containsExactly(1L, 4L);
+        assertThat(ids(suggester.suggest("creme b", 10))).containsExactly(3L);
+        assertThat(suggester.suggest("x", 10)).isEmpty();
+        assertThat(suggester.suggest(" ", 10)).isEmpty();
+    }
+
+    @Test
+    void ranksMostPopularFirst() {
+        Map<Long, Long> popularities = new HashMap<>();
+        popularities.put(4L, 3L);
+        suggester.setPopularities(popularities);
+        suggester.put(5L, "Shirt jacket");
+
+        assertThat(ids(suggester.suggest("shirt", 10))).containsExactly(4L, 1L);
+        assertThat(ids(suggester.suggest("shirt", 1))).containsExactly(4L);
+    }
+
+    @Test
+    void updatesAndRemovesProducts() {
+        suggester.put(2L, "Cap");
+        suggester.remove(4L);
+
+        assertThat(ids(suggester.suggest("bl", 10))).containsExactly(1L);
+        assertThat(ids(suggester.suggest("sh", 10))).containsExactly(1L);
+        assertThat(ids(suggester.suggest("c", 10))).containsExactly(2L, 3L);
+        assertThat(suggester.size()).isEqualTo(3);
+    }
+
+    private static List<Long> ids(List<ProductSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,60 @@
+package com.adyen.demo.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ProductSearchIndex}.
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new ProductSearchIndex();
+        index.put(1L, "Blue shirt", "A cotton shirt", "Shirts");
+        index.put(2L, "Red cap", "Goes well with a blue shirt", "Caps");
+        index.put(3L, "Jeans", "Blue denim trousers", "Trousers");
+    }
+
+    @Test
+    void ranksNameMatchesFirst() {
+        ProductSearchIndex.Hits hits = index.search("blue shirts", 0, 10);
+
+        assertThat(hits.getProductIds()).containsExactly(1L, 2L, 3L);
+        assertThat(hits.getTotal()).isEqualTo(3);
+    }
+
+    @Test
+    void pagesThroughHits() {
+        assertThat(index.search("blue", 0, 2).getProductIds()).hasSize(2);
+        assertThat(index.search("blue", 2, 2).getProductIds()).hasSize(1);
+        assertThat(index.search("blue", 4, 2).getProductIds()).isEmpty();
+        assertThat(index.search("blue", 4, 2).getTotal()).isEqualTo(3);
+        assertThat(index.search("blue", 1_000_000_000_000L, Integer.MAX_VALUE).getProductIds()).isEmpty();
+        assertThat(index.search("blue", 1, Integer.MAX_VALUE).getProductIds()).hasSize(2);
+    }
+
+    @Test
+    void replacesAndRemovesProducts() {
+        index.put(1L, "Green shirt", "A cotton shirt", "Shirts");
+        index.remove(3L);
+
+        assertThat(index.search("blue", 0, 10).getProductIds()).containsExactly(2L);
+        assertThat(index.search("green", 0, 10).getProductIds()).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getDeletedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresCaseAccentsAndStopWords() {
+        index.put(4L, "Crème brûlée bowl", null, null);
+
+        assertThat(index.search("CREME", 0, 10).getProductIds()).containsExactly(4L);
+        assertThat(index.search("the of and", 0, 10).getTotal()).isZero();
+        assertThat(ProductSearchIndex.tokenize("The shirts, a dress & caps")).containsExactly("shirt", "dress", "cap");
+    }
+}
@@ -0,0 +1,115 @@
+package com.adyen.demo.store.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.CustomerDetails;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.repository.ShoppingCartRepository;
+import com.adyen.demo.store.web.rest.CustomerDetailsResourceIT;
+import com.adyen.demo.store.web.rest.ProductResourceIT;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link IdempotencyFilter}.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+class IdempotencyFilterIT {
+
+    private static final String ADD_PRODUCT_URL = "/api/shopping-carts/add-product/{id}";
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private MockMvc restMockMvc;
+
+    private String login;
+
+    private Product product;
+
+    @BeforeEach
+    public void initTest() {
+        CustomerDetails customerDetails = CustomerDetailsResourceIT.createEntity(em);
+        em.persist(customerDetails);
+        login = customerDetails.getUser().getLogin();
+        product = ProductResourceIT.createEntity(em);
+        em.persist(product);
+        em.flush();
+    }
+
+    @Test
+    @Transactional
+    void replaysRequestSentAgainWithSameKey() throws Exception {
+        String body = restMockMvc
+            .perform(put(ADD_PRODUCT_URL, product.getId()).with(user(login)).header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "key-1"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        restMockMvc
+            .perform(put(ADD_PRODUCT_URL, product.getId()).with(user(login)).header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "key-1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+            .andExpect(content().json(body, true));
+
+        assertThat(quantityInCart()).isEqualTo(1);
+
+        // Another key runs the request again
+        restMockMvc
+            .perform(put(ADD_PRODUCT_URL, product.getId()).with(user(login)).header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "key-2"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+
+        assertThat(quantityInCart()).isEqualTo(2);
+    }
+
+    @Test
+    @Transactional
+    void rejectsKeyReusedForAnotherRequest() throws Exception {
+        restMockMvc
+            .perform(put(ADD_PRODUCT_URL, product.getId()).with(user(login)).header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "key-1"))
+            .andExpect(status().isOk());
+
+        restMockMvc
+            .perform(
+                delete("/api/shopping-carts/remove-order/{id}", product.getId())
+                    .with(user(login))
+                    .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "key-1")
+            )
+            .andExpect(status().isUnprocessableEntity());
+
+        restMockMvc
+            .perform(put(ADD_PRODUCT_URL, product.getId()).with(user(login)).header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, ""))
+            .andExpect(status().isBadRequest());
+
+        assertThat(quantityInCart()).isEqualTo(1);
+    }
+
+    private int quantityInCart() {
+        em.flush();
+        em.clear();
+        ShoppingCart cart = shoppingCartRepository
+            .findOneWithOrdersByCustomerDetailsUserLoginAndStatus(login, OrderStatus.OPEN)
+            .orElseThrow(IllegalStateException::new);
+        return cart.getOrders().stream().mapToInt(ProductOrder::getQuantity).sum();
+    }
+}
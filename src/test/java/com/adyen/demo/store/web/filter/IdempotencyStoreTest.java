@@ -0,0 +1,98 @@
+package com.adyen.demo.store.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.adyen.demo.store.web.filter.IdempotencyStore.Claim;
+import com.adyen.demo.store.web.filter.IdempotencyStore.StoredResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link IdempotencyStore}.
+ */
+class IdempotencyStoreTest {
+
+    private static final String FINGERPRINT = "PUT /api/shopping-carts/add-product/1";
+
+    private final AtomicLong now = new AtomicLong(1000L);
+
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new IdempotencyStore(2, 100L, now::get);
+    }
+
+    @Test
+    void replaysCompletedResponse() throws Exception {
+        Claim first = store.claim("user key", FINGERPRINT);
+        store.complete(first.getEntry(), response("cart"));
+
+        Claim second = store.claim("user key", FINGERPRINT);
+
+        assertThat(first.isOwner()).isTrue();
+        assertThat(second.isOwner()).isFalse();
+        assertThat(second.getEntry().matches(FINGERPRINT)).isTrue();
+        assertThat(second.getEntry().matches("POST /api/checkout/initiate-payment")).isFalse();
+        assertThat(new String(second.getEntry().await(0L).getBody(), StandardCharsets.UTF_8)).isEqualTo("cart");
+        assertThat(store.claim("other-user key", FINGERPRINT).isOwner()).isTrue();
+    }
+
+    @Test
+    void duplicateWaitsForRunningRequest() throws Exception {
+        Claim first = store.claim("user key", FINGERPRINT);
+        Claim second = store.claim("user key", FINGERPRINT);
+        assertThatThrownBy(() -> second.getEntry().await(0L)).isInstanceOf(TimeoutException.class);
+
+        CompletableFuture<StoredResponse> waiting = CompletableFuture.supplyAsync(
+            () -> {
+                try {
+                    return second.getEntry().await(5000L);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        );
+        store.complete(first.getEntry(), response("cart"));
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedAgain() throws Exception {
+        Claim first = store.claim("user key", FINGERPRINT);
+        Claim second = store.claim("user key", FINGERPRINT);
+
+        store.release(first.getEntry());
+
+        assertThat(second.getEntry().await(0L)).isNull();
+        assertThat(store.claim("user key", FINGERPRINT).isOwner()).isTrue();
+    }
+
+    @Test
+    void evictsExpiredAndEldestKeys() {
+        store.claim("a", FINGERPRINT);
+        now.addAndGet(50L);
+        store.claim("b", FINGERPRINT);
+        store.claim("c", FINGERPRINT);
+
+        // the store holds two keys, the eldest was evicted
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.claim("a", FINGERPRINT).isOwner()).isTrue();
+
+        now.addAndGet(100L);
+        store.claim("d", FINGERPRINT);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    private static StoredResponse response(String body) {
+        return new StoredResponse(200, "application/json", Collections.emptyMap(), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
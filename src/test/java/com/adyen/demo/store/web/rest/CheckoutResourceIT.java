@@ -0,0 +1,56 @@
+package com.adyen.demo.store.web.rest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.service.AdyenService;
+import com.adyen.demo.store.web.rest.errors.ErrorConstants;
+import com.adyen.model.modification.ModificationResult;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Integration tests for the {@link CheckoutResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class CheckoutResourceIT {
+
+    @Autowired
+    private MockMvc restCheckoutMockMvc;
+
+    @MockBean
+    private AdyenService adyenService;
+
+    @Test
+    void refundUnknownCart() throws Exception {
+        ModificationResult modificationResult = new ModificationResult();
+        modificationResult.setPspReference("8816178914079738");
+        when(adyenService.cancelOrRefund(any())).thenReturn(CompletableFuture.completedFuture(modificationResult));
+        ShoppingCart cart = new ShoppingCart().paymentReference("8516178914079738");
+        cart.setId(Long.MAX_VALUE);
+
+        MvcResult started = restCheckoutMockMvc
+            .perform(post("/api/checkout/refund-payment").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(cart)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        restCheckoutMockMvc
+            .perform(asyncDispatch(started))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.type").value(ErrorConstants.ENTITY_NOT_FOUND.toString()))
+            .andExpect(jsonPath("$.title").value("Cart not found"));
+    }
+}
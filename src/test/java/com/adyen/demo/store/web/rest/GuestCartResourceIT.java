@@ -0,0 +1,175 @@
+package com.adyen.demo.store.web.rest;
+
+import static com.adyen.demo.store.web.rest.TestUtil.sameNumber;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.CustomerDetails;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductOrder;
+import com.adyen.demo.store.domain.ShoppingCart;
+import com.adyen.demo.store.domain.User;
+import com.adyen.demo.store.domain.enumeration.OrderStatus;
+import com.adyen.demo.store.repository.ShoppingCartRepository;
+import com.adyen.demo.store.service.dto.CartItemChangeDTO;
+import com.adyen.demo.store.web.rest.vm.LoginVM;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link GuestCartResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithUnauthenticatedMockUser
+class GuestCartResourceIT {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MockMvc restGuestCartMockMvc;
+
+    private Product product;
+
+    @BeforeEach
+    public void initTest() {
+        product = ProductResourceIT.createEntity(em).price(Money.of(250L, Money.DEFAULT_CURRENCY));
+    }
+
+    @Test
+    @Transactional
+    void addProductsToGuestCart() throws Exception {
+        em.persist(product);
+        em.flush();
+
+        String token = addToGuestCart(null, product.getId(), 2);
+
+        restGuestCartMockMvc
+            .perform(get("/api/guest-cart").header(GuestCartResource.GUEST_CART_HEADER, token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value(OrderStatus.OPEN.toString()))
+            .andExpect(jsonPath("$.totalPrice").value(sameNumber(Money.of(500L, Money.DEFAULT_CURRENCY).toBigDecimal())))
+            .andExpect(jsonPath("$.orders[0].quantity").value(2))
+            .andExpect(jsonPath("$.orders[0].product.id").value(product.getId().intValue()));
+
+        String updated = addToGuestCart(token, product.getId(), -2);
+
+        restGuestCartMockMvc
+            .perform(get("/api/guest-cart").header(GuestCartResource.GUEST_CART_HEADER, updated))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.orders").isEmpty());
+    }
+
+    @Test
+    @Transactional
+    void getGuestCartWithInvalidToken() throws Exception {
+        restGuestCartMockMvc
+            .perform(get("/api/guest-cart").header(GuestCartResource.GUEST_CART_HEADER, "invalid"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.orders").isEmpty())
+            .andExpect(jsonPath("$.totalPrice").value(sameNumber(Money.zero(Money.DEFAULT_CURRENCY).toBigDecimal())));
+    }
+
+    @Test
+    @Transactional
+    void addUnknownProductToGuestCart() throws Exception {
+        restGuestCartMockMvc
+            .perform(
+                patch("/api/guest-cart")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(new CartItemChangeDTO(Long.MAX_VALUE, 1))))
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void addTooManyUnitsToGuestCart() throws Exception {
+        em.persist(product);
+        em.flush();
+
+        restGuestCartMockMvc
+            .perform(
+                patch("/api/guest-cart")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        TestUtil.convertObjectToJsonBytes(
+                            Arrays.asList(
+                                new CartItemChangeDTO(product.getId(), Integer.MAX_VALUE),
+                                new CartItemChangeDTO(product.getId(), Integer.MAX_VALUE)
+                            )
+                        )
+                    )
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void mergeGuestCartAtLogin() throws Exception {
+        em.persist(product);
+        User user = UserResourceIT.createEntity(em);
+        user.setPassword(passwordEncoder.encode("test"));
+        em.persist(user);
+        CustomerDetails customerDetails = CustomerDetailsResourceIT.createEntity(em).user(user);
+        em.persist(customerDetails);
+        em.flush();
+
+        String token = addToGuestCart(null, product.getId(), 3);
+
+        LoginVM login = new LoginVM();
+        login.setUsername(user.getLogin());
+        login.setPassword("test");
+        // logging in again with the same guest cart must not add its lines twice
+        for (int i = 0; i < 2; i++) {
+            restGuestCartMockMvc
+                .perform(
+                    post("/api/authenticate")
+                        .header(GuestCartResource.GUEST_CART_HEADER, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(login))
+                )
+                .andExpect(status().isOk());
+        }
+
+        ShoppingCart cart = shoppingCartRepository
+            .findOneWithOrdersByCustomerDetailsUserLoginAndStatus(user.getLogin(), OrderStatus.OPEN)
+            .orElseThrow(AssertionError::new);
+        assertThat(cart.getOrders()).extracting(ProductOrder::getQuantity).containsExactly(3);
+        assertThat(cart.getTotalPrice()).isEqualTo(Money.of(750L, Money.DEFAULT_CURRENCY));
+    }
+
+    private String addToGuestCart(String token, Long productId, int quantityDelta) throws Exception {
+        return restGuestCartMockMvc
+            .perform(
+                patch("/api/guest-cart")
+                    .header(GuestCartResource.GUEST_CART_HEADER, token != null ? token : "")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(new CartItemChangeDTO(productId, quantityDelta))))
+            )
+            .andExpect(status().isOk())
+            .andExpect(header().exists(GuestCartResource.GUEST_CART_HEADER))
+            .andReturn()
+            .getResponse()
+            .getHeader(GuestCartResource.GUEST_CART_HEADER);
+    }
+}
@@ -0,0 +1,175 @@
+package com.adyen.demo.store.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductCategory;
+import com.adyen.demo.store.repository.ProductCategoryRepository;
+import com.adyen.demo.store.repository.ProductRepository;
+import com.adyen.demo.store.service.ProductImportService;
+import com.adyen.demo.store.service.dto.ProductImportReportDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Integration tests for the {@link ProductImportResource} REST controller.
+ * <p>
+ * Imports run in the background, in their own transactions, so these tests commit their data and remove it after.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" }, password = "admin")
+class ProductImportResourceIT {
+
+    private static final String IMPORT_API_URL = "/api/products/import";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCategoryRepository productCategoryRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private MockMvc restProductImportMockMvc;
+
+    private ProductCategory productCategory;
+
+    @BeforeEach
+    public void initTest() {
+        productCategory = productCategoryRepository.saveAndFlush(ProductCategoryResourceIT.createEntity(em));
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        productRepository.deleteAll(importedProducts());
+        productCategoryRepository.deleteById(productCategory.getId());
+    }
+
+    @Test
+    void importProductsFromCsv() throws Exception {
+        String csv =
+            "id;name;description;price;item_size;image;image_content_type;product_category_id\n" +
+            "1;Imported Shirt;\"A shirt; with a semicolon\nand a line break\";12.5;S;../fake-data/blob/shirt3.jpg;image/png;" +
+            productCategory.getId() +
+            "\n" +
+            "2;Imported Cap;A cap;10;XXXL;;;" +
+            productCategory.getId() +
+            "\n" +
+            "3;Imported Jeans;Jeans;-1;M;;;" +
+            productCategory.getId() +
+            "\n";
+
+        String id = startImport("text/csv", csv);
+
+        restProductImportMockMvc
+            .perform(get("/api/products/imports/{id}", id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("COMPLETED"))
+            .andExpect(jsonPath("$.processed").value(3))
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.rejected").value(2))
+            .andExpect(jsonPath("$.errors").value(hasItem(containsString("line 4: invalid item size XXXL"))))
+            .andExpect(jsonPath("$.errors").value(hasItem(containsString("line 5: price"))));
+
+        List<Product> products = importedProducts();
+        assertThat(products).hasSize(1);
+        Product imported = products.get(0);
+        assertThat(imported.getName()).isEqualTo("Imported Shirt");
+        assertThat(imported.getDescription()).isEqualTo("A shirt; with a semicolon\nand a line break");
+        assertThat(imported.getPrice()).isEqualTo(Money.of(1250L, Money.DEFAULT_CURRENCY));
+        assertThat(imported.getImageHash()).isNull();
+    }
+
+    @Test
+    void importProductsFromNdjson() throws Exception {
+        String ndjson =
+            "{\"name\":\"Imported Shirt\",\"price\":12,\"itemSize\":\"M\",\"productCategory\":{\"id\":" +
+            productCategory.getId() +
+            "}}\n" +
+            "{\"name\":\"Imported Cap\",\"price\":10,\"itemSize\":\"S\",\"productCategory\":{\"name\":\"" +
+            productCategory.getName() +
+            "\"}}\n" +
+            "{\"name\":\"Unknown category\",\"price\":10,\"itemSize\":\"S\",\"productCategory\":{\"id\":-1}}\n" +
+            "not json\n";
+
+        String id = startImport("application/x-ndjson", ndjson);
+
+        restProductImportMockMvc
+            .perform(get("/api/products/imports/{id}", id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(2))
+            .andExpect(jsonPath("$.rejected").value(2))
+            .andExpect(jsonPath("$.errors").value(hasItem("line 3: unknown product category -1")));
+
+        List<String> names = importedProducts().stream().map(Product::getName).collect(Collectors.toList());
+        assertThat(names).containsExactlyInAnyOrder("Imported Shirt", "Imported Cap");
+
+        restProductImportMockMvc
+            .perform(get("/api/products/imports"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(id)));
+    }
+
+    @Test
+    @WithMockUser
+    void importProductsRequiresAdmin() throws Exception {
+        restProductImportMockMvc
+            .perform(post(IMPORT_API_URL).contentType("text/csv").content("name;price\n"))
+            .andExpect(status().isForbidden());
+    }
+
+    /**
+     * Start an import and wait for it to finish.
+     *
+     * @return the id of the import.
+     */
+    private String startImport(String contentType, String content) throws Exception {
+        MvcResult result = restProductImportMockMvc
+            .perform(post(IMPORT_API_URL).contentType(contentType).content(content.getBytes(StandardCharsets.UTF_8)))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists(HttpHeaders.LOCATION))
+            .andReturn();
+        String id = objectMapper.readTree(result.getResponse().getContentAsByteArray()).get("id").asText();
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (productImportService.findImport(id).map(report -> report.getStatus() == ProductImportReportDTO.Status.RUNNING).orElse(false)) {
+            assertThat(System.currentTimeMillis()).as("import finished in time").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+        return id;
+    }
+
+    private List<Product> importedProducts() {
+        return productRepository
+            .findAll()
+            .stream()
+            .filter(product -> product.getProductCategory().getId().equals(productCategory.getId()))
+            .collect(Collectors.toList());
+    }
+}
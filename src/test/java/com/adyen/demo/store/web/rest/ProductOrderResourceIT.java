@@ -7,11 +7,11 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.Money;
 import com.adyen.demo.store.domain.Product;
 import com.adyen.demo.store.domain.ProductOrder;
 import com.adyen.demo.store.domain.ShoppingCart;
 import com.adyen.demo.store.repository.ProductOrderRepository;
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
@@ -36,8 +36,8 @@ public class ProductOrderResourceIT {
     private static final Integer DEFAULT_QUANTITY = 0;
     private static final Integer UPDATED_QUANTITY = 1;
 
-    private static final BigDecimal DEFAULT_TOTAL_PRICE = new BigDecimal(0);
-    private static final BigDecimal UPDATED_TOTAL_PRICE = new BigDecimal(1);
+    private static final Money DEFAULT_TOTAL_PRICE = Money.of(0L, Money.DEFAULT_CURRENCY);
+    private static final Money UPDATED_TOTAL_PRICE = Money.of(100L, Money.DEFAULT_CURRENCY);
 
     private static final String ENTITY_API_URL = "/api/product-orders";
     private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
@@ -205,7 +205,7 @@ public class ProductOrderResourceIT {
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(jsonPath("$.[*].id").value(hasItem(productOrder.getId().intValue())))
             .andExpect(jsonPath("$.[*].quantity").value(hasItem(DEFAULT_QUANTITY)))
-            .andExpect(jsonPath("$.[*].totalPrice").value(hasItem(sameNumber(DEFAULT_TOTAL_PRICE))));
+            .andExpect(jsonPath("$.[*].totalPrice").value(hasItem(sameNumber(DEFAULT_TOTAL_PRICE.toBigDecimal()))));
     }
 
     @Test
@@ -221,7 +221,7 @@ public class ProductOrderResourceIT {
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(jsonPath("$.id").value(productOrder.getId().intValue()))
             .andExpect(jsonPath("$.quantity").value(DEFAULT_QUANTITY))
-            .andExpect(jsonPath("$.totalPrice").value(sameNumber(DEFAULT_TOTAL_PRICE)));
+            .andExpect(jsonPath("$.totalPrice").value(sameNumber(DEFAULT_TOTAL_PRICE.toBigDecimal())));
     }
 
     @Test
@@ -2,16 +2,24 @@ package com.adyen.demo.store.web.rest;
 
 import static com.adyen.demo.store.web.rest.TestUtil.sameNumber;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.adyen.demo.store.IntegrationTest;
+import com.adyen.demo.store.domain.Money;
 import com.adyen.demo.store.domain.Product;
 import com.adyen.demo.store.domain.ProductCategory;
 import com.adyen.demo.store.domain.enumeration.Size;
 import com.adyen.demo.store.repository.ProductRepository;
-import java.math.BigDecimal;
+import com.adyen.demo.store.service.ImageStore;
+import com.adyen.demo.store.service.ProductService;
+import com.jayway.jsonpath.JsonPath;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
@@ -20,11 +28,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.Base64Utils;
 /**
  * Integration tests for the {@link ProductResource} REST controller.
  */
@@ -39,14 +48,16 @@ public class ProductResourceIT {
     private static final String DEFAULT_DESCRIPTION = "AAAAAAAAAA";
     private static final String UPDATED_DESCRIPTION = "BBBBBBBBBB";
 
-    private static final BigDecimal DEFAULT_PRICE = new BigDecimal(0);
-    private static final BigDecimal UPDATED_PRICE = new BigDecimal(1);
+    private static final Money DEFAULT_PRICE = Money.of(0L, Money.DEFAULT_CURRENCY);
+    private static final Money UPDATED_PRICE = Money.of(100L, Money.DEFAULT_CURRENCY);
 
     private static final Size DEFAULT_ITEM_SIZE = Size.S;
     private static final Size UPDATED_ITEM_SIZE = Size.M;
 
     private static final byte[] DEFAULT_IMAGE = TestUtil.createByteArray(1, "0");
     private static final byte[] UPDATED_IMAGE = TestUtil.createByteArray(1, "1");
+    private static final String DEFAULT_IMAGE_HASH = ImageStore.hash(DEFAULT_IMAGE);
+    private static final String UPDATED_IMAGE_HASH = ImageStore.hash(UPDATED_IMAGE);
     private static final String DEFAULT_IMAGE_CONTENT_TYPE = "image/jpg";
     private static final String UPDATED_IMAGE_CONTENT_TYPE = "image/png";
 
@@ -59,6 +70,9 @@ public class ProductResourceIT {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductService productService;
+
     @Autowired
     private EntityManager em;
 
@@ -80,6 +94,7 @@ public class ProductResourceIT {
             .price(DEFAULT_PRICE)
             .itemSize(DEFAULT_ITEM_SIZE)
             .image(DEFAULT_IMAGE)
+            .imageHash(DEFAULT_IMAGE_HASH)
             .imageContentType(DEFAULT_IMAGE_CONTENT_TYPE);
         // Add required entity
         ProductCategory productCategory;
@@ -107,6 +122,7 @@ public class ProductResourceIT {
             .price(UPDATED_PRICE)
             .itemSize(UPDATED_ITEM_SIZE)
             .image(UPDATED_IMAGE)
+            .imageHash(UPDATED_IMAGE_HASH)
             .imageContentType(UPDATED_IMAGE_CONTENT_TYPE);
         // Add required entity
         ProductCategory productCategory;
@@ -143,7 +159,7 @@ public class ProductResourceIT {
         assertThat(testProduct.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
         assertThat(testProduct.getPrice()).isEqualByComparingTo(DEFAULT_PRICE);
         assertThat(testProduct.getItemSize()).isEqualTo(DEFAULT_ITEM_SIZE);
-        assertThat(testProduct.getImage()).isEqualTo(DEFAULT_IMAGE);
+        assertThat(testProduct.getImageHash()).isEqualTo(DEFAULT_IMAGE_HASH);
         assertThat(testProduct.getImageContentType()).isEqualTo(DEFAULT_IMAGE_CONTENT_TYPE);
     }
 
@@ -230,10 +246,139 @@ public class ProductResourceIT {
             .andExpect(jsonPath("$.[*].id").value(hasItem(product.getId().intValue())))
             .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME)))
             .andExpect(jsonPath("$.[*].description").value(hasItem(DEFAULT_DESCRIPTION)))
-            .andExpect(jsonPath("$.[*].price").value(hasItem(sameNumber(DEFAULT_PRICE))))
+            .andExpect(jsonPath("$.[*].price").value(hasItem(sameNumber(DEFAULT_PRICE.toBigDecimal()))))
             .andExpect(jsonPath("$.[*].itemSize").value(hasItem(DEFAULT_ITEM_SIZE.toString())))
             .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
-            .andExpect(jsonPath("$.[*].image").value(hasItem(Base64Utils.encodeToString(DEFAULT_IMAGE))));
+            .andExpect(jsonPath("$.[*].imageHash").value(hasItem(DEFAULT_IMAGE_HASH))));
+    }
+
+    @Test
+    @Transactional
+    void getAllProductsCountsOnlyWhenAsked() throws Exception {
+        // Initialize the database
+        productRepository.saveAndFlush(product);
+
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(product.getId().intValue())));
+
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc&count=true"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(product.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    void getAllProductsWithFacets() throws Exception {
+        // Initialize the database
+        productRepository.saveAndFlush(product);
+        Long categoryId = product.getProductCategory().getId();
+
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL + "?itemSize=" + DEFAULT_ITEM_SIZE + "&category=" + categoryId + "&maxPrice=" + DEFAULT_PRICE.toBigDecimal()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(header().string("X-Facet-Item-Size", containsString(DEFAULT_ITEM_SIZE + "=1")))
+            .andExpect(header().string("X-Facet-Product-Category", categoryId + "=1"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(product.getId().intValue())));
+
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL + "?itemSize=" + UPDATED_ITEM_SIZE + "&category=" + categoryId))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"))
+            .andExpect(header().string("X-Facet-Item-Size", containsString(DEFAULT_ITEM_SIZE + "=1")));
+
+        restProductMockMvc.perform(get(ENTITY_API_URL + "?minPrice=2&maxPrice=1")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void searchProducts() throws Exception {
+        // Initialize the database
+        productRepository.saveAndFlush(product);
+
+        restProductMockMvc
+            .perform(get("/api/_search/products?q=" + DEFAULT_NAME.toLowerCase()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(product.getId().intValue())));
+
+        restProductMockMvc.perform(get("/api/_search/products?q= ")).andExpect(status().isBadRequest());
+        // wildcards match literally
+        restProductMockMvc
+            .perform(get("/api/_search/products").param("q", "%"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(product.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    void suggestProducts() throws Exception {
+        // Initialize the database
+        productRepository.saveAndFlush(product);
+
+        restProductMockMvc
+            .perform(get("/api/_suggest/products?prefix=" + DEFAULT_NAME.substring(0, 3).toLowerCase()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(product.getId().intValue())))
+            .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME)));
+
+        // the start of any word of the name matches too
+        Product shirt = createEntity(em);
+        shirt.setName("Blue Shirt");
+        productRepository.saveAndFlush(shirt);
+        restProductMockMvc
+            .perform(get("/api/_suggest/products?prefix=shi"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(shirt.getId().intValue())));
+
+        restProductMockMvc
+            .perform(get("/api/_suggest/products?prefix=zz"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    @Transactional
+    void getAllProductsWithKeyset() throws Exception {
+        // Initialize the database with two products sharing the sort key
+        productRepository.saveAndFlush(product);
+        productRepository.saveAndFlush(createEntity(em));
+
+        // Follow the next links one product at a time
+        List<Integer> ids = new ArrayList<>();
+        String url = ENTITY_API_URL + "?after=&sort=price,asc&size=1";
+        while (url != null) {
+            MvcResult result = restProductMockMvc
+                .perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andReturn();
+            ids.add(JsonPath.read(result.getResponse().getContentAsString(), "$[0].id"));
+            String link = result.getResponse().getHeader(HttpHeaders.LINK);
+            url = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        }
+
+        assertThat(ids).doesNotHaveDuplicates().hasSize((int) productRepository.count());
+        assertThat(ids).contains(product.getId().intValue());
+    }
+
+    @Test
+    @Transactional
+    void getAllProductsWithInvalidKeyset() throws Exception {
+        restProductMockMvc.perform(get(ENTITY_API_URL + "?after=not-a-cursor")).andExpect(status().isBadRequest());
+        restProductMockMvc.perform(get(ENTITY_API_URL + "?after=&sort=description,asc")).andExpect(status().isBadRequest());
+        // well-formed cursors whose last key does not fit the property
+        for (String raw : new String[] { "itemSize|ASC|1|VXXXXL", "price.amount|ASC|1|Vabc" }) {
+            String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            restProductMockMvc.perform(get(ENTITY_API_URL + "?after=" + cursor)).andExpect(status().isBadRequest());
+        }
     }
 
     @Test
@@ -250,10 +395,61 @@ public class ProductResourceIT {
             .andExpect(jsonPath("$.id").value(product.getId().intValue()))
             .andExpect(jsonPath("$.name").value(DEFAULT_NAME))
             .andExpect(jsonPath("$.description").value(DEFAULT_DESCRIPTION))
-            .andExpect(jsonPath("$.price").value(sameNumber(DEFAULT_PRICE)))
+            .andExpect(jsonPath("$.price").value(sameNumber(DEFAULT_PRICE.toBigDecimal())))
             .andExpect(jsonPath("$.itemSize").value(DEFAULT_ITEM_SIZE.toString()))
             .andExpect(jsonPath("$.imageContentType").value(DEFAULT_IMAGE_CONTENT_TYPE))
-            .andExpect(jsonPath("$.image").value(Base64Utils.encodeToString(DEFAULT_IMAGE)));
+            .andExpect(jsonPath("$.imageHash").value(DEFAULT_IMAGE_HASH));
+    }
+
+    @Test
+    @Transactional
+    void getProductImage() throws Exception {
+        // Initialize the database, storing the image through the service
+        product.setImageHash(null);
+        productService.save(product);
+        em.flush();
+
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL_ID + "/image", product.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(DEFAULT_IMAGE_CONTENT_TYPE))
+            .andExpect(content().bytes(DEFAULT_IMAGE))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + DEFAULT_IMAGE_HASH + "\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL_ID + "/image?v=" + DEFAULT_IMAGE_HASH, product.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL_ID + "/image", product.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"" + DEFAULT_IMAGE_HASH + "\""))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    void getProductImageVariant() throws Exception {
+        product.setImageHash(null);
+        productService.save(product);
+        em.flush();
+
+        // The default image is not a raster image, so the original is served instead of a resized variant
+        restProductMockMvc
+            .perform(get(ENTITY_API_URL_ID + "/image?size=thumbnail", product.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(DEFAULT_IMAGE));
+
+        restProductMockMvc.perform(get(ENTITY_API_URL_ID + "/image?size=huge", product.getId())).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getNonExistingProductImage() throws Exception {
+        product.setImageHash(null);
+        productRepository.saveAndFlush(product);
+
+        restProductMockMvc.perform(get(ENTITY_API_URL_ID + "/image", product.getId())).andExpect(status().isNotFound());
     }
 
     @Test
@@ -299,10 +495,34 @@ public class ProductResourceIT {
         assertThat(testProduct.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
         assertThat(testProduct.getPrice()).isEqualTo(UPDATED_PRICE);
         assertThat(testProduct.getItemSize()).isEqualTo(UPDATED_ITEM_SIZE);
-        assertThat(testProduct.getImage()).isEqualTo(UPDATED_IMAGE);
+        assertThat(testProduct.getImageHash()).isEqualTo(UPDATED_IMAGE_HASH);
         assertThat(testProduct.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
     }
 
+    @Test
+    @Transactional
+    void putProductKeepsImageHash() throws Exception {
+        // Initialize the database
+        productRepository.saveAndFlush(product);
+
+        Product updatedProduct = productRepository.findById(product.getId()).get();
+        em.detach(updatedProduct);
+        updatedProduct.name(UPDATED_NAME).image(null).imageHash(UPDATED_IMAGE_HASH);
+
+        restProductMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedProduct.getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedProduct))
+            )
+            .andExpect(status().isOk());
+
+        // the hash sent by the client is ignored
+        Product testProduct = productRepository.findById(product.getId()).get();
+        assertThat(testProduct.getName()).isEqualTo(UPDATED_NAME);
+        assertThat(testProduct.getImageHash()).isEqualTo(DEFAULT_IMAGE_HASH);
+    }
+
     @Test
     @Transactional
     void putNonExistingProduct() throws Exception {
@@ -389,7 +609,7 @@ public class ProductResourceIT {
         assertThat(testProduct.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
         assertThat(testProduct.getPrice()).isEqualByComparingTo(UPDATED_PRICE);
         assertThat(testProduct.getItemSize()).isEqualTo(DEFAULT_ITEM_SIZE);
-        assertThat(testProduct.getImage()).isEqualTo(UPDATED_IMAGE);
+        assertThat(testProduct.getImageHash()).isEqualTo(UPDATED_IMAGE_HASH);
         assertThat(testProduct.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
     }
 
@@ -429,7 +649,7 @@ public class ProductResourceIT {
         assertThat(testProduct.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
         assertThat(testProduct.getPrice()).isEqualByComparingTo(UPDATED_PRICE);
         assertThat(testProduct.getItemSize()).isEqualTo(UPDATED_ITEM_SIZE);
-        assertThat(testProduct.getImage()).isEqualTo(UPDATED_IMAGE);
+        assertThat(testProduct.getImageHash()).isEqualTo(UPDATED_IMAGE_HASH);
         assertThat(testProduct.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
     }
 
@@ -2,19 +2,28 @@ package com.adyen.demo.store.web.rest;
 
 import static com.adyen.demo.store.web.rest.TestUtil.sameNumber;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.adyen.demo.store.IntegrationTest;
 import com.adyen.demo.store.domain.CustomerDetails;
+import com.adyen.demo.store.domain.Money;
+import com.adyen.demo.store.domain.Product;
+import com.adyen.demo.store.domain.ProductOrder;
 import com.adyen.demo.store.domain.ShoppingCart;
 import com.adyen.demo.store.domain.enumeration.OrderStatus;
 import com.adyen.demo.store.domain.enumeration.PaymentMethod;
 import com.adyen.demo.store.repository.ShoppingCartRepository;
-import java.math.BigDecimal;
+import com.adyen.demo.store.service.dto.CartItemChangeDTO;
+import com.jayway.jsonpath.JsonPath;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
@@ -23,9 +32,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 /**
  * Integration tests for the {@link ShoppingCartResource} REST controller.
@@ -41,8 +53,8 @@ public class ShoppingCartResourceIT {
     private static final OrderStatus DEFAULT_STATUS = OrderStatus.OPEN;
     private static final OrderStatus UPDATED_STATUS = OrderStatus.PAID;
 
-    private static final BigDecimal DEFAULT_TOTAL_PRICE = new BigDecimal(0);
-    private static final BigDecimal UPDATED_TOTAL_PRICE = new BigDecimal(1);
+    private static final Money DEFAULT_TOTAL_PRICE = Money.of(0L, Money.DEFAULT_CURRENCY);
+    private static final Money UPDATED_TOTAL_PRICE = Money.of(100L, Money.DEFAULT_CURRENCY);
 
     private static final PaymentMethod DEFAULT_PAYMENT_METHOD = PaymentMethod.CREDIT_CARD;
     private static final PaymentMethod UPDATED_PAYMENT_METHOD = PaymentMethod.IDEAL;
@@ -250,7 +262,7 @@ public class ShoppingCartResourceIT {
             .andExpect(jsonPath("$.[*].id").value(hasItem(shoppingCart.getId().intValue())))
             .andExpect(jsonPath("$.[*].placedDate").value(hasItem(DEFAULT_PLACED_DATE.toString())))
             .andExpect(jsonPath("$.[*].status").value(hasItem(DEFAULT_STATUS.toString())))
-            .andExpect(jsonPath("$.[*].totalPrice").value(hasItem(sameNumber(DEFAULT_TOTAL_PRICE))))
+            .andExpect(jsonPath("$.[*].totalPrice").value(hasItem(sameNumber(DEFAULT_TOTAL_PRICE.toBigDecimal()))))
             .andExpect(jsonPath("$.[*].paymentMethod").value(hasItem(DEFAULT_PAYMENT_METHOD.toString())))
             .andExpect(jsonPath("$.[*].paymentReference").value(hasItem(DEFAULT_PAYMENT_REFERENCE)))
             .andExpect(jsonPath("$.[*].paymentModificationReference").value(hasItem(DEFAULT_PAYMENT_MODIFICATION_REFERENCE)));
@@ -270,7 +282,7 @@ public class ShoppingCartResourceIT {
             .andExpect(jsonPath("$.id").value(shoppingCart.getId().intValue()))
             .andExpect(jsonPath("$.placedDate").value(DEFAULT_PLACED_DATE.toString()))
             .andExpect(jsonPath("$.status").value(DEFAULT_STATUS.toString()))
-            .andExpect(jsonPath("$.totalPrice").value(sameNumber(DEFAULT_TOTAL_PRICE)))
+            .andExpect(jsonPath("$.totalPrice").value(sameNumber(DEFAULT_TOTAL_PRICE.toBigDecimal())))
             .andExpect(jsonPath("$.paymentMethod").value(DEFAULT_PAYMENT_METHOD.toString()))
             .andExpect(jsonPath("$.paymentReference").value(DEFAULT_PAYMENT_REFERENCE))
             .andExpect(jsonPath("$.paymentModificationReference").value(DEFAULT_PAYMENT_MODIFICATION_REFERENCE));
@@ -533,4 +545,199 @@ public class ShoppingCartResourceIT {
         List<ShoppingCart> shoppingCartList = shoppingCartRepository.findAll();
         assertThat(shoppingCartList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    void updateActiveShoppingCartProducts() throws Exception {
+        // Initialize the database
+        shoppingCartRepository.saveAndFlush(shoppingCart);
+        String login = shoppingCart.getCustomerDetails().getUser().getLogin();
+        Product shirt = ProductResourceIT.createEntity(em);
+        em.persist(shirt);
+        Product jeans = ProductResourceIT.createEntity(em).price(Money.of(1250L, Money.DEFAULT_CURRENCY));
+        em.persist(jeans);
+        em.flush();
+
+        List<CartItemChangeDTO> changes = Arrays.asList(
+            new CartItemChangeDTO(shirt.getId(), 3),
+            new CartItemChangeDTO(jeans.getId(), 2),
+            new CartItemChangeDTO(shirt.getId(), -1)
+        );
+        restShoppingCartMockMvc
+            .perform(
+                patch(ENTITY_API_URL + "/current-user-active")
+                    .with(user(login))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(changes))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(shoppingCart.getId().intValue()))
+            .andExpect(jsonPath("$.orders.length()").value(2))
+            .andExpect(jsonPath("$.customerDetails").doesNotExist())
+            .andExpect(jsonPath("$.orders[0].product.description").doesNotExist())
+            .andExpect(jsonPath("$.orders[0].product.productCategory").doesNotExist())
+            .andExpect(jsonPath("$.orders[?(@.product.id == " + shirt.getId() + ")].quantity").value(hasItem(2)))
+            .andExpect(jsonPath("$.orders[?(@.product.id == " + jeans.getId() + ")].quantity").value(hasItem(2)))
+            .andExpect(
+                jsonPath("$.totalPrice").value(sameNumber(shirt.getPrice().times(2).plus(jeans.getPrice().times(2)).toBigDecimal()))
+            );
+
+        // Removing more units than the cart holds drops the line
+        restShoppingCartMockMvc
+            .perform(
+                patch(ENTITY_API_URL + "/current-user-active")
+                    .with(user(login))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(new CartItemChangeDTO(jeans.getId(), -5))))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.orders.length()").value(1))
+            .andExpect(jsonPath("$.orders[0].product.id").value(shirt.getId().intValue()))
+            .andExpect(jsonPath("$.totalPrice").value(sameNumber(shirt.getPrice().times(2).toBigDecimal())));
+    }
+
+    @Test
+    @Transactional
+    void updateActiveShoppingCartWithInvalidChanges() throws Exception {
+        // Initialize the database
+        shoppingCartRepository.saveAndFlush(shoppingCart);
+        String login = shoppingCart.getCustomerDetails().getUser().getLogin();
+        List<CartItemChangeDTO> unknownProduct = Collections.singletonList(new CartItemChangeDTO(count.incrementAndGet(), 1));
+
+        restShoppingCartMockMvc
+            .perform(
+                patch(ENTITY_API_URL + "/current-user-active")
+                    .with(user(login))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(Collections.emptyList()))
+            )
+            .andExpect(status().isBadRequest());
+
+        restShoppingCartMockMvc
+            .perform(
+                patch(ENTITY_API_URL + "/current-user-active")
+                    .with(user(login))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(unknownProduct))
+            )
+            .andExpect(status().isBadRequest());
+
+        Product shirt = ProductResourceIT.createEntity(em);
+        em.persist(shirt);
+        em.flush();
+        List<CartItemChangeDTO> tooManyUnits = Arrays.asList(
+            new CartItemChangeDTO(shirt.getId(), Integer.MAX_VALUE),
+            new CartItemChangeDTO(shirt.getId(), Integer.MAX_VALUE)
+        );
+        restShoppingCartMockMvc
+            .perform(
+                patch(ENTITY_API_URL + "/current-user-active")
+                    .with(user(login))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(tooManyUnits))
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void onlyOneOpenShoppingCartPerCustomer() throws Exception {
+        // Initialize the database
+        shoppingCartRepository.saveAndFlush(shoppingCart);
+        assertThat(shoppingCart.getVersion()).isNotNull();
+
+        // Closed carts of the same customer are not limited
+        shoppingCartRepository.saveAndFlush(createEntity(em).status(OrderStatus.PAID));
+        shoppingCartRepository.saveAndFlush(createEntity(em).status(OrderStatus.PAID));
+
+        ShoppingCart secondOpenCart = createEntity(em);
+        assertThatThrownBy(() -> shoppingCartRepository.saveAndFlush(secondOpenCart)).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @Transactional
+    void getOrderHistoryOfCurrentUser() throws Exception {
+        // Initialize the database with a customer of their own, with three closed carts and an open one
+        CustomerDetails customerDetails = CustomerDetailsResourceIT.createEntity(em);
+        em.persist(customerDetails);
+        Product product = ProductResourceIT.createEntity(em);
+        em.persist(product);
+        List<Long> closedCartIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ShoppingCart cart = createEntity(em)
+                .customerDetails(customerDetails)
+                .status(OrderStatus.PAID)
+                .placedDate(DEFAULT_PLACED_DATE.plusSeconds(i));
+            em.persist(cart);
+            for (int line = 0; line < i; line++) {
+                em.persist(new ProductOrder().quantity(1).totalPrice(product.getPrice()).product(product).cart(cart));
+            }
+            closedCartIds.add(0, cart.getId());
+        }
+        em.persist(createEntity(em).customerDetails(customerDetails));
+        em.flush();
+        em.clear();
+
+        // Follow the next links, newest cart first
+        List<Integer> ids = new ArrayList<>();
+        List<Integer> lineCounts = new ArrayList<>();
+        String url = ENTITY_API_URL + "/current-user?size=2";
+        while (url != null) {
+            MvcResult result = restShoppingCartMockMvc
+                .perform(get(url).with(user(customerDetails.getUser().getLogin())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].orders").doesNotExist())
+                .andReturn();
+            ids.addAll(JsonPath.read(result.getResponse().getContentAsString(), "$[*].id"));
+            lineCounts.addAll(JsonPath.read(result.getResponse().getContentAsString(), "$[*].lineCount"));
+            String link = result.getResponse().getHeader(HttpHeaders.LINK);
+            url = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        }
+
+        assertThat(ids).containsExactly(closedCartIds.stream().map(Long::intValue).toArray(Integer[]::new));
+        assertThat(lineCounts).containsExactly(2, 1, 0);
+
+        restShoppingCartMockMvc
+            .perform(get(ENTITY_API_URL + "/current-user?after=not-a-cursor").with(user(customerDetails.getUser().getLogin())))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getOrderLinesOfCurrentUser() throws Exception {
+        // Initialize the database
+        CustomerDetails customerDetails = CustomerDetailsResourceIT.createEntity(em);
+        em.persist(customerDetails);
+        Product product = ProductResourceIT.createEntity(em);
+        em.persist(product);
+        ShoppingCart cart = createEntity(em).customerDetails(customerDetails).status(OrderStatus.PAID);
+        em.persist(cart);
+        ProductOrder order = new ProductOrder().quantity(2).totalPrice(product.getPrice().times(2)).product(product).cart(cart);
+        em.persist(order);
+        ShoppingCart emptyCart = createEntity(em).customerDetails(customerDetails).status(OrderStatus.PAID);
+        em.persist(emptyCart);
+        em.flush();
+        em.clear();
+        String login = customerDetails.getUser().getLogin();
+
+        restShoppingCartMockMvc
+            .perform(get(ENTITY_API_URL + "/current-user/{id}/orders", cart.getId()).with(user(login)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].id").value(order.getId().intValue()))
+            .andExpect(jsonPath("$[0].quantity").value(2))
+            .andExpect(jsonPath("$[0].product.id").value(product.getId().intValue()))
+            .andExpect(jsonPath("$[0].product.name").value(product.getName()))
+            .andExpect(jsonPath("$[0].product.description").doesNotExist());
+
+        restShoppingCartMockMvc
+            .perform(get(ENTITY_API_URL + "/current-user/{id}/orders", emptyCart.getId()).with(user(login)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+
+        // The carts of other customers are not found
+        restShoppingCartMockMvc
+            .perform(get(ENTITY_API_URL + "/current-user/{id}/orders", cart.getId()).with(user("another-" + login)))
+            .andExpect(status().isNotFound());
+    }
 }